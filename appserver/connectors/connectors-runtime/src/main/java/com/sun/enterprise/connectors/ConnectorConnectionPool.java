@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2019] Payara Foundation and/or affiliates
+// Portions Copyright [2019-2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.connectors;
 
@@ -109,6 +109,8 @@ public class ConnectorConnectionPool implements Serializable {
     //JdbcConnectionPoolDeployer.
     private boolean preferValidateOverRecreate_ = false;
 
+    private boolean adaptiveResizing_ = false;
+
     private String validateAtmostOncePeriod_ = null;
 
     private String conCreationRetryAttempts_ = null;
@@ -252,6 +254,7 @@ public class ConnectorConnectionPool implements Serializable {
                 (getConCreationRetryInterval());
         clone.setConCreationRetryAttempts(getConCreationRetryAttempts());
         clone.setPreferValidateOverRecreate(isPreferValidateOverRecreate());
+        clone.setAdaptiveResizing(isAdaptiveResizing());
         clone.setPooling(isPoolingOn());
         clone.setPingDuringPoolCreation(getPingDuringPoolCreation());
         return clone;
@@ -755,6 +758,9 @@ public class ConnectorConnectionPool implements Serializable {
             sb.append("\npreferValidateOverRecreate_ ");
             sb.append(preferValidateOverRecreate_);
 
+            sb.append("\nadaptiveResizing_ ");
+            sb.append(adaptiveResizing_);
+
             sb.append("\nmatchConnections_ ");
             sb.append(matchConnections_);
             sb.append("\nassociateWithThread_ ");
@@ -882,6 +888,14 @@ public class ConnectorConnectionPool implements Serializable {
         preferValidateOverRecreate_ = preferValidateOverRecreate;
     }
 
+    public boolean isAdaptiveResizing() {
+        return adaptiveResizing_;
+    }
+
+    public void setAdaptiveResizing(boolean adaptiveResizing) {
+        adaptiveResizing_ = adaptiveResizing;
+    }
+
     public long getDynamicReconfigWaitTimeout() {
         return dynamicReconfigWaitTimeout;
     }
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2019-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2019-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.enterprise.connectors;
 
@@ -65,6 +65,7 @@ import com.sun.enterprise.security.jaspic.callback.ContainerCallbackHandler;
 import com.sun.enterprise.transaction.api.JavaEETransactionManager;
 import com.sun.enterprise.util.Utility;
 import com.sun.logging.LogDomains;
+import fish.payara.nucleus.executorservice.PayaraExecutorService;
 import org.glassfish.admin.monitor.MonitoringBootstrap;
 import org.glassfish.api.admin.ProcessEnvironment;
 import org.glassfish.api.admin.ServerEnvironment;
@@ -112,6 +113,7 @@ import java.security.PrivilegedAction;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -161,6 +163,9 @@ public class ConnectorRuntime implements com.sun.appserv.connectors.internal.api
     @Inject
     private Provider<WorkManagerFactory> workManagerFactoryProvider;
 
+    @Inject
+    private Provider<PayaraExecutorService> payaraExecutorServiceProvider;
+
     @Inject
     private Provider<ResourceManagerFactory> resourceManagerFactoryProvider;
 
@@ -1040,6 +1045,15 @@ public class ConnectorRuntime implements com.sun.appserv.connectors.internal.api
         }
     }
 
+    /**
+     * provides the executor shared by the server internals
+     *
+     * @return ExecutorService
+     */
+    public ExecutorService getExecutorService() {
+        return payaraExecutorServiceProvider.get().getUnderlyingExecutorService();
+    }
+
     /**
      * get resource reference descriptors from current component's jndi environment
      *
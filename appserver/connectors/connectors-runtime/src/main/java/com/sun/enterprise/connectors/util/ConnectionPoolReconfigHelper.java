@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.connectors.util;
 
@@ -134,6 +135,10 @@ public final class ConnectionPoolReconfigHelper {
             return ReconfigAction.RECREATE_POOL;
         }
 
+        if (newCcp.isAdaptiveResizing() != oldCcp.isAdaptiveResizing()) {
+            return ReconfigAction.RECREATE_POOL;
+        }
+
         if ((newCcp.getDataStructureParameters() != null) && (oldCcp.getDataStructureParameters() == null)) {
             return ReconfigAction.RECREATE_POOL;
         }
@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.resource.deployer;
 
@@ -546,6 +547,14 @@ public class ConnectorConnectionPoolDeployer extends AbstractConnectorResourceDe
                                 value);
                     }
                     ccp.setPreferValidateOverRecreate(toBoolean(value, false));
+                } else if ("ADAPTIVE-POOL-RESIZING".equals(ep.getName().toUpperCase(locale))) {
+                    String value = ep.getValue();
+                    if (_logger.isLoggable(Level.FINE)) {
+                        _logger.fine(" ConnectorConnectionPoolDeployer::  " +
+                                "Setting ADAPTIVE-POOL-RESIZING to " +
+                                value);
+                    }
+                    ccp.setAdaptiveResizing(toBoolean(value, false));
                 }
             }
         }
@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.resource.pool;
 
@@ -287,6 +288,16 @@ public class AssocWithThreadResourcePool extends ConnectionPool {
         }
     }
 
+    /**
+     * resources can still be associated with a thread when freed, hence never hand them over to another request.
+     * @param resourceHandle ResourceHandle
+     * @return false
+     */
+    @Override
+    protected boolean handOff(ResourceHandle resourceHandle) {
+        return false;
+    }
+
     /**
      * destroys the resource
      * @param resourceHandle resource to be destroyed
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2019-2021] Payara Foundation and/or affiliates
+// Portions Copyright [2019-2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.resource.pool;
 
@@ -53,7 +53,9 @@ import com.sun.enterprise.resource.allocator.ResourceAllocator;
 import com.sun.enterprise.resource.listener.PoolLifeCycleListener;
 import com.sun.enterprise.resource.pool.datastructure.DataStructure;
 import com.sun.enterprise.resource.pool.datastructure.DataStructureFactory;
+import com.sun.enterprise.resource.pool.resizer.AdaptiveResizer;
 import com.sun.enterprise.resource.pool.resizer.Resizer;
+import com.sun.enterprise.resource.pool.waitqueue.HandoffPoolWaitQueue;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueue;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueueFactory;
 import com.sun.enterprise.transaction.api.JavaEETransaction;
@@ -67,6 +69,11 @@ import jakarta.resource.ResourceException;
 import jakarta.resource.spi.RetryableUnavailableException;
 import jakarta.transaction.Transaction;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.api.admin.ServerEnvironment;
@@ -99,12 +106,14 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     protected boolean matchConnections = false;
     protected boolean validation = false;
     protected boolean preferValidateOverRecreate = false;
+    protected boolean adaptiveResizing = false;
     // hold on to the resizer task so we can cancel/reschedule it.
     protected Resizer resizerTask;
 
 
     protected volatile boolean poolInitialized = false;
     protected Timer timer;
+    protected Executor executor;
 
     //advanced pool config properties
     protected boolean connectionCreationRetry_;
@@ -133,6 +142,8 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     protected String dataStructureParameters;
 
     protected PoolWaitQueue waitQueue;
+    // set when the wait queue hands released resources directly to the oldest waiting request
+    protected HandoffPoolWaitQueue handoffQueue;
     protected PoolWaitQueue reconfigWaitQueue;
     private long reconfigWaitTime ;
     protected String poolWaitQueueClass;
@@ -165,6 +176,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
     protected void initializePoolWaitQueue() throws PoolingException {
         waitQueue = PoolWaitQueueFactory.createPoolWaitQueue(poolWaitQueueClass);
+        handoffQueue = waitQueue instanceof HandoffPoolWaitQueue ? (HandoffPoolWaitQueue) waitQueue : null;
         reconfigWaitQueue = PoolWaitQueueFactory.createPoolWaitQueue(poolWaitQueueClass);
     }
 
@@ -233,10 +245,14 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
         this.allocator = allocator;
 
-        createResources(this.allocator, steadyPoolSize - ds.getResourcesSize());
+        if (adaptiveResizing) {
+            createResourcesInParallel(this.allocator, steadyPoolSize - ds.getResourcesSize());
+        } else {
+            createResources(this.allocator, steadyPoolSize - ds.getResourcesSize());
+        }
 
-        // if the idle time out is 0, then don't schedule the resizer task
-        if (idletime > 0) {
+        // without idle timeout the resizer task is only needed to follow the demand
+        if (idletime > 0 || adaptiveResizing) {
             scheduleResizerTask();
         }
 
@@ -268,13 +284,17 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
             timer = ConnectorRuntime.getRuntime().getTimer();
         }
 
-        timer.scheduleAtFixedRate(resizerTask, idletime, idletime);
+        long period = resizerTask.getPeriod();
+        timer.scheduleAtFixedRate(resizerTask, period, period);
         if (_logger.isLoggable(Level.FINEST)) {
             _logger.finest("scheduled resizer task");
         }
     }
 
     protected Resizer initializeResizer() {
+        if (adaptiveResizing) {
+            return new AdaptiveResizer(poolInfo, ds, this, this, preferValidateOverRecreate);
+        }
         return new Resizer(poolInfo, ds, this, this, preferValidateOverRecreate);
     }
 
@@ -374,16 +394,12 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         this.resourceStartTime.set(startTime);
 
         while (true) {
-            if (gateway.allowed()) {
+            // result is only set at this point when a resource was handed over while waiting
+            if (result == null && gateway.allowed()) {
                 //See comment #1 above
-                JavaEETransaction jtx = ((JavaEETransaction) txn);
-                Set resourcesSet = null;
-                if(jtx != null){
-	                resourcesSet = jtx.getResources(poolInfo);
-		        }
                 //allow when the pool is not blocked or at-least one resource is
                 //already obtained in the current transaction.
-                if (!blocked || (resourcesSet != null && resourcesSet.size() > 0)) {
+                if (!blocked || hasResourcesInTransaction(txn)) {
                     try {
                         result = internalGetResource(spec, alloc, txn);
                     } finally {
@@ -393,9 +409,13 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
             }
             if (result != null) {
                 // got one, return it
+                elapsedWaitTime = System.currentTimeMillis() - startTime;
+                Resizer resizer = resizerTask;
+                if (resizer != null) {
+                    resizer.connectionRequestServed(elapsedWaitTime);
+                }
                 if (poolLifeCycleListener != null) {
                     poolLifeCycleListener.connectionAcquired(result.getId());
-                    elapsedWaitTime = System.currentTimeMillis() - startTime;
                     poolLifeCycleListener.connectionRequestServed(elapsedWaitTime);
                     if (_logger.isLoggable( Level.FINE) ) {
                         _logger.log(Level.FINE, "Resource Pool: elapsed time (ms) to get connection for [{0}] : {1}", new Object[]{spec, elapsedWaitTime});
@@ -416,7 +436,10 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     }
                 }
 
-                if (!blocked) {
+                if (!blocked && handoffQueue != null) {
+                    //add to wait-queue, a released resource might be handed over directly
+                    result = waitForHandOff(spec, alloc, txn, remainingWaitTime);
+                } else if (!blocked) {
                     //add to wait-queue
                     Object waitMonitor = new Object();
                     if (poolLifeCycleListener != null) {
@@ -484,6 +507,131 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         return result;
     }
 
+    /**
+     * @param txn the current transaction, may be null
+     * @return true if at least one resource of this pool is already enlisted in the given transaction
+     */
+    private boolean hasResourcesInTransaction(Transaction txn) {
+        if (txn == null) {
+            return false;
+        }
+        Set resourcesSet = ((JavaEETransaction) txn).getResources(poolInfo);
+        return resourcesSet != null && resourcesSet.size() > 0;
+    }
+
+    /**
+     * Waits on the {@link HandoffPoolWaitQueue} until a resource is released or the wait time expires.
+     *
+     * @param spec ResourceSpec
+     * @param alloc ResourceAllocator of the request
+     * @param txn the current transaction, may be null
+     * @param waitTime maximum time to wait in milliseconds, zero to wait without timeout
+     * @return the resource handed over by a releasing thread if it can be used for this request, otherwise null
+     * @throws PoolingException when interrupted while waiting
+     */
+    private ResourceHandle waitForHandOff(ResourceSpec spec, ResourceAllocator alloc, Transaction txn, long waitTime)
+            throws PoolingException {
+        HandoffPoolWaitQueue.Waiter waiter = new HandoffPoolWaitQueue.Waiter();
+        if (poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionRequestQueued();
+        }
+        handoffQueue.addToQueue(waiter);
+        InterruptedException interrupted = null;
+        try {
+            logFine("Resource Pool: getting on wait queue");
+            waiter.await(waitTime);
+        } catch (InterruptedException ex) {
+            interrupted = ex;
+        }
+        ResourceHandle handedOver = waiter.cancel();
+        // when woken the releasing thread did remove the waiter already
+        if (handoffQueue.removeFromQueue(waiter) && poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionRequestDequeued();
+        }
+        if (interrupted != null) {
+            if (handedOver != null) {
+                ds.returnResource(handedOver);
+                notifyWaitingThreads();
+            }
+            poolManagerTaskInterrupted(interrupted);
+        }
+        return handedOver == null ? null : acceptHandedOverResource(handedOver, spec, alloc, txn);
+    }
+
+    /**
+     * Applies the same checks to a handed over resource that {@link #getResource(ResourceSpec, ResourceAllocator, Transaction)}
+     * and {@link #getResourceFromPool(ResourceAllocator, ResourceSpec)} apply to a free resource.
+     *
+     * @return the resource marked busy or null if it cannot be used for this request
+     * @throws PoolingException if unable to create a replacement for an invalid resource
+     */
+    private ResourceHandle acceptHandedOverResource(ResourceHandle h, ResourceSpec spec, ResourceAllocator alloc,
+            Transaction txn) throws PoolingException {
+        if (!gateway.allowed() || (blocked && !hasResourcesInTransaction(txn))) {
+            // the request has to wait for the gateway or the reconfiguration, give others a chance to use it
+            returnHandedOverResource(h);
+            return null;
+        }
+        ResourceHandle result;
+        try {
+            result = getHandedOverResource(h, spec, alloc);
+        } finally {
+            gateway.acquiredResource();
+        }
+        if (result != null) {
+            if (maxConnectionUsage_ > 0) {
+                result.incrementUsageCount();
+            }
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionUsed(result.getId());
+                poolLifeCycleListener.decrementNumConnFree();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks a handed over resource the way {@link #getResourceFromPool(ResourceAllocator, ResourceSpec)} checks a
+     * free resource, removing it from the pool if it is broken.
+     *
+     * @return the resource marked busy or null if it cannot be used for this request
+     * @throws PoolingException if unable to create a replacement for an invalid resource
+     */
+    private ResourceHandle getHandedOverResource(ResourceHandle h, ResourceSpec spec, ResourceAllocator alloc)
+            throws PoolingException {
+        // a released resource is counted as free, so it is removed and accounted for like a free one,
+        // the request then retries and takes the space it leaves in the pool
+        if (h.hasConnectionErrorOccurred()) {
+            ds.removeResource(h);
+            return null;
+        }
+        if (!matchConnection(h, alloc) || h.isShareable() != alloc.shareableWithinComponent()) {
+            returnHandedOverResource(h);
+            return null;
+        }
+        ResourceHandle result = h;
+        if (!isConnectionValid(h, alloc) || h.hasConnectionErrorOccurred()) {
+            ds.removeResource(h);
+            if (!failAllConnections) {
+                return null;
+            }
+            result = createSingleResourceAndAdjustPool(alloc, spec);
+        }
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "Resource Pool: using handed over resource for [{0}] : {1}", new Object[]{spec, result});
+        }
+        setResourceStateToBusy(result);
+        return result;
+    }
+
+    /**
+     * Puts a handed over resource which this request cannot use back into the free pool.
+     */
+    private void returnHandedOverResource(ResourceHandle h) {
+        ds.returnResource(h);
+        notifyWaitingThreads();
+    }
+
     private void poolManagerWaitTimeExpired() throws PoolingException {
         // wait time has expired
         if (poolLifeCycleListener != null) {
@@ -958,6 +1106,73 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         }
     }
 
+    /**
+     * Create specified number of resources concurrently, so that warming up
+     * the pool is not bound by the time taken to open a single connection.
+     * The calling thread creates resources as well, so the pool is filled
+     * even when no thread of the executor is free.
+     *
+     * @param alloc ResourceAllocator
+     * @param size  number of resources to create.
+     * @throws PoolingException When unable to create a resource
+     */
+    private void createResourcesInParallel(ResourceAllocator alloc, int size) throws PoolingException {
+        int threads = Math.min(size, Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            createResources(alloc, size);
+            return;
+        }
+        if (executor == null) {
+            executor = ConnectorRuntime.getRuntime().getExecutorService();
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(size);
+        final CountDownLatch done = new CountDownLatch(size);
+        final AtomicReference<PoolingException> failure = new AtomicReference<>();
+        final Runnable creator = () -> {
+            while (remaining.getAndDecrement() > 0) {
+                try {
+                    createResourceAndAddToPool(alloc);
+                } catch (PoolingException pe) {
+                    failure.compareAndSet(null, pe);
+                } catch (RuntimeException re) {
+                    failure.compareAndSet(null, new PoolingException(re.getMessage(), re));
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            for (int i = 1; i < threads; i++) {
+                executor.execute(() -> {
+                    Thread thread = Thread.currentThread();
+                    ClassLoader previous = thread.getContextClassLoader();
+                    thread.setContextClassLoader(contextClassLoader);
+                    try {
+                        creator.run();
+                    } finally {
+                        thread.setContextClassLoader(previous);
+                    }
+                });
+            }
+        } catch (RejectedExecutionException ree) {
+            logFine("creating the remaining resources of the steady pool in the calling thread");
+        }
+        creator.run();
+
+        try {
+            done.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new PoolingException(ie);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
 
     public void setPoolLifeCycleListener(PoolLifeCycleListener listener) {
         this.poolLifeCycleListener = listener;
@@ -1080,13 +1295,17 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     resourceHandle.getUsageCount() >= maxConnectionUsage_) {
                  performMaxConnectionUsageOperation(resourceHandle);
             } else {
-                // Put it back to the free collection.
-                ds.returnResource(resourceHandle);
                 //update the monitoring data
                 if (poolLifeCycleListener != null) {
                     poolLifeCycleListener.decrementConnectionUsed(resourceHandle.getId());
                     poolLifeCycleListener.incrementNumConnFree(false, steadyPoolSize);
                 }
+                if (handOff(resourceHandle)) {
+                    // the oldest waiting request took it over, there is nothing to notify
+                    return;
+                }
+                // Put it back to the free collection.
+                ds.returnResource(resourceHandle);
             }
             //for both the cases of free.add and maxConUsageOperation, a free resource is added.
             // Hence notify waiting threads
@@ -1094,6 +1313,23 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         }
     }
 
+    /**
+     * Hands a released resource directly to the oldest waiting request when the pool uses a
+     * {@link HandoffPoolWaitQueue}.
+     *
+     * @param resourceHandle the released resource
+     * @return true if a waiting request took over the resource
+     */
+    protected boolean handOff(ResourceHandle resourceHandle) {
+        if (handoffQueue == null || !handoffQueue.handOff(resourceHandle)) {
+            return false;
+        }
+        if (poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionRequestDequeued();
+        }
+        return true;
+    }
+
     protected boolean cleanupResource(ResourceHandle handle) {
         boolean cleanupSuccessful = true;
         // cleanup resource
@@ -1237,6 +1473,13 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
 
     protected void notifyWaitingThreads() {
+        if (handoffQueue != null) {
+            // wakes the oldest waiting request without locking
+            if (handoffQueue.wakeUpOldest() && poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+            return;
+        }
         // notify the first thread in the waitqueue
         Object waitMonitor = null;
         synchronized (waitQueue) {
@@ -1386,7 +1629,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                 idletime = _idleTime;
                 scheduleResizerTask();
             }
-            if (_idleTime == 0) {
+            if (_idleTime == 0 && !adaptiveResizing) {
                 //resizerTask.cancel();
                 cancelResizerTask();
             }
@@ -1472,6 +1715,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     private void setAdvancedPoolConfiguration(ConnectorConnectionPool poolResource) {
         matchConnections = poolResource.matchConnections();
         preferValidateOverRecreate = poolResource.isPreferValidateOverRecreate();
+        adaptiveResizing = poolResource.isAdaptiveResizing();
         maxConnectionUsage_ = Integer.parseInt(poolResource.getMaxConnectionUsage());
         connectionCreationRetryAttempts_ = Integer.parseInt
                 (poolResource.getConCreationRetryAttempts());
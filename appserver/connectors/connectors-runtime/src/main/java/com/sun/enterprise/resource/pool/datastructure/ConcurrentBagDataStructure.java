@@ -0,0 +1,283 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.logging.LogDomains;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lock free datastructure for pool.
+ * <p>
+ * Every thread remembers the resources it returned last, and tries to get one of these back before scanning the
+ * resources shared by all threads. Resources are claimed by a compare-and-set on their state, so neither path takes
+ * a lock. Adding and removing resources copies the shared list, which is fine as the pool resizes far less often than
+ * resources are borrowed.
+ */
+public class ConcurrentBagDataStructure implements DataStructure {
+
+    private static final int FREE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = 2;
+
+    /**
+     * Maximum number of resources remembered per thread
+     */
+    private static final int MAX_THREAD_LOCAL_RESOURCES = 8;
+
+    private final ResourceHandler handler;
+    private volatile int maxSize;
+
+    private final CopyOnWriteArrayList<BagEntry> sharedResources = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<ResourceHandle, BagEntry> entries = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deque<WeakReference<BagEntry>>> threadResources =
+            ThreadLocal.withInitial(() -> new ArrayDeque<>(MAX_THREAD_LOCAL_RESOURCES));
+
+    private final AtomicInteger remainingCapacity;
+    private final AtomicInteger freeResources = new AtomicInteger();
+
+    protected static final Logger _logger = LogDomains.getLogger(ConcurrentBagDataStructure.class, LogDomains.RSR_LOGGER);
+
+    public ConcurrentBagDataStructure(int maxSize, ResourceHandler handler) {
+        this.maxSize = maxSize;
+        this.handler = handler;
+        this.remainingCapacity = new AtomicInteger(maxSize);
+        if (_logger.isLoggable(Level.FINEST)) {
+            _logger.log(Level.FINEST, "Initializing concurrent bag datastructure with max size {0}", maxSize);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int addResource(ResourceAllocator allocator, int count) throws PoolingException {
+        int numResAdded = 0;
+        for (int i = 0; i < count && canGrow(); i++) {
+            try {
+                ResourceHandle handle = handler.createResource(allocator);
+                BagEntry entry = new BagEntry(handle);
+                entries.put(handle, entry);
+                freeResources.incrementAndGet();
+                sharedResources.add(entry);
+                numResAdded++;
+            } catch (Exception e) {
+                remainingCapacity.incrementAndGet();
+                throw new PoolingException(e.getMessage(), e);
+            }
+        }
+        return numResAdded;
+    }
+
+    private boolean canGrow() {
+        int capacity = remainingCapacity.getAndUpdate(x -> x > 0 ? x - 1 : 0);
+        return capacity > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResourceHandle getResource() {
+        // the resources returned by this thread most recently are tried first
+        Deque<WeakReference<BagEntry>> recent = threadResources.get();
+        WeakReference<BagEntry> reference;
+        while ((reference = recent.pollFirst()) != null) {
+            BagEntry entry = reference.get();
+            if (entry != null && entry.claim()) {
+                return entry.handle;
+            }
+        }
+        for (BagEntry entry : sharedResources) {
+            if (entry.claim()) {
+                return entry.handle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeResource(ResourceHandle resource) {
+        BagEntry entry = entries.get(resource);
+        if (entry != null && entry.remove()) {
+            entries.remove(resource, entry);
+            sharedResources.remove(entry);
+            remainingCapacity.incrementAndGet();
+            handler.deleteResource(resource);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void returnResource(ResourceHandle resource) {
+        BagEntry entry = entries.get(resource);
+        if (entry != null && entry.release()) {
+            Deque<WeakReference<BagEntry>> recent = threadResources.get();
+            if (recent.size() == MAX_THREAD_LOCAL_RESOURCES) {
+                recent.pollLast();
+            }
+            recent.offerFirst(new WeakReference<>(entry));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getFreeListSize() {
+        return freeResources.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll() {
+        List<ResourceHandle> removedResources = new ArrayList<>();
+        for (BagEntry entry : sharedResources) {
+            if (entry.remove()) {
+                entries.remove(entry.handle, entry);
+                sharedResources.remove(entry);
+                remainingCapacity.incrementAndGet();
+                removedResources.add(entry.handle);
+            }
+        }
+        for (ResourceHandle resourceHandle : removedResources) {
+            handler.deleteResource(resourceHandle);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getResourcesSize() {
+        return sharedResources.size();
+    }
+
+    /**
+     * Set maxSize based on the new max pool size set on the connection pool
+     * during a reconfiguration.
+     *
+     * @param maxSize
+     */
+    @Override
+    public synchronized void setMaxSize(int maxSize) {
+        int delta = maxSize - this.maxSize;
+        // remaining capacity might be negative after this, but its up to ConnectionPool to remove some of the resources
+        // before asking for new ones
+        remainingCapacity.getAndUpdate(x -> x + delta);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The list is a snapshot of the resources in the pool, free and in use. Changes to the pool made afterwards are
+     * not reflected in it.
+     */
+    @Override
+    public ArrayList<ResourceHandle> getAllResources() {
+        ArrayList<ResourceHandle> resources = new ArrayList<>(sharedResources.size());
+        for (BagEntry entry : sharedResources) {
+            resources.add(entry.handle);
+        }
+        return resources;
+    }
+
+    /**
+     * A resource of the pool together with its state
+     */
+    private final class BagEntry {
+
+        private final ResourceHandle handle;
+        private final AtomicInteger state = new AtomicInteger(FREE);
+
+        BagEntry(ResourceHandle handle) {
+            this.handle = handle;
+        }
+
+        boolean claim() {
+            if (state.get() == FREE && state.compareAndSet(FREE, IN_USE)) {
+                freeResources.decrementAndGet();
+                handle.setBusy(true);
+                return true;
+            }
+            return false;
+        }
+
+        boolean release() {
+            handle.setBusy(false);
+            if (state.compareAndSet(IN_USE, FREE)) {
+                freeResources.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        boolean remove() {
+            int previous = state.getAndSet(REMOVED);
+            if (previous == FREE) {
+                freeResources.decrementAndGet();
+            }
+            return previous != REMOVED;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.resizer;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.pool.PoolProperties;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.enterprise.resource.pool.datastructure.DataStructure;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Resizer that sizes the pool from its recent demand instead of only from the
+ * steady pool size.
+ * <p>
+ * Every connection request served by the pool is recorded together with the
+ * time it had to wait. The resizer samples these every
+ * {@link #SAMPLE_INTERVAL} milliseconds and keeps moving averages of the
+ * acquisition rate and of the number of connections in use. From these it
+ * derives a target size: when the acquisition rate is rising, or requests had
+ * to wait, connections are created in the background ahead of demand; when
+ * demand falls, connections that have been idle for a whole sample are
+ * released one at a time so the pool shrinks gradually.
+ * <p>
+ * The regular idle-timeout and validation processing of {@link Resizer} still
+ * runs once per idle-timeout period, but never scales the pool below the
+ * current target. Without an idle-timeout the pool only follows its demand.
+ */
+public class AdaptiveResizer extends Resizer {
+
+    /**
+     * Interval in milliseconds at which the demand is sampled.
+     */
+    static final long SAMPLE_INTERVAL = 5000L;
+
+    /**
+     * Weight given to the most recent sample in the moving averages.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * Capacity kept above the expected number of connections in use.
+     */
+    private static final double HEADROOM = 1.25;
+
+    /**
+     * Upper bound on how much a rising acquisition rate can scale the target.
+     */
+    private static final double MAX_TREND = 2.0;
+
+    private final LongAdder requestsServed = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+
+    // only accessed from the timer thread
+    private long lastSample;
+    private long lastResize;
+    private double averageRate;
+    private double averageInUse;
+
+    private volatile int target;
+
+    public AdaptiveResizer(PoolInfo poolInfo, DataStructure dataStructure, PoolProperties pp,
+            ResourceHandler handler, boolean preferValidateOverRecreate) {
+        super(poolInfo, dataStructure, pp, handler, preferValidateOverRecreate);
+        this.lastSample = System.nanoTime();
+        this.lastResize = lastSample;
+        this.target = pp.getSteadyPoolSize();
+    }
+
+    @Override
+    public void connectionRequestServed(long elapsedWaitTime) {
+        requestsServed.increment();
+        if (elapsedWaitTime > 0) {
+            waitTime.add(elapsedWaitTime);
+        }
+    }
+
+    @Override
+    public long getPeriod() {
+        long idleTimeout = pool.getIdleTimeout();
+        return idleTimeout > 0 ? Math.min(SAMPLE_INTERVAL, idleTimeout) : SAMPLE_INTERVAL;
+    }
+
+    @Override
+    public void run() {
+        debug("Adaptive resizer for pool " + poolInfo);
+        try {
+            adjustToDemand();
+        } catch (Exception ex) {
+            Object[] params = new Object[]{poolInfo, ex.getMessage()};
+            _logger.log(Level.WARNING, "resource_pool.resize_pool_error", params);
+        }
+
+        long now = System.nanoTime();
+        long idleTimeout = pool.getIdleTimeout();
+        if (idleTimeout > 0 && now - lastResize >= TimeUnit.MILLISECONDS.toNanos(idleTimeout)) {
+            lastResize = now;
+            super.run();
+        }
+    }
+
+    /**
+     * Take a demand sample, recompute the target size and move the pool
+     * towards it.
+     */
+    protected void adjustToDemand() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastSample) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastSample = now;
+
+        long served = requestsServed.sumThenReset();
+        long waited = waitTime.sumThenReset();
+        double rate = elapsedSeconds > 0 ? served / elapsedSeconds : 0;
+        int inUse = dataStructure.getResourcesSize() - dataStructure.getFreeListSize();
+
+        // a rising acquisition rate means the connections in use now will not be enough shortly
+        double trend = averageRate > 0 ? Math.min(Math.max(rate / averageRate, 1.0), MAX_TREND) : 1.0;
+        averageRate = smooth(averageRate, rate);
+        averageInUse = smooth(averageInUse, inUse);
+
+        boolean contended = waited > 0 || pool.getWaitQueueLength() > 0;
+        int step = Math.max(1, pool.getResizeQuantity());
+        int expected = (int) Math.ceil(Math.max(inUse, averageInUse) * trend * HEADROOM);
+        if (contended) {
+            expected += step;
+        }
+        target = Math.max(pool.getSteadyPoolSize(), Math.min(pool.getMaxPoolSize(), expected));
+
+        int size = dataStructure.getResourcesSize();
+        debug("Pool [ " + poolInfo + " ] : rate " + rate + "/s, average in use " + averageInUse
+                + ", average wait " + (served > 0 ? waited / served : 0) + " ms, size " + size
+                + ", target " + target);
+
+        if (size < target) {
+            grow(Math.min(target - size, step));
+        } else if (size > target && !contended) {
+            shrink();
+        }
+    }
+
+    /**
+     * Scale down pool by a <code>size &lt;= pool-resize-quantity</code>,
+     * without going below the current target size.
+     *
+     * @param scaleDownQuantity no. of resources to remove
+     * @param forced            scale-down only when forced
+     */
+    @Override
+    protected void scaleDownPool(int scaleDownQuantity, boolean forced) {
+        int surplus = Math.max(0, dataStructure.getResourcesSize() - target);
+        super.scaleDownPool(Math.min(scaleDownQuantity, surplus), forced);
+    }
+
+    private void grow(int quantity) {
+        for (int i = 0; i < quantity; i++) {
+            try {
+                handler.createResourceAndAddToPool();
+            } catch (PoolingException ex) {
+                Object[] params = new Object[]{poolInfo, ex.getMessage()};
+                _logger.log(Level.WARNING, "resource_pool.resize_pool_error", params);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Release a single free resource, provided it has not been used since the
+     * previous sample.
+     */
+    private void shrink() {
+        ResourceHandle h = dataStructure.getResource();
+        if (h == null) {
+            return;
+        }
+        if (System.currentTimeMillis() - h.getResourceState().getTimestamp() >= SAMPLE_INTERVAL) {
+            dataStructure.removeResource(h);
+        } else {
+            dataStructure.returnResource(h);
+        }
+    }
+
+    private static double smooth(double average, double sample) {
+        return average + SMOOTHING * (sample - average);
+    }
+}
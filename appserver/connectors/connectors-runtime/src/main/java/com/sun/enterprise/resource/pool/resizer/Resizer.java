@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2019-2021] Payara Foundation and/or affiliates
+// Portions Copyright [2019-2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.resource.pool.resizer;
 
@@ -92,6 +92,24 @@ public class
         this.preferValidateOverRecreate = preferValidateOverRecreate;
     }
 
+    /**
+     * Called by the pool every time a connection request has been served.
+     * Resizers that size the pool from its demand override this.
+     *
+     * @param elapsedWaitTime time in milliseconds the request took to be served
+     */
+    public void connectionRequestServed(long elapsedWaitTime) {
+    }
+
+    /**
+     * Gets the interval at which this resizer is to be run
+     *
+     * @return period in milliseconds
+     */
+    public long getPeriod() {
+        return pool.getIdleTimeout();
+    }
+
     public void run() {
         debug("Resizer for pool " + poolInfo);
         try {
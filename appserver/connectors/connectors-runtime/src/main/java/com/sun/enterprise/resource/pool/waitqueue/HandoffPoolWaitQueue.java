@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free {@link PoolWaitQueue} that serves waiting requests strictly in FIFO order.
+ * <p>
+ * Requests wait on a {@link Waiter}. A resource released to the pool is handed over directly to the oldest
+ * {@link Waiter} using {@link #handOff(ResourceHandle)} so that it cannot be taken by a request that arrived later.
+ * Only one waiter is woken per released resource.
+ * <p>
+ * Selected by setting the pool property {@code PoolWaitQueue} to the fully qualified name of this class.
+ */
+public class HandoffPoolWaitQueue implements PoolWaitQueue {
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger length = new AtomicInteger();
+
+    @Override
+    public int getQueueLength() {
+        return length.get();
+    }
+
+    @Override
+    public void addToQueue(Object waitMonitor) {
+        queue.add(waitMonitor);
+        length.incrementAndGet();
+    }
+
+    @Override
+    public boolean removeFromQueue(Object o) {
+        if (queue.remove(o)) {
+            length.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Object remove() {
+        Object first = poll();
+        if (first == null) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    @Override
+    public Object peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public Collection getQueueContents() {
+        return queue;
+    }
+
+    /**
+     * Hands the given resource to the oldest request that is still waiting.
+     *
+     * @param resource the released resource
+     * @return true if a waiting request accepted the resource, false if no request is waiting
+     */
+    public boolean handOff(ResourceHandle resource) {
+        return wake(resource);
+    }
+
+    /**
+     * Wakes the oldest request that is still waiting without handing over a resource, so it retries to get one from
+     * the pool.
+     *
+     * @return true if a waiting request was woken, false if no request is waiting
+     */
+    public boolean wakeUpOldest() {
+        return wake(null);
+    }
+
+    private boolean wake(ResourceHandle resource) {
+        Object waitMonitor;
+        while ((waitMonitor = queue.peek()) != null) {
+            if (resource != null && !(waitMonitor instanceof Waiter)) {
+                // a plain monitor cannot take over a resource. It stays queued, so that it is woken once, by
+                // wakeUpOldest, when the resource is back in the pool
+                return false;
+            }
+            if (!removeFromQueue(waitMonitor)) {
+                // woken concurrently or removed by its own request, look at the new head
+                continue;
+            }
+            if (waitMonitor instanceof Waiter) {
+                if (((Waiter) waitMonitor).offer(resource)) {
+                    return true;
+                }
+                // the waiter gave up already, try the next one
+            } else {
+                // a plain monitor is woken to retry getting a resource from the pool
+                synchronized (waitMonitor) {
+                    waitMonitor.notifyAll();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object poll() {
+        Object first = queue.poll();
+        if (first != null) {
+            length.decrementAndGet();
+        }
+        return first;
+    }
+
+    /**
+     * A single request waiting for a resource.
+     */
+    public static final class Waiter {
+
+        private ResourceHandle resource;
+        private boolean woken;
+        private boolean cancelled;
+
+        synchronized boolean offer(ResourceHandle resource) {
+            if (cancelled || woken) {
+                return false;
+            }
+            this.resource = resource;
+            this.woken = true;
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Waits until this waiter is woken or the timeout elapses.
+         *
+         * @param timeoutMillis maximum time to wait in milliseconds, zero to wait without timeout
+         * @throws InterruptedException when interrupted while waiting
+         */
+        public synchronized void await(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!woken) {
+                if (timeoutMillis <= 0) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return;
+                    }
+                    wait(remaining);
+                }
+            }
+        }
+
+        /**
+         * Stops waiting. After this call no resource is handed over to this waiter.
+         *
+         * @return the resource handed over before this waiter stopped waiting, or null
+         */
+        public synchronized ResourceHandle cancel() {
+            cancelled = true;
+            ResourceHandle handedOver = resource;
+            resource = null;
+            return handedOver;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.connectors.ConnectorConnectionPool;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.pool.waitqueue.HandoffPoolWaitQueue;
+import jakarta.resource.spi.RetryableUnavailableException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests a {@link ConnectionPool} using the {@link HandoffPoolWaitQueue}.
+ */
+public class ConnectionPoolHandOffTest {
+
+    private final TestResourceAllocator allocator = new TestResourceAllocator();
+    private final List<String> served = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private TestConnectionPool pool;
+
+    @After
+    public void resetGateway() {
+        CountingGateway.allowed = true;
+        CountingGateway.allowedCount.set(0);
+        CountingGateway.acquiredCount.set(0);
+    }
+
+    @Test
+    public void releasedResourceIsHandedOverInArrivalOrder() throws Exception {
+        pool = createPool(handOff(TestConnectionPool.configuration(1, 1, 10_000)));
+        ResourceHandle resource = getResource();
+
+        Thread first = request("first", true);
+        awaitWaiting(1);
+        Thread second = request("second", true);
+        awaitWaiting(2);
+
+        pool.resourceClosed(resource);
+        first.join(5_000);
+        second.join(5_000);
+
+        assertEquals(asList("first", "second"), served);
+        assertEquals(1, allocator.created.size());
+        assertNoFailure();
+    }
+
+    @Test
+    public void timedOutRequestLeavesTheQueueAndDoesNotTakeTheResource() throws Exception {
+        pool = createPool(handOff(TestConnectionPool.configuration(1, 1, 200)));
+        ResourceHandle resource = getResource();
+
+        Thread waiting = request("waiting", false);
+        waiting.join(5_000);
+
+        assertTrue(failure.get() instanceof PoolingException);
+        assertEquals(0, pool.getWaitQueueLength());
+
+        pool.resourceClosed(resource);
+
+        assertEquals(1, pool.getPoolStatus().getNumConnFree());
+        assertSame(resource, getResource());
+    }
+
+    @Test
+    public void invalidHandedOverResourceIsDestroyedAndReplaced() throws Exception {
+        ConnectorConnectionPool configuration = handOff(TestConnectionPool.configuration(1, 1, 10_000));
+        configuration.setConnectionValidationRequired(true);
+        pool = createPool(configuration);
+        ResourceHandle resource = getResource();
+
+        AtomicReference<ResourceHandle> replacement = new AtomicReference<>();
+        Thread waiting = new Thread(() -> {
+            try {
+                replacement.set(getResource());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        waiting.start();
+        awaitWaiting(1);
+
+        allocator.invalid.add(resource);
+        pool.resourceClosed(resource);
+        waiting.join(5_000);
+
+        assertNoFailure();
+        assertEquals(asList(resource), allocator.destroyed);
+        assertNotSame(resource, replacement.get());
+        assertTrue(replacement.get().getResourceState().isBusy());
+        PoolStatus status = pool.getPoolStatus();
+        assertEquals(0, status.getNumConnFree());
+        assertEquals(1, status.getNumConnUsed());
+    }
+
+    @Test
+    public void handedOverResourceIsOnlyTakenPastTheGateway() throws Exception {
+        ConnectorConnectionPool configuration = handOff(TestConnectionPool.configuration(1, 1, 500));
+        configuration.setResourceGatewayClass(CountingGateway.class.getName());
+        pool = createPool(configuration);
+        ResourceHandle resource = getResource();
+
+        Thread waiting = request("waiting", false);
+        awaitWaiting(1);
+        CountingGateway.allowed = false;
+        pool.resourceClosed(resource);
+        waiting.join(5_000);
+
+        assertTrue(served.isEmpty());
+        assertTrue(failure.get() instanceof PoolingException);
+        // the resource went back to the pool instead of being lost
+        assertEquals(1, pool.getPoolStatus().getNumConnFree());
+        assertEquals(CountingGateway.allowedCount.get(), CountingGateway.acquiredCount.get());
+
+        CountingGateway.allowed = true;
+        assertSame(resource, getResource());
+        assertEquals(CountingGateway.allowedCount.get(), CountingGateway.acquiredCount.get());
+    }
+
+    private TestConnectionPool createPool(ConnectorConnectionPool configuration) throws PoolingException {
+        return new TestConnectionPool(configuration);
+    }
+
+    private static ConnectorConnectionPool handOff(ConnectorConnectionPool configuration) {
+        configuration.setPoolWaitQueue(HandoffPoolWaitQueue.class.getName());
+        return configuration;
+    }
+
+    private ResourceHandle getResource() throws PoolingException, RetryableUnavailableException {
+        return pool.getResource(allocator.spec, allocator, null);
+    }
+
+    /**
+     * Starts a request which records its name once served, then optionally releases the resource again.
+     */
+    private Thread request(String name, boolean release) {
+        Thread thread = new Thread(() -> {
+            try {
+                ResourceHandle resource = getResource();
+                served.add(name);
+                if (release) {
+                    pool.resourceClosed(resource);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void awaitWaiting(int requests) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getWaitQueueLength() < requests) {
+            assertTrue("requests did not get on the wait queue", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private void assertNoFailure() {
+        Throwable t = failure.get();
+        assertFalse(String.valueOf(t), t != null);
+    }
+
+    /**
+     * Gateway which can be closed by the test and counts how often it let a request pass.
+     */
+    public static class CountingGateway extends ResourceGateway {
+
+        static volatile boolean allowed = true;
+        static final AtomicInteger allowedCount = new AtomicInteger();
+        static final AtomicInteger acquiredCount = new AtomicInteger();
+
+        @Override
+        public boolean allowed() {
+            if (allowed) {
+                allowedCount.incrementAndGet();
+            }
+            return allowed;
+        }
+
+        @Override
+        public void acquiredResource() {
+            acquiredCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.connectors.ConnectorConnectionPool;
+import com.sun.enterprise.resource.pool.resizer.AdaptiveResizer;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the scheduling of the resizer and the parallel warm-up of pools with adaptive resizing.
+ */
+public class ConnectionPoolResizingTest {
+
+    private static final int STEADY_POOL_SIZE = 8;
+
+    private final TestResourceAllocator allocator = new TestResourceAllocator();
+    private final RecordingTimer timer = new RecordingTimer();
+    private final ExecutorService threads = Executors.newFixedThreadPool(4);
+    private TestConnectionPool pool;
+
+    @After
+    public void shutdown() {
+        timer.cancel();
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void adaptiveResizerIsScheduledWithoutIdleTimeout() throws Exception {
+        initPool(configuration(1, true), Runnable::run);
+
+        assertEquals(1, timer.tasks.size());
+        assertTrue(timer.tasks.get(0) instanceof AdaptiveResizer);
+        assertEquals(5000, timer.periods.get(0).longValue());
+    }
+
+    @Test
+    public void resizerIsNotScheduledWithoutIdleTimeout() throws Exception {
+        initPool(configuration(1, false), Runnable::run);
+
+        assertTrue(timer.tasks.isEmpty());
+    }
+
+    @Test
+    public void adaptiveResizerKeepsRunningWhenIdleTimeoutIsRemoved() throws Exception {
+        ConnectorConnectionPool configuration = configuration(1, true);
+        configuration.setIdleTimeoutInSeconds("300");
+        initPool(configuration, Runnable::run);
+        assertEquals(1, timer.tasks.size());
+
+        configuration.setIdleTimeoutInSeconds("0");
+        pool.reconfigurePool(configuration);
+
+        assertEquals(0, pool.getIdleTimeout());
+        assertEquals(5000, pool.resizerTask.getPeriod());
+        assertTrue(pool.resizerTask == timer.tasks.get(0));
+    }
+
+    @Test
+    public void steadyPoolIsCreatedOnTheGivenExecutor() throws Exception {
+        assumeMultipleProcessors();
+        AtomicInteger submitted = new AtomicInteger();
+
+        initPool(configuration(STEADY_POOL_SIZE, true), task -> {
+            submitted.incrementAndGet();
+            threads.execute(task);
+        });
+
+        assertEquals(Math.min(STEADY_POOL_SIZE, Runtime.getRuntime().availableProcessors()) - 1, submitted.get());
+        assertEquals(STEADY_POOL_SIZE, allocator.created.size());
+        assertEquals(STEADY_POOL_SIZE - 1, pool.getPoolStatus().getNumConnFree());
+    }
+
+    @Test
+    public void steadyPoolIsCreatedWhenTheExecutorIsBusy() throws Exception {
+        assumeMultipleProcessors();
+
+        // the executor never gets to run the tasks
+        initPool(configuration(STEADY_POOL_SIZE, true), task -> { });
+
+        assertEquals(STEADY_POOL_SIZE, allocator.created.size());
+    }
+
+    @Test
+    public void failureToCreateTheSteadyPoolIsReported() {
+        assumeMultipleProcessors();
+        allocator.failCreation = true;
+
+        try {
+            initPool(configuration(STEADY_POOL_SIZE, true), threads);
+            fail("the pool was initialized without resources");
+        } catch (Exception e) {
+            assertTrue(String.valueOf(e), e instanceof PoolingException);
+        }
+    }
+
+    private static ConnectorConnectionPool configuration(int steadyPoolSize, boolean adaptiveResizing) {
+        ConnectorConnectionPool configuration = TestConnectionPool.configuration(steadyPoolSize, 32, 1000);
+        configuration.setAdaptiveResizing(adaptiveResizing);
+        return configuration;
+    }
+
+    private void initPool(ConnectorConnectionPool configuration, Executor executor)
+            throws Exception {
+        pool = new TestConnectionPool(configuration);
+        pool.timer = timer;
+        pool.executor = executor;
+        pool.getResource(allocator.spec, allocator, null);
+    }
+
+    private static void assumeMultipleProcessors() {
+        assumeTrue("resources are created one by one on a single processor",
+                Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    /**
+     * Timer which only records the tasks scheduled.
+     */
+    private static class RecordingTimer extends Timer {
+
+        final List<TimerTask> tasks = new CopyOnWriteArrayList<>();
+        final List<Long> periods = new CopyOnWriteArrayList<>();
+
+        RecordingTimer() {
+            super(true);
+        }
+
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+            tasks.add(task);
+            periods.add(period);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.connectors.ConnectorConnectionPool;
+import java.util.Hashtable;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+/**
+ * {@link ConnectionPool} configured directly instead of through JNDI.
+ */
+class TestConnectionPool extends ConnectionPool {
+
+    TestConnectionPool(ConnectorConnectionPool configuration) throws PoolingException {
+        super(new PoolInfo(configuration.getName()), environment(configuration));
+    }
+
+    /**
+     * @return the configuration of a pool with the defaults of a new pool, without idle timeout
+     */
+    static ConnectorConnectionPool configuration(int steadyPoolSize, int maxPoolSize, int maxWaitTimeInMillis) {
+        ConnectorConnectionPool configuration = new ConnectorConnectionPool(new PoolInfo("test-pool"));
+        configuration.setSteadyPoolSize(Integer.toString(steadyPoolSize));
+        configuration.setMaxPoolSize(Integer.toString(maxPoolSize));
+        configuration.setMaxWaitTimeInMillis(Integer.toString(maxWaitTimeInMillis));
+        configuration.setPoolResizeQuantity("1");
+        configuration.setIdleTimeoutInSeconds("0");
+        configuration.setMaxConnectionUsage(ConnectorConnectionPool.DEFAULT_MAX_CONNECTION_USAGE);
+        configuration.setConCreationRetryAttempts(ConnectorConnectionPool.DEFAULT_CON_CREATION_RETRY_ATTEMPTS);
+        configuration.setConCreationRetryInterval(ConnectorConnectionPool.DEFAULT_CON_CREATION_RETRY_INTERVAL);
+        configuration.setValidateAtmostOncePeriod(ConnectorConnectionPool.DEFAULT_VALIDATE_ATMOST_ONCE_PERIOD);
+        configuration.setConnectionLeakTracingTimeout(ConnectorConnectionPool.DEFAULT_LEAK_TIMEOUT);
+        return configuration;
+    }
+
+    private static Hashtable<Object, Object> environment(ConnectorConnectionPool configuration) {
+        Hashtable<Object, Object> env = new Hashtable<>();
+        env.put(ConnectorConnectionPool.class, configuration);
+        return env;
+    }
+
+    @Override
+    protected ConnectorConnectionPool getPoolConfigurationFromJndi(Hashtable env) {
+        return (ConnectorConnectionPool) env.get(ConnectorConnectionPool.class);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.ResourceSpec;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link ResourceAllocator} creating plain objects as resources, which can be marked invalid.
+ */
+class TestResourceAllocator implements ResourceAllocator {
+
+    final ResourceSpec spec = new ResourceSpec("test-resource", ResourceSpec.JNDI_NAME);
+    final List<ResourceHandle> created = new CopyOnWriteArrayList<>();
+    final List<ResourceHandle> destroyed = new CopyOnWriteArrayList<>();
+    final Set<ResourceHandle> invalid = ConcurrentHashMap.newKeySet();
+    volatile boolean failCreation;
+
+    @Override
+    public ResourceHandle createResource() throws PoolingException {
+        if (failCreation) {
+            throw new PoolingException("creation failed");
+        }
+        ResourceHandle handle = new ResourceHandle(new Object(), spec, this, null);
+        created.add(handle);
+        return handle;
+    }
+
+    @Override
+    public void fillInResourceObjects(ResourceHandle resource) {
+    }
+
+    @Override
+    public void closeUserConnection(ResourceHandle resource) {
+    }
+
+    @Override
+    public void destroyResource(ResourceHandle resource) {
+        destroyed.add(resource);
+    }
+
+    @Override
+    public boolean matchConnection(ResourceHandle h) {
+        return true;
+    }
+
+    @Override
+    public boolean supportsReauthentication() {
+        return false;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return false;
+    }
+
+    @Override
+    public void cleanup(ResourceHandle resource) {
+    }
+
+    @Override
+    public boolean shareableWithinComponent() {
+        return false;
+    }
+
+    @Override
+    public Object getSharedConnection(ResourceHandle h) {
+        return null;
+    }
+
+    @Override
+    public Set getInvalidConnections(Set connectionSet) {
+        return new HashSet<>();
+    }
+
+    @Override
+    public boolean isConnectionValid(ResourceHandle resource) {
+        return !invalid.contains(resource);
+    }
+
+    @Override
+    public boolean hasValidatingMCF() {
+        return false;
+    }
+}
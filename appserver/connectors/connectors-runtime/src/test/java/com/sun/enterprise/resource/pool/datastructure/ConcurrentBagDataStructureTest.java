@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentBagDataStructureTest {
+
+    private final List<ResourceHandle> deleted = new ArrayList<>();
+    private final ConcurrentBagDataStructure bag = new ConcurrentBagDataStructure(3, new TestResourceHandler());
+
+    @Test
+    public void addIsLimitedByMaxSize() throws Exception {
+        assertEquals(2, bag.addResource(null, 2));
+        assertEquals(1, bag.addResource(null, 2));
+        assertEquals(0, bag.addResource(null, 1));
+
+        assertEquals(3, bag.getResourcesSize());
+        assertEquals(3, bag.getFreeListSize());
+    }
+
+    @Test
+    public void resourceIsHandedOutOnlyOnce() throws Exception {
+        bag.addResource(null, 2);
+
+        ResourceHandle first = bag.getResource();
+        ResourceHandle second = bag.getResource();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertFalse(first == second);
+        assertTrue(first.isBusy());
+        assertNull(bag.getResource());
+        assertEquals(0, bag.getFreeListSize());
+    }
+
+    @Test
+    public void returnedResourceIsHandedOutAgainToTheSameThread() throws Exception {
+        bag.addResource(null, 3);
+        ResourceHandle resource = bag.getResource();
+
+        bag.returnResource(resource);
+
+        assertFalse(resource.isBusy());
+        assertEquals(3, bag.getFreeListSize());
+        assertSame(resource, bag.getResource());
+    }
+
+    @Test
+    public void returningTwiceIsIgnored() throws Exception {
+        bag.addResource(null, 1);
+        ResourceHandle resource = bag.getResource();
+
+        bag.returnResource(resource);
+        bag.returnResource(resource);
+
+        assertEquals(1, bag.getFreeListSize());
+    }
+
+    @Test
+    public void removedResourceIsDeletedAndFreesCapacity() throws Exception {
+        bag.addResource(null, 3);
+        ResourceHandle resource = bag.getResource();
+
+        bag.removeResource(resource);
+        bag.removeResource(resource);
+
+        assertEquals(1, deleted.size());
+        assertSame(resource, deleted.get(0));
+        assertEquals(2, bag.getResourcesSize());
+        assertEquals(2, bag.getFreeListSize());
+        assertFalse(bag.getAllResources().contains(resource));
+        assertEquals(1, bag.addResource(null, 1));
+    }
+
+    @Test
+    public void removedResourceIsNotHandedOutFromThreadCache() throws Exception {
+        bag.addResource(null, 1);
+        ResourceHandle resource = bag.getResource();
+        bag.returnResource(resource);
+
+        bag.removeResource(resource);
+
+        assertNull(bag.getResource());
+    }
+
+    @Test
+    public void allResourcesContainsFreeAndBusyResources() throws Exception {
+        bag.addResource(null, 3);
+        ResourceHandle busy = bag.getResource();
+
+        List<ResourceHandle> all = bag.getAllResources();
+
+        assertEquals(3, all.size());
+        assertTrue(all.contains(busy));
+        assertEquals(3, new HashSet<>(all).size());
+    }
+
+    @Test
+    public void allResourcesIsASnapshot() throws Exception {
+        bag.addResource(null, 2);
+        List<ResourceHandle> all = bag.getAllResources();
+
+        bag.removeResource(all.get(0));
+        bag.addResource(null, 1);
+        all.clear();
+
+        assertEquals(2, bag.getAllResources().size());
+        assertEquals(2, bag.getResourcesSize());
+    }
+
+    @Test
+    public void removeAllDeletesEveryResource() throws Exception {
+        bag.addResource(null, 3);
+        bag.getResource();
+
+        bag.removeAll();
+
+        assertEquals(3, deleted.size());
+        assertEquals(0, bag.getResourcesSize());
+        assertEquals(0, bag.getFreeListSize());
+        assertTrue(bag.getAllResources().isEmpty());
+    }
+
+    @Test
+    public void shrinkingMaxSizeStopsGrowth() throws Exception {
+        bag.addResource(null, 2);
+
+        bag.setMaxSize(2);
+
+        assertEquals(0, bag.addResource(null, 1));
+        bag.setMaxSize(4);
+        assertEquals(2, bag.addResource(null, 3));
+    }
+
+    private class TestResourceHandler implements ResourceHandler {
+
+        @Override
+        public void deleteResource(ResourceHandle resourceHandle) {
+            deleted.add(resourceHandle);
+        }
+
+        @Override
+        public ResourceHandle createResource(ResourceAllocator allocator) throws PoolingException {
+            return new ResourceHandle(null, null, allocator, null);
+        }
+
+        @Override
+        public void createResourceAndAddToPool() {
+        }
+
+        @Override
+        public Set getInvalidConnections(Set connections) {
+            return new HashSet<>();
+        }
+
+        @Override
+        public void invalidConnectionDetected(ResourceHandle h) {
+        }
+    }
+}
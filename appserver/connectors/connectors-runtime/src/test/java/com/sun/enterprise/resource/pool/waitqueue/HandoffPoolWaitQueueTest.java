@@ -0,0 +1,148 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HandoffPoolWaitQueueTest {
+
+    private final HandoffPoolWaitQueue queue = new HandoffPoolWaitQueue();
+    private final ResourceHandle resource = new ResourceHandle(null, null, null, null);
+
+    @Test
+    public void resourceIsHandedToOldestWaiterOnly() {
+        HandoffPoolWaitQueue.Waiter oldest = new HandoffPoolWaitQueue.Waiter();
+        HandoffPoolWaitQueue.Waiter newest = new HandoffPoolWaitQueue.Waiter();
+        queue.addToQueue(oldest);
+        queue.addToQueue(newest);
+
+        assertTrue(queue.handOff(resource));
+
+        assertSame(resource, oldest.cancel());
+        assertNull(newest.cancel());
+        assertEquals(1, queue.getQueueLength());
+        assertSame(newest, queue.peek());
+    }
+
+    @Test
+    public void cancelledWaiterIsSkipped() {
+        HandoffPoolWaitQueue.Waiter cancelled = new HandoffPoolWaitQueue.Waiter();
+        HandoffPoolWaitQueue.Waiter waiting = new HandoffPoolWaitQueue.Waiter();
+        queue.addToQueue(cancelled);
+        queue.addToQueue(waiting);
+        cancelled.cancel();
+
+        assertTrue(queue.handOff(resource));
+
+        assertSame(resource, waiting.cancel());
+        assertEquals(0, queue.getQueueLength());
+    }
+
+    @Test
+    public void resourceIsNotHandedOverWhenNobodyWaits() {
+        assertFalse(queue.handOff(resource));
+        assertFalse(queue.wakeUpOldest());
+    }
+
+    @Test
+    public void plainMonitorStaysQueuedOnHandOff() {
+        Object monitor = new Object();
+        HandoffPoolWaitQueue.Waiter waiter = new HandoffPoolWaitQueue.Waiter();
+        queue.addToQueue(monitor);
+        queue.addToQueue(waiter);
+
+        assertFalse(queue.handOff(resource));
+
+        assertEquals(2, queue.getQueueLength());
+        assertSame(monitor, queue.peek());
+        assertNull(waiter.cancel());
+    }
+
+    @Test
+    public void releasedResourceWakesExactlyOnePlainMonitor() throws Exception {
+        Object first = new Object();
+        Object second = new Object();
+        Thread firstThread = waitOn(first);
+        Thread secondThread = waitOn(second);
+        queue.addToQueue(first);
+        queue.addToQueue(second);
+
+        // as done by the pool when a resource is released: hand off, else return it and wake the oldest
+        assertFalse(queue.handOff(resource));
+        assertTrue(queue.wakeUpOldest());
+
+        firstThread.join(10_000);
+        assertFalse(firstThread.isAlive());
+        Thread.sleep(100);
+        assertEquals(Thread.State.WAITING, secondThread.getState());
+        assertEquals(1, queue.getQueueLength());
+        assertSame(second, queue.peek());
+
+        assertTrue(queue.wakeUpOldest());
+        secondThread.join(10_000);
+        assertFalse(secondThread.isAlive());
+    }
+
+    private static Thread waitOn(Object monitor) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            synchronized (monitor) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+}
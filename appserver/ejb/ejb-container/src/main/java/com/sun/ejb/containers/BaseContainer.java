@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers;
 
@@ -4969,6 +4969,10 @@ public abstract class BaseContainer implements Container, EjbContainerFacade, Ja
         timerProbeNotifier.ejbTimerDeliveredEvent();
     }
 
+    protected void timerDeliveredLate(long lateness) {
+        timerProbeNotifier.ejbTimerDeliveredLateEvent(lateness);
+    }
+
     private static class JndiInfo {
 
         private JndiInfo(String name, Object object) {
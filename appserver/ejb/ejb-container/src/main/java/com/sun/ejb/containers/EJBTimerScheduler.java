@@ -0,0 +1,283 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schedules {@link EJBTimerTask} expirations on a hashed timing wheel.
+ * <p>
+ * Unlike {@link java.util.Timer} scheduling does not take a lock: new tasks
+ * are put on a lock-free queue and moved into the wheel by the wheel thread,
+ * so scheduling and cancelling a timer are O(1). The wheel thread only
+ * advances the wheel; expired tasks are handed to a dispatch pool, so a task
+ * that blocks (e.g. waiting for the {@link RuntimeTimerState} monitor) does
+ * not delay the expiration of other timers. Timers further away than one
+ * revolution of the wheel are kept in their bucket with a count of the
+ * revolutions that have to pass before they expire.
+ * <p>
+ * Expirations are delivered at most one tick late, in addition to any time
+ * spent waiting for a dispatch thread. The timer service reports how late
+ * each expiration was delivered to the timer statistics of its bean.
+ */
+public class EJBTimerScheduler {
+
+    private static final Logger logger = EjbContainerUtilImpl.getLogger();
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickMillis;
+    private final ArrayDeque<Entry>[] wheel;
+    private final int mask;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final ExecutorService dispatcher;
+    private final Thread worker;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final LongAdder dispatched = new LongAdder();
+
+    private volatile boolean stopped;
+    private volatile boolean idle;
+
+    // Only accessed by the wheel thread
+    private long startTime;
+    private long tick;
+
+    /**
+     * @param name prefix of the names of the wheel and dispatch threads
+     * @param tickMillis the resolution of the wheel
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param dispatchThreads size of the pool running expired tasks
+     */
+    @SuppressWarnings("unchecked")
+    public EJBTimerScheduler(String name, long tickMillis, int wheelSize, int dispatchThreads) {
+        if (tickMillis <= 0 || wheelSize <= 0 || dispatchThreads <= 0) {
+            throw new IllegalArgumentException("tickMillis, wheelSize and dispatchThreads must be positive");
+        }
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+
+        // Threads must not keep the context class loader of the thread
+        // creating them, which may belong to an application.  Issue 17468
+        final ClassLoader loader = EJBTimerScheduler.class.getClassLoader();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, name + " Dispatcher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setContextClassLoader(loader);
+                    return thread;
+                });
+        ((ThreadPoolExecutor) dispatcher).allowCoreThreadTimeOut(true);
+        this.worker = new Thread(this::runWheel, name);
+        this.worker.setDaemon(true);
+        this.worker.setContextClassLoader(loader);
+    }
+
+    /**
+     * Schedules the task for expiration at its {@link EJBTimerTask#getTimeout()
+     * timeout}. Cancelling the task removes it from the wheel.
+     *
+     * @throws IllegalStateException if the scheduler has been shut down
+     */
+    public void schedule(EJBTimerTask task) {
+        if (stopped) {
+            throw new IllegalStateException("Timer scheduler has been shut down");
+        }
+        if (!started.get() && started.compareAndSet(false, true)) {
+            worker.start();
+        }
+        scheduled.incrementAndGet();
+        pending.add(new Entry(task, task.getTimeout().getTime()));
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Stops the wheel and the dispatch pool. Pending expirations are dropped.
+     */
+    public void shutdown() {
+        stopped = true;
+        LockSupport.unpark(worker);
+        dispatcher.shutdown();
+    }
+
+    /**
+     * @return the number of tasks scheduled and not yet expired or cancelled
+     */
+    public int getScheduledCount() {
+        return scheduled.get();
+    }
+
+    /**
+     * @return the number of expired tasks handed to the dispatch pool
+     */
+    public long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    private void runWheel() {
+        startTime = System.currentTimeMillis();
+        tick = 0;
+        while (!stopped) {
+            transferPending();
+            if (scheduled.get() == 0) {
+                waitForWork();
+                continue;
+            }
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+            waitForTick();
+        }
+    }
+
+    private void transferPending() {
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            if (entry.task.isCancelled()) {
+                scheduled.decrementAndGet();
+                continue;
+            }
+            // The bucket for tick t is expired at startTime + t * tickMillis,
+            // so round up to never expire a task early.
+            long target = Math.max(tick,
+                    (entry.deadline - startTime + tickMillis - 1) / tickMillis);
+            entry.rounds = (target - tick) / wheel.length;
+            wheel[(int) (target & mask)].add(entry);
+        }
+    }
+
+    private void expire(ArrayDeque<Entry> bucket) {
+        for (int i = bucket.size(); i > 0; i--) {
+            Entry entry = bucket.poll();
+            if (entry.task.isCancelled()) {
+                scheduled.decrementAndGet();
+            } else if (entry.rounds <= 0) {
+                scheduled.decrementAndGet();
+                dispatch(entry);
+            } else {
+                entry.rounds--;
+                bucket.add(entry);
+            }
+        }
+    }
+
+    private void dispatch(Entry entry) {
+        try {
+            dispatcher.execute(() -> run(entry));
+        } catch (Exception e) {
+            if (!stopped) {
+                logger.log(Level.WARNING, "Cannot dispatch expiration of EJB timer task", e);
+            }
+        }
+    }
+
+    private void run(Entry entry) {
+        if (entry.task.isCancelled()) {
+            return;
+        }
+        dispatched.increment();
+        try {
+            entry.task.run();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Exception in EJB timer task expiring at " + new Date(entry.deadline), t);
+        }
+    }
+
+    private void waitForWork() {
+        idle = true;
+        try {
+            if (pending.isEmpty() && !stopped) {
+                LockSupport.park(this);
+            }
+        } finally {
+            idle = false;
+        }
+        // Restart the wheel from the current time, no tick has expired
+        // anything while it was idle.
+        startTime = System.currentTimeMillis();
+        tick = 0;
+    }
+
+    private void waitForTick() {
+        long deadline = startTime + tick * tickMillis;
+        long now;
+        while (!stopped && (now = System.currentTimeMillis()) < deadline) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(deadline - now));
+        }
+    }
+
+    private static final class Entry {
+
+        final EJBTimerTask task;
+        final long deadline;
+        long rounds;
+
+        Entry(EJBTimerTask task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
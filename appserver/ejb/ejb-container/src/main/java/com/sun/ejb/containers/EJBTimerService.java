@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 package com.sun.ejb.containers;
 
 import java.io.Serializable;
@@ -639,8 +639,7 @@ public abstract class EJBTimerService {
                     timerState.scheduled(timerTask);
                 }
 
-                java.util.Timer jdkTimer = ejbContainerUtil.getTimer();
-                jdkTimer.schedule(timerTask, timerExpiration);            
+                ejbContainerUtil.getTimerScheduler().schedule(timerTask);
             }
         } else {
             
@@ -1390,7 +1389,7 @@ public abstract class EJBTimerService {
 
     /**
      * This method is called back from the EJBTimerTask object 
-     * on the JDK Timer Thread.  Work performed in this callback 
+     * on an EJBTimerScheduler dispatch thread.  Work performed in this callback 
      * should be short-lived, so do a little bookkeeping and then
      * launch a separate thread to invoke ejbTimeout, etc.
      */
@@ -1399,13 +1398,23 @@ public abstract class EJBTimerService {
         RuntimeTimerState timerState = getTimerState(timerId);
 
         if( timerState != null ) {
+            BaseContainer container = getContainer(timerState.getContainerId());
+
             synchronized(timerState) {
                 if( timerState.isScheduled() ) {
+                    long lateness = System.currentTimeMillis() -
+                        timerState.getCurrentTimerTask().getTimeout().getTime();
+                    // An unknown container is left to deliverTimeout, which
+                    // expunges the timer
+                    if( container != null ) {
+                        container.timerDeliveredLate(Math.max(0, lateness));
+                    }
                     timerState.delivered();
 
                     if( logger.isLoggable(Level.FINE) ) {
                         logger.log(Level.FINE, 
-                           "Adding work pool task for timer " + timerId);
+                           "Adding work pool task for timer " + timerId +
+                           ", expiration delivered " + lateness + " ms late");
                     }
 
                     TaskExpiredWork work = new TaskExpiredWork(this, timerId,requestTracing, stuckThreadsStore);
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers;
 
@@ -64,6 +64,7 @@ import jakarta.transaction.Transaction;
 import jakarta.transaction.Synchronization;
 import java.util.Timer;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import org.glassfish.ejb.config.EjbContainer;
 
@@ -108,6 +109,17 @@ public interface EjbContainerUtil {
 
     public  Timer getTimer();
 
+    /**
+     * @return the scheduler used to expire EJB timers
+     */
+    public  EJBTimerScheduler getTimerScheduler();
+
+    /**
+     * @return the executor writing passivated stateful session beans
+     * to their backing store
+     */
+    public  ExecutorService getPassivationExecutor();
+
     public  void setInsideContainer(boolean bool);
 
     public  boolean isInsideContainer();
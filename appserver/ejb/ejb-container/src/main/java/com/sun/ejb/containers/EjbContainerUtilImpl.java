@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers;
 
@@ -89,6 +89,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -132,6 +133,19 @@ public class EjbContainerUtilImpl
 
     private  Timer _timer;
 
+    private volatile EJBTimerScheduler _timerScheduler;
+
+    // ejb-timer-service properties configuring the EJBTimerScheduler
+    private static final String TIMER_TICK_MILLIS = "timer-tick-millis";
+    private static final String TIMER_WHEEL_SIZE = "timer-wheel-size";
+    private static final String TIMER_DISPATCH_THREADS = "timer-dispatch-threads";
+
+    private volatile ExecutorService _passivationExecutor;
+
+    // ejb-container property sizing the pool writing passivated SFSBs
+    private static final String PASSIVATION_THREADS = "passivation-threads";
+    private static final String PASSIVATION_THREAD_POOL_NAME = "__ejb-passivation-pool";
+
     private  boolean _insideContainer = true;
 
     @Inject
@@ -229,6 +243,14 @@ public class EjbContainerUtilImpl
         }
         EJBTimerService.onShutdown();
         EJBTimerService.unsetEJBTimerService();
+        if( _timerScheduler != null ) {
+            _timerScheduler.shutdown();
+            _timerScheduler = null;
+        }
+        if( _passivationExecutor != null ) {
+            _passivationExecutor.shutdown();
+            _passivationExecutor = null;
+        }
     }
 
     @Override
@@ -315,6 +337,90 @@ public class EjbContainerUtilImpl
         return _timer;
     }
 
+    @Override
+    public EJBTimerScheduler getTimerScheduler() {
+        EJBTimerScheduler scheduler = _timerScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = _timerScheduler;
+                if (scheduler == null) {
+                    scheduler = createTimerScheduler();
+                    _timerScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    private EJBTimerScheduler createTimerScheduler() {
+        long tickMillis = EJBTimerScheduler.DEFAULT_TICK_MILLIS;
+        int wheelSize = EJBTimerScheduler.DEFAULT_WHEEL_SIZE;
+        int dispatchThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        EjbTimerService ejbt = (ejbContainer != null) ? ejbContainer.getEjbTimerService() : null;
+        if (ejbt != null) {
+            try {
+                String val = ejbt.getPropertyValue(TIMER_TICK_MILLIS);
+                if (val != null && Long.parseLong(val) > 0) {
+                    tickMillis = Long.parseLong(val);
+                }
+                val = ejbt.getPropertyValue(TIMER_WHEEL_SIZE);
+                if (val != null && Integer.parseInt(val) > 0) {
+                    wheelSize = Integer.parseInt(val);
+                }
+                val = ejbt.getPropertyValue(TIMER_DISPATCH_THREADS);
+                if (val != null && Integer.parseInt(val) > 0) {
+                    dispatchThreads = Integer.parseInt(val);
+                }
+            } catch (NumberFormatException e) {
+                _logger.log(Level.WARNING, "Invalid EJB timer scheduler property, using defaults for the rest", e);
+            }
+        }
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "Creating EJB timer scheduler: tick = {0} ms, wheel size = {1}, dispatch threads = {2}",
+                    new Object[]{tickMillis, wheelSize, dispatchThreads});
+        }
+        return new EJBTimerScheduler("EJB Timer Scheduler", tickMillis, wheelSize, dispatchThreads);
+    }
+
+    @Override
+    public ExecutorService getPassivationExecutor() {
+        ExecutorService executor = _passivationExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = _passivationExecutor;
+                if (executor == null) {
+                    executor = createPassivationExecutor();
+                    _passivationExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private ExecutorService createPassivationExecutor() {
+        int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        String val = (ejbContainer != null) ? ejbContainer.getPropertyValue(PASSIVATION_THREADS) : null;
+        if (val != null) {
+            try {
+                if (Integer.parseInt(val.trim()) > 0) {
+                    threads = Integer.parseInt(val.trim());
+                }
+            } catch (NumberFormatException e) {
+                _logger.log(Level.WARNING, "Invalid " + PASSIVATION_THREADS + " property, using default", e);
+            }
+        }
+        // each session cache runs at most one write task at a time, so the
+        // queue is bounded by the number of deployed stateful beans
+        ThreadPoolExecutor result = new EjbThreadPoolExecutor(threads, threads,
+                EjbContainer.DEFAULT_THREAD_KEEP_ALIVE_SECONDS,
+                new LinkedBlockingQueue<Runnable>(), PASSIVATION_THREAD_POOL_NAME);
+        result.allowCoreThreadTimeOut(true);
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "Created passivation executor with {0} threads", threads);
+        }
+        return result;
+    }
+
     @Override
     public  void setInsideContainer(boolean bool) {
         _insideContainer = bool;
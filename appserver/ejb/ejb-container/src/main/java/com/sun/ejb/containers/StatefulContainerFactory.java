@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers;
 
@@ -56,6 +57,7 @@ import com.sun.ejb.ContainerFactory;
 import com.sun.ejb.base.container.util.CacheProperties;
 import com.sun.ejb.base.sfsb.util.ScrambledKeyGenerator;
 import com.sun.ejb.base.sfsb.util.SimpleKeyGenerator;
+import com.sun.ejb.containers.util.cache.ConcurrentSessionCache;
 import com.sun.ejb.containers.util.cache.FIFOSessionCache;
 import com.sun.ejb.containers.util.cache.LruSessionCache;
 import com.sun.ejb.containers.util.cache.NRUSessionCache;
@@ -89,7 +91,7 @@ import org.glassfish.logging.annotation.LogMessageInfo;
  * A builder for StatefulSessionContainer. Takes care of
  * building / initializing the StatefulSessionContainer
  * with the following classes:
- * a) Cache (LRU / NRU / FIFO / UnBounded)
+ * a) Cache (LRU / NRU / FIFO / CLOCK / UnBounded)
  * b) SFSBStoreManager (Using PersistenceStrategyBuilder)
  * c) Cache passivation task (if idle-timeout is greater than 0)
  * d) Passivated sessions removal task (if removal-timeout is greater than 0)
@@ -386,6 +388,13 @@ public class StatefulContainerFactory extends BaseContainerFactory
             sessionCache = new FIFOSessionCache(cacheName, sfsbContainer,
                     cacheProps.getCacheIdleTimeoutInSeconds(),
                     cacheProps.getRemovalTimeoutInSeconds());
+        } else if ("clock".equalsIgnoreCase(victimPolicy)) {
+            ConcurrentSessionCache concurrentCache = new ConcurrentSessionCache(cacheName, sfsbContainer,
+                    cacheProps.getCacheIdleTimeoutInSeconds(),
+                    cacheProps.getRemovalTimeoutInSeconds());
+            concurrentCache.setPassivationExecutor(
+                    EjbContainerUtilImpl.getInstance().getPassivationExecutor());
+            sessionCache = concurrentCache;
         } else {
             sessionCache = new NRUSessionCache(cacheName, sfsbContainer,
                     cacheProps.getCacheIdleTimeoutInSeconds(),
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers;
 
@@ -2409,6 +2409,15 @@ public final class StatefulSessionContainer
         }
     }
 
+    // called from the session cache once a passivated bean was loaded and activated
+    @Override
+    public void activationCompleted(boolean success, long activationTime) {
+        if (cacheProbeNotifier != null) {
+            cacheProbeNotifier.ejbBeanActivatedEvent(getContainerId(), //
+                containerInfo.appName, containerInfo.modName, containerInfo.ejbName, success, activationTime);
+        }
+    }
+
     @Override
     public byte[] serializeContext(StatefulEJBContext ctx) throws IOException {
         return serializeContext((SessionContextImpl)ctx.getSessionContext());
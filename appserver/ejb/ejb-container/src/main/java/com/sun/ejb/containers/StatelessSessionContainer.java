@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers;
 
@@ -45,6 +45,7 @@ import com.sun.ejb.ComponentContext;
 import com.sun.ejb.EjbInvocation;
 import com.sun.ejb.containers.util.pool.AbstractPool;
 import com.sun.ejb.containers.util.pool.BlockingPool;
+import com.sun.ejb.containers.util.pool.ConcurrentPool;
 import com.sun.ejb.containers.util.pool.NonBlockingPool;
 import com.sun.ejb.containers.util.pool.ObjectFactory;
 import com.sun.ejb.monitoring.stats.EjbMonitoringStatsProvider;
@@ -120,6 +121,8 @@ public class StatelessSessionContainer extends BaseContainer {
     private EJBObjectImpl theRemoteBusinessObjectImpl = null;
     private final Map<String, Remote> theRemoteBusinessStubs = new HashMap<>();
 
+    private static final String CONCURRENT_BEAN_POOL_PROP = "concurrent-bean-pool";
+
     private AbstractPool pool;
 
     private IASEjbExtraDescriptors iased = null;
@@ -236,6 +239,11 @@ public class StatelessSessionContainer extends BaseContainer {
                 getContainerId(), ejbDescriptor.getName(), sessionCtxFactory, //
                 poolProp.steadyPoolSize, poolProp.poolResizeQuantity, poolProp.maxPoolSize, //
                 poolProp.poolIdleTimeoutInSeconds, loader, Boolean.parseBoolean(val), poolProp.maxWaitTimeInMillis);
+        } else if (!Boolean.parseBoolean(val) && isConcurrentBeanPool()) {
+            pool = new ConcurrentPool( //
+                getContainerId(), ejbDescriptor.getName(), sessionCtxFactory, //
+                poolProp.steadyPoolSize, poolProp.poolResizeQuantity, poolProp.maxPoolSize, //
+                poolProp.poolIdleTimeoutInSeconds, loader);
         } else {
             pool = new NonBlockingPool( //
                 getContainerId(), ejbDescriptor.getName(), sessionCtxFactory, //
@@ -244,6 +252,33 @@ public class StatelessSessionContainer extends BaseContainer {
         }
     }
 
+    /**
+     * The lock-free {@link ConcurrentPool} is used when the concurrent-bean-pool
+     * property is set either in the enterprise-beans element of
+     * glassfish-ejb-jar.xml or on the ejb-container. The value is either a
+     * boolean or a comma separated list of the ejb-names that should use it.
+     * The module level property takes precedence over the ejb-container one.
+     */
+    private boolean isConcurrentBeanPool() {
+        String val = ejbDescriptor.getEjbBundleDescriptor().getEnterpriseBeansProperty(CONCURRENT_BEAN_POOL_PROP);
+        if (val == null && ejbContainer != null) {
+            val = ejbContainer.getPropertyValue(CONCURRENT_BEAN_POOL_PROP);
+        }
+        if (val == null || val.trim().isEmpty()) {
+            return false;
+        }
+        val = val.trim();
+        if ("true".equalsIgnoreCase(val) || "false".equalsIgnoreCase(val)) {
+            return Boolean.parseBoolean(val);
+        }
+        for (String ejbName : val.split(",")) {
+            if (ejbName.trim().equals(ejbDescriptor.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     protected void registerMonitorableComponents() {
         super.registerMonitorableComponents();
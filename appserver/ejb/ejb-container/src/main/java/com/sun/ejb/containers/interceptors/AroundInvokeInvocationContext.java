@@ -37,9 +37,11 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers.interceptors;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
@@ -124,6 +126,13 @@ public class AroundInvokeInvocationContext extends CallbackInvocationContext
       */
     public  Object invokeBeanMethod() throws Throwable {
 
+        if (chain instanceof AroundInvokeChainImpl) {
+            MethodHandle beanMethodHandle = ((AroundInvokeChainImpl) chain).beanMethodHandle;
+            if (beanMethodHandle != null) {
+                return (Object) beanMethodHandle.invokeExact(getTarget(), parameters);
+            }
+        }
+
         try {
 
             return method.invoke(getTarget(), parameters);
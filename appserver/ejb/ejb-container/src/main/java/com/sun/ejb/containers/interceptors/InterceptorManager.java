@@ -36,12 +36,13 @@
  * and therefore, elected the GPL Version 2 license, then the option applies
  * only if the new code is made subject to such option by the copyright
  * holder.
- * Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+ * Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
  */
 
 package com.sun.ejb.containers.interceptors;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedExceptionAction;
@@ -52,6 +53,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.annotation.PostConstruct;
@@ -115,6 +117,10 @@ public class InterceptorManager {
 
     List<InterceptorDescriptor> frameworkInterceptors = new LinkedList<>();
 
+    // Around invoke chains of non-ejb components, which are looked up on
+    // every invocation rather than once when the container is initialized
+    private final Map<Method, InterceptorChain> aroundInvokeChains = new ConcurrentHashMap<>();
+
 
     public InterceptorManager(Logger _logger, BaseContainer container,
                               Class<?>[] lcAnnotationClasses, String[] pre30LCMethodNames)
@@ -215,6 +221,15 @@ public class InterceptorManager {
 
     public InterceptorManager.InterceptorChain getAroundInvokeChain(
             MethodDescriptor mDesc, Method beanMethod) {
+        if (ejbDesc != null) {
+            return buildAroundInvokeChain(mDesc, beanMethod);
+        }
+        return aroundInvokeChains.computeIfAbsent(beanMethod,
+                method -> buildAroundInvokeChain(null, method));
+    }
+
+    private InterceptorManager.InterceptorChain buildAroundInvokeChain(
+            MethodDescriptor mDesc, Method beanMethod) {
 
         ArrayList<AroundInvokeInterceptor> interceptors = new ArrayList<>();
 
@@ -267,7 +282,11 @@ public class InterceptorManager {
 
         AroundInvokeInterceptor[] inter = interceptors.toArray(
                 new AroundInvokeInterceptor[interceptors.size()]);
-        return new AroundInvokeChainImpl(inter);
+        // EJB bean methods are invoked by the container, which applies
+        // the security manager, so only non-ejb chains get a bean method handle
+        MethodHandle beanMethodHandle = (ejbDesc == null && beanMethod != null) ?
+                InterceptorUtil.beanMethodHandle(beanMethod) : null;
+        return new AroundInvokeChainImpl(inter, beanMethodHandle);
     }
 
     public InterceptorManager.InterceptorChain getAroundTimeoutChain(
@@ -819,11 +838,19 @@ class AroundInvokeChainImpl
     protected AroundInvokeInterceptor[] interceptors;
     protected int size;
 
+    // Invokes the bean method with spread parameters, null if reflection is used
+    final MethodHandle beanMethodHandle;
+
 
     protected AroundInvokeChainImpl(AroundInvokeInterceptor[] interceptors) {
+        this(interceptors, null);
+    }
+
+    protected AroundInvokeChainImpl(AroundInvokeInterceptor[] interceptors, MethodHandle beanMethodHandle) {
 
         this.interceptors = interceptors;
         this.size = (interceptors == null) ? 0 : interceptors.length;
+        this.beanMethodHandle = beanMethodHandle;
     }
 
     @Override
@@ -850,6 +877,9 @@ class AroundInvokeInterceptor {
     protected int index;
     protected Method method;
 
+    // (interceptor, invocation context) handle, null if reflection is used
+    protected MethodHandle handle;
+
     AroundInvokeInterceptor(int index, Method method) {
         this.index = index;
         this.method = method;
@@ -873,9 +903,13 @@ class AroundInvokeInterceptor {
             throw new EJBException(e);
         }
 
+        handle = InterceptorUtil.aroundInvokeHandle(method);
     }
 
     Object intercept(final InterceptorManager.AroundInvokeContext invCtx) throws Throwable {
+        if (handle != null) {
+            return (Object) handle.invokeExact(invCtx.getInterceptorInstances()[index], (Object) invCtx);
+        }
         try {
             final Object[] interceptors = invCtx.getInterceptorInstances();
 
@@ -913,6 +947,9 @@ class BeanAroundInvokeInterceptor
 
     @Override
     Object intercept(final InterceptorManager.AroundInvokeContext invCtx) throws Throwable {
+        if (handle != null) {
+            return (Object) handle.invokeExact(invCtx.getTarget(), (Object) invCtx);
+        }
         try {
             if( System.getSecurityManager() != null ) {
                 // Wrap actual value insertion in doPrivileged to
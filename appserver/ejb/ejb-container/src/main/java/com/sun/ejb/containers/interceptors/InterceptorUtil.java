@@ -37,9 +37,12 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2018-2019] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2018-2024] [Payara Foundation and/or its affiliates]
 package com.sun.ejb.containers.interceptors;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Set;
 import java.util.Collections;
@@ -49,6 +52,24 @@ import java.util.Map;
 
 public class InterceptorUtil {
 
+    /**
+     * When this system property is {@code true}, interceptor and bean methods
+     * of interceptor chains are invoked through method handles created when
+     * the chain is built rather than through {@link Method#invoke}, which
+     * also avoids the privileged action per call when a security manager
+     * is installed.
+     */
+    public static final String METHOD_HANDLE_INVOCATION_PROPERTY = "fish.payara.ejb.interceptor.methodHandles";
+
+    private static final boolean METHOD_HANDLE_INVOCATION =
+            Boolean.getBoolean(METHOD_HANDLE_INVOCATION_PROPERTY);
+
+    private static final MethodType AROUND_INVOKE_TYPE =
+            MethodType.methodType(Object.class, Object.class, Object.class);
+
+    private static final MethodType BEAN_METHOD_TYPE =
+            MethodType.methodType(Object.class, Object.class, Object[].class);
+
     private static final Map<Class<?>, Set<Class<?>>> compatiblePrimitiveWrapper = createMapping();
 
     static Map<Class<?>, Set<Class<?>>> createMapping() {
@@ -72,6 +93,52 @@ public class InterceptorUtil {
         return Collections.unmodifiableSet(set);
     }
 
+    /**
+     * Returns a handle of type {@code (Object, Object)Object} invoking the
+     * given around invoke or around timeout method on the instance passed as
+     * first argument with the invocation context passed as second argument,
+     * or {@code null} if the method is to be invoked through reflection.
+     * The method must already be accessible.
+     */
+    static MethodHandle aroundInvokeHandle(Method method) {
+        return METHOD_HANDLE_INVOCATION ? createAroundInvokeHandle(method) : null;
+    }
+
+    static MethodHandle createAroundInvokeHandle(Method method) {
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(AROUND_INVOKE_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a handle of type {@code (Object, Object[])Object} invoking the
+     * given bean method on the instance passed as first argument with the
+     * spread parameters, or {@code null} if the method is to be invoked
+     * through reflection. Methods with primitive parameters are left to
+     * reflection, which also accepts the widening conversions allowed by
+     * {@link #checkSetParameters(Object[], Method)}.
+     */
+    static MethodHandle beanMethodHandle(Method method) {
+        return METHOD_HANDLE_INVOCATION ? createBeanMethodHandle(method) : null;
+    }
+
+    static MethodHandle createBeanMethodHandle(Method method) {
+        for (Class<?> type : method.getParameterTypes()) {
+            if (type.isPrimitive()) {
+                return null;
+            }
+        }
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(BEAN_METHOD_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
     public static boolean hasCompatiblePrimitiveWrapper(Class<?> type, Class<?> typeTo) {
         Set<Class<?>> compatibles = compatiblePrimitiveWrapper.get(type);
         return compatibles != null && compatibles.contains(typeTo);
@@ -0,0 +1,614 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.cache;
+
+import com.sun.appserv.util.cache.Constants;
+import com.sun.ejb.spi.container.SFSBContainerCallback;
+import com.sun.ejb.spi.container.StatefulEJBContext;
+
+import org.glassfish.ha.store.api.BackingStoreException;
+import org.glassfish.ha.store.util.SimpleMetadata;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Session cache selected by the <code>clock</code> victim selection policy.
+ *
+ * Instead of moving every accessed bean to the head of a synchronized LRU
+ * list, an access only sets the reference bit of its cache item. Victims are
+ * selected by sweeping a lock-free queue of the cached items and giving a
+ * second chance to those referenced since the previous sweep (CLOCK), so
+ * lookups of different beans only contend on their bucket locks.
+ *
+ * Passivation is split in stages: victims are selected by the sweep, the
+ * container serializes them on its passivation tasks, and the serialized
+ * state is written to the backing store in batches by a write-behind task on
+ * the passivation executor. At most <code>maxEntries</code> writes can be
+ * pending; when the write stage is saturated the state is written by the
+ * passivating thread itself, which slows passivation down to the pace of the
+ * backing store. A bean activated while its write is still pending is loaded
+ * from the pending write. A write that fails keeps its permit and is retried
+ * by the next batch, so the states of beans that could not be written are
+ * bounded by <code>maxEntries</code> as well.
+ */
+public class ConcurrentSessionCache
+    extends LruSessionCache
+{
+
+    // items in CLOCK order, swept from the head
+    private final Queue<ConcurrentSessionCacheItem> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockSize = new AtomicInteger();
+    private final AtomicInteger clockTrimCount = new AtomicInteger();
+    private final AtomicInteger victimsAccessed = new AtomicInteger();
+    private final AtomicBoolean purging = new AtomicBoolean();
+
+    // write-behind stage
+    private final ConcurrentMap<Serializable, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final Queue<PendingWrite> writeQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingWrite> failedWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final AtomicInteger writeErrorCount = new AtomicInteger();
+    private Semaphore writePermits;
+    private volatile Executor writeExecutor;
+    private volatile boolean discardPendingWrites;
+    private volatile boolean running = true;
+
+    public ConcurrentSessionCache(String cacheName,
+        SFSBContainerCallback container, int cacheIdleTime, int removalTime)
+    {
+        super("CLOCK-" + cacheName, container, cacheIdleTime, removalTime);
+    }
+
+    @Override
+    public void init(int maxEntries, float loadFactor, Properties props) {
+        super.init(maxEntries, loadFactor, props);
+        writePermits = new Semaphore(Math.max(1, maxEntries));
+    }
+
+    /**
+     * Sets the executor running the write-behind stage. Without an executor
+     * the passivated state is written by the passivating thread.
+     */
+    public void setPassivationExecutor(Executor executor) {
+        this.writeExecutor = executor;
+    }
+
+    @Override
+    protected CacheItem createItem(int hashCode, Object sessionKey,
+            Object value, int size)
+    {
+        return new ConcurrentSessionCacheItem(hashCode, sessionKey, value, size);
+    }
+
+    @Override
+    protected LruSessionCacheItem createItem(int hashCode, Object sessionKey,
+            Object value, int size, byte state)
+    {
+        return new ConcurrentSessionCacheItem(hashCode, sessionKey, value, size, state);
+    }
+
+    // Cache bucket is already synchronized by the caller
+    @Override
+    protected CacheItem itemAdded(CacheItem item) {
+        CacheItem overflow = isThresholdReached() ? selectVictim() : null;
+        enqueue((ConcurrentSessionCacheItem) item);
+        return overflow;
+    }
+
+    // Cache bucket is already synchronized by the caller
+    @Override
+    protected void itemAccessed(CacheItem item) {
+        ConcurrentSessionCacheItem ci = (ConcurrentSessionCacheItem) item;
+        if (ci.isTrimmed()) {
+            // accessed after it was selected for passivation
+            if (ci.untrim()) {
+                victimsAccessed.incrementAndGet();
+                ci.removed = false;
+                CacheItem overflow = itemAdded(ci);
+                if (overflow != null) {
+                    trimItem(overflow);
+                }
+            }
+        } else if (!ci.referenced) {
+            ci.referenced = true;
+        }
+    }
+
+    @Override
+    protected void itemRefreshed(CacheItem item, int oldSize) {
+        ((ConcurrentSessionCacheItem) item).referenced = true;
+    }
+
+    @Override
+    protected void itemRemoved(CacheItem item) {
+        // unlinked lazily by the next sweep, or by a purge if the cache
+        // stays below its threshold while beans come and go
+        ((ConcurrentSessionCacheItem) item).removed = true;
+        if (clockSize.get() > 2 * Math.max(entryCount, threshold)) {
+            purgeClock();
+        }
+    }
+
+    private void purgeClock() {
+        if (!purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            clock.removeIf(item -> {
+                if (item.removed || item.isTrimmed()) {
+                    if (item.dequeue()) {
+                        clockSize.decrementAndGet();
+                    }
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    private void enqueue(ConcurrentSessionCacheItem item) {
+        if (item.enqueue()) {
+            clock.offer(item);
+            clockSize.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sweeps the clock for an item that was not referenced since the
+     * previous sweep and marks it trimmed.
+     * @return the selected victim or null if none was found
+     */
+    private ConcurrentSessionCacheItem selectVictim() {
+        int maxScan = 2 * clockSize.get() + 1;
+        for (int i = 0; i < maxScan; i++) {
+            ConcurrentSessionCacheItem item = clock.poll();
+            if (item == null) {
+                return null;
+            }
+            if (item.dequeue()) {
+                clockSize.decrementAndGet();
+            }
+
+            if (item.removed || item.isTrimmed()) {
+                continue;
+            }
+            if (item.referenced) {
+                // second chance
+                item.referenced = false;
+                enqueue(item);
+            } else if (item.trim()) {
+                clockTrimCount.incrementAndGet();
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The clock is not ordered by access time, so the whole cache is
+     * scanned for idle beans.
+     */
+    @Override
+    public void trimTimedoutItems(int maxCount) {
+        long idleThreshold = System.currentTimeMillis() - timeout;
+        int batchCount = Math.max(1, container.getPassivationBatchCount());
+        ArrayList<CacheItem> victims = new ArrayList<>();
+        int totalSize = 0;
+
+        for (int index = 0; index < maxBuckets && running; index++) {
+            if (buckets[index] == null) {
+                continue;
+            }
+            synchronized (bucketLocks[index]) {
+                for (CacheItem item = buckets[index]; item != null; item = item.getNext()) {
+                    //Note ctx can be null if bean is in BEING_REFRESHED state
+                    StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
+                    if ((ctx != null) && (ctx.getLastAccessTime() <= idleThreshold)
+                            && ctx.canBePassivated()
+                            && ((ConcurrentSessionCacheItem) item).trim()) {
+                        victims.add(item);
+                    }
+                }
+            }
+            if (victims.size() >= batchCount) {
+                totalSize += trimVictims(victims);
+                if (totalSize >= maxCount) {
+                    break;
+                }
+            }
+        }
+        totalSize += trimVictims(victims);
+
+        Executor executor = writeExecutor;
+        if (!failedWrites.isEmpty() && executor != null && running) {
+            scheduleWrites(executor);
+        }
+
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "[" + cacheName + "]: TrimTimedoutBeans "
+                + " finished after removing " + totalSize + " idle beans");
+        }
+    }
+
+    private int trimVictims(ArrayList<CacheItem> victims) {
+        int count = victims.size();
+        clockTrimCount.addAndGet(count);
+        for (CacheItem victim : victims) {
+            trimItem(victim);
+        }
+        victims.clear();
+        return count;
+    }
+
+    @Override
+    public Iterator values() {
+        ArrayList valueList = new ArrayList();
+        for (int index = 0; index < maxBuckets; index++) {
+            synchronized (bucketLocks[index]) {
+                for (CacheItem item = buckets[index]; item != null; item = item.getNext()) {
+                    Object ctx = item.getValue();
+                    if (ctx != null && !((LruCacheItem) item).isTrimmed()) {
+                        valueList.add(ctx);
+                    }
+                }
+            }
+        }
+        return valueList.iterator();
+    }
+
+    @Override
+    public void shutdown() {
+        ArrayList<StatefulEJBContext> valueList = new ArrayList<>();
+        for (int index = 0; index < maxBuckets; index++) {
+            synchronized (bucketLocks[index]) {
+                for (CacheItem item = buckets[index]; item != null; item = item.getNext()) {
+                    StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
+                    if (ctx != null && ((ConcurrentSessionCacheItem) item).trim()) {
+                        valueList.add(ctx);
+                    }
+                }
+            }
+        }
+
+        for (StatefulEJBContext ctx : valueList) {
+            container.passivateEJB(ctx);
+        }
+    }
+
+    @Override
+    public void setShutdownState() {
+        super.setShutdownState();
+        running = false;
+    }
+
+    @Override
+    public void setUndeployedState() {
+        super.setUndeployedState();
+        running = false;
+        discardPendingWrites = true;
+    }
+
+    @Override
+    public void destroy() {
+        if (discardPendingWrites) {
+            writeQueue.clear();
+            failedWrites.clear();
+            pendingWrites.clear();
+        } else {
+            // the backing store is closed right after the cache is destroyed,
+            // this is the last attempt for the writes that failed before
+            PendingWrite write;
+            while ((write = failedWrites.poll()) != null) {
+                write(write);
+            }
+            while ((write = writeQueue.poll()) != null) {
+                write(write);
+            }
+        }
+        clock.clear();
+        clockSize.set(0);
+        super.destroy();
+    }
+
+    @Override
+    public Object remove(Object sessionKey, boolean removeFromStore) {
+        PendingWrite write = pendingWrites.remove(sessionKey);
+        if (write != null) {
+            write.cancel();
+        }
+        return super.remove(sessionKey, removeFromStore);
+    }
+
+    @Override
+    protected SimpleMetadata loadState(Serializable sessionKey)
+        throws BackingStoreException
+    {
+        PendingWrite write = pendingWrites.remove(sessionKey);
+        if (write != null) {
+            // complete the write first, the container updates the
+            // timestamp of the stored state once the bean is activated
+            if (!write(write)) {
+                // the activated bean is passivated again with a newer state
+                write.cancel();
+            }
+            return write.beanState;
+        }
+        return super.loadState(sessionKey);
+    }
+
+    @Override
+    protected void storeState(Serializable sessionKey, SimpleMetadata beanState,
+        boolean isNew) throws BackingStoreException
+    {
+        Executor executor = writeExecutor;
+        if (executor == null || discardPendingWrites || !writePermits.tryAcquire()) {
+            // no write-behind stage or it is saturated: write through
+            PendingWrite previous = pendingWrites.remove(sessionKey);
+            if (previous != null) {
+                previous.cancel();
+            }
+            super.storeState(sessionKey, beanState, isNew);
+            return;
+        }
+
+        PendingWrite write = new PendingWrite(sessionKey, beanState, isNew);
+        PendingWrite previous = pendingWrites.put(sessionKey, write);
+        if (previous != null) {
+            previous.cancel();
+        }
+        writeQueue.offer(write);
+        scheduleWrites(executor);
+    }
+
+    private void scheduleWrites(Executor executor) {
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::writePendingBatch);
+            } catch (RejectedExecutionException ex) {
+                // executor is shutting down
+                writePendingBatch();
+            }
+        }
+    }
+
+    /**
+     * Retries the writes that failed before, then writes up to one
+     * passivation batch of pending states and reschedules itself if more
+     * writes are pending, so that the caches of all the stateful beans get
+     * their share of the passivation executor. Failed writes do not
+     * reschedule the batch, they wait for the next passivation or sweep.
+     */
+    private void writePendingBatch() {
+        try {
+            SFSBContainerCallback callback = container;
+            int batchSize = (callback != null)
+                ? Math.max(1, callback.getPassivationBatchCount())
+                : Integer.MAX_VALUE;
+            PendingWrite write;
+            for (int i = failedWrites.size(); i > 0 && (write = failedWrites.poll()) != null; i--) {
+                complete(write);
+            }
+            for (int i = 0; i < batchSize && (write = writeQueue.poll()) != null; i++) {
+                complete(write);
+            }
+        } finally {
+            writeScheduled.set(false);
+        }
+
+        Executor executor = writeExecutor;
+        if (!writeQueue.isEmpty() && executor != null) {
+            scheduleWrites(executor);
+        }
+    }
+
+    /**
+     * Releases the permit of a write that is no longer pending, or queues
+     * it for a retry while it keeps its permit.
+     */
+    private void complete(PendingWrite write) {
+        if (write(write)) {
+            writePermits.release();
+        } else {
+            failedWrites.offer(write);
+        }
+    }
+
+    /**
+     * @return false if the write failed and the state is still pending
+     */
+    private boolean write(PendingWrite write) {
+        try {
+            if (write.writeNow()) {
+                pendingWrites.remove(write.sessionKey, write);
+            }
+            return true;
+        } catch (BackingStoreException sfsbEx) {
+            // unless activated, the state stays in pendingWrites so that
+            // the bean is not lost
+            writeErrorCount.incrementAndGet();
+            _logger.log(Level.WARNING, EXCEPTION_DURING_PASSIVATE_SAVE,
+                new Object[]{cacheName, write.sessionKey, sfsbEx});
+            return false;
+        }
+    }
+
+    public int getPendingWriteCount() {
+        return pendingWrites.size();
+    }
+
+    public int getWriteErrorCount() {
+        return writeErrorCount.get();
+    }
+
+    @Override
+    public int getNumVictimsAccessed() {
+        return victimsAccessed.get();
+    }
+
+    @Override
+    public Object getStatByName(String key) {
+        if (Constants.STAT_LRUCACHE_LIST_LENGTH.equals(key)) {
+            return clockSize.get();
+        } else if (Constants.STAT_LRUCACHE_TRIM_COUNT.equals(key)) {
+            return clockTrimCount.get();
+        }
+        return super.getStatByName(key);
+    }
+
+    @Override
+    public Map getStats() {
+        Map stats = super.getStats();
+        stats.put(Constants.STAT_LRUCACHE_LIST_LENGTH, clockSize.get());
+        stats.put(Constants.STAT_LRUCACHE_TRIM_COUNT, clockTrimCount.get());
+        return stats;
+    }
+
+    @Override
+    public void appendStats(StringBuilder sbuf) {
+        super.appendStats(sbuf);
+        sbuf.append("[PendingWrites=").append(pendingWrites.size())
+            .append("; WriteErrors=").append(writeErrorCount.get()).append("]");
+    }
+
+    /**
+     * Serialized state of a passivated bean waiting to be written.
+     */
+    private final class PendingWrite {
+
+        final Serializable sessionKey;
+        final SimpleMetadata beanState;
+        final boolean isNew;
+
+        // guarded by this
+        private boolean done;
+
+        PendingWrite(Serializable sessionKey, SimpleMetadata beanState, boolean isNew) {
+            this.sessionKey = sessionKey;
+            this.beanState = beanState;
+            this.isNew = isNew;
+        }
+
+        /**
+         * Writes the state unless it was already written or superseded.
+         * @return true if this call wrote the state
+         */
+        synchronized boolean writeNow() throws BackingStoreException {
+            if (done) {
+                return false;
+            }
+            ConcurrentSessionCache.super.storeState(sessionKey, beanState, isNew);
+            done = true;
+            return true;
+        }
+
+        /**
+         * Prevents the write, waiting for it to complete if it is in progress.
+         */
+        synchronized void cancel() {
+            done = true;
+        }
+    }
+
+    protected static class ConcurrentSessionCacheItem
+        extends LruSessionCacheItem
+    {
+
+        protected volatile boolean referenced;
+        protected volatile boolean removed;
+
+        private final AtomicBoolean trimmed = new AtomicBoolean();
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        protected ConcurrentSessionCacheItem(int hashCode, Object key,
+            Object value, int size)
+        {
+            super(hashCode, key, value, size);
+        }
+
+        protected ConcurrentSessionCacheItem(int hashCode, Object key,
+            Object value, int size, byte state)
+        {
+            super(hashCode, key, value, size, state);
+        }
+
+        @Override
+        public boolean isTrimmed() {
+            return trimmed.get();
+        }
+
+        @Override
+        public void setTrimmed(boolean value) {
+            trimmed.set(value);
+        }
+
+        boolean trim() {
+            return trimmed.compareAndSet(false, true);
+        }
+
+        boolean untrim() {
+            return trimmed.compareAndSet(true, false);
+        }
+
+        boolean enqueue() {
+            return queued.compareAndSet(false, true);
+        }
+
+        boolean dequeue() {
+            return queued.compareAndSet(true, false);
+        }
+    }
+}
@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.containers.util.cache;
 
@@ -56,6 +57,7 @@ import org.glassfish.ha.store.api.BackingStoreException;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.*;
 
 
@@ -98,7 +100,7 @@ public class LruSessionCache
     @LogMessageInfo(
         message = "[{0}]: Exception during backingStore.passivateSave([{1}])",
         level = "WARNING")
-    private static final String EXCEPTION_DURING_PASSIVATE_SAVE = "AS-EJB-00007";
+    protected static final String EXCEPTION_DURING_PASSIVATE_SAVE = "AS-EJB-00007";
 
     @LogMessageInfo(
         message = "[{0}]: Iterator(), resetting head.lPrev",
@@ -307,13 +309,15 @@ public class LruSessionCache
         }
 
         //This is the thread that actually does the I/O
-	long activationStartTime = -1;
-	/*if (sfsbStoreMonitor.isMonitoringOn()) {
-	    activationStartTime = System.currentTimeMillis();
-	}*/
+        long activationStartTime = System.nanoTime();
+        boolean activated = false;
+        // only activations of a stored state are reported, a session that
+        // was removed or has expired is simply not found
+        boolean activating = false;
         try {
             value = getStateFromStore(sessionKey, container);
-            newItem = new LruSessionCacheItem(hashCode, sessionKey,
+            activating = (value != null);
+            newItem = createItem(hashCode, sessionKey,
                     value, -1, CACHE_ITEM_LOADING);
             newItem.setNext( buckets[index] );
             buckets[index] = newItem;
@@ -339,7 +343,7 @@ public class LruSessionCache
                 } else {
                     container.activateEJB(sessionKey,
                         (StatefulEJBContext) value, cookie);
-		    // sfsbStoreMonitor.incrementActivationCount(true);
+                    activated = true;
 
                     CacheItem overflow = itemAdded(newItem);
                     incrementEntryCount();
@@ -350,7 +354,7 @@ public class LruSessionCache
                 }
             } //end of sync
         } catch (jakarta.ejb.EJBException ejbEx) {
-	    //sfsbStoreMonitor.incrementActivationCount(false);
+            activating = true;
             remove(sessionKey);
             value = null;
         } finally {
@@ -362,11 +366,10 @@ public class LruSessionCache
                     }
                 }
             }
-	    if (activationStartTime != -1) {
-		long timeSpent = System.currentTimeMillis()
-		    - activationStartTime;
-		//sfsbStoreMonitor.setActivationTime(timeSpent);
-	    }
+            if (activating) {
+                container.activationCompleted(activated,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - activationStartTime));
+            }
         }
 
         return (StatefulEJBContext) value;
@@ -530,10 +533,7 @@ public class LruSessionCache
         Object object = null;
 
         try {
-            SimpleMetadata beanState = null;
-            if (backingStore != null) {
-                beanState = backingStore.load(sessionKey, null);
-            }
+            SimpleMetadata beanState = loadState(sessionKey);
             byte[] data = (beanState != null)
                 ? beanState.getState()
                 : null;
@@ -573,7 +573,7 @@ public class LruSessionCache
         beanState.setVersion(ctx.getVersion());
 	    try {
             if(backingStore != null) {
-                backingStore.save(sessionKey, beanState, !ctx.existsInStore());
+                storeState(sessionKey, beanState, !ctx.existsInStore());
                 // sfsbStoreMonitor.setPassivationSize(data.length);
                 status = true;
             }
@@ -585,6 +585,32 @@ public class LruSessionCache
 	return status;
     }
 
+    /**
+     * Reads the passivated state of a session from the backing store.
+     * @param sessionKey the key of the session
+     * @return the stored state, or null if there is none
+     */
+    protected SimpleMetadata loadState(Serializable sessionKey)
+        throws BackingStoreException
+    {
+        return (backingStore != null)
+            ? backingStore.load(sessionKey, null)
+            : null;
+    }
+
+    /**
+     * Writes the serialized state of a session being passivated to the
+     * backing store.
+     * @param sessionKey the key of the session
+     * @param beanState the serialized state of the session
+     * @param isNew true if the session was never written to the store before
+     */
+    protected void storeState(Serializable sessionKey, SimpleMetadata beanState,
+        boolean isNew) throws BackingStoreException
+    {
+        backingStore.save(sessionKey, beanState, isNew);
+    }
+
     private void trimSelectedVictims(ArrayList victims) {
         int sz = victims.size();
 
@@ -838,6 +864,16 @@ public class LruSessionCache
         return new LruSessionCacheItem(hashCode, sessionKey, value, size);
     }
 
+    /**
+     * create the item holding a session that is being activated
+     * subclasses that provide their own item type must override this too
+     */
+    protected LruSessionCacheItem createItem(int hashCode, Object sessionKey,
+            Object value, int size, byte state)
+    {
+        return new LruSessionCacheItem(hashCode, sessionKey, value, size, state);
+    }
+
     //*Class for LruSessionCacheItem
     protected static class LruSessionCacheItem
         extends LruCacheItem
@@ -0,0 +1,628 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.pool;
+
+import com.sun.ejb.containers.EJBContextImpl;
+import com.sun.ejb.containers.EjbContainerUtilImpl;
+import com.sun.enterprise.util.Utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * <p>ConcurrentPool is a non-blocking pool whose steady-state
+ * {@link #getObject(Object)} and {@link #returnObject(Object)} paths do not
+ * take any lock or allocate. Free instances are kept in a number of stripes,
+ * each an array of slots that are claimed and released by compare-and-set,
+ * with its own bounded size. A thread always starts at the
+ * stripe selected by its id, so under load most threads hand instances back
+ * and forth through their own stripe and only fall back to scanning the other
+ * stripes when their own one is empty or full.
+ * <p>Like {@link NonBlockingPool} an empty pool simply creates a new instance
+ * and a full pool destroys the returned one. Growing the pool back to its
+ * steady size and evicting idle instances are done asynchronously by the
+ * container work manager, never by the calling thread.
+ * <p>The pool does not support the singleton-bean-pool or blocking
+ * (max-wait-time-in-millis) modes; containers use the existing pools for those.
+ */
+public class ConcurrentPool
+    extends AbstractPool
+{
+
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger destroyed = new AtomicInteger();
+    private final LongAdder success = new LongAdder();
+
+    private final AtomicBoolean resizeScheduled = new AtomicBoolean();
+    private final AtomicBoolean idleWorkScheduled = new AtomicBoolean();
+    private final AtomicBoolean inResizing = new AtomicBoolean();
+
+    private TimerTask poolTimerTask;
+    private boolean maintainSteadySize;
+
+    // Set to true after close().  Prevents the async resize work from
+    // repopulating the pool and returned instances from being kept.
+    private volatile boolean poolClosed;
+
+    public ConcurrentPool(long beanId, String poolName, ObjectFactory factory,
+        int steadyPoolSize, int resizeQuantity,
+        int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader)
+    {
+        this.poolName = poolName;
+        this.beanId = beanId;
+        this.factory = factory;
+        this.steadyPoolSize = (steadyPoolSize <= 0) ? 0 : steadyPoolSize;
+        this.resizeQuantity = (resizeQuantity <= 0) ? 0 : resizeQuantity;
+        this.maxPoolSize = (maxPoolSize <= 0)
+            ? Integer.MAX_VALUE : maxPoolSize;
+        this.steadyPoolSize = Math.min(this.steadyPoolSize, this.maxPoolSize);
+        this.idleTimeoutInSeconds =
+            (idleTimeoutInSeconds <= 0) ? 0 : idleTimeoutInSeconds;
+        this.containerClassLoader = loader;
+        this.maintainSteadySize = (this.steadyPoolSize > 0);
+
+        // A power of two no larger than the number of instances the pool may
+        // hold, so that every stripe can keep at least one instance.
+        int stripeCount = Integer.highestOneBit(Math.min(stripeCount(), this.maxPoolSize));
+        this.stripes = new Stripe[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        int capacity = this.maxPoolSize / stripeCount;
+        int remainder = this.maxPoolSize % stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i < remainder ? capacity + 1 : capacity);
+        }
+
+        if ((this.idleTimeoutInSeconds > 0) && (this.resizeQuantity > 0)) {
+            try {
+                this.poolTimerTask = new PoolResizeTimerTask();
+                EjbContainerUtilImpl.getInstance().getTimer().scheduleAtFixedRate
+                    (poolTimerTask, this.idleTimeoutInSeconds*1000L,
+                     this.idleTimeoutInSeconds*1000L);
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE, "[Pool-{0}]: Added PoolResizeTimerTask...", poolName);
+                }
+            } catch (Throwable th) {
+                _logger.log(Level.WARNING,"[Pool-" +
+                            poolName + "]: Could not add"
+                            + " PoolTimerTask. Continuing anyway...", th);
+            }
+        }
+    }
+
+    private static int stripeCount() {
+        return Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors());
+    }
+
+    private Stripe homeStripe() {
+        return stripes[(int) Thread.currentThread().getId() & stripeMask];
+    }
+
+    @Override
+    public Object getObject(Object param)
+    {
+        Stripe home = homeStripe();
+        Object obj = home.poll();
+        if (obj == null) {
+            obj = pollOthers(home);
+        }
+
+        if (obj != null) {
+            success.increment();
+            // only the own stripe is looked at, summing all of them on every
+            // hit would touch the counters of every other thread
+            if (maintainSteadySize && home.size.get() * stripes.length < steadyPoolSize) {
+                scheduleResize();
+            }
+            return obj;
+        }
+
+        if (maintainSteadySize) {
+            scheduleResize();
+        }
+        poolProbeNotifier.ejbObjectAddedEvent(beanId, appName, modName, ejbName);
+        created.incrementAndGet();
+        try {
+            return factory.create(param);
+        } catch (RuntimeException th) {
+            poolProbeNotifier.ejbObjectAddFailedEvent(beanId, appName, modName, ejbName);
+            created.decrementAndGet();
+            throw th;
+        }
+    }
+
+    private Object pollOthers(Stripe home) {
+        for (Stripe stripe : stripes) {
+            if (stripe != home && stripe.size.get() > 0) {
+                Object obj = stripe.poll();
+                if (obj != null) {
+                    return obj;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean offer(Object object) {
+        Stripe home = homeStripe();
+        if (home.offer(object)) {
+            return true;
+        }
+        for (Stripe stripe : stripes) {
+            if (stripe != home && stripe.offer(object)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleResize() {
+        if (!resizeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            EjbContainerUtilImpl.getInstance().addWork(new ReSizeWork());
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "[Pool-{0}]: Added PoolResizeTimerTask...", poolName);
+            }
+        } catch (Exception ex) {
+            resizeScheduled.set(false);
+            _logger.log(Level.WARNING,
+                        "[Pool-"+poolName+"]: Cannot perform "
+                        + " pool resize task", ex);
+        }
+    }
+
+    /**
+     * Return an object back to the pool. An object that is obtained through
+     *	getObject() must always be returned back to the pool using either
+     *	returnObject(obj) or through destroyObject(obj).
+     * @param object
+     */
+    @Override
+    public void returnObject(Object object) {
+        if (!poolClosed && offer(object)) {
+            return;
+        }
+        destroyObject(object);
+    }
+
+    /**
+     * Destroys an Object. Note that applications should not ignore
+     * the reference to the object that they got from getObject(). An object
+     * that is obtained through getObject() must always be returned back to
+     * the pool using either returnObject(obj) or through destroyObject(obj).
+     * This method tells that the object should be destroyed and cannot
+     * be reused.
+     * @param object Object to be destroyed.
+     */
+    @Override
+    public void destroyObject(Object object) {
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyed.incrementAndGet();
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in destroyObject", ex);
+        }
+    }
+
+    /**
+    * Preload the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    protected void preload(int count) {
+        List<Object> instances = new ArrayList<>(count);
+        try {
+            for (int i=0; i<count; i++) {
+                instances.add(factory.create(null));
+            }
+        } catch (Exception ex) {
+            //Need not throw this exception up since we are pre-populating
+        }
+
+        created.addAndGet(instances.size());
+        int next = 0;
+        for (Object instance : instances) {
+            boolean added = false;
+            for (int i = 0; i < stripes.length && !added; i++) {
+                added = stripes[next++ & stripeMask].offer(instance);
+            }
+            if (!added) {
+                destroyObject(instance);
+            }
+        }
+    }
+
+    /**
+    * Prepopulate the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    public void prepopulate(int count) {
+        this.steadyPoolSize = (count <= 0) ? 0 : count;
+        this.steadyPoolSize = Math.min(this.steadyPoolSize, this.maxPoolSize);
+
+        if (this.steadyPoolSize > 0) {
+            preload(this.steadyPoolSize);
+        }
+    }
+
+    /**
+    * Close the pool
+    */
+    @Override
+    public void close() {
+        poolClosed = true;
+        if (poolTimerTask != null) {
+            try {
+                poolTimerTask.cancel();
+            } catch (Throwable th) {
+                //Can safely ignore this!!
+            }
+        }
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "[Pool-{0}]: Destroying {1} beans from the pool...",
+                    new Object[]{poolName, getNumBeansInPool()});
+        }
+
+        // since we're calling into ejb code, we need to set context
+        // class loader
+        ClassLoader origLoader =
+            Utility.setContextClassLoader(containerClassLoader);
+        try {
+            for (Stripe stripe : stripes) {
+                Object obj;
+                while ((obj = stripe.poll()) != null) {
+                    try {
+                        destroyObject(obj);
+                    } catch (Throwable th) {
+                        _logger.log(Level.WARNING,
+                                "[Pool-"+poolName+"]: Error while destroying", th);
+                    }
+                }
+            }
+        } finally {
+            Utility.setContextClassLoader(origLoader);
+        }
+        unregisterProbeProvider();
+
+        this.poolTimerTask = null;
+        this.containerClassLoader = null;
+    }
+
+    @Override
+    protected void removeIdleObjects() {
+    }
+
+    protected void doResize() {
+        if (poolClosed || !inResizing.compareAndSet(false, true)) {
+            return;
+        }
+
+        ClassLoader origLoader =
+            Utility.setContextClassLoader(containerClassLoader);
+        try {
+            int curSize = getNumBeansInPool();
+            if (curSize > steadyPoolSize) {
+                if ((idleTimeoutInSeconds > 0) && (resizeQuantity > 0)) {
+                    removeIdle(Math.min(resizeQuantity, curSize - steadyPoolSize));
+                }
+            } else if (curSize < steadyPoolSize && maintainSteadySize) {
+                int populateCount = steadyPoolSize - curSize;
+                if (resizeQuantity > 0) {
+                    populateCount = Math.min(maxPoolSize - curSize,
+                        ((populateCount + resizeQuantity - 1) / resizeQuantity) * resizeQuantity);
+                }
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE, "[Pool-{0}]: Attempting to preload {1} beans. CurSize/MaxPoolSize: {2}/{3}",
+                            new Object[]{poolName, populateCount, curSize, maxPoolSize});
+                }
+                preload(populateCount);
+            }
+        } catch (Throwable th) {
+            _logger.log(Level.WARNING,
+                        "[Pool-"+poolName+"]: Exception during reSize", th);
+        } finally {
+            Utility.setContextClassLoader(origLoader);
+            inResizing.set(false);
+        }
+    }
+
+    /**
+     * Destroys up to {@code victimCount} instances that have not been used
+     * within the idle timeout. Recently used instances are kept in the first
+     * slots of a stripe, so idle ones are mostly found towards its end.
+     */
+    private void removeIdle(int victimCount) {
+        long allowedIdleTime = System.currentTimeMillis() -
+            idleTimeoutInSeconds*1000L;
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                        "[Pool-{0}]: Resize:: reducing " + " pool size by: {1}", new Object[]{poolName, victimCount});
+        }
+        for (int i = 0; i < stripes.length && victimCount > 0; i++) {
+            for (Slots slots = stripes[i].head; slots != null && victimCount > 0; slots = slots.next) {
+                for (int slot = 0; slot < slots.length() && victimCount > 0; slot++) {
+                    Object obj = slots.get(slot);
+                    if (obj == null || ((obj instanceof EJBContextImpl)
+                            && ((EJBContextImpl) obj).getLastTimeUsed() > allowedIdleTime)) {
+                        continue;
+                    }
+                    if (stripes[i].remove(slots, slot, obj)) {
+                        victimCount--;
+                        destroyObject(obj);
+                    }
+                }
+            }
+        }
+    }
+
+    /* *************** For Monitoring ***********************/
+    /* ******************************************************/
+
+    @Override
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    @Override
+    public int getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    @Override
+    public int getPoolSuccess() {
+        return success.intValue();
+    }
+
+    @Override
+    public int getSize() {
+        return getNumBeansInPool();
+    }
+
+    @Override
+    public int getNumBeansInPool() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size.get();
+        }
+        return size;
+    }
+
+    @Override
+    public int getTotalBeansCreated() {
+        return created.get();
+    }
+
+    @Override
+    public int getTotalBeansDestroyed() {
+        return destroyed.get();
+    }
+
+    @Override
+    public void appendStats(StringBuilder sbuf) {
+        sbuf.append("[Pool: ")
+            .append("SZ=").append(getNumBeansInPool()).append("; ")
+            .append("CC=").append(created.get()).append("; ")
+            .append("DC=").append(destroyed.get()).append("; ")
+            .append("WC=").append(waitCount).append("; ")
+            .append("MSG=0");
+        if (configData != null) {
+            sbuf.append(configData);
+        }
+        sbuf.append("]");
+    }
+
+    @Override
+    public String getAllMonitoredAttrbuteValues() {
+        StringBuilder sbuf = new StringBuilder();
+        sbuf.append("createdCount=").append(created.get()).append(";")
+            .append("destroyedCount=").append(destroyed.get()).append(";")
+            .append("waitCount=").append(waitCount).append(";")
+            .append("size=").append(getNumBeansInPool()).append(";")
+            .append("maxPoolSize=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    @Override
+    public String getAllAttrValues() {
+        StringBuilder sbuf = new StringBuilder("[Pool-"+poolName+"] ");
+        sbuf.append("CC=").append(created.get()).append("; ")
+            .append("DC=").append(destroyed.get()).append("; ")
+            .append("CS=").append(getNumBeansInPool()).append("; ")
+            .append("SS=").append(steadyPoolSize).append("; ")
+            .append("MS=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    /**
+     * A bounded free list. Instances are kept in slots that are taken and
+     * filled by compare-and-set, always scanning from the first slot. So a
+     * stripe hands out the most recently used (cache-warm) instances first,
+     * and idle instances collect in the last slots. The slots are allocated
+     * in blocks as the stripe first grows, and never when an instance is
+     * returned to a stripe that held it before.
+     */
+    private static final class Stripe {
+
+        private static final int BLOCK_SIZE = 16;
+
+        final Slots head;
+        final AtomicInteger size = new AtomicInteger();
+        private final int capacity;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.head = new Slots(Math.min(capacity, BLOCK_SIZE), 0);
+        }
+
+        Object poll() {
+            if (size.get() == 0) {
+                return null;
+            }
+            for (Slots slots = head; slots != null; slots = slots.next) {
+                for (int i = 0; i < slots.length(); i++) {
+                    Object obj = slots.get(i);
+                    if (obj != null && remove(slots, i, obj)) {
+                        return obj;
+                    }
+                }
+            }
+            return null;
+        }
+
+        boolean remove(Slots slots, int slot, Object obj) {
+            if (slots.compareAndSet(slot, obj, null)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        boolean offer(Object obj) {
+            int current;
+            do {
+                current = size.get();
+                if (current >= capacity) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+
+            // The size is only lowered after a slot is emptied, so a stripe
+            // holding at least as many slots as its size has a free one for us
+            while (true) {
+                Slots last = null;
+                for (Slots slots = head; slots != null; slots = slots.next) {
+                    for (int i = 0; i < slots.length(); i++) {
+                        if (slots.get(i) == null && slots.compareAndSet(i, null, obj)) {
+                            return true;
+                        }
+                    }
+                    last = slots;
+                }
+                int allocated = last.offset + last.length();
+                if (allocated <= current) {
+                    last.append(new Slots(Math.min(capacity - allocated, BLOCK_SIZE), allocated));
+                }
+            }
+        }
+    }
+
+    /**
+     * A block of slots of a {@link Stripe}, chained to the next block
+     */
+    private static final class Slots extends AtomicReferenceArray<Object> {
+
+        private static final AtomicReferenceFieldUpdater<Slots, Slots> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Slots.class, Slots.class, "next");
+
+        final int offset;
+        volatile Slots next;
+
+        Slots(int length, int offset) {
+            super(length);
+            this.offset = offset;
+        }
+
+        void append(Slots slots) {
+            // losing the race means another thread appended a block already
+            NEXT.compareAndSet(this, null, slots);
+        }
+    }
+
+    private class ReSizeWork
+        implements Runnable
+    {
+        @Override
+        public void run() {
+            try {
+                doResize();
+            } finally {
+                resizeScheduled.set(false);
+            }
+        }
+    }
+
+    private class IdleBeanWork
+        implements Runnable
+    {
+        @Override
+        public void run() {
+            try {
+                doResize();
+            } finally {
+                idleWorkScheduled.set(false);
+            }
+        }
+    }
+
+    private class PoolResizeTimerTask
+        extends TimerTask
+    {
+        @Override
+        public void run() {
+            if (!idleWorkScheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                EjbContainerUtilImpl.getInstance().addWork(new IdleBeanWork());
+            } catch (Exception ex) {
+                idleWorkScheduled.set(false);
+                _logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool idle bean cleanup", ex);
+            }
+        }
+    }
+}
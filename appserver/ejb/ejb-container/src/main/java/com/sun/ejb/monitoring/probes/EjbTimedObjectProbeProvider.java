@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.monitoring.probes;
 
@@ -61,4 +62,8 @@ public class EjbTimedObjectProbeProvider {
     @Probe(name="timerDeliveredEvent")
     public void ejbTimerDeliveredEvent() {}
 
+    @Probe(name="timerDeliveredLateEvent")
+    public void ejbTimerDeliveredLateEvent(
+            @ProbeParam("lateness") long lateness) {}
+
 }
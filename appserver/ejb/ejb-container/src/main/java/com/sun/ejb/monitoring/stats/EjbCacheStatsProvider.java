@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016] [Payara Foundation]
+// Portions Copyright [2016-2024] [Payara Foundation]
 
 package com.sun.ejb.monitoring.stats;
 
@@ -85,6 +85,13 @@ public class EjbCacheStatsProvider {
             "Provides a count value reflecting the number of passivations for a "
                 + "StatefulSessionBean from the bean cache that succeeded");
 
+    private CountStatisticImpl activationErrors = new CountStatisticImpl(
+            "NumActivationErrors", "count", 
+            "Provides a count value reflecting the number of errors that occured "
+                + "while activating a StatefulSessionBean into the bean cache.");
+
+    private TimeStatisticImpl activationTime;
+
     private BoundedRangeStatisticImpl cacheHits;
     private BoundedRangeStatisticImpl cacheMisses;
     private BoundedRangeStatisticImpl numBeans;
@@ -121,6 +128,11 @@ public class EjbCacheStatsProvider {
             0, 0, 0, Long.MAX_VALUE, 0, "CacheMisses", "count", 
             "Provides the number of times a user request fails to find an EJB in associated EJB cache instance",
             now, now);
+        activationTime = new TimeStatisticImpl(
+            0, 0, 0, 0, "ActivationTime", "millis", 
+            "Provides the number of activations of a StatefulSessionBean into the bean cache, "
+                + "and the time spent loading and activating the beans",
+            now, now);
     }
 
     public void register() {
@@ -184,6 +196,18 @@ public class EjbCacheStatsProvider {
         return passivationSuccess;
     }
 
+    @ManagedAttribute(id="activationtime")
+    @Description( "Number of activated beans and time (ms) spent activating them")
+    public TimeStatistic getActivationTime() {
+        return activationTime;
+    }
+
+    @ManagedAttribute(id="numactivationerrors")
+    @Description( "Number of errors during activation.")
+    public CountStatistic getNumActivationErrors() {
+        return activationErrors;
+    }
+
     @ProbeListener("glassfish:ejb:cache:beanPassivatedEvent")
     public void ejbBeanPassivatedEvent(
             @ProbeParam("beanId") long beanId,
@@ -201,6 +225,23 @@ public class EjbCacheStatsProvider {
         }
     }
 
+    @ProbeListener("glassfish:ejb:cache:beanActivatedEvent")
+    public void ejbBeanActivatedEvent(
+            @ProbeParam("beanId") long beanId,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("modName") String modName,
+            @ProbeParam("ejbName") String ejbName,
+            @ProbeParam("success") boolean success,
+            @ProbeParam("activationTime") long activationTime) {
+        if (this.beanId == beanId) {
+            if (success) {
+                this.activationTime.incrementCount(activationTime);
+            } else {
+                activationErrors.increment();
+            }
+        }
+    }
+
     @ProbeListener("glassfish:ejb:cache:expiredSessionsRemovedEvent")
     public void ejbExpiredSessionsRemovedEvent(
             @ProbeParam("beanId") long beanId,
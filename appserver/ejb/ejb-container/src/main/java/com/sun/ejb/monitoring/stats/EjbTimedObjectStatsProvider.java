@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016] [Payara Foundation]
+// Portions Copyright [2016-2024] [Payara Foundation]
 
 package com.sun.ejb.monitoring.stats;
 
@@ -71,6 +71,8 @@ public class EjbTimedObjectStatsProvider {
     private CountStatisticImpl timerDeliveredStat = new CountStatisticImpl("NumTimersDelivered",
             "count", "Number of timers delivered by the system");
 
+    private TimeStatisticImpl timerLatenessStat;
+
     private static final Logger _logger = EjbContainerUtilImpl.getLogger();
 
     private String appName = null;
@@ -83,6 +85,11 @@ public class EjbTimedObjectStatsProvider {
         this.appName = appName;
         this.moduleName = moduleName;
         this.beanName = beanName;
+
+        long now = System.currentTimeMillis();
+        timerLatenessStat = new TimeStatisticImpl(0, 0, 0, 0, "TimerDeliveryLateness",
+                "millis", "Number of expirations and the time (ms) they were delivered "
+                + "after their scheduled time", now, now);
     }
 
     public void register() {
@@ -119,6 +126,11 @@ public class EjbTimedObjectStatsProvider {
         timerDeliveredStat.increment();
     }
 
+    @ProbeListener("glassfish:ejb:timers:timerDeliveredLateEvent")
+    public void ejbTimerDeliveredLateEvent(@ProbeParam("lateness") long lateness) {
+        timerLatenessStat.incrementCount(lateness);
+    }
+
     @ManagedAttribute(id="numtimerscreated")
     @Description( "Number of timers created in the system")
     public CountStatistic getNumTimersCreated() {
@@ -136,4 +148,10 @@ public class EjbTimedObjectStatsProvider {
     public CountStatistic getNumTimersDelivered() {
         return timerDeliveredStat;
     }
+
+    @ManagedAttribute(id="timerdeliverylateness")
+    @Description( "Number of expirations and the time (ms) they were delivered late")
+    public TimeStatistic getTimerDeliveryLateness() {
+        return timerLatenessStat;
+    }
 }
@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.ejb.spi.container;
 
@@ -57,6 +58,8 @@ public interface SFSBContainerCallback {
     public void activateEJB(Object sessionKey,
             StatefulEJBContext ctx, Object cookie);
 
+    public void activationCompleted(boolean success, long activationTime);
+
     public boolean passivateEJB(StatefulEJBContext ctx);
 
     public boolean isPassivationCapable();
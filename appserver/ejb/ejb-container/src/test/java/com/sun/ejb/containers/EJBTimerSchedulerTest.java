@@ -0,0 +1,155 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EJBTimerSchedulerTest {
+
+    private final EJBTimerScheduler scheduler = new EJBTimerScheduler("test", 5, 8, 2);
+
+    @After
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void taskExpiresNotBeforeItsTimeout() throws Exception {
+        long timeout = System.currentTimeMillis() + 50;
+        CountingTask task = new CountingTask(timeout, 1);
+        scheduler.schedule(task);
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(task.expiredAt >= timeout);
+        assertEquals(1, scheduler.getDispatchedCount());
+        assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void cancelledTaskDoesNotExpire() throws Exception {
+        CountingTask cancelled = new CountingTask(System.currentTimeMillis() + 20, 1);
+        CountingTask other = new CountingTask(System.currentTimeMillis() + 60, 1);
+        scheduler.schedule(cancelled);
+        scheduler.schedule(other);
+        cancelled.cancel();
+
+        assertTrue(other.latch.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelled.latch.await(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void tasksBeyondOneRevolutionExpireInOrder() throws Exception {
+        // 8 buckets of 5 ms, so these timeouts span several revolutions
+        long now = System.currentTimeMillis();
+        List<CountingTask> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            CountingTask task = new CountingTask(now + i * 45, 1);
+            tasks.add(task);
+            scheduler.schedule(task);
+        }
+
+        for (CountingTask task : tasks) {
+            assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+            assertTrue(task.expiredAt >= task.getTimeout().getTime());
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            assertTrue(tasks.get(i - 1).expiredAt <= tasks.get(i).expiredAt);
+        }
+    }
+
+    @Test
+    public void taskScheduledInThePastExpiresImmediately() throws Exception {
+        CountingTask task = new CountingTask(System.currentTimeMillis() - 1000, 1);
+        scheduler.schedule(task);
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getDispatchedCount());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopTheScheduler() throws Exception {
+        EJBTimerTask failing = new EJBTimerTask(new Date(System.currentTimeMillis() + 10), null, null) {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        };
+        CountingTask task = new CountingTask(System.currentTimeMillis() + 30, 1);
+        scheduler.schedule(failing);
+        scheduler.schedule(task);
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void scheduleAfterShutdownFails() {
+        scheduler.shutdown();
+        scheduler.schedule(new CountingTask(System.currentTimeMillis(), 1));
+    }
+
+    private static class CountingTask extends EJBTimerTask {
+
+        final CountDownLatch latch;
+        volatile long expiredAt;
+
+        CountingTask(long timeout, int expirations) {
+            super(new Date(timeout), null, null);
+            latch = new CountDownLatch(expirations);
+        }
+
+        @Override
+        public void run() {
+            expiredAt = System.currentTimeMillis();
+            latch.countDown();
+        }
+    }
+}
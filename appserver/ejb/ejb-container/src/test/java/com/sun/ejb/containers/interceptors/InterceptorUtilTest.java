@@ -0,0 +1,134 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.interceptors;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class InterceptorUtilTest {
+
+    @Test
+    public void aroundInvokeHandleInvokesInterceptorMethod() throws Throwable {
+        Method method = Interceptor.class.getDeclaredMethod("aroundInvoke", Object.class);
+        method.setAccessible(true);
+        MethodHandle handle = InterceptorUtil.createAroundInvokeHandle(method);
+
+        assertNotNull(handle);
+        assertEquals("intercepted ctx", (Object) handle.invokeExact((Object) new Interceptor(), (Object) "ctx"));
+    }
+
+    @Test
+    public void aroundInvokeHandleThrowsExceptionsUnwrapped() throws Throwable {
+        Method method = Interceptor.class.getDeclaredMethod("failing", Object.class);
+        method.setAccessible(true);
+        MethodHandle handle = InterceptorUtil.createAroundInvokeHandle(method);
+
+        try {
+            Object result = (Object) handle.invokeExact((Object) new Interceptor(), (Object) "ctx");
+            fail("Expected exception, got " + result);
+        } catch (IOException e) {
+            assertEquals("ctx", e.getMessage());
+        }
+    }
+
+    @Test
+    public void beanMethodHandleSpreadsParameters() throws Throwable {
+        Method method = Bean.class.getMethod("concat", String.class, Integer.class);
+        MethodHandle handle = InterceptorUtil.createBeanMethodHandle(method);
+
+        assertNotNull(handle);
+        Object[] params = {"a", 1};
+        assertEquals("a1", (Object) handle.invokeExact((Object) new Bean(), params));
+    }
+
+    @Test
+    public void beanMethodHandleReturnsNullForVoid() throws Throwable {
+        Bean bean = new Bean();
+        MethodHandle handle = InterceptorUtil.createBeanMethodHandle(Bean.class.getMethod("touch"));
+
+        Object[] params = {};
+        assertNull((Object) handle.invokeExact((Object) bean, params));
+        assertSame(Boolean.TRUE, bean.touched);
+    }
+
+    @Test
+    public void beanMethodsWithPrimitiveParametersUseReflection() throws Exception {
+        // reflection widens an Integer argument to a long parameter, a method handle does not
+        assertNull(InterceptorUtil.createBeanMethodHandle(Bean.class.getMethod("add", long.class)));
+    }
+
+    static class Interceptor {
+
+        private Object aroundInvoke(Object ctx) {
+            return "intercepted " + ctx;
+        }
+
+        private Object failing(Object ctx) throws IOException {
+            throw new IOException(String.valueOf(ctx));
+        }
+    }
+
+    public static class Bean {
+
+        Boolean touched;
+
+        public String concat(String s, Integer i) {
+            return s + i;
+        }
+
+        public void touch() {
+            touched = Boolean.TRUE;
+        }
+
+        public long add(long value) {
+            return value + 1;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.cache;
+
+import com.sun.appserv.util.cache.CacheListener;
+import com.sun.ejb.spi.container.SFSBContainerCallback;
+import com.sun.ejb.spi.container.StatefulEJBContext;
+import jakarta.ejb.SessionContext;
+import org.glassfish.ha.store.api.BackingStore;
+import org.glassfish.ha.store.api.BackingStoreException;
+import org.glassfish.ha.store.api.BackingStoreFactory;
+import org.glassfish.ha.store.util.SimpleMetadata;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentSessionCacheTest {
+
+    private final RecordingStore store = new RecordingStore();
+    private final List<Runnable> queuedTasks = new ArrayList<>();
+    private final List<Object> trimmedKeys = new ArrayList<>();
+    private final Callback callback = new Callback();
+    private ConcurrentSessionCache cache;
+
+    @Before
+    public void createCache() {
+        createCache(4);
+    }
+
+    private void createCache(int maxEntries) {
+        cache = new ConcurrentSessionCache("test", callback, 0, 0);
+        // a load factor of 0.5 makes the cache trim once it holds maxEntries
+        cache.init(maxEntries, 0.5f, null);
+        cache.setBackingStore(store);
+        cache.setPassivationExecutor(queuedTasks::add);
+        cache.addCacheListener(new CacheListener() {
+            @Override
+            public void trimEvent(Object key, Object value) {
+                trimmedKeys.add(key);
+            }
+        });
+    }
+
+    private void runQueuedTasks() {
+        while (!queuedTasks.isEmpty()) {
+            queuedTasks.remove(0).run();
+        }
+    }
+
+    private static SimpleMetadata state(int version) {
+        return new SimpleMetadata(version, 0L, 0L, new byte[] {(byte) version});
+    }
+
+    @Test
+    public void referencedBeanGetsSecondChance() {
+        for (int i = 0; i < 4; i++) {
+            cache.put("key" + i, new Context());
+        }
+        cache.get("key0");
+        cache.put("key4", new Context());
+
+        assertEquals(1, trimmedKeys.size());
+        assertEquals("key1", trimmedKeys.get(0));
+    }
+
+    @Test
+    public void trimmedBeanAccessedAgainIsKept() {
+        for (int i = 0; i < 5; i++) {
+            cache.put("key" + i, new Context());
+        }
+        assertEquals("key0", trimmedKeys.get(0));
+
+        cache.get("key0");
+
+        assertEquals(1, cache.getNumVictimsAccessed());
+        assertEquals(2, trimmedKeys.size());
+    }
+
+    @Test
+    public void passivatedStateIsWrittenBehind() throws Exception {
+        cache.storeState("key", state(1), true);
+
+        assertTrue(store.saved.isEmpty());
+        assertEquals(1, cache.getPendingWriteCount());
+
+        runQueuedTasks();
+
+        assertEquals(1, store.saved.get("key").getVersion());
+        assertEquals(0, cache.getPendingWriteCount());
+    }
+
+    @Test
+    public void activationCompletesPendingWrite() throws Exception {
+        SimpleMetadata state = state(1);
+        cache.storeState("key", state, true);
+
+        assertSame(state, cache.loadState("key"));
+        assertSame(state, store.saved.get("key"));
+
+        runQueuedTasks();
+
+        assertEquals(1, store.saveCount.get());
+    }
+
+    @Test
+    public void newerPassivationSupersedesPendingWrite() throws Exception {
+        cache.storeState("key", state(1), true);
+        cache.storeState("key", state(2), false);
+        runQueuedTasks();
+
+        assertEquals(2, store.saved.get("key").getVersion());
+        assertEquals(1, store.saveCount.get());
+    }
+
+    @Test
+    public void removeCancelsPendingWrite() throws Exception {
+        cache.storeState("key", state(1), true);
+        cache.remove("key");
+        runQueuedTasks();
+
+        assertNull(store.saved.get("key"));
+        assertEquals(0, cache.getPendingWriteCount());
+    }
+
+    @Test
+    public void saturatedWriteStageWritesThrough() throws Exception {
+        createCache(1);
+        cache.storeState("key1", state(1), true);
+        cache.storeState("key2", state(2), true);
+
+        assertFalse(store.saved.containsKey("key1"));
+        assertTrue(store.saved.containsKey("key2"));
+
+        runQueuedTasks();
+
+        assertTrue(store.saved.containsKey("key1"));
+    }
+
+    @Test
+    public void failedWriteKeepsPermitUntilRetried() throws Exception {
+        createCache(1);
+        store.failing = true;
+        cache.storeState("key1", state(1), true);
+        runQueuedTasks();
+
+        assertFalse(store.saved.containsKey("key1"));
+        assertEquals(1, cache.getPendingWriteCount());
+        assertEquals(1, cache.getWriteErrorCount());
+
+        // the failed write still holds the only permit
+        store.failing = false;
+        cache.storeState("key2", state(2), true);
+        assertTrue(store.saved.containsKey("key2"));
+
+        // retried after the next sweep
+        cache.trimTimedoutItems(Integer.MAX_VALUE);
+        runQueuedTasks();
+
+        assertEquals(1, store.saved.get("key1").getVersion());
+        assertEquals(0, cache.getPendingWriteCount());
+
+        cache.storeState("key3", state(3), true);
+        assertFalse(store.saved.containsKey("key3"));
+        assertEquals(1, cache.getPendingWriteCount());
+    }
+
+    @Test
+    public void failedWriteIsLoadedOnActivation() throws Exception {
+        store.failing = true;
+        SimpleMetadata state = state(1);
+        cache.storeState("key", state, true);
+        runQueuedTasks();
+
+        assertSame(state, cache.loadState("key"));
+        assertEquals(0, cache.getPendingWriteCount());
+
+        store.failing = false;
+        cache.trimTimedoutItems(Integer.MAX_VALUE);
+        runQueuedTasks();
+
+        // the stale state is not written after the bean was activated
+        assertFalse(store.saved.containsKey("key"));
+    }
+
+    @Test
+    public void missingSessionIsNotReportedAsActivation() {
+        assertNull(cache.lookupEJB("key", callback, null));
+        assertEquals(0, callback.activations.get());
+    }
+
+    @Test
+    public void destroyFlushesPendingWrites() throws Exception {
+        cache.storeState("key", state(1), true);
+        cache.destroy();
+
+        assertTrue(store.saved.containsKey("key"));
+    }
+
+    private static class RecordingStore extends BackingStore<Serializable, SimpleMetadata> {
+
+        final Map<Serializable, SimpleMetadata> saved = new ConcurrentHashMap<>();
+        final AtomicInteger saveCount = new AtomicInteger();
+        volatile boolean failing;
+
+        @Override
+        public BackingStoreFactory getBackingStoreFactory() {
+            return null;
+        }
+
+        @Override
+        public SimpleMetadata load(Serializable key, String version) {
+            return saved.get(key);
+        }
+
+        @Override
+        public String save(Serializable key, SimpleMetadata value, boolean isNew)
+            throws BackingStoreException
+        {
+            if (failing) {
+                throw new BackingStoreException("store unavailable");
+            }
+            saveCount.incrementAndGet();
+            saved.put(key, value);
+            return null;
+        }
+
+        @Override
+        public void remove(Serializable key) {
+            saved.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return saved.size();
+        }
+    }
+
+    private static class Callback implements SFSBContainerCallback {
+
+        final AtomicInteger activations = new AtomicInteger();
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return getClass().getClassLoader();
+        }
+
+        @Override
+        public int getPassivationBatchCount() {
+            return 8;
+        }
+
+        @Override
+        public void invokePeriodically(long delay, long periodicity, Runnable target) {
+        }
+
+        @Override
+        public void activateEJB(Object sessionKey, StatefulEJBContext ctx, Object cookie) {
+        }
+
+        @Override
+        public void activationCompleted(boolean success, long activationTime) {
+            activations.incrementAndGet();
+        }
+
+        @Override
+        public boolean passivateEJB(StatefulEJBContext ctx) {
+            return true;
+        }
+
+        @Override
+        public boolean isPassivationCapable() {
+            return true;
+        }
+
+        @Override
+        public byte[] serializeContext(StatefulEJBContext ctx) {
+            return new byte[0];
+        }
+
+        @Override
+        public Object deserializeData(byte[] data) {
+            return null;
+        }
+    }
+
+    private static class Context implements StatefulEJBContext {
+
+        private long version;
+        private boolean existsInStore;
+
+        @Override
+        public long getLastAccessTime() {
+            return 0;
+        }
+
+        @Override
+        public boolean canBePassivated() {
+            return true;
+        }
+
+        @Override
+        public SessionContext getSessionContext() {
+            return null;
+        }
+
+        @Override
+        public boolean existsInStore() {
+            return existsInStore;
+        }
+
+        @Override
+        public void setExistsInStore(boolean val) {
+            existsInStore = val;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public long incrementAndGetVersion() {
+            return ++version;
+        }
+
+        @Override
+        public void setVersion(long versionInBackingStore) {
+            version = versionInBackingStore;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers.util.pool;
+
+import com.sun.ejb.monitoring.probes.EjbPoolProbeProvider;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentPoolTest {
+
+    private final CountingFactory factory = new CountingFactory();
+    private ConcurrentPool pool;
+
+    @After
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConcurrentPool createPool(int maxPoolSize) {
+        // steady size and idle timeout of 0 keep the container work manager
+        // and timer out of the picture
+        pool = new ConcurrentPool(1L, "test", factory, 0, 8, maxPoolSize, 0, null);
+        pool.poolProbeNotifier = new EjbPoolProbeProvider();
+        return pool;
+    }
+
+    @Test
+    public void returnedInstanceIsReused() {
+        createPool(32);
+        Object first = pool.getObject(null);
+        pool.returnObject(first);
+
+        assertSame(first, pool.getObject(null));
+        assertEquals(1, factory.created.get());
+        assertEquals(1, pool.getPoolSuccess());
+    }
+
+    @Test
+    public void instancesAboveMaxPoolSizeAreDestroyed() {
+        createPool(4);
+        List<Object> instances = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            instances.add(pool.getObject(null));
+        }
+        for (Object instance : instances) {
+            pool.returnObject(instance);
+        }
+
+        assertEquals(4, pool.getNumBeansInPool());
+        assertEquals(10, pool.getCreatedCount());
+        assertEquals(6, pool.getDestroyedCount());
+        assertEquals(6, factory.destroyed.get());
+    }
+
+    @Test
+    public void prepopulateIsBoundedByMaxPoolSize() {
+        createPool(3);
+        pool.prepopulate(5);
+
+        assertEquals(3, pool.getNumBeansInPool());
+        assertEquals(3, pool.getSteadyPoolSize());
+        assertEquals(3, factory.created.get());
+    }
+
+    @Test
+    public void closeDestroysPooledInstances() {
+        createPool(8);
+        Object instance = pool.getObject(null);
+        pool.prepopulate(4);
+        pool.close();
+
+        assertEquals(0, pool.getNumBeansInPool());
+        assertEquals(4, factory.destroyed.get());
+
+        // instances returned after close are not kept
+        pool.returnObject(instance);
+        assertEquals(0, pool.getNumBeansInPool());
+        assertEquals(5, factory.destroyed.get());
+        pool = null;
+    }
+
+    @Test
+    public void unboundedPoolKeepsEveryReturnedInstance() {
+        createPool(0);
+        List<Object> instances = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            instances.add(pool.getObject(null));
+        }
+        for (Object instance : instances) {
+            pool.returnObject(instance);
+        }
+        assertEquals(100, pool.getNumBeansInPool());
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(instances.contains(pool.getObject(null)));
+        }
+        assertEquals(0, pool.getNumBeansInPool());
+        assertEquals(100, factory.created.get());
+        assertEquals(0, factory.destroyed.get());
+    }
+
+    @Test
+    public void idleInstancesAreRemovedBeyondSteadySize() {
+        createPool(0);
+        List<Object> instances = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            instances.add(pool.getObject(null));
+        }
+        for (Object instance : instances) {
+            pool.returnObject(instance);
+        }
+        pool.idleTimeoutInSeconds = 1;
+
+        pool.doResize();
+
+        assertEquals(32, pool.getNumBeansInPool());
+        assertEquals(8, factory.destroyed.get());
+    }
+
+    @Test
+    public void instanceIsNeverSharedBetweenThreads() throws Exception {
+        assertNeverShared(4);
+    }
+
+    @Test
+    public void instanceIsNeverSharedInUnboundedPool() throws Exception {
+        assertNeverShared(0);
+    }
+
+    private void assertNeverShared(int maxPoolSize) throws Exception {
+        final int threads = 8;
+        final int iterations = 20_000;
+        createPool(maxPoolSize);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        Instance instance = (Instance) pool.getObject(null);
+                        if (!instance.inUse.compareAndSet(false, true)) {
+                            throw new AssertionError("Instance handed out twice");
+                        }
+                        instance.inUse.set(false);
+                        pool.returnObject(instance);
+                    }
+                } catch (Throwable th) {
+                    failure.compareAndSet(null, th);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertNull(failure.get());
+        int pooled = pool.getNumBeansInPool();
+        if (maxPoolSize > 0) {
+            assertTrue(pooled <= maxPoolSize);
+        }
+        assertEquals(pooled, pool.getCreatedCount() - pool.getDestroyedCount());
+        assertEquals(factory.created.get() - factory.destroyed.get(), pooled);
+    }
+
+    private static class Instance {
+        final AtomicBoolean inUse = new AtomicBoolean();
+    }
+
+    private static class CountingFactory implements ObjectFactory {
+
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger destroyed = new AtomicInteger();
+
+        @Override
+        public Object create(Object param) {
+            created.incrementAndGet();
+            return new Instance();
+        }
+
+        @Override
+        public void destroy(Object obj) {
+            destroyed.incrementAndGet();
+        }
+    }
+}
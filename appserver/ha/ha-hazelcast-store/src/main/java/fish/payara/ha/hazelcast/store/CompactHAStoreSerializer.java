@@ -0,0 +1,319 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ha.hazelcast.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.glassfish.ha.store.util.SimpleMetadata;
+import org.glassfish.web.ha.session.management.CompositeMetadata;
+import org.glassfish.web.ha.session.management.SessionAttributeMetadata;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Default {@link HAStoreSerializer}, writing the metadata wrappers of the web
+ * session and stateful session bean stores field by field. The session and
+ * bean state they carry is already serialized by the containers and copied
+ * as is. Serialized values larger than the compression threshold (set by the
+ * {@value #COMPRESSION_THRESHOLD_PROPERTY} system property in bytes, 0 to
+ * disable) are deflated when that makes them smaller.
+ */
+@Service
+public class CompactHAStoreSerializer implements HAStoreSerializer {
+
+    public static final String COMPRESSION_THRESHOLD_PROPERTY = "fish.payara.ha.store.compressionThreshold";
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 4096;
+
+    private static final byte MAGIC = (byte) 0xCA;
+    private static final byte FLAG_COMPRESSED = 1;
+
+    private static final byte SIMPLE_METADATA = 1;
+    private static final byte COMPOSITE_METADATA = 2;
+    private static final byte SESSION_ATTRIBUTE_METADATA = 3;
+
+    private static final SessionAttributeMetadata.Operation[] OPERATIONS = SessionAttributeMetadata.Operation.values();
+
+    private final int compressionThreshold;
+
+    public CompactHAStoreSerializer() {
+        this(Integer.getInteger(COMPRESSION_THRESHOLD_PROPERTY, DEFAULT_COMPRESSION_THRESHOLD));
+    }
+
+    public CompactHAStoreSerializer(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public boolean supports(Serializable value) {
+        return value instanceof SimpleMetadata
+                || value instanceof CompositeMetadata
+                || value instanceof SessionAttributeMetadata;
+    }
+
+    @Override
+    public byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC);
+        out.writeByte(0);
+        if (value instanceof SimpleMetadata) {
+            out.writeByte(SIMPLE_METADATA);
+            writeSimpleMetadata(out, (SimpleMetadata) value);
+        } else if (value instanceof CompositeMetadata) {
+            out.writeByte(COMPOSITE_METADATA);
+            writeCompositeMetadata(out, (CompositeMetadata) value);
+        } else if (value instanceof SessionAttributeMetadata) {
+            out.writeByte(SESSION_ATTRIBUTE_METADATA);
+            writeSessionAttributeMetadata(out, (SessionAttributeMetadata) value);
+        } else {
+            throw new IOException("Unsupported value type " + value.getClass().getName());
+        }
+        out.flush();
+        byte[] data = bytes.toByteArray();
+        if (compressionThreshold > 0 && data.length > compressionThreshold) {
+            return compress(data);
+        }
+        return data;
+    }
+
+    @Override
+    public boolean isSerialized(byte[] data) {
+        return data.length >= 3 && data[0] == MAGIC
+                && (data[1] & ~FLAG_COMPRESSED) == 0
+                && data[2] >= SIMPLE_METADATA && data[2] <= SESSION_ATTRIBUTE_METADATA;
+    }
+
+    @Override
+    public Serializable deserialize(byte[] data) throws IOException {
+        if (!isSerialized(data)) {
+            throw new StreamCorruptedException("Not a serialized store value");
+        }
+        if ((data[1] & FLAG_COMPRESSED) != 0) {
+            data = decompress(data);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 3, data.length - 3));
+        switch (data[2]) {
+            case SIMPLE_METADATA:
+                return readSimpleMetadata(in);
+            case COMPOSITE_METADATA:
+                return readCompositeMetadata(in);
+            case SESSION_ATTRIBUTE_METADATA:
+                return readSessionAttributeMetadata(in);
+            default:
+                throw new StreamCorruptedException("Unknown value type " + data[2]);
+        }
+    }
+
+    private static void writeSimpleMetadata(DataOutputStream out, SimpleMetadata metadata) throws IOException {
+        out.writeLong(metadata.getVersion());
+        out.writeLong(metadata.getLastAccessTime());
+        out.writeLong(metadata.getMaxInactiveInterval());
+        writeBytes(out, metadata.getState());
+    }
+
+    private static SimpleMetadata readSimpleMetadata(DataInputStream in) throws IOException {
+        long version = in.readLong();
+        long lastAccessTime = in.readLong();
+        long maxInactiveInterval = in.readLong();
+        return new SimpleMetadata(version, lastAccessTime, maxInactiveInterval, readBytes(in));
+    }
+
+    private static void writeCompositeMetadata(DataOutputStream out, CompositeMetadata metadata) throws IOException {
+        out.writeLong(metadata._storeable_getVersion());
+        out.writeLong(metadata._storeable_getLastAccessTime());
+        out.writeLong(metadata._storeable_getMaxIdleTime());
+        writeBytes(out, metadata.getState());
+        writeString(out, metadata.getStringExtraParam());
+        Set<String> attributeNames = metadata.getAttributeNames();
+        out.writeInt(attributeNames == null ? -1 : attributeNames.size());
+        if (attributeNames != null) {
+            for (String attributeName : attributeNames) {
+                writeString(out, attributeName);
+            }
+        }
+        Collection<SessionAttributeMetadata> entries = metadata.getEntries();
+        out.writeInt(entries.size());
+        for (SessionAttributeMetadata entry : entries) {
+            writeSessionAttributeMetadata(out, entry);
+        }
+    }
+
+    private static CompositeMetadata readCompositeMetadata(DataInputStream in) throws IOException {
+        long version = in.readLong();
+        long lastAccessTime = in.readLong();
+        long maxInactiveInterval = in.readLong();
+        byte[] state = readBytes(in);
+        String stringExtraParam = readString(in);
+        CompositeMetadata metadata = new CompositeMetadata(version, lastAccessTime, maxInactiveInterval,
+                Collections.<SessionAttributeMetadata>emptyList(), state, stringExtraParam);
+        int attributeNameCount = in.readInt();
+        if (attributeNameCount >= 0) {
+            Set<String> attributeNames = new HashSet<>();
+            for (int i = 0; i < attributeNameCount; i++) {
+                attributeNames.add(readString(in));
+            }
+            metadata.setAttributeNames(attributeNames);
+        }
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            metadata.addEntry(readSessionAttributeMetadata(in));
+        }
+        return metadata;
+    }
+
+    private static void writeSessionAttributeMetadata(DataOutputStream out, SessionAttributeMetadata metadata)
+            throws IOException {
+        writeString(out, metadata.getAttributeName());
+        out.writeByte(metadata.getOperation().ordinal());
+        writeBytes(out, metadata.getState());
+    }
+
+    private static SessionAttributeMetadata readSessionAttributeMetadata(DataInputStream in) throws IOException {
+        String attributeName = readString(in);
+        int operation = in.readByte();
+        if (operation < 0 || operation >= OPERATIONS.length) {
+            throw new StreamCorruptedException("Unknown attribute operation " + operation);
+        }
+        return new SessionAttributeMetadata(attributeName, OPERATIONS[operation], readBytes(in));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Deflates everything after the header, keeping the uncompressed data if
+     * it does not get smaller.
+     */
+    private static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, 3, data.length - 3);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            out.write(MAGIC);
+            out.write(FLAG_COMPRESSED);
+            out.write(data[2]);
+            out.write((data.length - 3) >>> 24);
+            out.write((data.length - 3) >>> 16);
+            out.write((data.length - 3) >>> 8);
+            out.write(data.length - 3);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() >= data.length) {
+                    return data;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        if (data.length < 7) {
+            throw new StreamCorruptedException("Truncated compressed store value");
+        }
+        int length = ((data[3] & 0xFF) << 24) | ((data[4] & 0xFF) << 16) | ((data[5] & 0xFF) << 8) | (data[6] & 0xFF);
+        byte[] result = new byte[length + 3];
+        result[0] = MAGIC;
+        result[1] = 0;
+        result[2] = data[2];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 7, data.length - 7);
+            int offset = 3;
+            while (offset < result.length && !inflater.finished()) {
+                int read = inflater.inflate(result, offset, result.length - offset);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new StreamCorruptedException("Truncated compressed store value");
+                }
+                offset += read;
+            }
+            if (offset != result.length) {
+                throw new StreamCorruptedException("Compressed store value has the wrong length");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("Invalid compressed store value: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+}
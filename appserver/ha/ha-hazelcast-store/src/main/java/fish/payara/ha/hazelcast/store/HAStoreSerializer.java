@@ -0,0 +1,89 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ha.hazelcast.store;
+
+import java.io.IOException;
+import java.io.Serializable;
+import org.jvnet.hk2.annotations.Contract;
+
+/**
+ * Converts the values of the Hazelcast backing stores to bytes before they
+ * are put into the data grid, so they do not go through Java serialization
+ * with its class descriptors. Values the serializer does not support are
+ * stored as they are. Values are only serialized when the
+ * {@value HazelcastBackingStoreFactory#SERIALIZER_ENABLED_PROPERTY} system
+ * property is set to true, but serialized values are always read so that
+ * members with and without the property can share a cluster.
+ * <p>
+ * The implementation with the highest rank is used, an application server
+ * extension can replace the default {@link CompactHAStoreSerializer} by
+ * registering a service with a higher rank.
+ */
+@Contract
+public interface HAStoreSerializer {
+
+    /**
+     * @param value a value to save
+     * @return whether this serializer can write the value
+     */
+    boolean supports(Serializable value);
+
+    /**
+     * @param value a supported value
+     * @return the serialized value
+     * @throws IOException if the value can not be written
+     */
+    byte[] serialize(Serializable value) throws IOException;
+
+    /**
+     * @param data a byte array read from the store
+     * @return whether the data was written by {@link #serialize(Serializable)}
+     * rather than stored as it is
+     */
+    boolean isSerialized(byte[] data);
+
+    /**
+     * @param data the bytes written by {@link #serialize(Serializable)}
+     * @return the value read
+     * @throws IOException if the data is not valid
+     */
+    Serializable deserialize(byte[] data) throws IOException;
+}
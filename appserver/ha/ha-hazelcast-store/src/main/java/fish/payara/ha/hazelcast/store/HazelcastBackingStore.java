@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2016-2020 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -43,8 +43,14 @@ import fish.payara.nucleus.store.ClusteredStore;
 import org.glassfish.ha.store.api.BackingStore;
 import org.glassfish.ha.store.api.BackingStoreException;
 import org.glassfish.ha.store.api.BackingStoreFactory;
+import org.glassfish.web.ha.session.management.AttributeDeltaReplication;
+import org.glassfish.web.ha.session.management.CompositeMetadata;
+import org.glassfish.web.ha.session.management.SessionAttributeMetadata;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,17 +59,38 @@ import java.util.logging.Logger;
  * @author steve
  */
 public class HazelcastBackingStore<K extends Serializable, V extends Serializable>
-        extends BackingStore<K, V> {
+        extends BackingStore<K, V> implements AttributeDeltaReplication {
+
+    /**
+     * Suffix of the store holding the attributes of {@link CompositeMetadata} values
+     */
+    static final String ATTRIBUTE_STORE_SUFFIX = "-attributes";
 
     private final BackingStoreFactory factory;
     private final String storeName;
     private String instanceName;
+    private final String attributeStoreName;
     private ClusteredStore clusteredStore;
+    private final HAStoreSerializer serializer;
+    private final boolean serializeValues;
 
     public HazelcastBackingStore(BackingStoreFactory factory, String storeName, ClusteredStore clusteredStore) {
+        this(factory, storeName, clusteredStore, null, false);
+    }
+
+    /**
+     * @param serializer the serializer reading serialized values of the
+     * store, or null if they are all stored as they are
+     * @param serializeValues whether the serializer also writes the values
+     */
+    public HazelcastBackingStore(BackingStoreFactory factory, String storeName, ClusteredStore clusteredStore,
+            HAStoreSerializer serializer, boolean serializeValues) {
         this.factory = factory;
         this.storeName = storeName;
+        this.attributeStoreName = storeName + ATTRIBUTE_STORE_SUFFIX;
         this.clusteredStore = clusteredStore;
+        this.serializer = serializer;
+        this.serializeValues = serializer != null && serializeValues;
     }
 
     @Override
@@ -75,7 +102,11 @@ public class HazelcastBackingStore<K extends Serializable, V extends Serializabl
     public V load(K k, String string) throws BackingStoreException {
         init();
         try {
-            return (V) clusteredStore.get(storeName, k);
+            V value = (V) get(storeName, k);
+            if (value instanceof CompositeMetadata) {
+                loadAttributes(k, (CompositeMetadata) value);
+            }
+            return value;
         } catch (ClassCastException cce) {
             Logger.getLogger(HazelcastBackingStore.class.getName()).log(Level.WARNING,
                     "ClassCastException when reading value from store", cce);
@@ -86,7 +117,11 @@ public class HazelcastBackingStore<K extends Serializable, V extends Serializabl
     @Override
     public String save(K k, V v, boolean bln) throws BackingStoreException {
         init();
-        clusteredStore.set(storeName, k, v);
+        if (v instanceof CompositeMetadata) {
+            saveAttributes(k, (CompositeMetadata) v);
+        } else {
+            set(storeName, k, v);
+        }
         
         return instanceName;
     }
@@ -94,7 +129,84 @@ public class HazelcastBackingStore<K extends Serializable, V extends Serializabl
     @Override
     public void remove(K k) throws BackingStoreException {
         init();
+        Serializable value = get(storeName, k);
         clusteredStore.remove(storeName, k);
+        if (value instanceof CompositeMetadata && ((CompositeMetadata) value).getAttributeNames() != null) {
+            for (String attributeName : ((CompositeMetadata) value).getAttributeNames()) {
+                clusteredStore.remove(attributeStoreName, new SessionAttributeKey(k, attributeName));
+            }
+        }
+    }
+
+    /**
+     * Stores the modified attributes of the session each under its own key,
+     * then the session itself, which lists the names of all its attributes.
+     */
+    private void saveAttributes(K k, CompositeMetadata metadata) throws BackingStoreException {
+        if (metadata.getAttributeNames() == null) {
+            // the attributes are part of the session state
+            set(storeName, k, metadata);
+            return;
+        }
+        Set<String> deleted = new HashSet<>();
+        for (SessionAttributeMetadata entry : metadata.getModifiedEntries()) {
+            if (entry.getOperation() == SessionAttributeMetadata.Operation.DELETE) {
+                deleted.add(entry.getAttributeName());
+            } else if (entry.getState() != null) {
+                set(attributeStoreName, new SessionAttributeKey(k, entry.getAttributeName()), entry);
+            }
+        }
+        set(storeName, k, metadata);
+        for (String attributeName : deleted) {
+            clusteredStore.remove(attributeStoreName, new SessionAttributeKey(k, attributeName));
+        }
+    }
+
+    /**
+     * Fetches the attributes listed by the session in one operation. The
+     * attributes are fetched when the session is loaded rather than on first
+     * access, as the session manager deserializes them with the application
+     * class loader while it restores the session.
+     */
+    private void loadAttributes(K k, CompositeMetadata metadata) throws BackingStoreException {
+        if (metadata.getAttributeNames() == null || metadata.getAttributeNames().isEmpty()) {
+            return;
+        }
+        Set<Serializable> keys = new HashSet<>();
+        for (String attributeName : metadata.getAttributeNames()) {
+            keys.add(new SessionAttributeKey(k, attributeName));
+        }
+        for (Serializable entry : clusteredStore.getAll(attributeStoreName, keys).values()) {
+            metadata.addEntry((SessionAttributeMetadata) deserialize(entry));
+        }
+    }
+
+    private void set(String store, Serializable key, Serializable value) throws BackingStoreException {
+        if (serializeValues && serializer.supports(value)) {
+            try {
+                value = serializer.serialize(value);
+            } catch (IOException ex) {
+                throw new BackingStoreException("Can not serialize value of " + key, ex);
+            }
+        }
+        clusteredStore.set(store, key, value);
+    }
+
+    private Serializable get(String store, Serializable key) throws BackingStoreException {
+        return deserialize(clusteredStore.get(store, key));
+    }
+
+    private Serializable deserialize(Serializable value) throws BackingStoreException {
+        // values written by members not serializing them are returned as
+        // they are, including byte arrays the serializer did not write
+        if (serializer != null && value instanceof byte[] && serializer.isSerialized((byte[]) value)) {
+            try {
+                return serializer.deserialize((byte[]) value);
+            } catch (IOException ex) {
+                throw new BackingStoreException("Can not deserialize stored value", ex);
+            }
+        }
+        return value;
     }
 
     @Override
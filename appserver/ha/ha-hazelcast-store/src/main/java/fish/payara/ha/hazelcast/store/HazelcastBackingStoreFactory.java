@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2016-2021 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -62,9 +62,18 @@ public class HazelcastBackingStoreFactory implements BackingStoreFactory {
     @Inject
     ClusteredStore clusteredStore;
 
+    /**
+     * Enables the {@link HAStoreSerializer} for the values of the stores
+     */
+    public static final String SERIALIZER_ENABLED_PROPERTY = "fish.payara.ha.store.serializer.enabled";
+
+    @Inject
+    HAStoreSerializer serializer;
+
     @Override
     public <K extends Serializable, V extends Serializable> BackingStore<K, V> createBackingStore(BackingStoreConfiguration<K, V> bsc) throws BackingStoreException {
-        return new HazelcastBackingStore<>(this, bsc.getStoreName(), clusteredStore);
+        return new HazelcastBackingStore<>(this, bsc.getStoreName(), clusteredStore, serializer,
+                Boolean.getBoolean(SERIALIZER_ENABLED_PROPERTY));
     }
 
     @Override
@@ -0,0 +1,91 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ha.hazelcast.store;
+
+import com.hazelcast.partition.PartitionAware;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Key of a session attribute stored apart from its session. Attributes are
+ * partitioned by the session key, so those of one session live on the same
+ * member as the session and can be fetched together.
+ */
+final class SessionAttributeKey implements PartitionAware<Serializable>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Serializable sessionKey;
+    private final String attributeName;
+
+    SessionAttributeKey(Serializable sessionKey, String attributeName) {
+        this.sessionKey = sessionKey;
+        this.attributeName = attributeName;
+    }
+
+    @Override
+    public Serializable getPartitionKey() {
+        return sessionKey;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SessionAttributeKey)) {
+            return false;
+        }
+        SessionAttributeKey other = (SessionAttributeKey) obj;
+        return sessionKey.equals(other.sessionKey) && attributeName.equals(other.attributeName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sessionKey, attributeName);
+    }
+
+    @Override
+    public String toString() {
+        return sessionKey + "/" + attributeName;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ha.hazelcast.store;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.glassfish.ha.store.util.SimpleMetadata;
+import org.glassfish.web.ha.session.management.CompositeMetadata;
+import org.glassfish.web.ha.session.management.SessionAttributeMetadata;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactHAStoreSerializerTest {
+
+    private final CompactHAStoreSerializer serializer = new CompactHAStoreSerializer(4096);
+
+    private static byte[] state(int length) {
+        byte[] state = new byte[length];
+        for (int i = 0; i < length; i++) {
+            state[i] = (byte) (i % 7);
+        }
+        return state;
+    }
+
+    @Test
+    public void smallValueIsWrittenPlain() throws Exception {
+        SimpleMetadata metadata = new SimpleMetadata(3, 1000, 60000, state(100));
+
+        byte[] data = serializer.serialize(metadata);
+
+        assertTrue(serializer.isSerialized(data));
+        assertEquals(0, data[1]);
+        SimpleMetadata read = (SimpleMetadata) serializer.deserialize(data);
+        assertEquals(3, read.getVersion());
+        assertEquals(1000, read.getLastAccessTime());
+        assertEquals(60000, read.getMaxInactiveInterval());
+        assertArrayEquals(metadata.getState(), read.getState());
+    }
+
+    @Test
+    public void largeValueIsDeflated() throws Exception {
+        SimpleMetadata metadata = new SimpleMetadata(1, 2, 3, state(10000));
+
+        byte[] data = serializer.serialize(metadata);
+
+        assertTrue(serializer.isSerialized(data));
+        assertEquals(1, data[1]);
+        assertTrue(data.length < 10000);
+        assertArrayEquals(metadata.getState(), ((SimpleMetadata) serializer.deserialize(data)).getState());
+    }
+
+    @Test
+    public void compositeMetadataRoundTrip() throws Exception {
+        CompositeMetadata metadata = new CompositeMetadata(5, 10, 20,
+                Collections.<SessionAttributeMetadata>emptyList(), state(8000), "extra");
+        metadata.setAttributeNames(new HashSet<>(Arrays.asList("a", "b")));
+        metadata.addEntry(new SessionAttributeMetadata("a", SessionAttributeMetadata.Operation.UPDATE, state(10)));
+        metadata.addEntry(new SessionAttributeMetadata("b", SessionAttributeMetadata.Operation.ADD, null));
+
+        CompositeMetadata read = (CompositeMetadata) serializer.deserialize(serializer.serialize(metadata));
+
+        assertEquals(5, read._storeable_getVersion());
+        assertEquals("extra", read.getStringExtraParam());
+        assertArrayEquals(metadata.getState(), read.getState());
+        assertEquals(metadata.getAttributeNames(), read.getAttributeNames());
+        assertEquals(2, read.getEntries().size());
+        for (SessionAttributeMetadata entry : read.getEntries()) {
+            if ("a".equals(entry.getAttributeName())) {
+                assertEquals(SessionAttributeMetadata.Operation.UPDATE, entry.getOperation());
+                assertArrayEquals(state(10), entry.getState());
+            } else {
+                assertEquals(SessionAttributeMetadata.Operation.ADD, entry.getOperation());
+                assertNull(entry.getState());
+            }
+        }
+    }
+
+    @Test
+    public void otherByteArraysAreNotSerializedValues() {
+        assertFalse(serializer.isSerialized(new byte[0]));
+        assertFalse(serializer.isSerialized(new byte[] {1, 2, 3, 4}));
+        assertFalse(serializer.isSerialized(new byte[] {(byte) 0xCA, 0, 42}));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ha.hazelcast.store;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.glassfish.ha.store.util.SimpleMetadata;
+import org.glassfish.web.ha.session.management.CompositeMetadata;
+import org.glassfish.web.ha.session.management.SessionAttributeMetadata;
+import org.glassfish.web.ha.session.management.SessionAttributeMetadata.Operation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HazelcastBackingStoreTest {
+
+    private final InMemoryClusteredStore clusteredStore = new InMemoryClusteredStore();
+    private final CompactHAStoreSerializer serializer = new CompactHAStoreSerializer();
+
+    private <V extends Serializable> HazelcastBackingStore<String, V> createStore(boolean serializeValues) {
+        return new HazelcastBackingStore<>(null, "sessions", clusteredStore, serializer, serializeValues);
+    }
+
+    @Test
+    public void valuesAreStoredAsTheyAreByDefault() throws Exception {
+        SimpleMetadata metadata = new SimpleMetadata(1, 2, 3, new byte[] {4});
+        HazelcastBackingStore<String, SimpleMetadata> store = createStore(false);
+        store.save("key", metadata, true);
+
+        assertSame(metadata, clusteredStore.get("sessions", "key"));
+    }
+
+    @Test
+    public void serializedValuesAreReadByMembersNotSerializing() throws Exception {
+        HazelcastBackingStore<String, SimpleMetadata> serializing = createStore(true);
+        serializing.save("key", new SimpleMetadata(1, 2, 3, new byte[] {4}), true);
+
+        assertTrue(clusteredStore.get("sessions", "key") instanceof byte[]);
+        HazelcastBackingStore<String, SimpleMetadata> store = createStore(false);
+        SimpleMetadata read = store.load("key", null);
+        assertEquals(1, read.getVersion());
+        assertArrayEquals(new byte[] {4}, read.getState());
+    }
+
+    @Test
+    public void byteArraysNotWrittenBySerializerAreReturnedAsTheyAre() throws Exception {
+        HazelcastBackingStore<String, byte[]> store = createStore(true);
+        byte[] value = {(byte) 0xCA, 7, 7, 7};
+        store.save("key", value, true);
+
+        assertSame(value, store.load("key", null));
+    }
+
+    private static CompositeMetadata session(long version, String[] attributeNames,
+            SessionAttributeMetadata... modified) {
+        CompositeMetadata metadata = new CompositeMetadata(version, 0, 60000,
+                Arrays.asList(modified), new byte[] {(byte) version}, null);
+        metadata.setAttributeNames(new HashSet<>(Arrays.asList(attributeNames)));
+        return metadata;
+    }
+
+    private static SessionAttributeMetadata attribute(String name, Operation operation, int value) {
+        return new SessionAttributeMetadata(name, operation, new byte[] {(byte) value});
+    }
+
+    private static Map<String, Integer> attributes(CompositeMetadata metadata) {
+        Map<String, Integer> attributes = new HashMap<>();
+        for (SessionAttributeMetadata entry : metadata.getEntries()) {
+            attributes.put(entry.getAttributeName(), (int) entry.getState()[0]);
+        }
+        return attributes;
+    }
+
+    @Test
+    public void modifiedAttributesAreSavedAsSeparateEntries() throws Exception {
+        HazelcastBackingStore<String, CompositeMetadata> store = createStore(true);
+        store.save("key", session(1, new String[] {"a", "b"},
+                attribute("a", Operation.ADD, 1), attribute("b", Operation.ADD, 2)), true);
+        store.save("key", session(2, new String[] {"a", "b"},
+                attribute("a", Operation.UPDATE, 3)), false);
+
+        Map<Serializable, Serializable> attributeStore = clusteredStore.store(
+                "sessions" + HazelcastBackingStore.ATTRIBUTE_STORE_SUFFIX);
+        assertEquals(2, attributeStore.size());
+        assertTrue(attributeStore.containsKey(new SessionAttributeKey("key", "a")));
+        assertTrue(attributeStore.containsKey(new SessionAttributeKey("key", "b")));
+
+        CompositeMetadata loaded = store.load("key", null);
+        assertEquals(2, loaded._storeable_getVersion());
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("a", 3);
+        expected.put("b", 2);
+        assertEquals(expected, attributes(loaded));
+    }
+
+    @Test
+    public void deletedAttributeEntryIsRemoved() throws Exception {
+        HazelcastBackingStore<String, CompositeMetadata> store = createStore(true);
+        store.save("key", session(1, new String[] {"a", "b"},
+                attribute("a", Operation.ADD, 1), attribute("b", Operation.ADD, 2)), true);
+        store.save("key", session(2, new String[] {"a"},
+                new SessionAttributeMetadata("b", Operation.DELETE, null)), false);
+
+        Map<Serializable, Serializable> attributeStore = clusteredStore.store(
+                "sessions" + HazelcastBackingStore.ATTRIBUTE_STORE_SUFFIX);
+        assertFalse(attributeStore.containsKey(new SessionAttributeKey("key", "b")));
+        assertEquals(1, attributes(store.load("key", null)).size());
+    }
+
+    @Test
+    public void removingSessionRemovesItsAttributeEntries() throws Exception {
+        HazelcastBackingStore<String, CompositeMetadata> store = createStore(false);
+        store.save("key", session(1, new String[] {"a"}, attribute("a", Operation.ADD, 1)), true);
+        store.save("other", session(1, new String[] {"a"}, attribute("a", Operation.ADD, 2)), true);
+
+        store.remove("key");
+
+        assertNull(store.load("key", null));
+        Map<Serializable, Serializable> attributeStore = clusteredStore.store(
+                "sessions" + HazelcastBackingStore.ATTRIBUTE_STORE_SUFFIX);
+        assertEquals(1, attributeStore.size());
+        assertTrue(attributeStore.containsKey(new SessionAttributeKey("other", "a")));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ha.hazelcast.store;
+
+import fish.payara.nucleus.store.ClusteredStore;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ClusteredStore} keeping the stores in maps of this JVM.
+ */
+class InMemoryClusteredStore extends ClusteredStore {
+
+    private final UUID instanceId = UUID.randomUUID();
+    private final Map<String, Map<Serializable, Serializable>> stores = new ConcurrentHashMap<>();
+
+    Map<Serializable, Serializable> store(String storeName) {
+        return stores.computeIfAbsent(storeName, name -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public UUID getInstanceId() {
+        return instanceId;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean set(String storeName, Serializable key, Serializable value) {
+        store(storeName).put(key, value);
+        return true;
+    }
+
+    @Override
+    public boolean remove(String storeName, Serializable key) {
+        store(storeName).remove(key);
+        return true;
+    }
+
+    @Override
+    public boolean containsKey(String storeName, Serializable key) {
+        return store(storeName).containsKey(key);
+    }
+
+    @Override
+    public Serializable get(String storeName, Serializable key) {
+        return store(storeName).get(key);
+    }
+
+    @Override
+    public Map<Serializable, Serializable> getAll(String storeName, Set<Serializable> keys) {
+        Map<Serializable, Serializable> result = new HashMap<>();
+        for (Serializable key : keys) {
+            Serializable value = store(storeName).get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Serializable, Serializable> getMap(String storeName) {
+        return new HashMap<>(store(storeName));
+    }
+}
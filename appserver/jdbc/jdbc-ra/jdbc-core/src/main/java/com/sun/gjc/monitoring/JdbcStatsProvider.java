@@ -38,7 +38,7 @@
  * holder.
  */
 
-// Portions Copyright [2016-2018] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.gjc.monitoring;
 
@@ -84,6 +84,15 @@ public class JdbcStatsProvider {
             "NumStatementCacheMiss", StatisticImpl.UNIT_COUNT,
             "The total number of Statement Cache misses.");
 
+    // probe counts plus those of StatementCacheStatistics, updated when read
+    private final CountStatisticImpl totalStatementCacheHit = new CountStatisticImpl(
+            "NumStatementCacheHit", StatisticImpl.UNIT_COUNT,
+            "The total number of Statement Cache hits.");
+
+    private final CountStatisticImpl totalStatementCacheMiss = new CountStatisticImpl(
+            "NumStatementCacheMiss", StatisticImpl.UNIT_COUNT,
+            "The total number of Statement Cache misses.");
+
     private CountStatisticImpl numPotentialStatementLeak = new CountStatisticImpl(
             "NumPotentialStatementLeak", StatisticImpl.UNIT_COUNT,
             "The total number of potential Statement leaks");
@@ -199,12 +208,22 @@ public class JdbcStatsProvider {
 
     @ManagedAttribute(id="numstatementcachehit")
     public CountStatistic getNumStatementCacheHit() {
-        return numStatementCacheHit;
+        StatementCacheStatistics statistics = StatementCacheStatistics.getIfPresent(poolInfo);
+        if (statistics == null) {
+            return numStatementCacheHit;
+        }
+        totalStatementCacheHit.setCount(numStatementCacheHit.getCount() + statistics.getHits());
+        return totalStatementCacheHit;
     }
 
     @ManagedAttribute(id="numstatementcachemiss")
     public CountStatistic getNumStatementCacheMiss() {
-        return numStatementCacheMiss;
+        StatementCacheStatistics statistics = StatementCacheStatistics.getIfPresent(poolInfo);
+        if (statistics == null) {
+            return numStatementCacheMiss;
+        }
+        totalStatementCacheMiss.setCount(numStatementCacheMiss.getCount() + statistics.getMisses());
+        return totalStatementCacheMiss;
     }
 
     @ManagedAttribute(id="frequsedsqlqueries")
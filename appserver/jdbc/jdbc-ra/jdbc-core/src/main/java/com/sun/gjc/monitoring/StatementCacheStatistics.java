@@ -0,0 +1,107 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.monitoring;
+
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statement cache hits and misses of a pool, counted in striped counters.
+ * <p>
+ * Unlike the {@link StatementCacheProbeProvider} events these are not pushed on every statement preparation, but
+ * read by the {@link JdbcStatsProvider} of the pool when its statistics are queried.
+ */
+public final class StatementCacheStatistics {
+
+    private static final ConcurrentMap<PoolInfo, StatementCacheStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private StatementCacheStatistics() {
+        // use forPool
+    }
+
+    /**
+     * @param poolInfo the pool the statistics belong to
+     * @return the statistics of the pool, created if the pool has none yet
+     */
+    public static StatementCacheStatistics forPool(PoolInfo poolInfo) {
+        return STATISTICS.computeIfAbsent(poolInfo, key -> new StatementCacheStatistics());
+    }
+
+    /**
+     * @param poolInfo the pool the statistics belong to
+     * @return the statistics of the pool or null if no statement cache of the pool counted any yet
+     */
+    public static StatementCacheStatistics getIfPresent(PoolInfo poolInfo) {
+        return STATISTICS.get(poolInfo);
+    }
+
+    /**
+     * Drops the statistics of a pool that is destroyed, so a pool created later under the same name starts
+     * counting from zero.
+     *
+     * @param poolInfo the pool the statistics belong to
+     */
+    public static void remove(PoolInfo poolInfo) {
+        STATISTICS.remove(poolInfo);
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright 2017-2022 Payara Foundation and/or its affiliates
+// Portions Copyright 2017-2024 Payara Foundation and/or its affiliates
 
 package com.sun.gjc.spi;
 
@@ -46,6 +46,7 @@ import com.sun.enterprise.util.i18n.StringManager;
 import com.sun.gjc.common.DataSourceObjectBuilder;
 import com.sun.gjc.common.DataSourceSpec;
 import com.sun.gjc.monitoring.JdbcStatsProvider;
+import com.sun.gjc.monitoring.StatementCacheStatistics;
 import com.sun.gjc.util.SQLTraceDelegator;
 import com.sun.gjc.util.SQLTraceLogger;
 import com.sun.gjc.util.SecurityUtils;
@@ -1546,6 +1547,7 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
                 _logger.finest("Unregistered JDBCRA Stats Provider");
             }
         }
+        StatementCacheStatistics.remove(getPoolInfo());
     }
 
     private void detectStatementLeakSupport() {
@@ -0,0 +1,222 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.gjc.monitoring.StatementCacheStatistics;
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.PreparedStatementWrapper;
+import com.sun.logging.LogDomains;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statement cache that can be used by concurrent threads without locking.
+ * <p>
+ * When the cache is full the least recently used statement that is not busy is evicted and closed. If all statements
+ * are busy the least recently used one is only removed from the cache, so it is closed when its user closes it. As
+ * the access times are updated without synchronization the eviction order is approximate under concurrent use. Hits
+ * and misses are counted in {@link StatementCacheStatistics} instead of firing a probe event for every lookup.
+ */
+public class ConcurrentLRUCacheImpl implements Cache {
+
+    protected static final Logger _logger = LogDomains.getLogger(ConcurrentLRUCacheImpl.class, LogDomains.RSR_LOGGER);
+
+    private final ConcurrentMap<CacheObjectKey, CacheEntry> entries;
+    private final int maxSize;
+    private final StatementCacheStatistics statistics;
+
+    public ConcurrentLRUCacheImpl(PoolInfo poolInfo, int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<>(maxSize);
+        this.statistics = StatementCacheStatistics.forPool(poolInfo);
+    }
+
+    /**
+     * Check if an entry is found for this key object and mark it as recently used.
+     *
+     * @param key key whose mapping entry is to be checked.
+     * @return the cached statement or null when object not found in cache
+     */
+    @Override
+    public Object checkAndUpdateCache(CacheObjectKey key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            statistics.miss();
+            return null;
+        }
+        statistics.hit();
+        entry.lastAccess = System.nanoTime();
+        return entry.entryObj;
+    }
+
+    /**
+     * Add the key and entry value into the cache, evicting the least recently used entry if the cache is full.
+     *
+     * @param key key that contains the sql string and its type (PS/CS)
+     * @param o entry that is the wrapper of PreparedStatement or CallableStatement
+     * @param force If the already existing key is to be overwritten
+     */
+    @Override
+    public void addToCache(CacheObjectKey key, Object o, boolean force) {
+        if (!force && entries.containsKey(key)) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            purge();
+        }
+        CacheEntry entry = new CacheEntry(o);
+        if (force) {
+            entries.put(key, entry);
+        } else {
+            entries.putIfAbsent(key, entry);
+        }
+    }
+
+    /**
+     * Clears the statement cache, closing the statements removed
+     */
+    @Override
+    public void clearCache() {
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.fine("clearing objects in cache");
+        }
+        flushCache();
+    }
+
+    @Override
+    public void flushCache() {
+        for (Map.Entry<CacheObjectKey, CacheEntry> entry : entries.entrySet()) {
+            if (entries.remove(entry.getKey(), entry.getValue())) {
+                close(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used statement that is not busy. If all statements are busy the least recently used
+     * one is detached from the cache instead, so that it is closed by its user rather than under its feet.
+     */
+    @Override
+    public void purge() {
+        Map.Entry<CacheObjectKey, CacheEntry> eldest = null;
+        Map.Entry<CacheObjectKey, CacheEntry> eldestBusy = null;
+        for (Map.Entry<CacheObjectKey, CacheEntry> entry : entries.entrySet()) {
+            if (isBusy(entry.getValue())) {
+                if (eldestBusy == null || entry.getValue().lastAccess < eldestBusy.getValue().lastAccess) {
+                    eldestBusy = entry;
+                }
+            } else if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                eldest = entry;
+            }
+        }
+        if (eldest != null) {
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                close(eldest.getValue());
+            }
+        } else if (eldestBusy != null && entries.remove(eldestBusy.getKey(), eldestBusy.getValue())) {
+            ((PreparedStatementWrapper) eldestBusy.getValue().entryObj).setCached(false);
+        }
+    }
+
+    // Used only for purging the bad statements.
+    @Override
+    public void purge(Object obj) {
+        for (Map.Entry<CacheObjectKey, CacheEntry> entry : entries.entrySet()) {
+            if (entry.getValue().entryObj.equals(obj)) {
+                if (entries.remove(entry.getKey(), entry.getValue())) {
+                    if (_logger.isLoggable(Level.FINEST)) {
+                        _logger.log(Level.FINEST, "Purging an entry from cache");
+                    }
+                    close(entry.getValue());
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean isBusy(CacheEntry entry) {
+        return ((PreparedStatementWrapper) entry.entryObj).isBusy();
+    }
+
+    private static void close(CacheEntry entry) {
+        try {
+            PreparedStatementWrapper ps = (PreparedStatementWrapper) entry.entryObj;
+            ps.setCached(false);
+            ps.close();
+        } catch (SQLException e) {
+            //ignore
+        }
+    }
+
+    /**
+     * Returns the number of entries in the statement cache
+     * @return has integer value
+     */
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public boolean isSynchronized() {
+        // safe for concurrent use, no need to wrap it in a SynchronizedCache
+        return true;
+    }
+
+    private static final class CacheEntry {
+        private final Object entryObj;
+        private volatile long lastAccess = System.nanoTime();
+
+        CacheEntry(Object entryObj) {
+            this.entryObj = entryObj;
+        }
+    }
+}
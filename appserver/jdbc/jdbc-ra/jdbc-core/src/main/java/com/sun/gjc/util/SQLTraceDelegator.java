@@ -37,14 +37,20 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-//Portions Copyright [2017] [Payara Foundation and/or its affiliates]
+//Portions Copyright [2017-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.gjc.util;
 
 import com.sun.gjc.monitoring.JdbcRAConstants;
 import com.sun.gjc.monitoring.SQLTraceProbeProvider;
 import com.sun.logging.LogDomains;
+import fish.payara.jdbc.SQLTraceStoreAdapter;
+import fish.payara.jdbc.SilentSqlTraceListener;
+import fish.payara.jdbc.SlowSQLLogger;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,6 +67,12 @@ import org.glassfish.api.jdbc.SQLTraceRecord;
 //@Singleton
 public class SQLTraceDelegator implements SQLTraceListener {
 
+    /**
+     * Listeners that only look at the calls in {@link JdbcRAConstants#validSqlTracingMethodNames}
+     */
+    private static final Set<Class<? extends SQLTraceListener>> SQL_CALL_LISTENERS = new HashSet<>(Arrays.asList(
+            SlowSQLLogger.class, SQLTraceStoreAdapter.class, SilentSqlTraceListener.class));
+
     //List of listeners 
     protected Map<Class<? extends SQLTraceListener>, SQLTraceListener> sqlTraceListeners;
     private String poolName;
@@ -128,6 +140,56 @@ public class SQLTraceDelegator implements SQLTraceListener {
     public boolean listenersRegistered() {
         return !sqlTraceListeners.isEmpty();
     }
+
+    /**
+     * Checks whether all registered listeners only need the calls that prepare, batch or execute SQL, in which case
+     * the other JDBC calls do not need to be traced at all.
+     * @return true if no listener needs to see every JDBC call.
+     */
+    public boolean tracesSqlCallsOnly() {
+        if (sqlTraceListeners == null) {
+            return true;
+        }
+        for (Class<? extends SQLTraceListener> listenerClass : sqlTraceListeners.keySet()) {
+            if (!SQL_CALL_LISTENERS.contains(listenerClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Traces a call without parameters.
+     * @param target the object the call was made on
+     * @param methodName name of the called method
+     * @param startTime time in milliseconds the call started at
+     */
+    public void sqlTrace(Object target, String methodName, long startTime) {
+        sqlTrace(createRecord(target, methodName, startTime, null));
+    }
+
+    /**
+     * Traces a call.
+     * @param target the object the call was made on
+     * @param methodName name of the called method
+     * @param startTime time in milliseconds the call started at
+     * @param params parameters of the call
+     */
+    public void sqlTrace(Object target, String methodName, long startTime, Object... params) {
+        sqlTrace(createRecord(target, methodName, startTime, params));
+    }
+
+    private static SQLTraceRecord createRecord(Object target, String methodName, long startTime, Object[] params) {
+        SQLTraceRecord record = new SQLTraceRecord();
+        record.setMethodName(methodName);
+        record.setParams(params);
+        record.setClassName(target.getClass().getName());
+        record.setThreadName(Thread.currentThread().getName());
+        record.setThreadID(Thread.currentThread().getId());
+        record.setTimeStamp(startTime);
+        record.setExecutionTime(System.currentTimeMillis() - startTime);
+        return record;
+    }
         
     @Override
     public void sqlTrace(SQLTraceRecord record) {
@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.jdbc.stats;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Estimates how often a key was seen using a fixed amount of memory.
+ * <p>
+ * Every key increments one counter in each of the rows; the smallest of these counters is the estimate. Estimates
+ * can be too high when keys share counters, but never too low. Counts are {@link #halve() halved} now and then so
+ * that keys seen a lot in the past make way for those seen a lot recently.
+ */
+public final class CountMinSketch {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final AtomicIntegerArray counters;
+    private final int mask;
+
+    /**
+     * @param width minimum number of counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        int minimumWidth = Math.max(16, width);
+        int rowWidth = Integer.highestOneBit((minimumWidth - 1) << 1);
+        this.mask = rowWidth - 1;
+        this.counters = new AtomicIntegerArray(DEPTH * rowWidth);
+    }
+
+    /**
+     * Counts the key once more.
+     *
+     * @param key the key seen
+     * @return the estimated number of times the key was seen including this time
+     */
+    public int increment(Object key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            int count = counters.getAndUpdate(index, x -> x == Integer.MAX_VALUE ? x : x + 1);
+            estimate = Math.min(estimate, count == Integer.MAX_VALUE ? count : count + 1);
+        }
+        return estimate;
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the estimated number of times the key was seen
+     */
+    public int estimate(Object key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(indexOf(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves all counters, so that older counts weigh half as much as the ones to come.
+     */
+    public void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, x -> x >>> 1);
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+}
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2018] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package fish.payara.jdbc.stats;
 
@@ -46,60 +46,100 @@ import com.sun.gjc.util.SQLTraceCache;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
 
 /**
  * Maintains the Sql Tracing Cache used to store SQL statements used by the
  * applications. This is used by the JDBCRA monitoring to display the most
  * frequently used queries by applications.
+ * <p>
+ * Executions are counted per normalized SQL text in a {@link CountMinSketch}, so the memory used does not grow with
+ * the number of distinct queries. Only the top queries to report are kept as {@link SQLTrace} entries; a query
+ * replaces the least frequent of them once its estimated count is higher. Every time to keep queries the counts are
+ * halved, so the report follows the queries executed recently rather than those executed since the pool started.
  *
  * @author Shalini M
  */
 public class FrequentSQLTraceCache extends SQLTraceCache {
 
-    //Maximum size of the cache.
+    //Number of counters per row of the sketch
     protected long maxStoredEntries = 10000;
-    
+
+    private final CountMinSketch executions;
+    private long lastDecay = System.currentTimeMillis();
+
     public FrequentSQLTraceCache(String poolName, int numToReport, long timeToKeepQueries) {
         super(poolName, numToReport, timeToKeepQueries);
+        this.executions = new CountMinSketch((int) maxStoredEntries);
     }
     
     public FrequentSQLTraceCache(String poolName, int numToReport, long timeToKeepQueries, long maxStoredEntries) {
         super(poolName, numToReport, timeToKeepQueries);
         this.maxStoredEntries = maxStoredEntries;
+        this.executions = new CountMinSketch((int) Math.min(maxStoredEntries, 1 << 20));
     }
 
     /**
      * Request for adding a sql query in the form of SQLTrace to this cache.
-     * If the query is already found
-     * in the list, the number of times it is executed is incremented by one
-     * along with the timestamp.
-     * If the query is a new one, it is added to the list.
+     * The execution of the normalized query is counted and, if the query
+     * is one of the most frequent ones, its number of executions and
+     * timestamp are updated in the list.
      * 
      * @param cacheObj
      */
     @Override
     public void checkAndUpdateCache(SQLTrace cacheObj) {
-        if (cacheObj != null) {
-            SQLTrace trace = cache.get(cacheObj.getQueryName());
+        if (cacheObj != null && cacheObj.getQueryName() != null) {
+            String query = SqlTextNormalizer.normalize(cacheObj.getQueryName());
+            int numExecutions = executions.increment(query);
+            SQLTrace trace = cache.get(query);
             if (trace != null) {
                 //If already found in the cache
-                trace.setNumExecutions(trace.getNumExecutions() + 1);
+                trace.setNumExecutions(numExecutions);
                 trace.setLastUsageTime(System.currentTimeMillis());
             } else {
-                if (cache.size() < maxStoredEntries){
-                    cache.put(cacheObj.getQueryName(), cacheObj);
-                } else {
-                    if (_logger.isLoggable(Level.CONFIG)) {
-                        _logger.log(Level.CONFIG, "Frequent SQL Trace Cache full, {0} not stored.", cacheObj.getQueryName());
-                    } else {
-                        _logger.log(Level.INFO, "Frequent SQL Trace Cache full, enable CONFIG log level for more info.");
-                    }
-                }
+                admit(new SQLTrace(query, numExecutions, cacheObj.getLastUsageTime()));
             }
         }
     }
 
+    private synchronized void admit(SQLTrace trace) {
+        if (cache.size() < numTopQueriesToReport) {
+            cache.putIfAbsent(trace.getQueryName(), trace);
+            return;
+        }
+        SQLTrace leastFrequent = null;
+        for (SQLTrace candidate : cache.values()) {
+            if (leastFrequent == null || SQLTrace.SQLTraceFrequencyComparator.compare(candidate, leastFrequent) > 0) {
+                leastFrequent = candidate;
+            }
+        }
+        if (leastFrequent != null && leastFrequent.getNumExecutions() < trace.getNumExecutions()) {
+            cache.remove(leastFrequent.getQueryName());
+            cache.putIfAbsent(trace.getQueryName(), trace);
+        }
+    }
+
+    /**
+     * Halves the execution counts once the time to keep queries passed since they were last halved, then removes
+     * the entries exceeding the number of queries to report.
+     */
+    @Override
+    public void purgeEntries() {
+        decayIfDue(System.currentTimeMillis());
+        super.purgeEntries();
+    }
+
+    synchronized void decayIfDue(long now) {
+        if (timeToKeepQueries <= 0 || now - lastDecay < timeToKeepQueries) {
+            return;
+        }
+        lastDecay = now;
+        executions.halve();
+        for (SQLTrace trace : cache.values()) {
+            trace.setNumExecutions(executions.estimate(trace.getQueryName()));
+        }
+    }
+
     /**
      * Returns the String representation of the list of traced sql queries
      * ordered by the number most frequently used, followed by the usage
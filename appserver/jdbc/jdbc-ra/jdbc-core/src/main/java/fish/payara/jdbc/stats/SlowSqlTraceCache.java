@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2016-2018 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -46,7 +46,11 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * 
+ * Keeps the slowest SQL statements, grouped by their normalized SQL text.
+ * <p>
+ * The number of entries never exceeds the number of queries to report: once full, a query only replaces the fastest
+ * entry if it was slower.
+ *
  * @author Andrew Pielage
  */
 public class SlowSqlTraceCache extends SQLTraceCache {
@@ -65,9 +69,10 @@ public class SlowSqlTraceCache extends SQLTraceCache {
      */
     @Override
     public void checkAndUpdateCache(SQLTrace sqlTrace) {    
-        if (sqlTrace != null) {
+        if (sqlTrace != null && sqlTrace.getQueryName() != null) {
             // Cast to a slowSqlTrace object
             SlowSqlTrace slowSqlTrace = (SlowSqlTrace) sqlTrace;
+            slowSqlTrace.setQueryName(SqlTextNormalizer.normalize(slowSqlTrace.getQueryName()));
             SlowSqlTrace storedSlowSqlTrace = (SlowSqlTrace) cache.get(slowSqlTrace.getQueryName());
 
             if (storedSlowSqlTrace != null) {
@@ -80,10 +85,28 @@ public class SlowSqlTraceCache extends SQLTraceCache {
                     storedSlowSqlTrace.setSlowestExecutionTime(newExecutionTime);
                 }
             } else {
-                cache.put(slowSqlTrace.getQueryName(), slowSqlTrace);
+                admit(slowSqlTrace);
             }
         }
     }
+
+    private synchronized void admit(SlowSqlTrace slowSqlTrace) {
+        if (cache.size() < numTopQueriesToReport) {
+            cache.putIfAbsent(slowSqlTrace.getQueryName(), slowSqlTrace);
+            return;
+        }
+        SlowSqlTrace fastest = null;
+        for (SQLTrace candidate : cache.values()) {
+            SlowSqlTrace candidateTrace = (SlowSqlTrace) candidate;
+            if (fastest == null || candidateTrace.getSlowestExecutionTime() < fastest.getSlowestExecutionTime()) {
+                fastest = candidateTrace;
+            }
+        }
+        if (fastest != null && fastest.getSlowestExecutionTime() < slowSqlTrace.getSlowestExecutionTime()) {
+            cache.remove(fastest.getQueryName());
+            cache.putIfAbsent(slowSqlTrace.getQueryName(), slowSqlTrace);
+        }
+    }
     
     /**
      * Overrides the purgeEntries method to purge the quickest running SQL Traces
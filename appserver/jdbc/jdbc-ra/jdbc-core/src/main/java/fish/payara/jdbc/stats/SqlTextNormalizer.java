@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.jdbc.stats;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reduces SQL text to its shape so that statements which only differ in their literals are counted as one query.
+ * <p>
+ * String and numeric literals are replaced by {@code ?}, lists of parameters like {@code IN (?, ?, ?)} are collapsed
+ * to {@code IN (?)}, comments are dropped and whitespace is collapsed to single spaces. Quoted identifiers are kept
+ * as they are.
+ */
+public final class SqlTextNormalizer {
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    private SqlTextNormalizer() {
+        // utility class
+    }
+
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int length = sql.length();
+        StringBuilder normalized = new StringBuilder(length);
+        boolean parameters = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                // string literal, '' is an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    i++;
+                }
+                i++;
+                normalized.append('?');
+                parameters = true;
+            } else if (c == '"' || c == '`') {
+                // quoted identifier
+                int end = sql.indexOf(c, i + 1);
+                end = end < 0 ? length : end + 1;
+                normalized.append(sql, i, end);
+                i = end;
+            } else if (Character.isDigit(c) && !isPartOfIdentifier(normalized)) {
+                // numeric literal including decimals, exponents and hex notation
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                normalized.append('?');
+                parameters = true;
+            } else if (Character.isWhitespace(c) || isCommentStart(sql, i)) {
+                // whitespace and comments separate tokens like a single space
+                while (i < length) {
+                    if (Character.isWhitespace(sql.charAt(i))) {
+                        i++;
+                    } else if (sql.startsWith("--", i)) {
+                        int end = sql.indexOf('\n', i);
+                        i = end < 0 ? length : end + 1;
+                    } else if (sql.startsWith("/*", i)) {
+                        int end = sql.indexOf("*/", i + 2);
+                        i = end < 0 ? length : end + 2;
+                    } else {
+                        break;
+                    }
+                }
+                if (normalized.length() > 0 && i < length) {
+                    normalized.append(' ');
+                }
+            } else {
+                if (c == '?') {
+                    parameters = true;
+                }
+                normalized.append(c);
+                i++;
+            }
+        }
+        if (parameters) {
+            return PARAMETER_LIST.matcher(normalized).replaceAll("(?)");
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isCommentStart(String sql, int i) {
+        return sql.startsWith("--", i) || sql.startsWith("/*", i);
+    }
+
+    private static boolean isPartOfIdentifier(StringBuilder normalized) {
+        if (normalized.length() == 0) {
+            return false;
+        }
+        char previous = normalized.charAt(normalized.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.monitoring;
+
+import com.sun.gjc.spi.DSManagedConnectionFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StatementCacheStatisticsTest {
+
+    private final PoolInfo poolInfo = new PoolInfo("statistics-pool");
+
+    @After
+    public void removeStatistics() {
+        StatementCacheStatistics.remove(poolInfo);
+    }
+
+    @Test
+    public void statisticsAreSharedPerPool() {
+        StatementCacheStatistics statistics = StatementCacheStatistics.forPool(poolInfo);
+
+        assertSame(statistics, StatementCacheStatistics.forPool(new PoolInfo("statistics-pool")));
+        assertSame(statistics, StatementCacheStatistics.getIfPresent(poolInfo));
+        assertNotSame(statistics, StatementCacheStatistics.forPool(new PoolInfo("statistics-pool", "app")));
+        StatementCacheStatistics.remove(new PoolInfo("statistics-pool", "app"));
+    }
+
+    @Test
+    public void concurrentLookupsAreAllCounted() throws Exception {
+        final int threads = 8;
+        final int lookups = 10_000;
+        final StatementCacheStatistics statistics = StatementCacheStatistics.forPool(poolInfo);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    for (int j = 0; j < lookups; j++) {
+                        if (j % 4 == 0) {
+                            statistics.miss();
+                        } else {
+                            statistics.hit();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * lookups * 3 / 4, statistics.getHits());
+        assertEquals(threads * lookups / 4, statistics.getMisses());
+    }
+
+    @Test
+    public void statisticsAreRemovedWhenPoolIsDestroyed() {
+        StatementCacheStatistics.forPool(poolInfo).hit();
+        DSManagedConnectionFactory factory = new DSManagedConnectionFactory();
+        factory.setPoolName("statistics-pool");
+
+        factory.mcfDestroyed();
+
+        assertNull(StatementCacheStatistics.getIfPresent(poolInfo));
+        assertEquals(0, StatementCacheStatistics.forPool(poolInfo).getHits());
+    }
+}
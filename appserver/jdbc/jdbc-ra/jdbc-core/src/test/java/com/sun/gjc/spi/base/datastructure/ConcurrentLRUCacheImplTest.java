@@ -0,0 +1,226 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.gjc.monitoring.StatementCacheStatistics;
+import com.sun.gjc.spi.ManagedConnectionImpl;
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.ConnectionHolder;
+import com.sun.gjc.spi.base.PreparedStatementWrapper;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class ConcurrentLRUCacheImplTest {
+
+    private final PoolInfo poolInfo = new PoolInfo("lru-pool");
+    private final ConnectionHolder connection = mock(ConnectionHolder.class);
+
+    private ConcurrentLRUCacheImpl cache;
+
+    @Before
+    public void createCache() {
+        when(connection.getManagedConnection()).thenReturn(mock(ManagedConnectionImpl.class));
+        cache = new ConcurrentLRUCacheImpl(poolInfo, 2);
+    }
+
+    @After
+    public void removeStatistics() {
+        StatementCacheStatistics.remove(poolInfo);
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvictedAtCapacity() throws Exception {
+        PreparedStatementWrapper first = statement();
+        PreparedStatementWrapper second = statement();
+        PreparedStatementWrapper third = statement();
+        cache.addToCache(key("first"), first, false);
+        Thread.sleep(1);
+        cache.addToCache(key("second"), second, false);
+        Thread.sleep(1);
+        cache.checkAndUpdateCache(key("first"));
+
+        cache.addToCache(key("third"), third, false);
+
+        assertEquals(2, cache.getSize());
+        assertSame(first, cache.checkAndUpdateCache(key("first")));
+        assertNull(cache.checkAndUpdateCache(key("second")));
+        assertSame(third, cache.checkAndUpdateCache(key("third")));
+        verify(second).close();
+        assertFalse(second.getCached());
+        verify(first, never()).close();
+    }
+
+    @Test
+    public void busyStatementIsNotEvicted() throws Exception {
+        PreparedStatementWrapper busy = statement();
+        PreparedStatementWrapper free = statement();
+        busy.setBusy(true);
+        cache.addToCache(key("busy"), busy, false);
+        Thread.sleep(1);
+        cache.addToCache(key("free"), free, false);
+
+        cache.addToCache(key("new"), statement(), false);
+
+        assertSame(busy, cache.checkAndUpdateCache(key("busy")));
+        assertNull(cache.checkAndUpdateCache(key("free")));
+        verify(busy, never()).close();
+        verify(free).close();
+    }
+
+    @Test
+    public void busyStatementIsDetachedWhenAllAreBusy() throws Exception {
+        PreparedStatementWrapper eldest = statement();
+        PreparedStatementWrapper other = statement();
+        eldest.setBusy(true);
+        other.setBusy(true);
+        cache.addToCache(key("eldest"), eldest, false);
+        Thread.sleep(1);
+        cache.addToCache(key("other"), other, false);
+
+        cache.addToCache(key("new"), statement(), false);
+
+        assertEquals(2, cache.getSize());
+        assertNull(cache.checkAndUpdateCache(key("eldest")));
+        verify(eldest, never()).close();
+        assertTrue(eldest.isBusy());
+        assertFalse(eldest.getCached());
+    }
+
+    @Test
+    public void detachedStatementIsNotHandedOutAgain() throws Exception {
+        PreparedStatementWrapper eldest = statement();
+        eldest.setBusy(true);
+        cache.addToCache(key("eldest"), eldest, false);
+        Thread.sleep(1);
+        PreparedStatementWrapper other = statement();
+        other.setBusy(true);
+        cache.addToCache(key("other"), other, false);
+        cache.addToCache(key("new"), statement(), false);
+
+        // its user is done with it: closing it closes the driver statement instead of returning it to the cache
+        eldest.close();
+
+        assertNull(cache.checkAndUpdateCache(key("eldest")));
+        assertFalse(eldest.getCached());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void purgeOfStatementClosesIt() throws Exception {
+        PreparedStatementWrapper invalid = statement();
+        PreparedStatementWrapper valid = statement();
+        cache.addToCache(key("invalid"), invalid, false);
+        cache.addToCache(key("valid"), valid, false);
+
+        cache.purge(invalid);
+
+        assertEquals(1, cache.getSize());
+        assertNull(cache.checkAndUpdateCache(key("invalid")));
+        verify(invalid).close();
+        verify(valid, never()).close();
+    }
+
+    @Test
+    public void clearCacheClosesAllStatements() throws Exception {
+        PreparedStatementWrapper first = statement();
+        PreparedStatementWrapper second = statement();
+        cache.addToCache(key("first"), first, false);
+        cache.addToCache(key("second"), second, false);
+
+        cache.clearCache();
+
+        assertEquals(0, cache.getSize());
+        verify(first).close();
+        verify(second).close();
+    }
+
+    @Test
+    public void existingStatementIsOnlyReplacedWhenForced() throws Exception {
+        PreparedStatementWrapper original = statement();
+        PreparedStatementWrapper replacement = statement();
+        cache.addToCache(key("sql"), original, false);
+
+        cache.addToCache(key("sql"), replacement, false);
+        assertSame(original, cache.checkAndUpdateCache(key("sql")));
+
+        cache.addToCache(key("sql"), replacement, true);
+        assertSame(replacement, cache.checkAndUpdateCache(key("sql")));
+    }
+
+    @Test
+    public void lookupsAreCountedInPoolStatistics() throws Exception {
+        cache.addToCache(key("cached"), statement(), false);
+
+        cache.checkAndUpdateCache(key("cached"));
+        cache.checkAndUpdateCache(key("cached"));
+        cache.checkAndUpdateCache(key("uncached"));
+
+        StatementCacheStatistics statistics = StatementCacheStatistics.getIfPresent(poolInfo);
+        assertEquals(2, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+    }
+
+    private PreparedStatementWrapper statement() throws SQLException {
+        return mock(PreparedStatementWrapper.class, withSettings()
+                .useConstructor(connection, mock(PreparedStatement.class), true)
+                .defaultAnswer(CALLS_REAL_METHODS));
+    }
+
+    private static CacheObjectKey key(String sql) {
+        return new CacheObjectKey(sql, CacheObjectKey.PREPARED_STATEMENT, 0, 0);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.jdbc.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CountMinSketchTest {
+
+    @Test
+    public void unseenKeyIsEstimatedAtZero() {
+        assertEquals(0, new CountMinSketch(64).estimate("never"));
+    }
+
+    @Test
+    public void incrementReturnsTheNewEstimate() {
+        CountMinSketch sketch = new CountMinSketch(64);
+        assertEquals(1, sketch.increment("a"));
+        assertEquals(2, sketch.increment("a"));
+        assertEquals(2, sketch.estimate("a"));
+    }
+
+    @Test
+    public void estimatesAreNeverTooLow() {
+        CountMinSketch sketch = new CountMinSketch(16);
+        for (int key = 0; key < 1000; key++) {
+            for (int i = 0; i <= key % 5; i++) {
+                sketch.increment(key);
+            }
+        }
+        for (int key = 0; key < 1000; key++) {
+            assertTrue(sketch.estimate(key) >= key % 5 + 1);
+        }
+    }
+
+    @Test
+    public void estimatesAreExactWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(1 << 16);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("frequent");
+        }
+        sketch.increment("rare");
+        assertEquals(100, sketch.estimate("frequent"));
+        assertEquals(1, sketch.estimate("rare"));
+    }
+
+    @Test
+    public void halvingHalvesTheEstimates() {
+        CountMinSketch sketch = new CountMinSketch(1 << 16);
+        for (int i = 0; i < 9; i++) {
+            sketch.increment("a");
+        }
+        sketch.increment("b");
+
+        sketch.halve();
+
+        assertEquals(4, sketch.estimate("a"));
+        assertEquals(0, sketch.estimate("b"));
+        assertEquals(5, sketch.increment("a"));
+    }
+
+    @Test
+    public void recentKeyOvertakesOldKeyAfterHalving() {
+        CountMinSketch sketch = new CountMinSketch(1 << 16);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("old");
+        }
+        sketch.halve();
+        sketch.halve();
+        for (int i = 0; i < 30; i++) {
+            sketch.increment("recent");
+        }
+        assertTrue(sketch.estimate("recent") > sketch.estimate("old"));
+    }
+}
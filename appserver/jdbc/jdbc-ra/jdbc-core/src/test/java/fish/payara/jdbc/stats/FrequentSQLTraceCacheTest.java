@@ -0,0 +1,101 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.jdbc.stats;
+
+import com.sun.gjc.util.SQLTrace;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrequentSQLTraceCacheTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final FrequentSQLTraceCache cache = new FrequentSQLTraceCache("pool", 1, 1, 1 << 16);
+
+    @Test
+    public void queriesDifferingInLiteralsAreCountedTogether() {
+        execute("SELECT * FROM a WHERE id = 1", 1);
+        execute("SELECT * FROM a WHERE id = 2", 1);
+
+        List<SQLTrace> top = cache.getTopQueries();
+        assertEquals(1, top.size());
+        assertEquals("SELECT * FROM a WHERE id = ?", top.get(0).getQueryName());
+        assertEquals(2, top.get(0).getNumExecutions());
+    }
+
+    @Test
+    public void countsAreHalvedOncePerTimeToKeepQueries() {
+        execute("SELECT 1", 10);
+        long start = System.currentTimeMillis();
+
+        cache.decayIfDue(start + MINUTE / 2);
+        assertEquals(10, cache.getTopQueries().get(0).getNumExecutions());
+
+        cache.decayIfDue(start + MINUTE);
+        assertEquals(5, cache.getTopQueries().get(0).getNumExecutions());
+
+        cache.decayIfDue(start + MINUTE + 1);
+        assertEquals(5, cache.getTopQueries().get(0).getNumExecutions());
+    }
+
+    @Test
+    public void recentQueryReplacesOnceFrequentQuery() {
+        execute("SELECT * FROM old", 20);
+        long start = System.currentTimeMillis();
+        cache.decayIfDue(start + MINUTE);
+        cache.decayIfDue(start + 2 * MINUTE);
+        cache.decayIfDue(start + 3 * MINUTE);
+
+        execute("SELECT * FROM recent", 3);
+
+        List<SQLTrace> top = cache.getTopQueries();
+        assertEquals(1, top.size());
+        assertEquals("SELECT * FROM recent", top.get(0).getQueryName());
+    }
+
+    private void execute(String sql, int times) {
+        for (int i = 0; i < times; i++) {
+            cache.checkAndUpdateCache(new SQLTrace(sql, 1, System.currentTimeMillis()));
+        }
+    }
+}
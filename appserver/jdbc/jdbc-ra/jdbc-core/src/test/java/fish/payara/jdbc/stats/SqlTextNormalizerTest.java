@@ -0,0 +1,120 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.jdbc.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SqlTextNormalizerTest {
+
+    @Test
+    public void nullStaysNull() {
+        assertNull(SqlTextNormalizer.normalize(null));
+    }
+
+    @Test
+    public void stringLiteralsAreReplaced() {
+        assertEquals("SELECT * FROM person WHERE name = ? AND city = ?",
+                SqlTextNormalizer.normalize("SELECT * FROM person WHERE name = 'O''Brien' AND city = 'Cork'"));
+    }
+
+    @Test
+    public void numericLiteralsAreReplaced() {
+        assertEquals("SELECT * FROM orders WHERE id = ? AND total > ? AND flags = ?",
+                SqlTextNormalizer.normalize("SELECT * FROM orders WHERE id = 42 AND total > 1.5e3 AND flags = 0xFF"));
+    }
+
+    @Test
+    public void digitsInIdentifiersAreKept() {
+        assertEquals("SELECT col1, t2.col_3 FROM table2 t2",
+                SqlTextNormalizer.normalize("SELECT col1, t2.col_3 FROM table2 t2"));
+    }
+
+    @Test
+    public void quotedIdentifiersAreKept() {
+        assertEquals("SELECT \"Name 1\", `id` FROM \"T\" WHERE x = ?",
+                SqlTextNormalizer.normalize("SELECT \"Name 1\", `id` FROM \"T\" WHERE x = 'a'"));
+    }
+
+    @Test
+    public void parameterListsAreCollapsed() {
+        assertEquals("SELECT * FROM item WHERE id IN (?)",
+                SqlTextNormalizer.normalize("SELECT * FROM item WHERE id IN (1, 2, 3)"));
+        assertEquals("SELECT * FROM item WHERE id IN (?)",
+                SqlTextNormalizer.normalize("SELECT * FROM item WHERE id IN ( ?,?, ? )"));
+        assertEquals("INSERT INTO item VALUES (?)",
+                SqlTextNormalizer.normalize("INSERT INTO item VALUES ('a', 2)"));
+    }
+
+    @Test
+    public void singleParameterIsKept() {
+        assertEquals("SELECT * FROM item WHERE id IN (?)",
+                SqlTextNormalizer.normalize("SELECT * FROM item WHERE id IN (7)"));
+    }
+
+    @Test
+    public void whitespaceIsCollapsed() {
+        assertEquals("SELECT a FROM b WHERE c = ?",
+                SqlTextNormalizer.normalize("  SELECT  a\n\tFROM b\r\n WHERE c = ?  "));
+    }
+
+    @Test
+    public void commentsAreDropped() {
+        assertEquals("SELECT a FROM b WHERE c = ?",
+                SqlTextNormalizer.normalize("SELECT /* hint */ a -- the column\nFROM b WHERE c = ? -- trailing"));
+        assertEquals("SELECT a FROM b",
+                SqlTextNormalizer.normalize("/* leading */SELECT a/**/FROM b"));
+    }
+
+    @Test
+    public void commentMarkersInLiteralsAreNotComments() {
+        assertEquals("SELECT * FROM b WHERE c = ? AND d = ?",
+                SqlTextNormalizer.normalize("SELECT * FROM b WHERE c = '--' AND d = '/* x */'"));
+    }
+
+    @Test
+    public void statementsDifferingInLiteralsNormalizeAlike() {
+        assertEquals(SqlTextNormalizer.normalize("UPDATE account SET balance = 10 WHERE id = 1"),
+                SqlTextNormalizer.normalize("UPDATE account   SET balance = 99.5 WHERE id = 12345"));
+    }
+}
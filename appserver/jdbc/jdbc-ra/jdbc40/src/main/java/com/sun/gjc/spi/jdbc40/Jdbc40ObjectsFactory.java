@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright 2020-2022 Payara Foundation and/or affiliates
+// Portions Copyright 2020-2024 Payara Foundation and/or affiliates
 
 package com.sun.gjc.spi.jdbc40;
 
@@ -75,7 +75,10 @@ public class Jdbc40ObjectsFactory extends JdbcObjectsFactory {
         ConnectionHolder connection = null;
 
         if (statementWrapping) {
-            if (sqlTraceDelegator != null) {
+            if (sqlTraceDelegator != null && sqlTraceDelegator.tracesSqlCallsOnly()) {
+                // no listener needs every call, trace the SQL calls without proxies
+                connection = new TracingConnectionWrapper40(conObject, mcObject, criObject, sqlTraceDelegator);
+            } else if (sqlTraceDelegator != null) {
                 Class<?> connIntf[] = new Class[]{java.sql.Connection.class};
                 Connection proxiedConn = getProxiedConnection(conObject, connIntf, sqlTraceDelegator);
                 connection = new ProfiledConnectionWrapper40(proxiedConn, mcObject,
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright 2016-2022 Payara Foundation and/or affiliates
+// Portions Copyright 2016-2024 Payara Foundation and/or affiliates
 
 package com.sun.gjc.spi.jdbc40;
 
@@ -66,7 +66,7 @@ import org.glassfish.api.jdbc.SQLTraceRecord;
  */
 public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements ConnectionWrapper {
     
-    private SQLTraceDelegator sqlTraceDelegator;
+    protected final SQLTraceDelegator sqlTraceDelegator;
 
     /**
      * Instantiates connection wrapper to wrap JDBC objects.
@@ -437,7 +437,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
     }
 
     //TODO refactor this method and move to a higher level
-    private <T> T getProxyObject(final Object actualObject, Class<T>[] ifaces) throws Exception {
+    protected <T> T getProxyObject(final Object actualObject, Class<T>[] ifaces) throws Exception {
         
         T result;
         InvocationHandler ih = new InvocationHandler() {
@@ -0,0 +1,191 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.spi.jdbc40;
+
+import com.sun.gjc.spi.ManagedConnectionImpl;
+import com.sun.gjc.util.SQLTraceDelegator;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection wrapper used instead of {@link ProfiledConnectionWrapper40} when the registered SQL trace listeners
+ * only need the calls that prepare, batch or execute SQL.
+ * <p>
+ * The physical connection is not proxied and statements are wrapped in {@link TracingStatement40} and its
+ * subclasses instead of reflective proxies, so a traced JDBC call costs a direct method call plus a trace record
+ * for the SQL calls.
+ */
+public class TracingConnectionWrapper40 extends ProfiledConnectionWrapper40 {
+
+    public TracingConnectionWrapper40(Connection con, ManagedConnectionImpl mc,
+            jakarta.resource.spi.ConnectionRequestInfo cxRequestInfo, SQLTraceDelegator delegator) {
+        super(con, mc, cxRequestInfo, delegator);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.nativeSQL(sql);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "nativeSQL", startTime, sql);
+        }
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareCall(sql);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareCall", startTime, sql);
+        }
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareCall(sql, resultSetType, resultSetConcurrency);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareCall", startTime, sql, resultSetType, resultSetConcurrency);
+        }
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareCall", startTime,
+                    sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareStatement(sql);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareStatement", startTime, sql);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareStatement(sql, autoGeneratedKeys);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareStatement", startTime, sql, autoGeneratedKeys);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareStatement(sql, columnIndexes);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareStatement", startTime, sql, columnIndexes);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareStatement", startTime, sql, resultSetType, resultSetConcurrency);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareStatement", startTime,
+                    sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        try {
+            return super.prepareStatement(sql, columnNames);
+        } finally {
+            sqlTraceDelegator.sqlTrace(con, "prepareStatement", startTime, sql, columnNames);
+        }
+    }
+
+    /**
+     * Wraps the statements created by {@link ProfiledConnectionWrapper40} in a tracing statement instead of a
+     * reflective proxy.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <T> T getProxyObject(Object actualObject, Class<T>[] ifaces) throws Exception {
+        if (actualObject instanceof CallableStatement) {
+            return (T) new TracingCallableStatement40((CallableStatement) actualObject, sqlTraceDelegator);
+        }
+        if (actualObject instanceof PreparedStatement) {
+            return (T) new TracingPreparedStatement40((PreparedStatement) actualObject, sqlTraceDelegator);
+        }
+        if (actualObject instanceof Statement) {
+            return (T) new TracingStatement40((Statement) actualObject, sqlTraceDelegator);
+        }
+        return super.getProxyObject(actualObject, ifaces);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.gjc.spi.jdbc40;
+
+import com.sun.gjc.spi.ManagedConnectionImpl;
+import com.sun.gjc.spi.base.ConnectionWrapper;
+import com.sun.gjc.util.SQLTraceDelegator;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.glassfish.api.jdbc.SQLTraceListener;
+import org.glassfish.api.jdbc.SQLTraceRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TracingConnectionWrapper40Test {
+
+    private static final String SQL = "SELECT name FROM person WHERE id = ?";
+
+    private final Connection physicalConnection = mock(Connection.class);
+    private final ManagedConnectionImpl managedConnection = mock(ManagedConnectionImpl.class);
+    private final RecordingListener listener = new RecordingListener();
+
+    private TracingConnectionWrapper40 connection;
+
+    @Before
+    public void createConnection() {
+        when(managedConnection.isClientInfoSupported()).thenReturn(Boolean.FALSE);
+        SQLTraceDelegator delegator = new SQLTraceDelegator("pool", "app", "module");
+        delegator.registerSQLTraceListener(listener);
+        connection = new TracingConnectionWrapper40(physicalConnection, managedConnection, null, delegator);
+    }
+
+    @Test
+    public void createStatementReturnsTracingStatement() throws SQLException {
+        when(physicalConnection.createStatement()).thenReturn(mock(Statement.class));
+
+        assertEquals(TracingStatement40.class, connection.createStatement().getClass());
+    }
+
+    @Test
+    public void prepareStatementReturnsTracingPreparedStatement() throws SQLException {
+        when(managedConnection.prepareCachedStatement(any(ConnectionWrapper.class), anyString(), anyInt(), anyInt()))
+                .thenReturn(mock(PreparedStatement.class));
+
+        assertEquals(TracingPreparedStatement40.class, connection.prepareStatement(SQL).getClass());
+        assertTrace("prepareStatement", SQL);
+    }
+
+    @Test
+    public void prepareCallReturnsTracingCallableStatement() throws SQLException {
+        when(managedConnection.prepareCachedCallableStatement(any(ConnectionWrapper.class), anyString(), anyInt(), anyInt()))
+                .thenReturn(mock(CallableStatement.class));
+
+        assertEquals(TracingCallableStatement40.class, connection.prepareCall("{call audit(?)}").getClass());
+        assertTrace("prepareCall", "{call audit(?)}");
+    }
+
+    @Test
+    public void prepareStatementTracesAllArguments() throws SQLException {
+        when(managedConnection.prepareCachedStatement(any(ConnectionWrapper.class), anyString(), anyInt(), anyInt()))
+                .thenReturn(mock(PreparedStatement.class));
+
+        connection.prepareStatement(SQL, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
+
+        assertTrace("prepareStatement", SQL, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE);
+    }
+
+    @Test
+    public void nativeSQLIsTraced() throws SQLException {
+        when(physicalConnection.nativeSQL(SQL)).thenReturn(SQL);
+
+        assertEquals(SQL, connection.nativeSQL(SQL));
+        assertTrace("nativeSQL", SQL);
+    }
+
+    @Test
+    public void statementExecutionIsTracedWithItsSql() throws SQLException {
+        Statement statement = mock(Statement.class);
+        when(physicalConnection.createStatement()).thenReturn(statement);
+
+        connection.createStatement().executeQuery(SQL);
+
+        verify(statement).executeQuery(SQL);
+        assertTrace("executeQuery", SQL);
+    }
+
+    @Test
+    public void preparedStatementExecutionIsTraced() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeUpdate()).thenReturn(3);
+        when(managedConnection.prepareCachedStatement(any(ConnectionWrapper.class), anyString(), anyInt(), anyInt()))
+                .thenReturn(statement);
+        PreparedStatement traced = connection.prepareStatement(SQL);
+        listener.records.clear();
+
+        traced.setInt(1, 42);
+        assertTrue(listener.records.isEmpty());
+        assertEquals(3, traced.executeUpdate());
+
+        verify(statement).setInt(1, 42);
+        assertEquals(1, listener.records.size());
+        assertEquals("executeUpdate", listener.records.get(0).getMethodName());
+    }
+
+    @Test
+    public void unwrapAndIsWrapperForDelegate() throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.isWrapperFor(PreparedStatement.class)).thenReturn(true);
+        when(statement.unwrap(PreparedStatement.class)).thenReturn(statement);
+        when(managedConnection.prepareCachedStatement(any(ConnectionWrapper.class), anyString(), anyInt(), anyInt()))
+                .thenReturn(statement);
+
+        PreparedStatement traced = connection.prepareStatement(SQL);
+
+        assertTrue(traced.isWrapperFor(PreparedStatement.class));
+        assertFalse(traced.isWrapperFor(ResultSet.class));
+        assertSame(statement, traced.unwrap(PreparedStatement.class));
+    }
+
+    @Test
+    public void closeDelegates() throws SQLException {
+        CallableStatement statement = mock(CallableStatement.class);
+        when(managedConnection.prepareCachedCallableStatement(any(ConnectionWrapper.class), anyString(), anyInt(), anyInt()))
+                .thenReturn(statement);
+
+        connection.prepareCall("{call audit(?)}").close();
+
+        verify(statement).close();
+    }
+
+    @Test
+    public void sqlExceptionPropagatesUnchanged() throws SQLException {
+        Statement statement = mock(Statement.class);
+        SQLException failure = new SQLException("constraint violated", "23000", 1);
+        when(statement.executeUpdate(SQL)).thenThrow(failure);
+        when(physicalConnection.createStatement()).thenReturn(statement);
+        Statement traced = connection.createStatement();
+
+        try {
+            traced.executeUpdate(SQL);
+            fail("Expected the driver exception");
+        } catch (SQLException e) {
+            assertSame(failure, e);
+        }
+        assertTrace("executeUpdate", SQL);
+    }
+
+    private void assertTrace(String methodName, Object... params) {
+        assertEquals(1, listener.records.size());
+        SQLTraceRecord record = listener.records.get(0);
+        assertEquals(methodName, record.getMethodName());
+        assertEquals("pool", record.getPoolName());
+        assertArrayEquals(params, record.getParams());
+    }
+
+    private static class RecordingListener implements SQLTraceListener {
+
+        final List<SQLTraceRecord> records = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void sqlTrace(SQLTraceRecord record) {
+            records.add(record);
+        }
+    }
+}
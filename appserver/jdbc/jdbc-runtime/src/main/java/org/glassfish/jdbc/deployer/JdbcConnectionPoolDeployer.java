@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright 2016-2022 Payara Foundation and/or affiliates
+// Portions Copyright 2016-2024 Payara Foundation and/or affiliates
 
 package org.glassfish.jdbc.deployer;
 
@@ -523,6 +523,11 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                     conConnPool.setPreferValidateOverRecreate(toBoolean(value, false));
                     logFine("PREFER-VALIDATE-OVER-RECREATE : " + value);
 
+                } else if ("ADAPTIVE-POOL-RESIZING".equals(name.toUpperCase(Locale.getDefault()))) {
+                    String value = rp.getValue();
+                    conConnPool.setAdaptiveResizing(toBoolean(value, false));
+                    logFine("ADAPTIVE-POOL-RESIZING : " + value);
+
                 } else if ("STATEMENT-CACHE-TYPE".equals(name.toUpperCase(Locale.getDefault()))) {
 
                     if(adminPool.getStatementCacheType() != null) {
@@ -0,0 +1,107 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ejb.timer.hazelcast;
+
+import com.hazelcast.config.IndexType;
+import com.hazelcast.map.IMap;
+
+/**
+ * The attributes of a {@link HZTimer} that timers are looked up by.
+ * <p>
+ * A HZTimer holds the info and the primary key of the timed object, which
+ * may be instances of application classes, so querying the timer cache
+ * itself would deserialize whole timers on the partition owners. These
+ * attributes are kept in a separate map instead. They are stored in the
+ * Compact format by {@link HZTimerAttributesSerializer}, so Hazelcast
+ * evaluates predicates and indexes on them without deserializing them.
+ */
+public class HZTimerAttributes {
+
+    static final String MEMBER_NAME = "memberName";
+    static final String OWNER_ID = "ownerId";
+    static final String CONTAINER_ID = "containerId";
+    static final String APPLICATION_ID = "applicationId";
+
+    private String memberName;
+    private String ownerId;
+    private long containerId;
+    private long applicationId;
+
+    public HZTimerAttributes(HZTimer timer) {
+        this.memberName = timer.getMemberName();
+        this.ownerId = timer.getOwnerId();
+        this.containerId = timer.getContainerId();
+        this.applicationId = timer.getApplicationId();
+    }
+
+    HZTimerAttributes(String memberName, String ownerId, long containerId, long applicationId) {
+        this.memberName = memberName;
+        this.ownerId = ownerId;
+        this.containerId = containerId;
+        this.applicationId = applicationId;
+    }
+
+    /**
+     * Adds the indexes used to look up timers to the attribute map.
+     */
+    static void addIndexes(IMap<String, HZTimerAttributes> attributes) {
+        attributes.addIndex(IndexType.HASH, MEMBER_NAME);
+        attributes.addIndex(IndexType.HASH, OWNER_ID);
+        attributes.addIndex(IndexType.HASH, CONTAINER_ID);
+        attributes.addIndex(IndexType.HASH, APPLICATION_ID);
+    }
+
+    public String getMemberName() {
+        return memberName;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public long getContainerId() {
+        return containerId;
+    }
+
+    public long getApplicationId() {
+        return applicationId;
+    }
+}
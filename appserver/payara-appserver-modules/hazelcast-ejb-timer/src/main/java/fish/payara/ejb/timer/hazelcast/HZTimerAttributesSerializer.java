@@ -0,0 +1,81 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ejb.timer.hazelcast;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+import fish.payara.nucleus.hazelcast.HazelcastCompactSerializer;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Stores {@link HZTimerAttributes} in the Compact format, with one field per
+ * attribute that timers are looked up by.
+ */
+@Service
+public class HZTimerAttributesSerializer implements HazelcastCompactSerializer<HZTimerAttributes> {
+
+    @Override
+    public HZTimerAttributes read(CompactReader reader) {
+        return new HZTimerAttributes(
+                reader.readString(HZTimerAttributes.MEMBER_NAME),
+                reader.readString(HZTimerAttributes.OWNER_ID),
+                reader.readInt64(HZTimerAttributes.CONTAINER_ID),
+                reader.readInt64(HZTimerAttributes.APPLICATION_ID));
+    }
+
+    @Override
+    public void write(CompactWriter writer, HZTimerAttributes attributes) {
+        writer.writeString(HZTimerAttributes.MEMBER_NAME, attributes.getMemberName());
+        writer.writeString(HZTimerAttributes.OWNER_ID, attributes.getOwnerId());
+        writer.writeInt64(HZTimerAttributes.CONTAINER_ID, attributes.getContainerId());
+        writer.writeInt64(HZTimerAttributes.APPLICATION_ID, attributes.getApplicationId());
+    }
+
+    @Override
+    public String getTypeName() {
+        return HZTimerAttributes.class.getName();
+    }
+
+    @Override
+    public Class<HZTimerAttributes> getCompactClass() {
+        return HZTimerAttributes.class;
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2016-2021 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -39,8 +39,11 @@
  */
 package fish.payara.ejb.timer.hazelcast;
 
+import com.hazelcast.aggregation.Aggregators;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
 import com.hazelcast.cp.lock.FencedLock;
 import com.sun.ejb.containers.BaseContainer;
 import com.sun.ejb.containers.EJBTimerSchedule;
@@ -68,7 +71,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -91,8 +93,12 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
     private static final String EJB_TIMER_CACHE_NAME = "HZEjbTmerCache";
     private static final String EJB_TIMER_CONTAINER_CACHE_NAME = "HZEjbTmerContainerCache";
     private static final String EJB_TIMER_APPLICAION_CACHE_NAME = "HZEjbTmerApplicationCache";
+    private static final String EJB_TIMER_ATTRIBUTES_CACHE_NAME = "HZEjbTmerAttributesCache";
 
     private final IMap<String, HZTimer> pkCache;
+    // indexed attributes of the timers in pkCache, so that timers can be
+    // looked up by predicate on the data grid rather than by iterating the map
+    private final IMap<String, HZTimerAttributes> timerAttributes;
     private final IMap<Long, Set<TimerPrimaryKey>> containerCache;
     private final IMap<Long, Set<TimerPrimaryKey>> applicationCache;
     private final String serverName;
@@ -119,6 +125,8 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         }
         hazelcast = core.getInstance();
         pkCache = hazelcast.getMap(EJB_TIMER_CACHE_NAME);
+        timerAttributes = hazelcast.getMap(EJB_TIMER_ATTRIBUTES_CACHE_NAME);
+        HZTimerAttributes.addIndexes(timerAttributes);
         containerCache = hazelcast.getMap(EJB_TIMER_CONTAINER_CACHE_NAME);
         applicationCache = hazelcast.getMap(EJB_TIMER_APPLICAION_CACHE_NAME);
         serverName = core.getAttribute(core.getInstance().getCluster().getLocalMember().getUuid(), HazelcastCore.INSTANCE_ATTRIBUTE);
@@ -137,7 +145,7 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
     protected void _createTimer(TimerPrimaryKey timerId, long containerId, long applicationId, Object timedObjectPrimaryKey, String server_name, Date initialExpiration, long intervalDuration, EJBTimerSchedule schedule, TimerConfig timerConfig) throws Exception {
         if (timerConfig.isPersistent()) {
 
-            pkCache.put(timerId.timerId, new HZTimer(timerId, containerId, applicationId, timedObjectPrimaryKey, server_name, server_name, initialExpiration, intervalDuration, schedule, timerConfig));
+            putTimer(new HZTimer(timerId, containerId, applicationId, timedObjectPrimaryKey, server_name, server_name, initialExpiration, intervalDuration, schedule, timerConfig));
 
             // add to container cache
             Set<TimerPrimaryKey> keysForContainer = containerCache.get(containerId);
@@ -190,7 +198,7 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         }
 
         for (TimerPrimaryKey timerId : timerIds) {
-            pkCache.remove(timerId.timerId);
+            removeTimerEntry(timerId.timerId);
         }
         logger.log(Level.INFO, "Destroyed {0} timers for application {1}", new Object[]{timerIds.size(), applicationId});
         timerIds.clear();
@@ -288,20 +296,15 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         // Get *all* timers for this entity bean identity.  This includes
         // even timers *not* owned by this server instance, but that
         // are associated with the same entity bean and primary key.
-        Set<TimerPrimaryKey> timers = containerCache.get(containerId);
-
-        if (timers != null) {
-            HashSet<HZTimer> timersToCancel = new HashSet<>();
-            for (TimerPrimaryKey timer : timers) {
-                HZTimer hzTimer = pkCache.get(timer.timerId);
-                if (hzTimer != null && hzTimer.getTimedObjectPk().equals(primaryKey)) {
-                    timersToCancel.add(hzTimer);
-                }
+        HashSet<HZTimer> timersToCancel = new HashSet<>();
+        for (HZTimer hzTimer : findTimersForContainer(containerId)) {
+            if (primaryKey.equals(hzTimer.getTimedObjectPk())) {
+                timersToCancel.add(hzTimer);
             }
+        }
 
-            for (HZTimer hZTimer : timersToCancel) {
-                removeTimer(hZTimer);
-            }
+        for (HZTimer hZTimer : timersToCancel) {
+            removeTimer(hZTimer);
         }
     }
 
@@ -394,14 +397,9 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
             }
         } else {
 
-            Collection<TimerPrimaryKey> timersForTimedObject = containerCache.get(containerId);
-            if (timersForTimedObject != null) {
-                for (TimerPrimaryKey timer : timersForTimedObject) {
-                    HZTimer hzTimer = pkCache.get(timer.timerId);
-                    if (hzTimer != null && hzTimer.getTimedObjectPk().equals(timedObjectPrimaryKey)) {
-                        timerIdsForTimedObject.add(timer);
-                    }
-
+            for (HZTimer hzTimer : findTimersForContainer(containerId)) {
+                if (timedObjectPrimaryKey.equals(hzTimer.getTimedObjectPk())) {
+                    timerIdsForTimedObject.add(hzTimer.getKey());
                 }
             }
         }
@@ -516,7 +514,14 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
 
     @Override
     public String[] listTimers(String[] serverIds) {
-        return listTimers(pkCache.values(), serverIds);
+        // count on the data grid rather than pulling every timer to this member
+        String[] result = new String[serverIds.length];
+        for (int i = 0; i < serverIds.length; i++) {
+            Long count = timerAttributes.aggregate(Aggregators.count(),
+                    Predicates.equal(HZTimerAttributes.MEMBER_NAME, serverIds[i]));
+            result[i] = count == null ? "0" : count.toString();
+        }
+        return result;
     }
 
     @Override
@@ -536,18 +541,18 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         HashMap<String, HZTimer> toRestore = new HashMap<>();
         int totalTimersMigrated = 0;
 
-        for (String pk : pkCache.keySet()) {
-            HZTimer hZTimer = pkCache.get(pk);
-            if (hZTimer.getOwnerId().equals(fromOwnerId)) {
-                toRestore.put(pk, hZTimer);
-                hZTimer.setOwnerId(ownerIdOfThisServer);
-                hZTimer.setMemberName(serverName);
-            }
+        HashMap<String, HZTimerAttributes> toRestoreAttributes = new HashMap<>();
+        for (HZTimer hZTimer : findTimers(Predicates.equal(HZTimerAttributes.OWNER_ID, fromOwnerId))) {
+            hZTimer.setOwnerId(ownerIdOfThisServer);
+            hZTimer.setMemberName(serverName);
+            toRestore.put(hZTimer.getKey().timerId, hZTimer);
+            toRestoreAttributes.put(hZTimer.getKey().timerId, new HZTimerAttributes(hZTimer));
         }
 
-        for (Entry<String, HZTimer> entry : toRestore.entrySet()) {
-            pkCache.put(entry.getKey(), entry.getValue());
-            totalTimersMigrated++;
+        if (!toRestore.isEmpty()) {
+            pkCache.putAll(toRestore);
+            timerAttributes.putAll(toRestoreAttributes);
+            totalTimersMigrated = toRestore.size();
         }
 
         if (totalTimersMigrated > 0) {
@@ -607,8 +612,14 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         Set<TimerPrimaryKey> deadKeys = new HashSet<>();
         Set<HZTimer> timers = new HashSet<>();
         if (containerKeys != null) {
+            Set<String> timerIds = new HashSet<>();
+            for (TimerPrimaryKey containerKey : containerKeys) {
+                timerIds.add(containerKey.timerId);
+            }
+            // fetch all timers of the container in one call per partition
+            Map<String, HZTimer> containerTimers = pkCache.getAll(timerIds);
             for (TimerPrimaryKey containerKey : containerKeys) {
-                HZTimer timer = pkCache.get(containerKey.timerId);
+                HZTimer timer = containerTimers.get(containerKey.timerId);
                 if (timer != null) {
                     if (timer.getMemberName().equals(this.serverName)) {
                         activeTimers.add(timer);
@@ -759,7 +770,7 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
     }
 
     private void removeTimer(HZTimer timer) {
-        pkCache.remove(timer.getKey().timerId);
+        removeTimerEntry(timer.getKey().timerId);
 
         Set<TimerPrimaryKey> keys = applicationCache.get(timer.getApplicationId());
         if (keys != null) {
@@ -1134,14 +1145,40 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         return result;
     }
 
-    private Collection<HZTimer> findActiveTimersOwnedByThisServer() {
-        HashSet<HZTimer> result = new HashSet<>();
-        for (HZTimer timer : pkCache.values()) {
-            if (timer.getMemberName().equals(this.serverName)) {
-                result.add(timer);
-            }
+    private void putTimer(HZTimer timer) {
+        pkCache.put(timer.getKey().timerId, timer);
+        timerAttributes.set(timer.getKey().timerId, new HZTimerAttributes(timer));
+    }
+
+    private void removeTimerEntry(String timerId) {
+        pkCache.remove(timerId);
+        timerAttributes.delete(timerId);
+    }
+
+    /**
+     * Looks the timers up by their attributes, only the matching timers are
+     * deserialized.
+     */
+    private Collection<HZTimer> findTimers(Predicate<String, HZTimerAttributes> predicate) {
+        Set<String> timerIds = timerAttributes.keySet(predicate);
+        if (timerIds.isEmpty()) {
+            return new HashSet<>();
         }
-        return result;
+        return new HashSet<>(pkCache.getAll(timerIds).values());
+    }
+
+    private Collection<HZTimer> findActiveTimersOwnedByThisServer() {
+        return findTimers(Predicates.equal(HZTimerAttributes.MEMBER_NAME, this.serverName));
+    }
+
+    private long countActiveTimersOwnedByThisServer() {
+        Long count = timerAttributes.aggregate(Aggregators.count(),
+                Predicates.equal(HZTimerAttributes.MEMBER_NAME, this.serverName));
+        return count == null ? 0 : count;
+    }
+
+    private Collection<HZTimer> findTimersForContainer(long containerId) {
+        return findTimers(Predicates.equal(HZTimerAttributes.CONTAINER_ID, containerId));
     }
 
     private boolean restoreEJBTimers() {
@@ -1151,7 +1188,7 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
                 restoreTimers();
                 rc = true;
             } else {
-                int s = (findActiveTimersOwnedByThisServer()).size();
+                long s = countActiveTimersOwnedByThisServer();
                 if (s > 0) {
                     logger.log(Level.INFO, "[{0}] EJB Timers owned by this server will be restored when timeout beans are loaded", s);
                 } else {
@@ -1179,21 +1216,14 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
         FencedLock hazelcastLock = hazelcast.getCPSubsystem().getLock("EJB-TIMER-LOCK");
         hazelcastLock.lock();
         try {
-            Collection<HZTimer> allTimers = pkCache.values();
-            Collection<HZTimer> removedTimers = new HashSet<>();
-            for (HZTimer timer : allTimers) {
-                if (timer.getMemberName().equals(event.getServer())) {
-                    removedTimers.add(timer);
-                }
-            }
-
-
+            Collection<HZTimer> removedTimers = findTimers(
+                    Predicates.equal(HZTimerAttributes.MEMBER_NAME, event.getServer()));
 
             if (!removedTimers.isEmpty()) {
                 logger.log(Level.INFO, "==> Restoring Timers ... ");
                 Collection<HZTimer> restored = _restoreTimers(removedTimers);
                 for (HZTimer timer : restored) {
-                    pkCache.put(timer.getKey().getTimerId(), timer);
+                    putTimer(timer);
                 }
                 logger.log(Level.INFO, "<== ... Timers Restored.");
             }
@@ -1206,8 +1236,9 @@ public class HazelcastTimerStore extends NonPersistentEJBTimerService implements
      * Remove all local timers that are no longer owned by this instance.
      */
     private void removeLocalTimers() {
-        Collection<HZTimer> allTimers = pkCache.values();
-        for (HZTimer timer : allTimers) {
+        Collection<HZTimer> timersOwnedElsewhere = findTimers(
+                Predicates.notEqual(HZTimerAttributes.OWNER_ID, getOwnerIdOfThisServer()));
+        for (HZTimer timer : timersOwnedElsewhere) {
             removeLocalTimer(timer);
         }
     }
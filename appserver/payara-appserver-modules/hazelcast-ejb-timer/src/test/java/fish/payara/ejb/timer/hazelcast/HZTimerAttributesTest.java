@@ -0,0 +1,184 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.ejb.timer.hazelcast;
+
+import com.hazelcast.aggregation.Aggregators;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.GlobalSerializerConfig;
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.map.IMap;
+import com.hazelcast.nio.serialization.HazelcastSerializationException;
+import com.hazelcast.query.Predicates;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import fish.payara.nucleus.hazelcast.PayaraHazelcastSerializer;
+import org.glassfish.internal.api.JavaEEContextUtil;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HZTimerAttributesTest {
+
+    private static HazelcastInstance hazelcast;
+
+    private IMap<String, HZTimerAttributes> attributes;
+
+    @BeforeClass
+    public static void startMember() {
+        Config config = new Config();
+        config.setClusterName("timer-attributes-test");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getAutoDetectionConfig().setEnabled(false);
+        SerializationConfig serializationConfig = payaraSerializationConfig();
+        serializationConfig.getCompactSerializationConfig().addSerializer(new HZTimerAttributesSerializer());
+        config.setSerializationConfig(serializationConfig);
+        hazelcast = Hazelcast.newHazelcastInstance(config);
+    }
+
+    /**
+     * The serialization configuration HazelcastCore builds, before the
+     * Compact serializers are registered.
+     */
+    private static SerializationConfig payaraSerializationConfig() {
+        SerializationConfig serializationConfig = new SerializationConfig();
+        serializationConfig.setGlobalSerializerConfig(new GlobalSerializerConfig()
+                .setImplementation(new PayaraHazelcastSerializer(mock(JavaEEContextUtil.class), null))
+                .setOverrideJavaSerialization(true));
+        return serializationConfig;
+    }
+
+    @AfterClass
+    public static void stopMember() {
+        hazelcast.shutdown();
+    }
+
+    @Before
+    public void populate() {
+        attributes = hazelcast.getMap("attributes");
+        attributes.clear();
+        HZTimerAttributes.addIndexes(attributes);
+        attributes.set("1", new HZTimerAttributes(timer("jb", "instance1", 10, 100)));
+        attributes.set("2", new HZTimerAttributes(timer("hz", "instance2", 10, 100)));
+        attributes.set("3", new HZTimerAttributes(timer("jb", "instance1", 20, 200)));
+    }
+
+    private static HZTimer timer(String memberName, String ownerId, long containerId, long applicationId) {
+        HZTimer timer = mock(HZTimer.class);
+        when(timer.getMemberName()).thenReturn(memberName);
+        when(timer.getOwnerId()).thenReturn(ownerId);
+        when(timer.getContainerId()).thenReturn(containerId);
+        when(timer.getApplicationId()).thenReturn(applicationId);
+        return timer;
+    }
+
+    @Test
+    public void attributesAreStoredInCompactFormat() {
+        HZTimerAttributes value = new HZTimerAttributes(timer("jb", "instance1", 10, 100));
+        assertTrue(((SerializationServiceSupport) hazelcast).getSerializationService().toData(value).isCompact());
+    }
+
+    @Test(expected = HazelcastSerializationException.class)
+    public void globalSerializerIsUsedWithoutCompactSerializer() {
+        SerializationService serializationService = new DefaultSerializationServiceBuilder()
+                .setConfig(payaraSerializationConfig())
+                .build();
+        serializationService.toData(new HZTimerAttributes(timer("jb", "instance1", 10, 100)));
+    }
+
+    @Test
+    public void attributesAreReadBack() {
+        HZTimerAttributes value = attributes.get("3");
+        assertEquals("jb", value.getMemberName());
+        assertEquals("instance1", value.getOwnerId());
+        assertEquals(20L, value.getContainerId());
+        assertEquals(200L, value.getApplicationId());
+    }
+
+    @Test
+    public void attributesAreStoredInBulk() {
+        Map<String, HZTimerAttributes> values = new HashMap<>();
+        values.put("4", new HZTimerAttributes(timer("hz", "instance2", 30, 300)));
+        values.put("5", new HZTimerAttributes(timer("hz", "instance2", 30, 300)));
+        attributes.putAll(values);
+        assertEquals(new HashSet<>(Arrays.asList("4", "5")),
+                attributes.keySet(Predicates.equal(HZTimerAttributes.CONTAINER_ID, 30L)));
+    }
+
+    @Test
+    public void timersAreFoundByMemberName() {
+        assertEquals(new HashSet<>(Arrays.asList("1", "3")),
+                attributes.keySet(Predicates.equal(HZTimerAttributes.MEMBER_NAME, "jb")));
+        assertEquals(Long.valueOf(1), attributes.aggregate(Aggregators.count(),
+                Predicates.equal(HZTimerAttributes.MEMBER_NAME, "hz")));
+    }
+
+    @Test
+    public void timersAreFoundByOwnerAndContainer() {
+        assertEquals(new HashSet<>(Arrays.asList("2")),
+                attributes.keySet(Predicates.notEqual(HZTimerAttributes.OWNER_ID, "instance1")));
+        assertEquals(new HashSet<>(Arrays.asList("1", "2")),
+                attributes.keySet(Predicates.equal(HZTimerAttributes.CONTAINER_ID, 10L)));
+        assertEquals(new HashSet<>(Arrays.asList("3")),
+                attributes.keySet(Predicates.equal(HZTimerAttributes.APPLICATION_ID, 200L)));
+    }
+
+    @Test
+    public void queriesUseTheIndexes() {
+        long before = attributes.getLocalMapStats().getIndexedQueryCount();
+        attributes.keySet(Predicates.equal(HZTimerAttributes.CONTAINER_ID, 20L));
+        assertTrue(attributes.getLocalMapStats().getIndexedQueryCount() > before);
+    }
+}
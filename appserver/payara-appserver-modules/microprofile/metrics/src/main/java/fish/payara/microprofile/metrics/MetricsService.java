@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2020-2023 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2020-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -103,6 +103,14 @@ public interface MetricsService {
      */
     MetricsContext getContext(String name);
 
+    /**
+     * @return the duration in milliseconds for which a rendered scrape of the metrics endpoint is shared between
+     *         requests, 0 or less if each request renders its own scrape
+     */
+    default long getScrapeCacheDuration() {
+        return 0L;
+    }
+
     /**
      * Each deployed application has its own {@link MetricsContext}.
      * In addition there is the server context which has no name as indicated by {@link #isServerContext()}.
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  * 
- *    Copyright (c) [2018-2019] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  * 
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -107,4 +107,23 @@ public interface MetricsServiceConfiguration extends ConfigBeanProxy, ConfigExte
     String getRoles();
     void setRoles(String value) throws PropertyVetoException;
 
+    /**
+     * @return an Integer value defining for how many milliseconds a rendered
+     * scrape of the metrics endpoint is shared by concurrent and subsequent
+     * requests. 0 disables caching.
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    String getScrapeCacheDuration();
+    void setScrapeCacheDuration(String value) throws PropertyVetoException;
+
+    /**
+     * @return the reservoir used by histograms and timers that have no
+     * reservoir configured using {@code payara.metrics.distribution.reservoir},
+     * either {@code exponentially-decaying} or the lock-free
+     * {@code log-bucket} reservoir.
+     */
+    @Attribute(defaultValue = "exponentially-decaying")
+    String getDefaultReservoir();
+    void setDefaultReservoir(String value) throws PropertyVetoException;
+
 }
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) [2018-2021] Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -110,6 +110,12 @@ public class SetMetricsConfigurationCommand extends SetSecureMicroprofileConfigu
     @Param(name = "virtualServers", optional = true)
     private String virtualServers;
 
+    @Param(name = "scrapeCacheDuration", optional = true)
+    private Integer scrapeCacheDuration;
+
+    @Param(name = "defaultReservoir", optional = true, acceptableValues = "exponentially-decaying,log-bucket")
+    private String defaultReservoir;
+
     @Inject
     private Domain domain;
 
@@ -171,6 +177,12 @@ public class SetMetricsConfigurationCommand extends SetSecureMicroprofileConfigu
                 if (roles != null) {
                     configProxy.setRoles(roles);
                 }
+                if (scrapeCacheDuration != null) {
+                    configProxy.setScrapeCacheDuration(scrapeCacheDuration.toString());
+                }
+                if (defaultReservoir != null) {
+                    configProxy.setDefaultReservoir(defaultReservoir);
+                }
 
                 actionReport.setActionExitCode(ActionReport.ExitCode.SUCCESS);
                 return configProxy;
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  * 
- *    Copyright (c) [2018-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  * 
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -267,6 +267,7 @@ public class ExponentiallyDecayingReservoir implements Reservoir {
         lock.readLock().unlock();
     }
     
+    @Override
     public void setConfigAdapter(ConfigurationProperties configurationProperties) {
         this.configurationProperties = configurationProperties;
     }
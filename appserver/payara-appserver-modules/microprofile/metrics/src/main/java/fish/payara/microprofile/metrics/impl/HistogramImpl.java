@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- *    Copyright (c) [2018-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -60,7 +60,6 @@ import jakarta.enterprise.inject.Vetoed;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.metrics.Histogram;
@@ -77,9 +76,9 @@ import static fish.payara.microprofile.metrics.impl.MetricRegistryImpl.METRIC_HI
 @Vetoed
 public class HistogramImpl implements Histogram {
 
-    private final ExponentiallyDecayingReservoir reservoir;
+    private final Reservoir reservoir;
     private final LongAdder count;
-    private final AtomicLong sum;
+    private final LongAdder sum;
     private ConfigurationProperties configurationProperties;
     
     public HistogramImpl(String metricName, 
@@ -89,6 +88,13 @@ public class HistogramImpl implements Histogram {
         validateMetricsConfiguration(metricName, percentilesConfigMap, bucketsConfigMap);
     }
 
+    public HistogramImpl(String metricName, Reservoir reservoir,
+                         Map<String, Collection<MetricsCustomPercentiles>> percentilesConfigMap,
+                         Map<String, Collection<MetricsCustomBuckets>> bucketsConfigMap) {
+        this(reservoir);
+        validateMetricsConfiguration(metricName, percentilesConfigMap, bucketsConfigMap);
+    }
+
     /**
      * Creates a new {@link HistogramImpl} using an
      * {@link ExponentiallyDecayingReservoir}.
@@ -102,10 +108,10 @@ public class HistogramImpl implements Histogram {
      *
      * @param reservoir the reservoir to create a histogram from
      */
-    public HistogramImpl(ExponentiallyDecayingReservoir reservoir) {
+    public HistogramImpl(Reservoir reservoir) {
         this.reservoir = reservoir;
         this.count = new LongAdder();
-        this.sum = new AtomicLong();
+        this.sum = new LongAdder();
     }
 
     /**
@@ -126,7 +132,7 @@ public class HistogramImpl implements Histogram {
     @Override
     public void update(long value) {
         count.increment();
-        sum.getAndAdd(value);
+        sum.add(value);
         reservoir.update(value);
     }
 
@@ -142,7 +148,7 @@ public class HistogramImpl implements Histogram {
 
     @Override
     public long getSum() {
-        return sum.get();
+        return sum.sum();
     }
 
     @Override
@@ -0,0 +1,265 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.microprofile.metrics.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.microprofile.metrics.Snapshot;
+
+/**
+ * A lock-free {@link Reservoir} that counts values in logarithmic buckets, similar to an HDR histogram.
+ *
+ * Each power of two range is split into {@value #SUB_BUCKET_HALF} linear sub-buckets so that any recorded value is
+ * represented with a relative error of at most {@code 1/32}. Values in the range {@code [0, 64)} are recorded
+ * exactly.
+ *
+ * Recording a value is a single atomic increment in a bucket array of the current thread's stripe plus a
+ * {@link LongAdder} update. No objects are allocated and no locks are taken. Stripes are allocated lazily so that
+ * rarely used metrics only pay for the stripes actually in use.
+ *
+ * Like the {@link ExponentiallyDecayingReservoir} the snapshot is biased towards recent values: values are recorded
+ * into the current time window, the {@link #getSnapshot()} covers the current and the previous window.
+ */
+public class LogBucketReservoir implements Reservoir {
+
+    static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private static final long DEFAULT_WINDOW_LENGTH = TimeUnit.SECONDS.toNanos(150);
+    private static final int MAX_STRIPES = 8;
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final Clock clock;
+    private final long windowLength;
+    private final AtomicReference<Windows> windows;
+
+    private ConfigurationProperties configurationProperties;
+
+    /**
+     * Creates a new {@link LogBucketReservoir} with a window length of 150 seconds so that a snapshot covers the
+     * values of the past 2.5 to 5 minutes, which is comparable with the bias of the default
+     * {@link ExponentiallyDecayingReservoir}.
+     */
+    public LogBucketReservoir() {
+        this(Clock.defaultClock());
+    }
+
+    /**
+     * Creates a new {@link LogBucketReservoir} with the default window length.
+     *
+     * @param clock the clock used to determine the current window
+     */
+    public LogBucketReservoir(Clock clock) {
+        this(DEFAULT_WINDOW_LENGTH, TimeUnit.NANOSECONDS, clock);
+    }
+
+    /**
+     * Creates a new {@link LogBucketReservoir}.
+     *
+     * @param windowLength the length of a recording window
+     * @param unit the unit of the {@code windowLength}
+     * @param clock the clock used to determine the current window
+     */
+    public LogBucketReservoir(long windowLength, TimeUnit unit, Clock clock) {
+        this.clock = clock;
+        this.windowLength = unit.toNanos(windowLength);
+        Window initial = new Window(clock.getTick());
+        this.windows = new AtomicReference<>(new Windows(new Window(initial.start - this.windowLength), initial));
+    }
+
+    @Override
+    public int size() {
+        Windows current = currentWindows();
+        return (int) Math.min(Integer.MAX_VALUE, current.previous.count.sum() + current.current.count.sum());
+    }
+
+    @Override
+    public void update(long value) {
+        currentWindows().current.record(value < 0 ? 0 : value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        Windows current = currentWindows();
+        long[] counts = new long[BUCKET_COUNT];
+        current.previous.addCountsTo(counts);
+        current.current.addCountsTo(counts);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long sum = current.previous.sum.sum() + current.current.sum.sum();
+        long max = Math.max(current.previous.max.get(), current.current.max.get());
+        return new LogBucketSnapshot(counts, total, sum, max, configurationProperties);
+    }
+
+    @Override
+    public void setConfigAdapter(ConfigurationProperties configurationProperties) {
+        this.configurationProperties = configurationProperties;
+    }
+
+    /**
+     * Returns the current pair of windows, rotating them first in case the current window has ended. Rotation is a
+     * single CAS, a thread losing the race simply uses the winner's windows. Values recorded concurrently into the
+     * window just being rotated out are not lost as they become part of the previous window.
+     */
+    private Windows currentWindows() {
+        Windows current = windows.get();
+        long now = clock.getTick();
+        long elapsed = now - current.current.start;
+        if (elapsed < windowLength) {
+            return current;
+        }
+        Window next = new Window(now);
+        Windows rotated = elapsed < 2 * windowLength
+                ? new Windows(current.current, next)
+                : new Windows(new Window(now - windowLength), next);
+        return windows.compareAndSet(current, rotated) ? rotated : windows.get();
+    }
+
+    /**
+     * Returns the index of the bucket that counts the given value.
+     *
+     * @param value a non negative value
+     * @return index of the bucket the value belongs to
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    /**
+     * @param index a bucket index
+     * @return the smallest value counted by the bucket with the given index
+     */
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF + 1;
+        return (long) (SUB_BUCKET_HALF + offset % SUB_BUCKET_HALF) << shift;
+    }
+
+    /**
+     * @param index a bucket index
+     * @return the largest value counted by the bucket with the given index
+     */
+    static long highestValue(int index) {
+        return index + 1 >= BUCKET_COUNT ? Long.MAX_VALUE : lowestValue(index + 1) - 1;
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    private static int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+
+    private static final class Windows {
+
+        final Window previous;
+        final Window current;
+
+        Windows(Window previous, Window current) {
+            this.previous = previous;
+            this.current = current;
+        }
+    }
+
+    private static final class Window {
+
+        final long start;
+        final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final AtomicLong max = new AtomicLong();
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        void record(long value) {
+            stripe(stripeIndex()).incrementAndGet(bucketIndex(value));
+            count.increment();
+            sum.add(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        private AtomicLongArray stripe(int index) {
+            AtomicLongArray stripe = stripes.get(index);
+            if (stripe != null) {
+                return stripe;
+            }
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKET_COUNT));
+            return stripes.get(index);
+        }
+
+        void addCountsTo(long[] counts) {
+            for (int i = 0; i < STRIPES; i++) {
+                AtomicLongArray stripe = stripes.get(i);
+                if (stripe != null) {
+                    for (int j = 0; j < BUCKET_COUNT; j++) {
+                        counts[j] += stripe.get(j);
+                    }
+                }
+            }
+        }
+    }
+}
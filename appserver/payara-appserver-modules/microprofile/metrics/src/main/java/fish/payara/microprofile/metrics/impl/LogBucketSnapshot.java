@@ -0,0 +1,187 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.microprofile.metrics.impl;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.Arrays;
+import org.eclipse.microprofile.metrics.Snapshot;
+
+/**
+ * A statistical snapshot of a {@link LogBucketReservoir}.
+ *
+ * Percentiles are computed from the bucket counts and reported as the middle of the bucket the percentile falls into
+ * but never larger than the actual maximum. The mean is exact.
+ */
+public class LogBucketSnapshot extends Snapshot {
+
+    private static final double[] DEFAULT_PERCENTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+    private final ConfigurationProperties configurationProperties;
+
+    LogBucketSnapshot(long[] counts, long count, long sum, long max, ConfigurationProperties configurationProperties) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.configurationProperties = configurationProperties;
+    }
+
+    @Override
+    public long size() {
+        return count;
+    }
+
+    @Override
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    @Override
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Override
+    public PercentileValue[] percentileValues() {
+        if (configurationProperties != null) {
+            Double[] percentiles = configurationProperties.percentileValues();
+            PercentileValue[] percentileValues = new PercentileValue[percentiles.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                percentileValues[i] = new PercentileValue(percentiles[i], getValue(percentiles[i]));
+            }
+            return percentileValues;
+        }
+        PercentileValue[] percentileValues = new PercentileValue[DEFAULT_PERCENTILES.length];
+        for (int i = 0; i < DEFAULT_PERCENTILES.length; i++) {
+            percentileValues[i] = new PercentileValue(DEFAULT_PERCENTILES[i], getValue(DEFAULT_PERCENTILES[i]));
+        }
+        return percentileValues;
+    }
+
+    @Override
+    public HistogramBucket[] bucketValues() {
+        if (configurationProperties == null) {
+            return new HistogramBucket[0];
+        }
+        Double[] buckets = configurationProperties.bucketValues();
+        Arrays.sort(buckets);
+        HistogramBucket[] histogramBuckets = new HistogramBucket[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            histogramBuckets[i] = new HistogramBucket(buckets[i], countAtOrBelow(buckets[i]));
+        }
+        return histogramBuckets;
+    }
+
+    /**
+     * Returns the number of values that are less than or equal to the given bound. Values are attributed to a
+     * bound by the middle of their bucket.
+     *
+     * @param bound the inclusive upper bound, in the unit of the recorded values
+     * @return number of values less than or equal to the bound
+     */
+    public long countAtOrBelow(double bound) {
+        long below = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                if (representativeValue(i) > bound) {
+                    return below;
+                }
+                below += counts[i];
+            }
+        }
+        return below;
+    }
+
+    private double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(representativeValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static long representativeValue(int index) {
+        long lowest = LogBucketReservoir.lowestValue(index);
+        return lowest + (LogBucketReservoir.highestValue(index) - lowest) / 2;
+    }
+
+    public ConfigurationProperties getConfigAdapter() {
+        return configurationProperties;
+    }
+
+    /**
+     * Writes the non empty buckets of the snapshot to the given stream. Each line contains the value representing
+     * the bucket followed by the number of values in the bucket.
+     *
+     * @param output an output stream
+     */
+    @Override
+    public void dump(OutputStream output) {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8))) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    out.printf("%d %d%n", representativeValue(i), counts[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot[" + size() + "]";
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- *    Copyright (c) [2018-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -40,6 +40,7 @@
 package fish.payara.microprofile.metrics.impl;
 
 import fish.payara.microprofile.metrics.cdi.MetricUtils;
+import fish.payara.microprofile.metrics.impl.MetricsCustomReservoir.ReservoirType;
 import jakarta.enterprise.inject.Vetoed;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -110,6 +111,7 @@ public class MetricRegistryImpl implements MetricRegistry {
     private final String scope;
     private final ConcurrentMap<String, MetricFamily<?>> metricsFamiliesByName = new ConcurrentHashMap<>();
     private final Clock clock;
+    private final ReservoirType defaultReservoir;
     private final List<MetricRegistrationListener> listeners = new ArrayList<>();
 
     public static final String METRIC_PERCENTILES_PROPERTY = "mp.metrics.distribution.percentiles";
@@ -118,6 +120,12 @@ public class MetricRegistryImpl implements MetricRegistry {
     
     public static final String METRIC_TIMER_BUCKETS_PROPERTY = "mp.metrics.distribution.timer.buckets";
 
+    /**
+     * Payara specific property to select the {@link Reservoir} used by histograms and timers, per metric or globally
+     * using {@code *}, for example {@code *=log-bucket;legacy.timer=exponentially-decaying}.
+     */
+    public static final String METRIC_RESERVOIR_PROPERTY = "payara.metrics.distribution.reservoir";
+
     private Map<String, Collection<MetricsCustomPercentiles>> percentilesConfigMap = 
             new HashMap<String, Collection<MetricsCustomPercentiles>>();
     
@@ -127,9 +135,11 @@ public class MetricRegistryImpl implements MetricRegistry {
     private Map<String, Collection<MetricsCustomBuckets>> timerBucketsConfigMap =
             new HashMap<>();
 
+    private Map<String, Collection<MetricsCustomReservoir>> reservoirConfigMap =
+            new HashMap<>();
+
     public MetricRegistryImpl() {
-        this.scope = null;
-        this.clock = Clock.defaultClock();
+        this(null, Clock.defaultClock());
     }
 
     public MetricRegistryImpl(String registryScope) {
@@ -137,8 +147,19 @@ public class MetricRegistryImpl implements MetricRegistry {
     }
 
     public MetricRegistryImpl(String type, Clock clock) {
+        this(type, clock, ReservoirType.EXPONENTIALLY_DECAYING);
+    }
+
+    /**
+     * @param type the scope of the registry
+     * @param clock the clock used by timers
+     * @param defaultReservoir the type of {@link Reservoir} used by histograms and timers that have no reservoir
+     *                         configured using {@link #METRIC_RESERVOIR_PROPERTY}
+     */
+    public MetricRegistryImpl(String type, Clock clock, ReservoirType defaultReservoir) {
         this.scope = type;
         this.clock = clock;
+        this.defaultReservoir = defaultReservoir;
     }
 
     public MetricRegistryImpl addListener(MetricRegistrationListener listener) {
@@ -214,20 +235,17 @@ public class MetricRegistryImpl implements MetricRegistry {
 
     @Override
     public Histogram histogram(String name, Tag... tags) {
-        return findMetricOrCreate(name, Histogram.class.getTypeName(), new HistogramImpl(name, percentilesConfigMap, histogramBucketsConfigMap), tags);
+        return findMetricOrCreate(name, Histogram.class.getTypeName(), createHistogram(name), tags);
     }
 
     @Override
     public Histogram histogram(Metadata metadata, Tag... tags) {
-        return findMetricOrCreate(metadata, Histogram.class.getTypeName(),new HistogramImpl(metadata.getName(), 
-                percentilesConfigMap, histogramBucketsConfigMap), tags);
+        return findMetricOrCreate(metadata, Histogram.class.getTypeName(), createHistogram(metadata.getName()), tags);
     }
 
     @Override
     public Histogram histogram(String name) {
-        return findMetricOrCreate(name, Histogram.class.getTypeName(), 
-                new HistogramImpl(name, percentilesConfigMap, histogramBucketsConfigMap),
-                new Tag[0]);
+        return findMetricOrCreate(name, Histogram.class.getTypeName(), createHistogram(name), new Tag[0]);
     }
 
     @Override
@@ -237,11 +255,32 @@ public class MetricRegistryImpl implements MetricRegistry {
 
     @Override
     public Histogram histogram(MetricID metricID) {
-        return findMetricOrCreate(metricID.getName(), Histogram.class.getTypeName(), new HistogramImpl(metricID.getName(), 
-                        percentilesConfigMap, histogramBucketsConfigMap), 
+        return findMetricOrCreate(metricID.getName(), Histogram.class.getTypeName(), createHistogram(metricID.getName()),
                 metricID.getTagsAsArray());
     }
 
+    private HistogramImpl createHistogram(String name) {
+        return new HistogramImpl(name, createReservoir(name), percentilesConfigMap, histogramBucketsConfigMap);
+    }
+
+    /**
+     * Creates the {@link Reservoir} for a histogram or timer as configured by {@link #METRIC_RESERVOIR_PROPERTY}.
+     *
+     * @param name name of the metric
+     * @return a new reservoir of the configured type, by default of the registry's default reservoir type
+     */
+    private Reservoir createReservoir(String name) {
+        Collection<MetricsCustomReservoir> computedReservoirs = reservoirConfigMap
+                .computeIfAbsent(name, MetricsConfigParserUtil::processReservoirMap);
+        MetricsCustomReservoir resultReservoir = null;
+        if (computedReservoirs != null && !computedReservoirs.isEmpty()) {
+            resultReservoir = MetricsCustomReservoir.matches(computedReservoirs, name);
+        }
+        return resultReservoir == null
+                ? defaultReservoir.createReservoir()
+                : resultReservoir.getType().createReservoir();
+    }
+
     @Override
     public Timer timer(String name, Tag... tags) {
         return findMetricOrCreate(name, Timer.class.getTypeName(),  null, tags);
@@ -592,11 +631,11 @@ public class MetricRegistryImpl implements MetricRegistry {
         }
 
         if(Histogram.class.getName().equals(metricType)) {
-            return new HistogramImpl();
+            return new HistogramImpl(createReservoir(name));
         }
 
         if(Timer.class.getName().equals(metricType)) {
-            return new TimerImpl(name, percentilesConfigMap, timerBucketsConfigMap, clock);
+            return new TimerImpl(name, createReservoir(name), percentilesConfigMap, timerBucketsConfigMap, clock);
         }
 
         throw new IllegalArgumentException("Invalid metric type : "+metricType);
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2023 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2023-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -132,6 +132,35 @@ public class MetricsConfigParserUtil {
         return metricTimerCollection;
     }
 
+    public static Collection<MetricsCustomReservoir> parseReservoirs(String reservoirProperty) {
+        ArrayDeque<MetricsCustomReservoir> metricReservoirCollection = new ArrayDeque<>();
+        if (reservoirProperty == null || reservoirProperty.length() == 0) {
+            return null;
+        }
+
+        String[] valuePairs = reservoirProperty.split(PROPERTY_NAME_SEPARATOR);
+        for (String nameValue : valuePairs) {
+            String[] resultKeyValueSplit = nameValue.split(PROPERTY_KEY_VALUE_SEPARATOR);
+            String metricName = resultKeyValueSplit[0];
+            if (resultKeyValueSplit.length != 1) {
+                MetricsCustomReservoir.ReservoirType type = evaluateReservoirValue(resultKeyValueSplit[1]);
+                if (type != null) {
+                    metricReservoirCollection.addFirst(new MetricsCustomReservoir(metricName, type));
+                }
+            }
+        }
+        return metricReservoirCollection;
+    }
+
+    public static Collection<MetricsCustomReservoir> processReservoirMap(String metricName) {
+        Config config = MetricUtils.getConfigProvider();
+        if (config != null) {
+            Optional<String> customReservoirs = config.getOptionalValue(METRIC_RESERVOIR_PROPERTY, String.class);
+            return (customReservoirs.isPresent()) ? MetricsConfigParserUtil.parseReservoirs(customReservoirs.get()) : null;
+        }
+        return null;
+    }
+
     public static Collection<MetricsCustomPercentiles> processPercentileMap(String appName) {
         Config config = MetricUtils.getConfigProvider();
         if (config != null) {
@@ -159,6 +188,14 @@ public class MetricsConfigParserUtil {
         }
     }
 
+    public static MetricsCustomReservoir.ReservoirType evaluateReservoirValue(String reservoir) {
+        MetricsCustomReservoir.ReservoirType type = MetricsCustomReservoir.ReservoirType.fromConfigValue(reservoir);
+        if (type == null) {
+            logger.info(String.format("Error when trying to read property %s with %s name", METRIC_RESERVOIR_PROPERTY, reservoir));
+        }
+        return type;
+    }
+
     public static Duration evaluateTimerBucketValue(String bucket) {
         bucket = bucket.trim();
         if (bucket.matches("[0-9]+ms")) { //case ms
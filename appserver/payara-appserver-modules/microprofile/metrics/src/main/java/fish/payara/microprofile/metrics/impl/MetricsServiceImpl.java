@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- *    Copyright (c) [2018-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -87,6 +87,7 @@ import fish.payara.microprofile.metrics.MetricUnitsUtils;
 import fish.payara.microprofile.metrics.MetricsService;
 import fish.payara.microprofile.metrics.admin.MetricsServiceConfiguration;
 import fish.payara.microprofile.metrics.exception.NoSuchRegistryException;
+import fish.payara.microprofile.metrics.impl.MetricsCustomReservoir.ReservoirType;
 import fish.payara.microprofile.metrics.jmx.MetricsMetadata;
 import fish.payara.microprofile.metrics.jmx.MetricsMetadataConfig;
 import fish.payara.microprofile.metrics.jmx.MetricsMetadataHelper;
@@ -146,6 +147,7 @@ public class MetricsServiceImpl implements MetricsService, ConfigListener, Monit
     private static final class MetricsContextImpl implements MetricsContext, MetricRegistrationListener {
 
         private final String name;
+        private final ReservoirType defaultReservoir;
         private final MetricRegistryImpl base;
         private final MetricRegistryImpl vendor;
         private final MetricRegistryImpl application;
@@ -153,8 +155,9 @@ public class MetricsServiceImpl implements MetricsService, ConfigListener, Monit
         private final ConcurrentMap<String, MetricRegistry> registries = new ConcurrentHashMap<>();
         private final Queue<RegisteredMetric> newlyRegistered = new ConcurrentLinkedQueue<>();
 
-        public MetricsContextImpl(String name) {
+        public MetricsContextImpl(String name, ReservoirType defaultReservoir) {
             this.name = name;
+            this.defaultReservoir = defaultReservoir;
             this.base = (MetricRegistryImpl) getOrCreateRegistry(MetricRegistry.BASE_SCOPE);
             this.vendor = (MetricRegistryImpl)getOrCreateRegistry(MetricRegistry.VENDOR_SCOPE);
             this.application = isServerContext() ? null : (MetricRegistryImpl)getOrCreateRegistry(MetricRegistry.APPLICATION_SCOPE);
@@ -177,7 +180,7 @@ public class MetricsServiceImpl implements MetricsService, ConfigListener, Monit
         public MetricRegistry getOrCreateRegistry(String registryName) throws NoSuchRegistryException {
             MetricRegistry registry = registries.get(registryName);
             if(registry == null) {
-                MetricRegistry created = new MetricRegistryImpl(registryName);
+                MetricRegistry created = new MetricRegistryImpl(registryName, Clock.defaultClock(), defaultReservoir);
                 MetricRegistry referenced = add(registryName, created);
                 if(referenced == null) {
                     return created;
@@ -241,7 +244,7 @@ public class MetricsServiceImpl implements MetricsService, ConfigListener, Monit
         if (!createIfNotExists) {
             return contextByName.get(name);
         }
-        return contextByName.computeIfAbsent(name, key -> new MetricsContextImpl(key));
+        return contextByName.computeIfAbsent(name, key -> new MetricsContextImpl(key, getDefaultReservoir()));
     }
 
     @Override
@@ -251,7 +254,7 @@ public class MetricsServiceImpl implements MetricsService, ConfigListener, Monit
         }
         name = appKeyOf(name);
         if (MetricsContext.SERVER_CONTEXT_NAME.equals(name)) {
-            return contextByName.computeIfAbsent(name, key -> new MetricsContextImpl(key));
+            return contextByName.computeIfAbsent(name, key -> new MetricsContextImpl(key, getDefaultReservoir()));
         }
         return contextByName.get(name);
     }
@@ -502,6 +505,20 @@ public class MetricsServiceImpl implements MetricsService, ConfigListener, Monit
         return Boolean.parseBoolean(metricsServiceConfiguration.getSecurityEnabled());
     }
 
+    @Override
+    public long getScrapeCacheDuration() {
+        try {
+            return Long.parseLong(metricsServiceConfiguration.getScrapeCacheDuration());
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+
+    private ReservoirType getDefaultReservoir() {
+        ReservoirType type = ReservoirType.fromConfigValue(metricsServiceConfiguration.getDefaultReservoir());
+        return type == null ? ReservoirType.EXPONENTIALLY_DECAYING : type;
+    }
+
     /**
      * Adds an application to the enabled map
      *
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  * 
- *    Copyright (c) [2018] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  * 
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -82,4 +82,12 @@ public interface Reservoir {
      * @return a snapshot of the reservoir's values
      */
     Snapshot getSnapshot();
+
+    /**
+     * Sets the percentiles and buckets configured for the metric using this
+     * reservoir which are used by the {@link Snapshot}s it creates.
+     *
+     * @param configurationProperties the percentile and bucket configuration
+     */
+    void setConfigAdapter(ConfigurationProperties configurationProperties);
 }
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- *    Copyright (c) [2018-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ *    Copyright (c) [2018-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  *     The contents of this file are subject to the terms of either the GNU
  *     General Public License Version 2 only ("GPL") or the Common Development
@@ -67,6 +67,9 @@ import static jakarta.servlet.http.HttpServletResponse.*;
 import static jakarta.ws.rs.HttpMethod.GET;
 import static jakarta.ws.rs.HttpMethod.OPTIONS;
 import static jakarta.ws.rs.core.HttpHeaders.ACCEPT;
+import static jakarta.ws.rs.core.HttpHeaders.ACCEPT_ENCODING;
+import static jakarta.ws.rs.core.HttpHeaders.CONTENT_ENCODING;
+import static jakarta.ws.rs.core.HttpHeaders.VARY;
 import static jakarta.ws.rs.core.MediaType.TEXT_PLAIN;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -81,6 +84,9 @@ public class MetricsResource extends HttpServlet {
     private static final Logger LOG = Logger.getLogger(MetricsResource.class.getName());
     private static final String APPLICATION_WILDCARD = "application/*";
     private static final Pattern PATTERN_Q_PART = Pattern.compile("\\s*q\\s*=\\s*(.+)");
+    private static final String GZIP = "gzip";
+
+    private final ScrapeCache scrapeCache = new ScrapeCache();
 
     /**
      * Processes requests for both HTTP <code>GET</code> and <code>OPTIONS</code>
@@ -117,10 +123,9 @@ public class MetricsResource extends HttpServlet {
             if (contentType != null) {
                 response.setContentType(contentType);
                 response.setCharacterEncoding(UTF_8.name());
-                MetricsWriter outputWriter = getOutputWriter(request, response, metricsService, contentType);
-                if (outputWriter != null) {
+                if (GET.equalsIgnoreCase(request.getMethod()) && TEXT_PLAIN.equals(contentType)) {
+                    String scope = null;
                     if (scopeParameter != null && !scopeParameter.isEmpty()) {
-                        String scope;
                         try {
                             if (scopeParameter.equals(MetricRegistry.BASE_SCOPE)) {
                                 scope = MetricRegistry.BASE_SCOPE;
@@ -136,8 +141,9 @@ public class MetricsResource extends HttpServlet {
                         }
 
                         for (String name : metricsService.getContextNames()) {
+                            String requestedScope = scope;
                             Optional<String> availableScopeOptional = metricsService.getContext(name)
-                                    .getRegistries().keySet().stream().filter(k -> k.equals(scope)).findAny();
+                                    .getRegistries().keySet().stream().filter(k -> k.equals(requestedScope)).findAny();
                             if (!availableScopeOptional.isPresent()) {
                                 availableScope = false;
                             } else {
@@ -147,16 +153,10 @@ public class MetricsResource extends HttpServlet {
 
                         if (!availableScope) {
                             response.sendError(SC_NOT_FOUND, "Not available scope to consume");
+                            return;
                         }
-
-                        if (availableScope && scope != null && metricName != null) {
-                            outputWriter.write(scope, metricName);
-                        } else if (availableScope) {
-                            outputWriter.write(scope);
-                        }
-                    } else {
-                        outputWriter.write();
                     }
+                    writeScrape(request, response, metricsService, scope, scope == null ? null : metricName);
                 }
             }
         } catch (NoSuchRegistryException ex) {
@@ -166,18 +166,73 @@ public class MetricsResource extends HttpServlet {
         }
     }
 
-    @SuppressWarnings("resource")
-    private static MetricsWriter getOutputWriter(HttpServletRequest request,
-            HttpServletResponse response, MetricsService service, String contentType) throws IOException {
-        Writer writer = response.getWriter();
-        String method = request.getMethod();
-        if (GET.equalsIgnoreCase(method)) {
-            if (TEXT_PLAIN.equals(contentType)) {
-                return new MetricsWriterImpl(new OpenMetricsExporter(writer),
-                    service.getContextNames(), service::getContext, MetricUtils.resolveGlobalTagsConfiguration());
+    /**
+     * Writes the scrape for the requested scope and metric. When a scrape cache duration is configured the rendered
+     * scrape is shared with other requests for the same scope and metric within that duration. When the client
+     * accepts gzip the scrape is rendered to memory first, compressed and written with its length.
+     */
+    private void writeScrape(HttpServletRequest request, HttpServletResponse response, MetricsService service,
+            String scope, String metricName) throws IOException, NoSuchMetricException {
+        response.addHeader(VARY, ACCEPT_ENCODING);
+        boolean gzip = acceptsGzip(request.getHeader(ACCEPT_ENCODING));
+        long cacheDuration = service.getScrapeCacheDuration();
+        if (cacheDuration <= 0 && !gzip) {
+            write(getOutputWriter(response.getWriter(), service), scope, metricName);
+            return;
+        }
+        ScrapeCache.Renderer renderer = out -> write(getOutputWriter(out, service), scope, metricName);
+        String key = cacheKey(scope, metricName);
+        ScrapeCache.Scrape scrape = cacheDuration > 0
+                ? scrapeCache.get(key, cacheDuration, renderer)
+                : ScrapeCache.uncached(renderer);
+        byte[] body;
+        try {
+            body = gzip ? scrape.getGzipBody() : scrape.getBody();
+        } catch (IOException | NoSuchMetricException | RuntimeException ex) {
+            scrapeCache.evict(key, scrape);
+            throw ex;
+        }
+        if (gzip) {
+            response.setHeader(CONTENT_ENCODING, GZIP);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static void write(MetricsWriter outputWriter, String scope, String metricName)
+            throws IOException, NoSuchMetricException {
+        if (scope != null && metricName != null) {
+            outputWriter.write(scope, metricName);
+        } else if (scope != null) {
+            outputWriter.write(scope);
+        } else {
+            outputWriter.write();
+        }
+    }
+
+    private static String cacheKey(String scope, String metricName) {
+        if (scope == null) {
+            return EMPTY_STRING;
+        }
+        return metricName == null ? scope : scope + '/' + metricName;
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].trim()) && (parts.length == 1 || parseQValue(encoding) > 0)) {
+                return true;
             }
         }
-        return null;
+        return false;
+    }
+
+    private static MetricsWriter getOutputWriter(Writer writer, MetricsService service) {
+        return new MetricsWriterImpl(new OpenMetricsExporter(writer),
+                service.getContextNames(), service::getContext, MetricUtils.resolveGlobalTagsConfiguration());
     }
     
     private static String getContentType(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.microprofile.metrics.rest;
+
+import fish.payara.microprofile.metrics.exception.NoSuchMetricException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A short lived cache of rendered scrapes so that scrapers hitting the {@link MetricsResource} at the same time share
+ * a single rendering. The first request for a key renders the scrape, concurrent requests for the same key wait for
+ * that rendering to complete instead of rendering on their own.
+ *
+ * The gzip variant of a scrape is created lazily the first time it is requested.
+ */
+final class ScrapeCache {
+
+    /**
+     * Upper bound for the number of cached scrapes as keys are derived from request parameters.
+     */
+    private static final int MAX_ENTRIES = 64;
+
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+
+    @FunctionalInterface
+    interface Renderer {
+
+        void render(Writer out) throws IOException, NoSuchMetricException;
+    }
+
+    static final class Scrape {
+
+        final long created;
+        private final FutureTask<byte[]> body;
+        private volatile byte[] gzipBody;
+
+        Scrape(long created, int sizeHint, Renderer renderer) {
+            this.created = created;
+            this.body = new FutureTask<>(() -> render(sizeHint, renderer));
+        }
+
+        boolean isExpired(long now, long maxAgeMillis) {
+            return now - created >= maxAgeMillis;
+        }
+
+        byte[] getBody() throws IOException, NoSuchMetricException {
+            body.run(); // only the first caller actually renders, others return immediately
+            try {
+                return body.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof NoSuchMetricException) {
+                    throw (NoSuchMetricException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        byte[] getGzipBody() throws IOException, NoSuchMetricException {
+            byte[] gzip = gzipBody;
+            if (gzip == null) {
+                gzip = gzip(getBody());
+                gzipBody = gzip;
+            }
+            return gzip;
+        }
+
+        int getSize() {
+            try {
+                return body.isDone() ? body.get().length : 0;
+            } catch (InterruptedException | ExecutionException ex) {
+                return 0;
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, Scrape> scrapesByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the {@link Scrape} for the given key that is not older than the given maximum age. If no such scrape
+     * exists a new one is created that renders using the given {@link Renderer} once its body is requested.
+     *
+     * @param key the key identifying the scrape content, derived from the request
+     * @param maxAgeMillis the maximum age of a scrape in milliseconds
+     * @param renderer used to render a new scrape
+     * @return the shared scrape for the key
+     */
+    Scrape get(String key, long maxAgeMillis, Renderer renderer) {
+        long now = System.currentTimeMillis();
+        Scrape scrape = scrapesByKey.get(key);
+        if (scrape != null && !scrape.isExpired(now, maxAgeMillis)) {
+            return scrape;
+        }
+        if (scrape == null && scrapesByKey.size() >= MAX_ENTRIES) {
+            scrapesByKey.values().removeIf(existing -> existing.isExpired(now, maxAgeMillis));
+            if (scrapesByKey.size() >= MAX_ENTRIES) {
+                return uncached(renderer);
+            }
+        }
+        return scrapesByKey.compute(key, (k, existing) -> existing != null && !existing.isExpired(now, maxAgeMillis)
+                ? existing
+                : new Scrape(now, existing == null ? 0 : existing.getSize(), renderer));
+    }
+
+    /**
+     * Removes a scrape that failed to render so that the next request renders again.
+     */
+    void evict(String key, Scrape scrape) {
+        scrapesByKey.remove(key, scrape);
+    }
+
+    /**
+     * @return a {@link Scrape} that is not shared with other requests
+     */
+    static Scrape uncached(Renderer renderer) {
+        return new Scrape(System.currentTimeMillis(), 0, renderer);
+    }
+
+    private static byte[] render(int sizeHint, Renderer renderer) throws IOException, NoSuchMetricException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(MIN_BUFFER_SIZE, sizeHint));
+        try (Writer out = new OutputStreamWriter(buffer, UTF_8)) {
+            renderer.render(out);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(512, body.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer, MIN_BUFFER_SIZE)) {
+            out.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // writing to memory does not fail
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2020-2023 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2020-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -41,7 +41,9 @@ package fish.payara.microprofile.metrics.writer;
 
 import static fish.payara.microprofile.metrics.MetricUnitsUtils.scaleToBaseUnit;
 
+import fish.payara.microprofile.metrics.impl.ConfigurationProperties;
 import fish.payara.microprofile.metrics.impl.HistogramImpl;
+import fish.payara.microprofile.metrics.impl.LogBucketSnapshot;
 import fish.payara.microprofile.metrics.impl.TimerImpl;
 import fish.payara.microprofile.metrics.impl.WeightedSnapshot;
 import java.io.PrintWriter;
@@ -168,10 +170,9 @@ public class OpenMetricsExporter implements MetricExporter {
         String summary = globalName(metricID, metadata);
         appendHELP(summary, metadata);
         Snapshot.PercentileValue[] percentileValues = snapshot.percentileValues();
-        if (snapshot instanceof WeightedSnapshot) {
-            WeightedSnapshot w = (WeightedSnapshot) snapshot;
-            if (w.getConfigAdapter() != null) {
-                if (w.bucketValues() != null && w.bucketValues().length > 0) {
+        if (snapshot instanceof WeightedSnapshot || snapshot instanceof LogBucketSnapshot) {
+            if (getConfigAdapter(snapshot) != null) {
+                if (snapshot.bucketValues() != null && snapshot.bucketValues().length > 0) {
                     appendTYPE(summary, OpenMetricsType.histogram);
                     printCustomPercentile(percentileValues, summary, tags, metadata);
                     printBuckets(snapshot.bucketValues(), globalName(metricID, metadata, "_bucket"),
@@ -231,8 +232,21 @@ public class OpenMetricsExporter implements MetricExporter {
             }
             return Arrays.stream(conversionArray).filter(s -> s <= bucket).count();
         }
+        if (snapshot instanceof LogBucketSnapshot) {
+            return ((LogBucketSnapshot) snapshot).countAtOrBelow(sampling instanceof TimerImpl ? bucket * 1000000000D : bucket);
+        }
         return 0L;
     }
+
+    private static ConfigurationProperties getConfigAdapter(Snapshot snapshot) {
+        if (snapshot instanceof WeightedSnapshot) {
+            return ((WeightedSnapshot) snapshot).getConfigAdapter();
+        }
+        if (snapshot instanceof LogBucketSnapshot) {
+            return ((LogBucketSnapshot) snapshot).getConfigAdapter();
+        }
+        return null;
+    }
     
     public void printMedian(Snapshot.PercentileValue[] pencentileValues, String summary, Tag[] tags, Metadata metadata) {
         Optional<Snapshot.PercentileValue> median = Arrays.stream(pencentileValues)
@@ -302,7 +316,7 @@ public class OpenMetricsExporter implements MetricExporter {
 
     protected void appendValue(String globalName, Tag[] tags, Number value) {
         out.append(globalName);
-        out.append(tagsToString(tags));
+        appendTags(tags);
         if(globalName.equals(GC_TOTAL_ID) || globalName.equals(GC_TIME_SECONDS_TOTAL_ID)) {
             out.append(' ').append(value.toString()).append('\n');
         } else {
@@ -329,6 +343,37 @@ public class OpenMetricsExporter implements MetricExporter {
         return valString;
     }
 
+    /**
+     * Writes the tags directly to the output, equivalent to appending {@link #tagsToString(Tag[])} but without
+     * creating intermediate {@link String}s.
+     */
+    protected void appendTags(Tag[] tags) {
+        if (tags.length == 0) {
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i < tags.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(sanitizeMetricName(tags[i].getTagName())).append("=\"");
+            String value = tags[i].getTagValue();
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\n') {
+                    out.append("\\n");
+                } else {
+                    if (c == '\\' || c == '"') {
+                        out.append('\\');
+                    }
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+        out.append('}');
+    }
+
     protected static String tagsToString(Tag[] tags) {
         if (tags.length == 0) {
             return "";
@@ -421,6 +466,9 @@ public class OpenMetricsExporter implements MetricExporter {
     }
 
     public static String sanitizeMetricName(String name) {
+        if (isSanitized(name)) {
+            return name; // most names need no translation, avoid the regular expressions
+        }
         //Translation rules :
         //All characters not in the range a-z A-Z or 0-9 are translated to underscore (_)
         //Double underscore is translated to single underscore
@@ -429,6 +477,16 @@ public class OpenMetricsExporter implements MetricExporter {
         return out.replaceAll(":_", ":");
     }
 
+    private static boolean isSanitized(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static Tag[] tags(String name, String value, Tag[] rest) {
         Tag tag = new Tag(name, value);
         if (rest.length == 0) {
@@ -0,0 +1,180 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.microprofile.metrics.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.eclipse.microprofile.metrics.Snapshot.PercentileValue;
+import org.junit.Test;
+
+/**
+ * Tests the correctness of the {@link LogBucketReservoir} and its {@link LogBucketSnapshot}.
+ */
+public class LogBucketReservoirTest {
+
+    private final AtomicLong tick = new AtomicLong();
+    private final LogBucketReservoir reservoir = new LogBucketReservoir(1, TimeUnit.MINUTES, tick::get);
+
+    @Test
+    public void bucketIndexIsContinuous() {
+        int lastIndex = 0;
+        for (long value = 0; value < 100_000; value++) {
+            int index = LogBucketReservoir.bucketIndex(value);
+            assertTrue(index == lastIndex || index == lastIndex + 1);
+            assertTrue(LogBucketReservoir.lowestValue(index) <= value);
+            assertTrue(LogBucketReservoir.highestValue(index) >= value);
+            lastIndex = index;
+        }
+        assertEquals(LogBucketReservoir.BUCKET_COUNT - 1, LogBucketReservoir.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < LogBucketReservoir.SUB_BUCKET_COUNT; value++) {
+            assertEquals(value, LogBucketReservoir.lowestValue(LogBucketReservoir.bucketIndex(value)));
+            assertEquals(value, LogBucketReservoir.highestValue(LogBucketReservoir.bucketIndex(value)));
+        }
+    }
+
+    @Test
+    public void relativeErrorIsBounded() {
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 7) {
+            int index = LogBucketReservoir.bucketIndex(value);
+            long width = LogBucketReservoir.highestValue(index) - LogBucketReservoir.lowestValue(index);
+            assertTrue(width <= value / LogBucketReservoir.SUB_BUCKET_HALF);
+        }
+    }
+
+    @Test
+    public void emptySnapshot() {
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(0, snapshot.size());
+        assertEquals(0d, snapshot.getMax(), 0d);
+        assertEquals(0d, snapshot.getMean(), 0d);
+        for (PercentileValue value : snapshot.percentileValues()) {
+            assertEquals(0d, value.getValue(), 0d);
+        }
+    }
+
+    @Test
+    public void snapshotStatistics() {
+        for (long value = 1; value <= 1000; value++) {
+            reservoir.update(value);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1000, snapshot.size());
+        assertEquals(1000d, snapshot.getMax(), 0d);
+        assertEquals(500.5d, snapshot.getMean(), 0d);
+        PercentileValue[] percentiles = snapshot.percentileValues();
+        assertEquals(6, percentiles.length);
+        assertEquals(0.5, percentiles[0].getPercentile(), 0d);
+        assertEquals(500d, percentiles[0].getValue(), 500d / LogBucketReservoir.SUB_BUCKET_HALF);
+        assertEquals(0.999, percentiles[5].getPercentile(), 0d);
+        assertEquals(999d, percentiles[5].getValue(), 999d / LogBucketReservoir.SUB_BUCKET_HALF);
+    }
+
+    @Test
+    public void configuredPercentilesAndBuckets() {
+        ConfigurationProperties config = new ConfigurationProperties();
+        config.setPercentilesFromConfig(new Double[] { 0.1, 0.9 });
+        config.setBucketValuesFromConfig(new Double[] { 10d, 50d });
+        reservoir.setConfigAdapter(config);
+        for (long value = 1; value <= 100; value++) {
+            reservoir.update(value);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        PercentileValue[] percentiles = snapshot.percentileValues();
+        assertEquals(2, percentiles.length);
+        assertEquals(10d, percentiles[0].getValue(), 0d);
+        assertEquals(90d, percentiles[1].getValue(), 90d / LogBucketReservoir.SUB_BUCKET_HALF);
+        Snapshot.HistogramBucket[] buckets = snapshot.bucketValues();
+        assertEquals(2, buckets.length);
+        assertEquals(10, buckets[0].getCount());
+        assertEquals(50, buckets[1].getCount());
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero() {
+        reservoir.update(-5);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(0d, snapshot.getMax(), 0d);
+    }
+
+    @Test
+    public void snapshotCoversCurrentAndPreviousWindow() {
+        reservoir.update(100);
+        tick.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        reservoir.update(200);
+        assertEquals(2, reservoir.getSnapshot().size());
+        tick.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(200d, snapshot.getMax(), 0d);
+        tick.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        assertEquals(0, reservoir.getSnapshot().size());
+    }
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws InterruptedException {
+        int threads = 8;
+        int updates = 10_000;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < updates; j++) {
+                    reservoir.update(j);
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(threads * updates, snapshot.size());
+        assertEquals(updates - 1, snapshot.getMax(), 0d);
+    }
+}
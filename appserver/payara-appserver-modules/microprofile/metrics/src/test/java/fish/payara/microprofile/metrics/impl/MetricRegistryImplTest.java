@@ -1,7 +1,7 @@
 /*
  *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- *  Copyright (c) [2020-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ *  Copyright (c) [2020-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  *  The contents of this file are subject to the terms of either the GNU
  *  General Public License Version 2 only ("GPL") or the Common Development
@@ -52,6 +52,7 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -66,10 +67,12 @@ import org.eclipse.microprofile.metrics.MetricFilter;
 import org.eclipse.microprofile.metrics.MetricID;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
 import org.junit.Before;
 import org.junit.Test;
 
 import fish.payara.microprofile.metrics.TestConfig;
+import fish.payara.microprofile.metrics.impl.MetricsCustomReservoir.ReservoirType;
 
 /**
  * Tests the basic correctness of the {@link MetricRegistryImpl}.
@@ -234,6 +237,38 @@ public class MetricRegistryImplTest {
                 () -> registry.getMetric(new MetricID(name), Histogram.class));
     }
 
+    @Test
+    public void defaultReservoirIsUsedForHistogramsAndTimers() {
+        MetricRegistry logBucketRegistry = new MetricRegistryImpl(MetricRegistry.APPLICATION_SCOPE,
+                Clock.defaultClock(), ReservoirType.LOG_BUCKET);
+        Histogram histogram = logBucketRegistry.histogram(nextName());
+        histogram.update(42);
+        assertTrue(histogram.getSnapshot() instanceof LogBucketSnapshot);
+        Timer timer = logBucketRegistry.timer(nextName());
+        timer.update(Duration.ofMillis(5));
+        assertTrue(timer.getSnapshot() instanceof LogBucketSnapshot);
+        assertTrue(registry.histogram(nextName()).getSnapshot() instanceof WeightedSnapshot);
+    }
+
+    @Test
+    public void histogramSumIsExactUnderConcurrentUpdates() throws InterruptedException {
+        Histogram histogram = registry.histogram(nextName());
+        Thread[] updaters = new Thread[4];
+        for (int i = 0; i < updaters.length; i++) {
+            updaters[i] = new Thread(() -> {
+                for (int j = 1; j <= 10_000; j++) {
+                    histogram.update(j);
+                }
+            });
+            updaters[i].start();
+        }
+        for (Thread updater : updaters) {
+            updater.join();
+        }
+        assertEquals(40_000L, histogram.getCount());
+        assertEquals(4 * 50_005_000L, histogram.getSum());
+    }
+
     private static void assertException(String expectedMsg, Runnable test) {
         try {
             test.run();
@@ -0,0 +1,153 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.microprofile.metrics.rest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import fish.payara.microprofile.metrics.exception.NoSuchMetricException;
+
+/**
+ * Tests sharing and expiry of rendered scrapes in the {@link ScrapeCache}.
+ */
+public class ScrapeCacheTest {
+
+    private final ScrapeCache cache = new ScrapeCache();
+    private final AtomicInteger renderings = new AtomicInteger();
+
+    private final ScrapeCache.Renderer renderer = out -> {
+        renderings.incrementAndGet();
+        out.write("# TYPE counter_total counter\ncounter_total 1\n");
+    };
+
+    @Test
+    public void scrapeIsSharedWithinDuration() throws Exception {
+        ScrapeCache.Scrape first = cache.get("vendor", 60_000, renderer);
+        ScrapeCache.Scrape second = cache.get("vendor", 60_000, renderer);
+        assertSame(first, second);
+        assertArrayEquals(first.getBody(), second.getBody());
+        assertEquals(1, renderings.get());
+    }
+
+    @Test
+    public void scrapeIsNotSharedBetweenKeys() throws Exception {
+        cache.get("vendor", 60_000, renderer).getBody();
+        cache.get("base", 60_000, renderer).getBody();
+        assertEquals(2, renderings.get());
+    }
+
+    @Test
+    public void expiredScrapeIsRenderedAgain() throws Exception {
+        ScrapeCache.Scrape first = cache.get("vendor", 1, renderer);
+        first.getBody();
+        Thread.sleep(5);
+        ScrapeCache.Scrape second = cache.get("vendor", 1, renderer);
+        assertNotSame(first, second);
+        second.getBody();
+        assertEquals(2, renderings.get());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneRendering() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] scrapers = new Thread[8];
+        for (int i = 0; i < scrapers.length; i++) {
+            scrapers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    cache.get("", 60_000, renderer).getBody();
+                } catch (Exception ex) {
+                    throw new AssertionError(ex);
+                }
+            });
+            scrapers[i].start();
+        }
+        start.countDown();
+        for (Thread scraper : scrapers) {
+            scraper.join();
+        }
+        assertEquals(1, renderings.get());
+    }
+
+    @Test
+    public void gzipBodyDecompressesToBody() throws Exception {
+        ScrapeCache.Scrape scrape = cache.get("vendor", 60_000, renderer);
+        byte[] gzip = scrape.getGzipBody();
+        assertSame(gzip, scrape.getGzipBody());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertEquals("# TYPE counter_total counter\ncounter_total 1\n", new String(in.readAllBytes(), UTF_8));
+        }
+    }
+
+    @Test
+    public void failedScrapeIsNotShared() throws Exception {
+        ScrapeCache.Renderer failing = out -> {
+            renderings.incrementAndGet();
+            throw new NoSuchMetricException("missing");
+        };
+        ScrapeCache.Scrape failed = cache.get("vendor/missing", 60_000, failing);
+        try {
+            failed.getBody();
+            fail("Expected NoSuchMetricException");
+        } catch (NoSuchMetricException ex) {
+            cache.evict("vendor/missing", failed);
+        }
+        assertNotSame(failed, cache.get("vendor/missing", 60_000, renderer));
+    }
+
+    @Test(expected = IOException.class)
+    public void ioExceptionIsRethrown() throws Exception {
+        ScrapeCache.uncached(out -> {
+            throw new IOException("broken");
+        }).getBody();
+    }
+}
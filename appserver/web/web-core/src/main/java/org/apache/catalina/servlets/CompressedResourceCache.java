@@ -0,0 +1,176 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.naming.resources.CacheEntry;
+import org.apache.naming.resources.Resource;
+import org.apache.naming.resources.ResourceAttributes;
+
+/**
+ * Bounded cache of gzip compressed copies of static resources, used by the
+ * {@link DefaultServlet} when no precompressed sibling file is available.
+ * <p>
+ * Entries are keyed by the resource name and its ETag, so a modified
+ * resource is compressed again rather than served stale, and are evicted
+ * in least recently used order once the total size of the compressed
+ * content exceeds the configured maximum.
+ */
+class CompressedResourceCache {
+
+    static final String GZIP = "gzip";
+
+    private final long maxSize;
+    private final long maxObjectSize;
+
+    // guarded by this
+    private final LinkedHashMap<String, CacheEntry> entries =
+        new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * @param maxSize maximum total size of the cached content, in bytes
+     */
+    CompressedResourceCache(long maxSize) {
+        this.maxSize = maxSize;
+        this.maxObjectSize = maxSize / 20;
+    }
+
+    /**
+     * Returns the maximum size of a resource which will be compressed and
+     * cached, in bytes.
+     */
+    long getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    /**
+     * Returns a cache entry holding the gzip compressed content of the given
+     * entry, compressing it if it is not cached yet.
+     *
+     * @return the compressed entry, or <code>null</code> if the resource
+     * cannot be read or is too large to be cached
+     */
+    CacheEntry lookup(CacheEntry cacheEntry) throws IOException {
+        ResourceAttributes attributes = cacheEntry.attributes;
+        long contentLength = attributes.getContentLength();
+        if (cacheEntry.resource == null
+                || contentLength < 0 || contentLength > maxObjectSize) {
+            return null;
+        }
+
+        String eTag = attributes.getETag();
+        String key = cacheEntry.name + '\u0000' + eTag;
+        synchronized (this) {
+            CacheEntry compressed = entries.get(key);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+
+        // Compress outside of the lock; concurrent requests for the same
+        // resource may compress it more than once, but only one copy is kept
+        byte[] content = compress(cacheEntry.resource, contentLength);
+        CacheEntry compressed = new CacheEntry();
+        compressed.name = cacheEntry.name;
+        compressed.resource = new Resource(content);
+        compressed.attributes = new ResourceAttributes();
+        compressed.attributes.setContentLength(content.length);
+        compressed.attributes.setLastModified(attributes.getLastModified());
+        compressed.attributes.setETag(variantETag(eTag, GZIP));
+        compressed.attributes.getLastModifiedHttp();
+
+        synchronized (this) {
+            CacheEntry existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            entries.put(key, compressed);
+            size += content.length;
+            Iterator<Map.Entry<String, CacheEntry>> eldest =
+                entries.entrySet().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                CacheEntry evicted = eldest.next().getValue();
+                if (evicted != compressed) {
+                    eldest.remove();
+                    size -= evicted.resource.getContent().length;
+                }
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * Derives the ETag of an encoded variant from the ETag of the resource,
+     * so that caches never mistake one representation for the other.
+     */
+    static String variantETag(String eTag, String encoding) {
+        if (eTag == null) {
+            return null;
+        }
+        if (eTag.endsWith("\"")) {
+            return eTag.substring(0, eTag.length() - 1) + '-' + encoding + '"';
+        }
+        return eTag + '-' + encoding;
+    }
+
+    private static byte[] compress(Resource resource, long contentLength)
+        throws IOException {
+        ByteArrayOutputStream bytes =
+            new ByteArrayOutputStream((int) Math.max(64, contentLength / 4));
+        try (InputStream is = resource.streamContent();
+             GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                gzip.write(buffer, 0, len);
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
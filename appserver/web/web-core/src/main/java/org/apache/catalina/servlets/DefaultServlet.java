@@ -56,7 +56,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// Portions Copyright [2019-2023] Payara Foundation and/or affiliates
+// Portions Copyright [2019-2024] Payara Foundation and/or affiliates
 
 package org.apache.catalina.servlets;
 
@@ -75,6 +75,7 @@ import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.text.MessageFormat;
 import java.util.*;
@@ -104,6 +105,7 @@ import javax.xml.transform.stream.StreamSource;
 import com.sun.enterprise.util.io.FileUtils;
 import org.apache.catalina.Globals;
 import org.apache.catalina.LogFacade;
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.apache.catalina.core.ContextsAdapterUtility;
 import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
@@ -283,6 +285,36 @@ public class DefaultServlet extends HttpServlet {
     protected int maxHeaderRangeItems = 10;
 
 
+    /**
+     * Content encodings, and the file extensions of the precompressed
+     * siblings which hold them, in order of preference. <code>null</code> if
+     * precompressed siblings should not be served.
+     */
+    protected String[][] precompressed = null;
+
+
+    /**
+     * Mime types of resources which may be compressed on the fly.
+     */
+    protected String[] compressableMimeTypes = {
+        "text/", "application/javascript", "application/json",
+        "application/xml", "image/svg+xml" };
+
+
+    /**
+     * Minimum size, in bytes, of resources which will be compressed on
+     * the fly.
+     */
+    protected int compressionMinSize = 1024;
+
+
+    /**
+     * Cache of resources compressed on the fly, <code>null</code> if on the
+     * fly compression is disabled.
+     */
+    private transient CompressedResourceCache compressedCache = null;
+
+
     // ----------------------------------------------------- Static Initializer
 
 
@@ -383,6 +415,23 @@ public class DefaultServlet extends HttpServlet {
         if (sc.getInitParameter("useAcceptRanges") != null)
             useAcceptRanges = Boolean.parseBoolean(sc.getInitParameter("useAcceptRanges"));
 
+        precompressed = parsePrecompressed(sc.getInitParameter("precompressed"));
+
+        if (sc.getInitParameter("compressableMimeTypes") != null)
+            compressableMimeTypes =
+                sc.getInitParameter("compressableMimeTypes").trim().split("\\s*,\\s*");
+
+        if (sc.getInitParameter("compressionMinSize") != null)
+            compressionMinSize =
+                Integer.parseInt(sc.getInitParameter("compressionMinSize"));
+
+        if (sc.getInitParameter("compressedCacheSize") != null) {
+            long compressedCacheSize =
+                Long.parseLong(sc.getInitParameter("compressedCacheSize")) * 1024;
+            if (compressedCacheSize > 0)
+                compressedCache = new CompressedResourceCache(compressedCacheSize);
+        }
+
         // Sanity check on the specified buffer sizes
         if (input < 256)
             input = 256;
@@ -808,13 +857,15 @@ public class DefaultServlet extends HttpServlet {
 
         CacheEntry cacheEntry = null;
         ProxyDirContext proxyDirContext = resources;
+        ProxyDirContext entryDirContext = proxyDirContext;
         if (alternateDocBases == null || alternateDocBases.isEmpty()) {
             cacheEntry = proxyDirContext.lookupCache(path);
         } else {
             AlternateDocBase match = AlternateDocBase.findMatch(
                                             path, alternateDocBases);
             if (match != null) {
-                cacheEntry = ((ProxyDirContext) ContextsAdapterUtility.unwrap(match.getResources())).lookupCache(path);
+                entryDirContext = (ProxyDirContext) ContextsAdapterUtility.unwrap(match.getResources());
+                cacheEntry = entryDirContext.lookupCache(path);
             } else {
                 // None of the url patterns for alternate docbases matched
                 cacheEntry = proxyDirContext.lookupCache(path);
@@ -853,13 +904,29 @@ public class DefaultServlet extends HttpServlet {
             return;
         }
 
+        // Find content type.
+        String contentType = cacheEntry.attributes.getMimeType();
+        if (contentType == null && !cacheEntry.attributes.isMimeTypeInitialized()) {
+            contentType = getServletContext().getMimeType(cacheEntry.name);
+            cacheEntry.attributes.setMimeType(contentType);
+        }
+
+        boolean included =
+            (request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) != null);
+
+        // Switch to a compressed variant of the resource, if the client
+        // accepts one. The conditional headers and ranges of the request
+        // then apply to the variant.
+        if ((cacheEntry.context == null) && !included) {
+            cacheEntry = selectCompressedVariant(request, response,
+                    entryDirContext, cacheEntry, contentType);
+        }
+
         // Check if the conditions specified in the optional If headers are
         // satisfied.
         if (cacheEntry.context == null) {
 
             // Checking If headers
-            boolean included =
-                (request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) != null);
             if (!included
                 && !checkIfHeaders(request, response, cacheEntry.attributes)) {
                 return;
@@ -867,13 +934,6 @@ public class DefaultServlet extends HttpServlet {
 
         }
 
-        // Find content type.
-        String contentType = cacheEntry.attributes.getMimeType();
-        if (contentType == null && !cacheEntry.attributes.isMimeTypeInitialized()) {
-            contentType = getServletContext().getMimeType(cacheEntry.name);
-            cacheEntry.attributes.setMimeType(contentType);
-        }
-
         ArrayList<Range> ranges = null;
         long contentLength = -1L;
 
@@ -1872,6 +1932,170 @@ public class DefaultServlet extends HttpServlet {
     // -------------------------------------------------------- protected Methods
 
 
+    /**
+     * Parse the value of the <code>precompressed</code> init parameter.
+     * <code>true</code> enables the <code>br</code> and <code>gzip</code>
+     * encodings, with the <code>.br</code> and <code>.gz</code> extensions.
+     * Otherwise the value is a comma separated list of
+     * <code>encoding=extension</code> pairs, in order of preference.
+     *
+     * @param value The init parameter value
+     * @return the encodings and extensions, or <code>null</code> if
+     * precompressed siblings are not to be served
+     */
+    protected static String[][] parsePrecompressed(String value) {
+        if (value == null || value.trim().isEmpty()
+                || "false".equalsIgnoreCase(value.trim())) {
+            return null;
+        }
+        if ("true".equalsIgnoreCase(value.trim())) {
+            return new String[][] { { "br", ".br" }, { "gzip", ".gz" } };
+        }
+        List<String[]> encodings = new ArrayList<String[]>();
+        for (String pair : value.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0 || eq == pair.length() - 1) {
+                throw new IllegalArgumentException(
+                    "Invalid precompressed encoding: " + pair);
+            }
+            encodings.add(new String[] {
+                pair.substring(0, eq).trim(), pair.substring(eq + 1).trim() });
+        }
+        return encodings.toArray(new String[encodings.size()][]);
+    }
+
+
+    /**
+     * Select the representation of a static resource to send, based on the
+     * content encodings the client accepts. A precompressed sibling file is
+     * preferred, falling back to a gzip copy compressed on the fly when that
+     * is enabled and the resource is compressable. The
+     * <code>Content-Encoding</code> and <code>Vary</code> headers are set
+     * accordingly.
+     *
+     * @param request The servlet request we are processing
+     * @param response The servlet response we are creating
+     * @param dirContext The resources holding the resource
+     * @param cacheEntry The requested resource
+     * @param contentType Content type of the resource
+     * @return the cache entry to serve, which is the given one if the
+     * resource is to be sent unencoded
+     * @exception IOException if an input/output error occurs
+     */
+    protected CacheEntry selectCompressedVariant(HttpServletRequest request,
+                                                 HttpServletResponse response,
+                                                 ProxyDirContext dirContext,
+                                                 CacheEntry cacheEntry,
+                                                 String contentType)
+        throws IOException {
+
+        boolean varies = false;
+
+        if (precompressed != null) {
+            for (String[] encoding : precompressed) {
+                CacheEntry variant =
+                    dirContext.lookupCache(cacheEntry.name + encoding[1]);
+                if (!variant.exists || variant.context != null) {
+                    continue;
+                }
+                varies = true;
+                if (isEncodingAccepted(request, encoding[0])) {
+                    response.addHeader("Vary", "Accept-Encoding");
+                    response.setHeader("Content-Encoding", encoding[0]);
+                    return variant;
+                }
+            }
+        }
+
+        if (compressedCache != null && isCompressable(contentType)
+                && cacheEntry.resource != null
+                && cacheEntry.attributes.getContentLength() >= compressionMinSize
+                && cacheEntry.attributes.getContentLength()
+                    <= compressedCache.getMaxObjectSize()) {
+            varies = true;
+            if (isEncodingAccepted(request, CompressedResourceCache.GZIP)) {
+                CacheEntry variant = compressedCache.lookup(cacheEntry);
+                if (variant != null) {
+                    response.addHeader("Vary", "Accept-Encoding");
+                    response.setHeader("Content-Encoding",
+                                       CompressedResourceCache.GZIP);
+                    return variant;
+                }
+            }
+        }
+
+        if (varies) {
+            response.addHeader("Vary", "Accept-Encoding");
+        }
+        return cacheEntry;
+
+    }
+
+
+    /**
+     * Check whether resources of the given content type may be compressed
+     * on the fly.
+     */
+    protected boolean isCompressable(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (String compressable : compressableMimeTypes) {
+            if (contentType.startsWith(compressable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Check whether the <code>Accept-Encoding</code> headers of the request
+     * allow the given content encoding, either by name or through a
+     * wildcard, with a non-zero quality value.
+     */
+    protected static boolean isEncodingAccepted(HttpServletRequest request,
+                                                String encoding) {
+        boolean wildcard = false;
+        Enumeration<String> headers = request.getHeaders("Accept-Encoding");
+        while (headers.hasMoreElements()) {
+            for (String element : headers.nextElement().split(",")) {
+                String coding = element;
+                double quality = 1;
+                int semicolon = element.indexOf(';');
+                if (semicolon >= 0) {
+                    coding = element.substring(0, semicolon);
+                    quality = parseQuality(element.substring(semicolon + 1));
+                }
+                coding = coding.trim();
+                if (coding.equalsIgnoreCase(encoding)) {
+                    // An explicit entry overrides any wildcard
+                    return quality > 0;
+                }
+                if (coding.equals("*")) {
+                    wildcard = quality > 0;
+                }
+            }
+        }
+        return wildcard;
+    }
+
+
+    private static double parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+
     /**
      * Check if sendfile can be used.
      */
@@ -2103,6 +2327,11 @@ public class DefaultServlet extends HttpServlet {
                 ostream.write(buffer, 0, buffer.length);
                 return;
             }
+            ByteBuffer bufferedContent = cacheEntry.resource.getBufferedContent();
+            if (bufferedContent != null) {
+                write(bufferedContent, ostream);
+                return;
+            }
             resourceInputStream = cacheEntry.resource.streamContent();
         } else {
             resourceInputStream = is;
@@ -2187,6 +2416,14 @@ public class DefaultServlet extends HttpServlet {
 
         IOException exception = null;
 
+        ByteBuffer bufferedContent = cacheEntry.resource.getBufferedContent();
+        if ((bufferedContent != null) && (range.end < bufferedContent.limit())) {
+            bufferedContent.limit((int) range.end + 1);
+            bufferedContent.position((int) range.start);
+            write(bufferedContent, ostream);
+            return;
+        }
+
         InputStream resourceInputStream = cacheEntry.resource.streamContent();
         InputStream istream =
             new BufferedInputStream(resourceInputStream, input);
@@ -2204,6 +2441,33 @@ public class DefaultServlet extends HttpServlet {
     }
 
 
+    /**
+     * Write the remaining bytes of the given buffer to the specified output
+     * stream. The container's own output stream passes the buffer on to the
+     * network layer as it is, any other stream gets it copied in chunks.
+     *
+     * @param content The bytes to write
+     * @param ostream The output stream to write to
+     * @exception IOException if an input/output error occurs
+     */
+    protected void write(ByteBuffer content, ServletOutputStream ostream)
+        throws IOException {
+
+        if (ostream instanceof CoyoteOutputStream) {
+            ((CoyoteOutputStream) ostream).write(content);
+            return;
+        }
+
+        byte buffer[] = new byte[Math.min(input, content.remaining())];
+        while (content.hasRemaining()) {
+            int len = Math.min(buffer.length, content.remaining());
+            content.get(buffer, 0, len);
+            ostream.write(buffer, 0, len);
+        }
+
+    }
+
+
     /**
      * Copy the contents of the specified input stream to the specified
      * output stream, and ensure that both streams are closed before returning
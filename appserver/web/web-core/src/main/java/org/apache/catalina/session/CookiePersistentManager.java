@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2018-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2018-2024] [Payara Foundation and/or its affiliates]
 package org.apache.catalina.session;
 
 import org.apache.catalina.LogFacade;
@@ -67,6 +67,11 @@ public class CookiePersistentManager extends StandardManager {
     // The name of the cookies that carry session state
     private String cookieName;
 
+    public CookiePersistentManager() {
+        // the sessions live in the cookies of the clients, there is nothing to expire here
+        expiryIndex = null;
+    }
+
     public void setCookieName(String cookieName) {
         this.cookieName = cookieName;
     }
@@ -122,6 +127,11 @@ public class CookiePersistentManager extends StandardManager {
         }
     }
 
+    @Override
+    public void processExpires() {
+        // sessions expire along with their cookies
+    }
+
     @Override
     public Cookie toCookie(Session session) throws IOException {
         StringBuilder sb = new StringBuilder();
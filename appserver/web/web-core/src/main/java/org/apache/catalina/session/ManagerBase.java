@@ -55,7 +55,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package org.apache.catalina.session;
 
@@ -187,7 +187,7 @@ public abstract class ManagerBase implements Manager {
      * when generating universally unique session identifiers.
      * HERCULES: add
      */
-    protected UuidGenerator uuidGenerator = new UuidGeneratorImpl();     
+    protected volatile UuidGenerator uuidGenerator = new UuidGeneratorImpl();
 
 
     /**
@@ -220,6 +220,13 @@ public abstract class ManagerBase implements Manager {
      * session identifier.
      */
     protected final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Index of the active sessions by the time they are due to expire, for
+     * managers which process expirations from it rather than by scanning all
+     * sessions. <code>null</code> if not used.
+     */
+    SessionExpiryIndex expiryIndex;
     
     // Number of sessions created by this manager
     protected int sessionCounter=0;
@@ -709,6 +716,9 @@ public abstract class ManagerBase implements Manager {
     @Override
     public void add(Session session) {
         sessions.put(session.getIdInternal(), session);
+        if (session instanceof StandardSession) {
+            scheduleExpiry((StandardSession) session);
+        }
         int size = sessions.size();
         if (size > maxActive) {
             synchronized(maxActiveUpdateLock) {
@@ -893,6 +903,9 @@ public abstract class ManagerBase implements Manager {
      */
     public void clearSessions() {
         sessions.clear();
+        if (expiryIndex != null) {
+            expiryIndex.clear();
+        }
     }    
 
 
@@ -912,6 +925,20 @@ public abstract class ManagerBase implements Manager {
     @Override
     public void remove(Session session) {
         sessions.remove(session.getIdInternal());
+        if (expiryIndex != null && session instanceof StandardSession) {
+            expiryIndex.remove((StandardSession) session);
+        }
+    }
+
+
+    /**
+     * Files the given session under its current due time in the expiry
+     * index of this manager, if it keeps one.
+     */
+    void scheduleExpiry(StandardSession session) {
+        if (expiryIndex != null) {
+            expiryIndex.schedule(session);
+        }
     }
 
     @Override
@@ -978,18 +1005,26 @@ public abstract class ManagerBase implements Manager {
     
     
     /**
-     * Generate and return a new session identifier.
+     * Generate and return a new session identifier, which is not in use by
+     * any of the sessions of this manager.
+     * <p>
+     * The configured UuidGenerator must be safe for concurrent use, this
+     * method does not serialize callers.
      * Hercules:added
      */
-    protected synchronized String generateSessionId(Object obj) {
-        return uuidGenerator.generateUuid(obj);
-    }   
-    
+    protected String generateSessionId(Object obj) {
+        String id;
+        do {
+            id = uuidGenerator.generateUuid(obj);
+        } while (sessions.containsKey(id));
+        return id;
+    }
+
     /**
      * Generate and return a new session identifier.
      * Hercules:modified
      */
-    protected synchronized String generateSessionId() {
+    protected String generateSessionId() {
         return generateSessionId(new Object());
     }    
 
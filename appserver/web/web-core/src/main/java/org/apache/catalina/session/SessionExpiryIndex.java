@@ -0,0 +1,175 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of the sessions of a manager, bucketed by the second in which they
+ * are due to expire.
+ * <p>
+ * Sessions are moved between buckets as they are accessed, which only costs
+ * anything once the due time crosses into another bucket. The background
+ * expiry check then only needs to visit the buckets that are due, instead of
+ * every session of the manager. Sessions that never time out are not
+ * indexed.
+ */
+final class SessionExpiryIndex {
+
+    /**
+     * Bucket of a session which is not in the index.
+     */
+    static final long NOT_INDEXED = Long.MIN_VALUE;
+
+    private static final long BUCKET_MILLIS = 1000L;
+
+    private final ConcurrentNavigableMap<Long, Set<StandardSession>> buckets =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Indexes the given session under its current due time, moving it out of
+     * the bucket it was in before.
+     */
+    void schedule(StandardSession session) {
+        long bucket = bucketOf(session);
+        if (session.expiryBucket == bucket) {
+            return;
+        }
+        synchronized (session) {
+            long previous = session.expiryBucket;
+            if (previous == bucket) {
+                return;
+            }
+            session.expiryBucket = bucket;
+            if (bucket != NOT_INDEXED) {
+                Set<StandardSession> sessions;
+                do {
+                    sessions = buckets.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet());
+                    sessions.add(session);
+                    // retry if the bucket got polled before the add
+                } while (buckets.get(bucket) != sessions);
+            }
+            discard(previous, session);
+        }
+    }
+
+    /**
+     * Removes the given session from the index.
+     */
+    void remove(StandardSession session) {
+        if (session.expiryBucket == NOT_INDEXED) {
+            return;
+        }
+        synchronized (session) {
+            long previous = session.expiryBucket;
+            session.expiryBucket = NOT_INDEXED;
+            discard(previous, session);
+        }
+    }
+
+    /**
+     * Removes and returns all sessions that are due to expire by the given
+     * time. Sessions that turn out to be still valid must be scheduled again
+     * by the caller.
+     */
+    List<StandardSession> pollDue(long timeNow) {
+        List<StandardSession> due = new ArrayList<>();
+        ConcurrentNavigableMap<Long, Set<StandardSession>> dueBuckets =
+                buckets.headMap(timeNow / BUCKET_MILLIS, true);
+        Map.Entry<Long, Set<StandardSession>> entry;
+        while ((entry = dueBuckets.pollFirstEntry()) != null) {
+            long bucket = entry.getKey();
+            for (StandardSession session : entry.getValue()) {
+                synchronized (session) {
+                    // skip sessions which have been moved on in the meantime
+                    if (session.expiryBucket == bucket) {
+                        session.expiryBucket = NOT_INDEXED;
+                        due.add(session);
+                    }
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Removes all sessions from the index.
+     */
+    void clear() {
+        pollDue(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of indexed sessions.
+     */
+    int size() {
+        int size = 0;
+        for (Set<StandardSession> bucket : buckets.values()) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private void discard(long bucket, StandardSession session) {
+        if (bucket == NOT_INDEXED) {
+            return;
+        }
+        // empty buckets are left in place, pollDue will drop them
+        Set<StandardSession> sessions = buckets.get(bucket);
+        if (sessions != null) {
+            sessions.remove(session);
+        }
+    }
+
+    private static long bucketOf(StandardSession session) {
+        int maxInactiveInterval = session.maxInactiveInterval;
+        if (maxInactiveInterval < 0) {
+            return NOT_INDEXED;
+        }
+        return (session.thisAccessedTime + maxInactiveInterval * 1000L) / BUCKET_MILLIS;
+    }
+}
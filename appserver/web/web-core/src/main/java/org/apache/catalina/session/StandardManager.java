@@ -56,7 +56,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package org.apache.catalina.session;
 
@@ -180,6 +180,14 @@ public class StandardManager extends ManagerBase implements Lifecycle, PropertyC
     long processingTime=0;
 
 
+    // ----------------------------------------------------------- Constructors
+
+
+    public StandardManager() {
+        expiryIndex = new SessionExpiryIndex();
+    }
+
+
     // ------------------------------------------------------------- Properties
 
 
@@ -462,6 +470,9 @@ public class StandardManager extends ManagerBase implements Lifecycle, PropertyC
 
         // Initialize our internal data structures
         sessions.clear();
+        if (expiryIndex != null) {
+            expiryIndex.clear();
+        }
 
         ObjectInputStream ois = null;
         try {
@@ -494,6 +505,7 @@ public class StandardManager extends ManagerBase implements Lifecycle, PropertyC
                         StandardSession.deserialize(ois, this);
                     session.setManager(this);
                     sessions.put(session.getIdInternal(), session);
+                    scheduleExpiry(session);
                     session.activate();
                 }
             } catch (ClassNotFoundException e) {
@@ -977,14 +989,16 @@ public class StandardManager extends ManagerBase implements Lifecycle, PropertyC
 
     /**
      * Invalidate all sessions that have expired.
+     * <p>
+     * Only the sessions that the expiry index reports as due are checked.
+     * Those which turn out to be still in use are filed again.
      */
     public void processExpires() {
 
         long timeNow = System.currentTimeMillis();
 
-        final List<Session> sessions = findSessions();
-        for (final Session session : sessions) {
-            final StandardSession sess = (StandardSession) session;
+        final List<StandardSession> dueSessions = expiryIndex.pollDue(timeNow);
+        for (final StandardSession sess : dueSessions) {
             if (sess.lockBackground()) {
                 try {
                     sess.isValid();
@@ -992,6 +1006,10 @@ public class StandardManager extends ManagerBase implements Lifecycle, PropertyC
                     sess.unlockBackground();
                 }
             }
+            String id = sess.getIdInternal();
+            if (id != null && sessions.get(id) == sess) {
+                expiryIndex.schedule(sess);
+            }
         }
 
         long timeEnd = System.currentTimeMillis();
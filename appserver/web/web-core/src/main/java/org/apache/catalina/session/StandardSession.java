@@ -56,7 +56,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// Portions Copyright [2016-2022] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package org.apache.catalina.session;
 
@@ -314,6 +314,12 @@ public class StandardSession implements HttpSession, Session, Serializable {
      */
     protected long thisAccessedTime = creationTime;
 
+    /**
+     * The expiry bucket this session is filed under by its manager's
+     * SessionExpiryIndex, if any.
+     */
+    transient volatile long expiryBucket = SessionExpiryIndex.NOT_INDEXED;
+
     /**
      * The session version, incremented and used by in-memory-replicating
      * session managers
@@ -367,6 +373,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
         this.creationTime = time;
         this.lastAccessedTime = time;
         this.thisAccessedTime = time;
+        scheduleExpiry();
 
     }
 
@@ -626,6 +633,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
         if (isValid && interval == 0) {
             expire();
         }
+        scheduleExpiry();
 
     }
 
@@ -753,6 +761,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
     public void access() {
         this.lastAccessedTime = this.thisAccessedTime;
         this.thisAccessedTime = System.currentTimeMillis();
+        scheduleExpiry();
 
         evaluateIfValid();
     }
@@ -764,6 +773,18 @@ public class StandardSession implements HttpSession, Session, Serializable {
     @Override
     public void endAccess() {
         isNew = false;
+        scheduleExpiry();
+    }
+
+
+    /**
+     * Files this session under its current due time in the expiry index of
+     * its manager, if the manager keeps one.
+     */
+    private void scheduleExpiry() {
+        if (manager instanceof ManagerBase) {
+            ((ManagerBase) manager).scheduleExpiry(this);
+        }
     }
 
 
@@ -1907,6 +1928,7 @@ public class StandardSession implements HttpSession, Session, Serializable {
             throws ClassNotFoundException, IOException {
 
         version = new AtomicLong();
+        expiryBucket = SessionExpiryIndex.NOT_INDEXED;
 
         lastAccessedTime = ((Long) stream.readObject());
         maxInactiveInterval = ((Integer) stream.readObject());
@@ -0,0 +1,213 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import com.sun.enterprise.util.uuid.UuidGenerator;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session identifier generator for managers that create many sessions
+ * concurrently.
+ * <p>
+ * Random bytes are drawn from a number of independent stripes, each with
+ * its own <code>SecureRandom</code> and lock. A thread uses the stripe its
+ * id maps to, or the first other stripe it can lock without waiting, so
+ * concurrent callers rarely contend. Each stripe hands out identifiers from
+ * a buffer of pre-generated bytes while a spare buffer is filled in the
+ * background, keeping the cost of the <code>SecureRandom</code> off the
+ * request thread. Identifiers are hex encoded into a per-thread
+ * <code>char</code> array, so the resulting String is the only allocation.
+ * <p>
+ * It can be plugged into a manager through
+ * {@link ManagerBase#setUuidGenerator(UuidGenerator)}, or configured as the
+ * <code>session-id-generator-classname</code> of a web application's
+ * session manager.
+ */
+public class StripedSessionIdGenerator implements UuidGenerator {
+
+    /**
+     * Default number of random bytes in a session identifier.
+     */
+    public static final int DEFAULT_ID_LENGTH = 16;
+
+    /**
+     * Number of identifiers each entropy buffer holds.
+     */
+    private static final int IDS_PER_BUFFER = 128;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final ExecutorService refiller = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "SessionIdEntropyRefiller");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(null);
+        return thread;
+    });
+
+    private final int idLength;
+    private final Stripe[] stripes;
+    private final int mask;
+    private final ThreadLocal<char[]> encodeBuffer;
+
+    public StripedSessionIdGenerator() {
+        this(DEFAULT_ID_LENGTH, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param idLength number of random bytes in each identifier
+     * @param concurrency expected number of threads creating identifiers at
+     * the same time, rounded up to a power of two
+     */
+    public StripedSessionIdGenerator(int idLength, int concurrency) {
+        if (idLength <= 0) {
+            throw new IllegalArgumentException("Session id length must be positive: " + idLength);
+        }
+        this.idLength = idLength;
+        int size = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+        this.encodeBuffer = ThreadLocal.withInitial(() -> new char[idLength * 2]);
+    }
+
+    @Override
+    public String generateUuid() {
+        char[] chars = encodeBuffer.get();
+        int home = (int) Thread.currentThread().getId() & mask;
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(home + i) & mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.encode(chars);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                return new String(chars);
+            }
+        }
+
+        // every stripe is busy, queue up on our own
+        Stripe stripe = stripes[home];
+        stripe.lock.lock();
+        try {
+            stripe.encode(chars);
+        } finally {
+            stripe.lock.unlock();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The identifier does not depend on the given object, uniqueness comes
+     * from the random bytes alone.
+     */
+    @Override
+    public String generateUuid(Object obj) {
+        return generateUuid();
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random = new SecureRandom();
+
+        // guarded by lock
+        private byte[] current;
+        private int position;
+
+        // set by the refiller, taken under lock
+        private volatile byte[] spare;
+
+        Stripe() {
+            current = new byte[idLength * IDS_PER_BUFFER];
+            random.nextBytes(current);
+            refill(new byte[current.length]);
+        }
+
+        void encode(char[] chars) {
+            if (position + idLength > current.length) {
+                nextBuffer();
+            }
+            for (int i = 0; i < idLength; i++) {
+                int b = current[position + i];
+                chars[i * 2] = HEX[(b >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[b & 0xF];
+            }
+            // don't keep handed out identifiers around in the buffer
+            Arrays.fill(current, position, position + idLength, (byte) 0);
+            position += idLength;
+        }
+
+        private void nextBuffer() {
+            byte[] filled = spare;
+            if (filled != null) {
+                spare = null;
+                byte[] used = current;
+                current = filled;
+                refill(used);
+            } else {
+                // the refiller has not caught up, a refill is still pending
+                random.nextBytes(current);
+            }
+            position = 0;
+        }
+
+        private void refill(byte[] buffer) {
+            try {
+                refiller.execute(() -> {
+                    random.nextBytes(buffer);
+                    spare = buffer;
+                });
+            } catch (RejectedExecutionException ex) {
+                random.nextBytes(buffer);
+                spare = buffer;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.servlets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.apache.naming.resources.CacheEntry;
+import org.apache.naming.resources.Resource;
+import org.apache.naming.resources.ResourceAttributes;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CompressedResourceCacheTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void lookupCompressesContent() throws IOException {
+        CompressedResourceCache cache = new CompressedResourceCache(1024 * 1024);
+        byte[] content = text(10_000);
+        CacheEntry entry = entry("/index.html", content, "\"10000-1\"");
+        entry.attributes.setLastModified(1000L);
+
+        CacheEntry compressed = cache.lookup(entry);
+
+        byte[] gzipped = compressed.resource.getContent();
+        assertArrayEquals(content, gunzip(gzipped));
+        assertEquals("/index.html", compressed.name);
+        assertEquals(gzipped.length, compressed.attributes.getContentLength());
+        assertEquals(1000L, compressed.attributes.getLastModified());
+        assertEquals("\"10000-1-gzip\"", compressed.attributes.getETag());
+    }
+
+    @Test
+    public void lookupReusesCompressedCopy() throws IOException {
+        CompressedResourceCache cache = new CompressedResourceCache(1024 * 1024);
+        byte[] content = text(10_000);
+
+        CacheEntry first = cache.lookup(entry("/index.html", content, "\"1\""));
+        CacheEntry second = cache.lookup(entry("/index.html", content, "\"1\""));
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void modifiedResourceIsCompressedAgain() throws IOException {
+        CompressedResourceCache cache = new CompressedResourceCache(1024 * 1024);
+
+        CacheEntry first = cache.lookup(entry("/index.html", text(1000), "\"1\""));
+        byte[] modified = text(2000);
+        CacheEntry second = cache.lookup(entry("/index.html", modified, "\"2\""));
+
+        assertNotSame(first, second);
+        assertArrayEquals(modified, gunzip(second.resource.getContent()));
+    }
+
+    @Test
+    public void resourcesWhichCannotBeCachedAreSkipped() throws IOException {
+        CompressedResourceCache cache = new CompressedResourceCache(20 * 1000);
+        assertEquals(1000, cache.getMaxObjectSize());
+
+        assertNull(cache.lookup(entry("/large.txt", text(1001), "\"1\"")));
+
+        CacheEntry unknownLength = entry("/unknown.txt", text(10), "\"1\"");
+        unknownLength.attributes.setContentLength(-1);
+        assertNull(cache.lookup(unknownLength));
+
+        CacheEntry noResource = entry("/directory", text(10), "\"1\"");
+        noResource.resource = null;
+        assertNull(cache.lookup(noResource));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        // Random content barely compresses, so every copy takes about 1 KB
+        CompressedResourceCache cache = new CompressedResourceCache(20 * 1024);
+        CacheEntry recent = entry("/recent.bin", noise(1000), "\"r\"");
+        CacheEntry kept = cache.lookup(recent);
+        CacheEntry first = entry("/first.bin", noise(1000), "\"1\"");
+        CacheEntry evicted = cache.lookup(first);
+
+        for (int i = 0; i < 40; i++) {
+            cache.lookup(entry("/other" + i + ".bin", noise(1000), "\"" + i + "\""));
+            assertSame(kept, cache.lookup(recent));
+        }
+
+        assertNotSame(evicted, cache.lookup(first));
+    }
+
+    @Test
+    public void variantETagKeepsQuotesAndWeakness() {
+        assertEquals("\"abc-gzip\"", CompressedResourceCache.variantETag("\"abc\"", "gzip"));
+        assertEquals("W/\"abc-br\"", CompressedResourceCache.variantETag("W/\"abc\"", "br"));
+        assertEquals("abc-gzip", CompressedResourceCache.variantETag("abc", "gzip"));
+        assertNull(CompressedResourceCache.variantETag(null, "gzip"));
+    }
+
+    private static CacheEntry entry(String name, byte[] content, String eTag) {
+        CacheEntry entry = new CacheEntry();
+        entry.name = name;
+        entry.resource = new Resource(content);
+        entry.attributes = new ResourceAttributes();
+        entry.attributes.setContentLength(content.length);
+        entry.attributes.setETag(eTag);
+        return entry;
+    }
+
+    private static byte[] text(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + (i % 26));
+        }
+        return content;
+    }
+
+    private byte[] noise(int length) {
+        byte[] content = new byte[length];
+        random.nextBytes(content);
+        return content;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.servlets;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.apache.catalina.Globals;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.apache.naming.resources.CacheEntry;
+import org.apache.naming.resources.FileDirContext;
+import org.apache.naming.resources.ProxyDirContext;
+import org.apache.naming.resources.Resource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultServletTest {
+
+    private static final int LENGTH = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DefaultServlet servlet = new DefaultServlet();
+
+    private byte[] content;
+
+    private CacheEntry cacheEntry;
+
+    @Before
+    public void createOffHeapEntry() {
+        content = new byte[LENGTH];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(LENGTH);
+        buffer.put(content);
+        buffer.flip();
+        cacheEntry = new CacheEntry();
+        cacheEntry.resource = new Resource();
+        cacheEntry.resource.setContent(buffer);
+    }
+
+    @Test
+    public void bufferedContentIsCopiedToAnyStream() throws IOException {
+        CapturingOutputStream ostream = new CapturingOutputStream();
+
+        servlet.copy(cacheEntry, null, ostream);
+
+        assertArrayEquals(content, ostream.toByteArray());
+        assertTrue(ostream.largestWrite <= servlet.input);
+    }
+
+    @Test
+    public void bufferedContentCanBeServedRepeatedly() throws IOException {
+        CapturingOutputStream first = new CapturingOutputStream();
+        CapturingOutputStream second = new CapturingOutputStream();
+
+        servlet.copy(cacheEntry, null, first);
+        servlet.copy(cacheEntry, null, second);
+
+        assertArrayEquals(content, second.toByteArray());
+        assertEquals(LENGTH, cacheEntry.resource.getBufferedContent().remaining());
+    }
+
+    @Test
+    public void bufferedContentIsHandedToContainerStreamWithoutCopy() throws IOException {
+        CoyoteOutputStream ostream = mock(CoyoteOutputStream.class);
+
+        servlet.copy(cacheEntry, null, ostream);
+
+        ArgumentCaptor<ByteBuffer> written = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(ostream).write(written.capture());
+        verify(ostream, never()).write(any(byte[].class), anyInt(), anyInt());
+        assertTrue(written.getValue().isDirect());
+        assertEquals(LENGTH, written.getValue().remaining());
+    }
+
+    @Test
+    public void rangeOfBufferedContentIsCopied() throws IOException {
+        CapturingOutputStream ostream = new CapturingOutputStream();
+
+        servlet.copy(cacheEntry, ostream, range(1000, 40999));
+
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 41000), ostream.toByteArray());
+        assertEquals(LENGTH, cacheEntry.resource.getBufferedContent().remaining());
+    }
+
+    @Test
+    public void rangeOfBufferedContentIsHandedToContainerStream() throws IOException {
+        CoyoteOutputStream ostream = mock(CoyoteOutputStream.class);
+
+        servlet.copy(cacheEntry, ostream, range(LENGTH - 100, LENGTH - 1));
+
+        ArgumentCaptor<ByteBuffer> written = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(ostream).write(written.capture());
+        assertEquals(LENGTH - 100, written.getValue().position());
+        assertEquals(100, written.getValue().remaining());
+    }
+
+    @Test
+    public void precompressedIsDisabledByDefault() {
+        assertNull(DefaultServlet.parsePrecompressed(null));
+        assertNull(DefaultServlet.parsePrecompressed(" "));
+        assertNull(DefaultServlet.parsePrecompressed("false"));
+    }
+
+    @Test
+    public void precompressedTrueServesBrotliAndGzip() {
+        String[][] encodings = DefaultServlet.parsePrecompressed("TRUE");
+
+        assertArrayEquals(new String[][] { { "br", ".br" }, { "gzip", ".gz" } }, encodings);
+    }
+
+    @Test
+    public void precompressedPairsKeepTheirOrder() {
+        String[][] encodings = DefaultServlet.parsePrecompressed("gzip=.gz, br = .brotli");
+
+        assertArrayEquals(new String[][] { { "gzip", ".gz" }, { "br", ".brotli" } }, encodings);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void precompressedPairNeedsAnExtension() {
+        DefaultServlet.parsePrecompressed("gzip=");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void precompressedPairNeedsAnEncoding() {
+        DefaultServlet.parsePrecompressed("=.gz");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void precompressedEntryMustBeAPair() {
+        DefaultServlet.parsePrecompressed("gzip");
+    }
+
+    @Test
+    public void encodingIsAcceptedByName() {
+        assertTrue(DefaultServlet.isEncodingAccepted(request("deflate, gzip"), "gzip"));
+        assertTrue(DefaultServlet.isEncodingAccepted(request("GZIP"), "gzip"));
+        assertTrue(DefaultServlet.isEncodingAccepted(request("gzip; q=0.5"), "gzip"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request("deflate"), "gzip"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request(), "gzip"));
+    }
+
+    @Test
+    public void encodingWithZeroQualityIsRefused() {
+        assertFalse(DefaultServlet.isEncodingAccepted(request("gzip;q=0"), "gzip"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request("gzip ; Q=0.0"), "gzip"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request("gzip;q=invalid"), "gzip"));
+    }
+
+    @Test
+    public void encodingIsAcceptedThroughWildcard() {
+        assertTrue(DefaultServlet.isEncodingAccepted(request("*"), "br"));
+        assertTrue(DefaultServlet.isEncodingAccepted(request("deflate, *;q=0.1"), "br"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request("*;q=0"), "br"));
+    }
+
+    @Test
+    public void explicitEncodingOverridesWildcard() {
+        assertFalse(DefaultServlet.isEncodingAccepted(request("*, gzip;q=0"), "gzip"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request("gzip;q=0, *"), "gzip"));
+        assertTrue(DefaultServlet.isEncodingAccepted(request("*;q=0, gzip"), "gzip"));
+    }
+
+    @Test
+    public void encodingIsLookedUpInEveryHeader() {
+        assertTrue(DefaultServlet.isEncodingAccepted(request("deflate", "br, gzip"), "gzip"));
+        assertFalse(DefaultServlet.isEncodingAccepted(request("gzip;q=0", "deflate"), "gzip"));
+    }
+
+    @Test
+    public void preferredPrecompressedVariantIsSelected() throws Exception {
+        DefaultServlet servlet = initServlet("precompressed", "true");
+        write("app.js", 2000);
+        write("app.js.br", 100);
+        write("app.js.gz", 200);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        CacheEntry selected = select(servlet, "/app.js", "br, gzip", response);
+
+        assertEquals("/app.js.br", selected.name);
+        verify(response).setHeader("Content-Encoding", "br");
+        verify(response).addHeader("Vary", "Accept-Encoding");
+    }
+
+    @Test
+    public void precompressedVariantFallsBackInOrderOfPreference() throws Exception {
+        DefaultServlet servlet = initServlet("precompressed", "true");
+        write("app.js", 2000);
+        write("app.js.br", 100);
+        write("app.js.gz", 200);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        CacheEntry selected = select(servlet, "/app.js", "br;q=0, *", response);
+
+        assertEquals("/app.js.gz", selected.name);
+        verify(response).setHeader("Content-Encoding", "gzip");
+    }
+
+    @Test
+    public void refusedPrecompressedVariantStillVaries() throws Exception {
+        DefaultServlet servlet = initServlet("precompressed", "true");
+        write("app.js", 2000);
+        write("app.js.gz", 200);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        CacheEntry selected = select(servlet, "/app.js", "identity", response);
+
+        assertEquals("/app.js", selected.name);
+        verify(response, never()).setHeader(anyString(), anyString());
+        verify(response).addHeader("Vary", "Accept-Encoding");
+    }
+
+    @Test
+    public void resourceWithoutVariantsIsSentAsIs() throws Exception {
+        DefaultServlet servlet = initServlet("precompressed", "true");
+        write("app.js", 2000);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        CacheEntry selected = select(servlet, "/app.js", "gzip", response);
+
+        assertEquals("/app.js", selected.name);
+        verify(response, never()).addHeader(anyString(), anyString());
+        verify(response, never()).setHeader(anyString(), anyString());
+    }
+
+    @Test
+    public void compressableResourceIsCompressedOnTheFly() throws Exception {
+        DefaultServlet servlet = initServlet("compressedCacheSize", "1024");
+        byte[] content = write("app.js", 2000);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        CacheEntry selected = select(servlet, "/app.js", "gzip", response);
+
+        assertArrayEquals(content, gunzip(selected.resource.getContent()));
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).addHeader("Vary", "Accept-Encoding");
+        assertSame(selected, select(servlet, "/app.js", "gzip",
+                mock(HttpServletResponse.class)));
+    }
+
+    @Test
+    public void resourceIsNotCompressedOnTheFlyUnlessItQualifies() throws Exception {
+        DefaultServlet servlet = initServlet("compressedCacheSize", "1024");
+        write("small.js", 100);
+        write("image.png", 2000);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        assertEquals("/small.js", select(servlet, "/small.js", "gzip", response).name);
+        assertEquals("/image.png", servlet.selectCompressedVariant(request("gzip"),
+                response, servlet.resources, servlet.resources.lookupCache("/image.png"),
+                "image/png").name);
+        verify(response, never()).addHeader(anyString(), anyString());
+    }
+
+    @Test
+    public void refusedOnTheFlyCompressionStillVaries() throws Exception {
+        DefaultServlet servlet = initServlet("compressedCacheSize", "1024");
+        write("app.js", 2000);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        CacheEntry selected = select(servlet, "/app.js", "gzip;q=0", response);
+
+        assertEquals("/app.js", selected.name);
+        assertTrue(selected.resource.getContent() == null
+                || selected.resource.getContent().length == 2000);
+        verify(response, never()).setHeader(anyString(), anyString());
+        verify(response).addHeader("Vary", "Accept-Encoding");
+    }
+
+    private DefaultServlet initServlet(String... initParameters) throws Exception {
+        FileDirContext fileContext = new FileDirContext();
+        fileContext.setDocBase(folder.getRoot().getAbsolutePath());
+        ProxyDirContext resources =
+            new ProxyDirContext(new Hashtable<String, String>(), fileContext);
+
+        ServletContext servletContext = mock(ServletContext.class);
+        when(servletContext.getAttribute(Globals.RESOURCES_ATTR)).thenReturn(resources);
+        Map<String, String> parameters = new HashMap<>();
+        for (int i = 0; i < initParameters.length; i += 2) {
+            parameters.put(initParameters[i], initParameters[i + 1]);
+        }
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(servletContext);
+        when(config.getInitParameter(anyString()))
+            .thenAnswer(invocation -> parameters.get(invocation.getArgument(0)));
+
+        DefaultServlet servlet = new DefaultServlet();
+        servlet.init(config);
+        return servlet;
+    }
+
+    private static CacheEntry select(DefaultServlet servlet, String name,
+            String acceptEncoding, HttpServletResponse response) throws IOException {
+        return servlet.selectCompressedVariant(request(acceptEncoding), response,
+                servlet.resources, servlet.resources.lookupCache(name),
+                "application/javascript");
+    }
+
+    private static HttpServletRequest request(String... acceptEncodings) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeaders("Accept-Encoding"))
+            .thenAnswer(invocation -> Collections.enumeration(Arrays.asList(acceptEncodings)));
+        return request;
+    }
+
+    private byte[] write(String name, int length) throws IOException {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + (i % 26));
+        }
+        Files.write(new File(folder.getRoot(), name).toPath(), content);
+        return content;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static DefaultServlet.Range range(long start, long end) {
+        DefaultServlet.Range range = new DefaultServlet.Range();
+        range.start = start;
+        range.end = end;
+        range.length = LENGTH;
+        return range;
+    }
+
+    private static final class CapturingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private int largestWrite;
+
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            largestWrite = Math.max(largestWrite, len);
+            bytes.write(b, off, len);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionExpiryIndexTest {
+
+    private static final long NOW = 1_000_000_000L;
+
+    private final SessionExpiryIndex index = new SessionExpiryIndex();
+    private final StandardManager manager = new StandardManager();
+
+    @Test
+    public void sessionIsDueOnceItsIntervalHasPassed() {
+        StandardSession session = session(NOW, 60);
+        index.schedule(session);
+
+        assertEquals(1, index.size());
+        assertEquals(emptyList(), index.pollDue(NOW + 59_000));
+        assertEquals(asList(session), index.pollDue(NOW + 60_000));
+        assertEquals(0, index.size());
+        assertEquals(SessionExpiryIndex.NOT_INDEXED, session.expiryBucket);
+    }
+
+    @Test
+    public void sessionWithoutTimeoutIsNotIndexed() {
+        StandardSession session = session(NOW, -1);
+        index.schedule(session);
+
+        assertEquals(0, index.size());
+        assertEquals(emptyList(), index.pollDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void accessedSessionIsMovedToItsNewDueTime() {
+        StandardSession session = session(NOW, 60);
+        index.schedule(session);
+
+        session.thisAccessedTime = NOW + 30_000;
+        index.schedule(session);
+
+        assertEquals(1, index.size());
+        assertEquals(emptyList(), index.pollDue(NOW + 60_000));
+        assertEquals(asList(session), index.pollDue(NOW + 90_000));
+    }
+
+    @Test
+    public void sessionIsMovedOutWhenItStopsTimingOut() {
+        StandardSession session = session(NOW, 60);
+        index.schedule(session);
+
+        session.maxInactiveInterval = -1;
+        index.schedule(session);
+
+        assertEquals(0, index.size());
+        assertEquals(emptyList(), index.pollDue(NOW + 60_000));
+    }
+
+    @Test
+    public void removedSessionIsNotPolled() {
+        StandardSession removed = session(NOW, 60);
+        StandardSession kept = session(NOW, 60);
+        index.schedule(removed);
+        index.schedule(kept);
+
+        index.remove(removed);
+
+        assertEquals(1, index.size());
+        assertEquals(asList(kept), index.pollDue(NOW + 60_000));
+        assertEquals(SessionExpiryIndex.NOT_INDEXED, removed.expiryBucket);
+    }
+
+    @Test
+    public void pollReturnsAllDueBucketsAndLeavesTheRest() {
+        StandardSession first = session(NOW, 10);
+        StandardSession second = session(NOW, 20);
+        StandardSession later = session(NOW, 30);
+        index.schedule(later);
+        index.schedule(second);
+        index.schedule(first);
+
+        List<StandardSession> due = index.pollDue(NOW + 25_000);
+
+        assertEquals(asList(first, second), due);
+        assertEquals(1, index.size());
+        assertEquals(asList(later), index.pollDue(NOW + 30_000));
+    }
+
+    @Test
+    public void polledSessionCanBeScheduledAgain() {
+        StandardSession session = session(NOW, 60);
+        index.schedule(session);
+        assertEquals(asList(session), index.pollDue(NOW + 60_000));
+
+        // still in use, filed again by the manager
+        session.thisAccessedTime = NOW + 60_000;
+        index.schedule(session);
+
+        assertEquals(1, index.size());
+        assertTrue(index.pollDue(NOW + 60_000).isEmpty());
+        assertEquals(asList(session), index.pollDue(NOW + 120_000));
+    }
+
+    @Test
+    public void clearedSessionsCanBeIndexedAgain() {
+        StandardSession session = session(NOW, 60);
+        index.schedule(session);
+
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertEquals(SessionExpiryIndex.NOT_INDEXED, session.expiryBucket);
+        index.schedule(session);
+        assertEquals(asList(session), index.pollDue(NOW + 60_000));
+    }
+
+    @Test
+    public void cookieManagerKeepsNoIndex() {
+        CookiePersistentManager manager = new CookiePersistentManager();
+        StandardSession session = new StandardSession(manager);
+        session.setCreationTime(NOW);
+        session.setMaxInactiveInterval(60);
+
+        assertEquals(SessionExpiryIndex.NOT_INDEXED, session.expiryBucket);
+    }
+
+    private StandardSession session(long accessedTime, int maxInactiveInterval) {
+        StandardSession session = new StandardSession(manager);
+        session.thisAccessedTime = accessedTime;
+        session.maxInactiveInterval = maxInactiveInterval;
+        return session;
+    }
+}
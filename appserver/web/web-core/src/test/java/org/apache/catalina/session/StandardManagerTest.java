@@ -0,0 +1,138 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import org.apache.catalina.core.StandardContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StandardManagerTest {
+
+    private final StandardManager manager = new StandardManager();
+
+    @Before
+    public void setContainer() throws IOException {
+        StandardContext context = mock(StandardContext.class);
+        when(context.createObjectInputStream(any(InputStream.class)))
+            .thenAnswer(invocation -> new ObjectInputStream(invocation.getArgument(0)));
+        manager.setContainer(context);
+    }
+
+    @Test
+    public void restoredSessionsAreScheduledForExpiry() throws Exception {
+        long now = System.currentTimeMillis();
+        byte[] persisted = persist(session("idle", now - 120_000, 60),
+                                   session("eternal", now - 120_000, -1));
+
+        manager.readSessions(new ByteArrayInputStream(persisted));
+
+        assertEquals(2, manager.sessions.size());
+        assertEquals(1, manager.expiryIndex.size());
+        List<StandardSession> due = manager.expiryIndex.pollDue(now);
+        assertEquals(1, due.size());
+        assertSame(manager.sessions.get("idle"), due.get(0));
+    }
+
+    @Test
+    public void readingSessionsDropsPreviouslyIndexedSessions() throws Exception {
+        StandardSession previous = session("previous", System.currentTimeMillis(), 60);
+        manager.add(previous);
+        assertEquals(1, manager.expiryIndex.size());
+
+        manager.readSessions(new ByteArrayInputStream(persist()));
+
+        assertEquals(0, manager.sessions.size());
+        assertEquals(0, manager.expiryIndex.size());
+        assertEquals(SessionExpiryIndex.NOT_INDEXED, previous.expiryBucket);
+    }
+
+    @Test
+    public void clearingSessionsEmptiesTheIndex() {
+        StandardSession session = session("cleared", System.currentTimeMillis(), 60);
+        manager.add(session);
+
+        manager.clearSessions();
+
+        assertEquals(0, manager.sessions.size());
+        assertEquals(0, manager.expiryIndex.size());
+
+        manager.add(session);
+        assertEquals(1, manager.expiryIndex.size());
+    }
+
+    private StandardSession session(String id, long accessedTime, int maxInactiveInterval) {
+        StandardSession session = new StandardSession(manager);
+        session.id = id;
+        session.isValid = true;
+        session.creationTime = accessedTime;
+        session.thisAccessedTime = accessedTime;
+        session.maxInactiveInterval = maxInactiveInterval;
+        return session;
+    }
+
+    /**
+     * Writes the given sessions in the format of the session persistence
+     * file of the manager.
+     */
+    private static byte[] persist(StandardSession... sessions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(sessions.length);
+            for (StandardSession session : sessions) {
+                oos.writeObject(session);
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
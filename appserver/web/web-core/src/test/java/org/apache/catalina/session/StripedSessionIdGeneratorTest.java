@@ -0,0 +1,185 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.catalina.session;
+
+import com.sun.enterprise.util.uuid.UuidGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StripedSessionIdGeneratorTest {
+
+    @Test
+    public void idIsHexEncodedRandomBytes() {
+        String id = new StripedSessionIdGenerator().generateUuid();
+
+        assertEquals(2 * StripedSessionIdGenerator.DEFAULT_ID_LENGTH, id.length());
+        assertTrue(id, id.matches("[0-9A-F]+"));
+    }
+
+    @Test
+    public void idLengthCanBeConfigured() {
+        assertEquals(8, new StripedSessionIdGenerator(4, 1).generateUuid().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void idLengthMustBePositive() {
+        new StripedSessionIdGenerator(0, 1);
+    }
+
+    @Test
+    public void idsStayUniqueOverManyBuffers() {
+        StripedSessionIdGenerator generator = new StripedSessionIdGenerator(16, 1);
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ids.add(generator.generateUuid(this)));
+        }
+    }
+
+    @Test
+    public void concurrentlyGeneratedIdsAreUnique() throws Exception {
+        final int threads = 16;
+        final int idsPerThread = 5_000;
+        StripedSessionIdGenerator generator = new StripedSessionIdGenerator(16, 4);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> duplicates = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                duplicates.add(executor.submit(() -> {
+                    go.await();
+                    int count = 0;
+                    for (int i = 0; i < idsPerThread; i++) {
+                        if (!ids.add(generator.generateUuid())) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            go.countDown();
+            for (Future<Integer> count : duplicates) {
+                assertEquals(0, count.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    public void managerCreatesConcurrentSessionsWithUniqueIds() throws Exception {
+        final int threads = 8;
+        final int sessionsPerThread = 1_000;
+        StandardManager manager = new StandardManager();
+        manager.setUuidGenerator(new StripedSessionIdGenerator());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < sessionsPerThread; i++) {
+                        StandardSession session = new StandardSession(manager);
+                        String id = manager.generateSessionId(session);
+                        // register the id like the manager does for a created session
+                        assertTrue(manager.sessions.putIfAbsent(id, session) == null);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> done : executor.invokeAll(tasks)) {
+                done.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * sessionsPerThread, manager.sessions.size());
+    }
+
+    @Test
+    public void managerRetriesIdsAlreadyInUse() {
+        StandardManager manager = new StandardManager();
+        manager.sessions.put("taken", new StandardSession(manager));
+        SequenceGenerator generator = new SequenceGenerator("taken", "taken", "free");
+        manager.setUuidGenerator(generator);
+
+        assertEquals("free", manager.generateSessionId());
+        assertEquals(3, generator.calls);
+    }
+
+    /**
+     * Hands out the given identifiers in order.
+     */
+    private static class SequenceGenerator implements UuidGenerator {
+
+        private final Iterator<String> ids;
+        int calls;
+
+        SequenceGenerator(String... ids) {
+            this.ids = Arrays.asList(ids).iterator();
+        }
+
+        @Override
+        public String generateUuid() {
+            calls++;
+            return ids.next();
+        }
+
+        @Override
+        public String generateUuid(Object obj) {
+            return generateUuid();
+        }
+    }
+}
@@ -37,12 +37,14 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2018] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.enterprise.web;
 
+import com.sun.enterprise.util.uuid.UuidGenerator;
 import org.apache.catalina.Context;
 import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.session.ManagerBase;
 import org.glassfish.web.LogFacade;
 import org.glassfish.web.config.serverbeans.SessionProperties;
 import org.glassfish.web.deployment.runtime.ManagerProperties;
@@ -51,6 +53,7 @@ import org.glassfish.web.deployment.runtime.StoreProperties;
 import org.glassfish.web.deployment.runtime.WebProperty;
 
 import java.io.File;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
@@ -92,12 +95,15 @@ public abstract class BasePersistenceStrategyBuilder
     protected int sessionMaxInactiveInterval = DEFAULT_SESSION_TIMEOUT;
     protected String persistentCookieName = "GLASSFISHCOOKIE";
     protected boolean relaxCacheVersionSemantics = true;
+    protected static final int DEFAULT_ASYNC_PERSISTENCE_INTERVAL = -1;   // save at end of request
+    protected int asyncPersistenceInterval = DEFAULT_ASYNC_PERSISTENCE_INTERVAL;
 
     // Special constant for Java Server Faces
     protected static final String JSF_HA_ENABLED = "com.sun.appserver.enableHighAvailability";
     
     protected static final String MIN_IDLE_SWAP_PROPERTY = "minIdleSwap";
     protected static final String MAX_IDLE_SWAP_PROPERTY = "maxIdleSwap";
+    protected static final String ASYNC_PERSISTENCE_INTERVAL_PROPERTY = "asyncPersistenceIntervalMillis";
 
     public void initializePersistenceStrategy(
             Context ctx,
@@ -240,6 +246,12 @@ public abstract class BasePersistenceStrategyBuilder
                             } catch (NumberFormatException e) {
                                 // XXX need error message
                             }
+                        } else if (name.equalsIgnoreCase(ASYNC_PERSISTENCE_INTERVAL_PROPERTY)) {
+                            try {
+                                asyncPersistenceInterval = Integer.parseInt(value);
+                            } catch (NumberFormatException e) {
+                                // XXX need error message
+                            }
                         }
                     }
                 }
@@ -334,6 +346,12 @@ public abstract class BasePersistenceStrategyBuilder
                         } catch (NumberFormatException e) {
                             // XXX need error message
                         }
+                    } else if (name.equalsIgnoreCase(ASYNC_PERSISTENCE_INTERVAL_PROPERTY)) {
+                        try {
+                            asyncPersistenceInterval = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            // XXX need error message
+                        }
                     } else if (name.equalsIgnoreCase("relaxCacheVersionSemantics")) {
                         relaxCacheVersionSemantics = Boolean.parseBoolean(value);
                     } else if (name.equalsIgnoreCase("sessionFilename")) {
@@ -376,7 +394,30 @@ public abstract class BasePersistenceStrategyBuilder
             }
         }
     }
-    
+
+    // START CR 6275709
+    /**
+     * Installs the configured session id generator, if any, on the given
+     * manager.
+     */
+    protected void setSessionIdGenerator(ManagerBase mgr,
+            ServerConfigLookup serverConfigLookup) {
+        if (sessionIdGeneratorClassname != null &&
+                sessionIdGeneratorClassname.length() > 0) {
+            try {
+                UuidGenerator generator = (UuidGenerator)
+                    serverConfigLookup.loadClass(
+                        sessionIdGeneratorClassname).newInstance();
+                mgr.setUuidGenerator(generator);
+            } catch (Exception ex) {
+                String msg = _rb.getString(LogFacade.UNABLE_TO_LOAD_SESSION_UUID_GENERATOR);
+                msg = MessageFormat.format(msg, sessionIdGeneratorClassname);
+                _logger.log(Level.SEVERE, msg, ex);
+            }
+        }
+    }
+    // END CR 6275709
+
     protected String prependContextPathTo(String str, Context ctx) {
         if (str == null) {
             return str;
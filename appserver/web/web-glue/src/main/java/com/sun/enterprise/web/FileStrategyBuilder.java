@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2018] Payara Foundation and/or affiliates
+// Portions Copyright [2018-2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.web;
 
@@ -81,6 +81,8 @@ public class FileStrategyBuilder extends BasePersistenceStrategyBuilder {
 
         ctx.setManager(mgr);
 
+        setSessionIdGenerator(mgr, serverConfigLookup);
+
         if(!((StandardContext)ctx).isSessionTimeoutOveridden()) {
             mgr.setMaxInactiveInterval(sessionMaxInactiveInterval);
         }
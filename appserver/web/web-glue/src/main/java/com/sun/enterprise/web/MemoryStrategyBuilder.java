@@ -37,10 +37,10 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] Payara Foundation and/or affiliates
 
 package com.sun.enterprise.web;
 
-import com.sun.enterprise.util.uuid.UuidGenerator;
 import com.sun.enterprise.web.session.PersistenceType;
 import org.apache.catalina.Context;
 import org.apache.catalina.core.StandardContext;
@@ -50,7 +50,6 @@ import org.glassfish.web.deployment.runtime.SessionManager;
 import org.jvnet.hk2.annotations.Service;
 
 import java.lang.String;
-import java.text.MessageFormat;
 import java.util.logging.Level;
 
 @Service(name="memory")
@@ -89,19 +88,7 @@ public class MemoryStrategyBuilder extends BasePersistenceStrategyBuilder {
         ctx.setManager(mgr);
 
         // START CR 6275709
-        if (sessionIdGeneratorClassname != null &&
-                sessionIdGeneratorClassname.length() > 0) {
-            try {
-                UuidGenerator generator = (UuidGenerator)
-                    serverConfigLookup.loadClass(
-                        sessionIdGeneratorClassname).newInstance();
-                mgr.setUuidGenerator(generator);
-            } catch (Exception ex) {
-                String msg = _rb.getString(LogFacade.UNABLE_TO_LOAD_SESSION_UUID_GENERATOR);
-                msg = MessageFormat.format(msg, sessionIdGeneratorClassname);
-                _logger.log(Level.SEVERE, msg, ex);
-            }
-        }
+        setSessionIdGenerator(mgr, serverConfigLookup);
         // END CR 6275709
         
         if (!((StandardContext)ctx).isSessionTimeoutOveridden()) {
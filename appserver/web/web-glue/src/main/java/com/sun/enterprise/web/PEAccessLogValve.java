@@ -37,13 +37,15 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2019] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package com.sun.enterprise.web;
 
 import com.sun.enterprise.config.serverbeans.*;
 import com.sun.enterprise.config.serverbeans.VirtualServer;
 import com.sun.enterprise.web.accesslog.AccessLogFormatter;
+import com.sun.enterprise.web.accesslog.AccessLogRingBuffer;
+import com.sun.enterprise.web.accesslog.AccessLogRingBuffer.OverflowPolicy;
 import com.sun.enterprise.web.accesslog.CombinedAccessLogFormatterImpl;
 import com.sun.enterprise.web.accesslog.CommonAccessLogFormatterImpl;
 import com.sun.enterprise.web.accesslog.DefaultAccessLogFormatterImpl;
@@ -67,6 +69,8 @@ import java.text.FieldPosition;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.internal.api.LogManager;
@@ -121,6 +125,17 @@ public final class PEAccessLogValve
      */
     private final static int DEFAULT_FILE_SIZE_ROTATION_LIMIT = 0;
 
+    /**
+     * The number of entries the asynchronous access log queue can hold.
+     */
+    private final static int ASYNC_QUEUE_CAPACITY = 8192;
+
+    /**
+     * How long the asynchronous writer waits for new entries when the
+     * write interval is zero.
+     */
+    private final static long ASYNC_FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
     private static final String LOG_ROTATION_TIME_FORMAT
             = "'T'HH-mm-ss";
 
@@ -293,6 +308,29 @@ public final class PEAccessLogValve
      */
     private Object lock = new Object();
 
+    /**
+     * Should request threads hand their entries to a background writer
+     * instead of writing them under <code>lock</code>?
+     */
+    private boolean asyncLogging = false;
+
+    /**
+     * What to do with entries when the asynchronous queue is full
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    /**
+     * Queue of formatted entries waiting for the writer, when logging
+     * asynchronously
+     */
+    private AccessLogRingBuffer ringBuffer;
+
+    /**
+     * Per request thread <code>CharBuffer</code> used to format entries when
+     * logging asynchronously
+     */
+    private ThreadLocal<CharBuffer> entryBuffer;
+
     /**
      * Return writerThread interval (seconds)
      */
@@ -314,6 +352,35 @@ public final class PEAccessLogValve
         writeInterval = t;
     }
 
+    /**
+     * Are entries written by a background writer?
+     */
+    public boolean isAsync() {
+        return asyncLogging;
+    }
+
+    /**
+     * Set whether request threads only format their entry and queue it for
+     * a background writer, instead of writing it themselves.
+     */
+    public void setAsync(boolean async) {
+        asyncLogging = async;
+    }
+
+    /**
+     * Return what happens to entries when the asynchronous queue is full
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set what happens to entries when the asynchronous queue is full
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     /**
      * Return rotation interval
      * @return
@@ -571,6 +638,11 @@ public final class PEAccessLogValve
             return;
         }
 
+        if (ringBuffer != null) {
+            publishLogEntry(request, response);
+            return;
+        }
+
         synchronized (lock){
             // Reset properly the buffer in case of an unexpected
             // exception.
@@ -608,6 +680,68 @@ public final class PEAccessLogValve
         }
     }
 
+    /**
+     * Formats the entry for the given request into this thread's buffer and
+     * queues it for the background writer.
+     */
+    private void publishLogEntry(Request request, Response response) {
+        if (formatter == null) {
+            return;
+        }
+
+        CharBuffer buffer = entryBuffer.get();
+        buffer.clear();
+        try {
+            formatter.appendLogEntry(request, response, buffer);
+            buffer.put("\n");
+        } catch (BufferOverflowException ex) {
+            _logger.log(
+                    Level.SEVERE,
+                    LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                new Object[] {ex});
+            return;
+        }
+        buffer.flip();
+        ringBuffer.publish(buffer.toString());
+    }
+
+    /**
+     * Moves the entries queued by request threads into the
+     * <code>CharBuffer</code> and writes them out.
+     */
+    private void writeQueuedEntries() throws IOException {
+        int count;
+        synchronized (lock) {
+            count = ringBuffer.drain(this::bufferEntry);
+            if (count > 0) {
+                log();
+            }
+        }
+
+        long dropped = ringBuffer.drainDropped();
+        if (dropped > 0) {
+            _logger.log(Level.WARNING, LogFacade.ACCESS_LOG_ENTRIES_DROPPED, dropped);
+        }
+    }
+
+    /**
+     * Appends a queued entry to the <code>CharBuffer</code>, writing the
+     * buffer out first if the entry does not fit.
+     */
+    private void bufferEntry(String entry) {
+        if (charBuffer.remaining() < entry.length()) {
+            try {
+                log();
+            } catch (IOException ex) {
+                _logger.log(
+                        Level.SEVERE,
+                        LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                    new Object[] {ex});
+            }
+        }
+        charBuffer.put(entry);
+    }
+
     /**
      * Log the specified message to the log file, switching files if the date
      * has changed since the previous log call.
@@ -768,6 +902,22 @@ public final class PEAccessLogValve
             }
         }
         
+        setAsync(Boolean.parseBoolean(vsBean.getPropertyValue(
+                Constants.ACCESS_LOG_ASYNC_PROPERTY)));
+
+        String acOverflowPolicy = vsBean.getPropertyValue(
+                Constants.ACCESS_LOG_OVERFLOW_POLICY_PROPERTY);
+        if (acOverflowPolicy != null) {
+            try {
+                setOverflowPolicy(OverflowPolicy.valueOf(
+                        acOverflowPolicy.trim().toUpperCase(Locale.ENGLISH)));
+            } catch (IllegalArgumentException ex) {
+                _logger.log(Level.WARNING,
+                        LogFacade.INVALID_ACCESS_LOG_OVERFLOW_POLICY,
+                        acOverflowPolicy);
+            }
+        }
+
         String acFilePrefix = vsBean.getPropertyValue(Constants.ACCESS_LOG_PREFIX);
         if(acFilePrefix != null && !acFilePrefix.trim().isEmpty() && !"null".equals(acFilePrefix) && !"null".equals(accessLogPrefix)) {
             setPrefix(acFilePrefix + ".");
@@ -1204,6 +1354,15 @@ public final class PEAccessLogValve
 
         charBuffer = CharBuffer.allocate(bufferSize);
 
+        if (asyncLogging) {
+            ringBuffer = new AccessLogRingBuffer(ASYNC_QUEUE_CAPACITY, overflowPolicy);
+            final int entryBufferSize = bufferSize;
+            entryBuffer = ThreadLocal.withInitial(() -> CharBuffer.allocate(entryBufferSize));
+        } else {
+            ringBuffer = null;
+            entryBuffer = null;
+        }
+
         // Initialize the timeZone, Date formatters, and currentDate
         final TimeZone tz = TimeZone.getDefault();
 
@@ -1227,7 +1386,7 @@ public final class PEAccessLogValve
 
         lastAccessLogCreationTime = systime;
 
-        if (!flushRealTime){
+        if (!flushRealTime || ringBuffer != null){
             // Start the background writer writerThread
             threadStart();
         }
@@ -1254,11 +1413,20 @@ public final class PEAccessLogValve
         lifecycle.fireLifecycleEvent(STOP_EVENT, null);
         started = false;
 
-        if (!flushRealTime){
+        if (!flushRealTime || ringBuffer != null){
             // Stop the background writer thread
             threadStop();
         }
 
+        if (ringBuffer != null) {
+            // Write out whatever was queued before the writer stopped
+            try {
+                writeQueuedEntries();
+            } catch (IOException ex) {
+                ;
+            }
+        }
+
         close();
     }
 
@@ -1268,6 +1436,11 @@ public final class PEAccessLogValve
     @Override
     public void run() {
 
+        if (ringBuffer != null) {
+            runQueueWriter();
+            return;
+        }
+
         // Loop until the termination semaphore is set
         while (!threadDone) {
             threadSleep();
@@ -1280,6 +1453,30 @@ public final class PEAccessLogValve
 
     }
 
+    /**
+     * Drains the asynchronous queue in batches until the termination
+     * semaphore is set. Request threads wake the writer up early once the
+     * queue starts filling.
+     */
+    private void runQueueWriter() {
+
+        long parkTime = writeInterval > 0
+                ? TimeUnit.SECONDS.toNanos(writeInterval) : ASYNC_FLUSH_INTERVAL_NANOS;
+        while (!threadDone) {
+            if (ringBuffer.isEmpty()) {
+                LockSupport.parkNanos(this, parkTime);
+                // don't let a wake-up from threadStop() close the channel mid-write
+                Thread.interrupted();
+            }
+            try {
+                writeQueuedEntries();
+            } catch (IOException ioe) {
+                threadDone = true;
+            }
+        }
+
+    }
+
     /**
      * Sleep for the duration specified by the <code>writeInterval</code>
      * property.
@@ -1302,13 +1499,16 @@ public final class PEAccessLogValve
      */
     private void threadStart() {
 
-        if (writerThread != null || writeInterval == 0)
+        if (writerThread != null || (writeInterval == 0 && ringBuffer == null))
             return;
 
         threadDone = false;
         String threadName = "AccessLogWriter";
         writerThread = new Thread(this, threadName);
         writerThread.setDaemon(true);
+        if (ringBuffer != null) {
+            ringBuffer.setWriter(writerThread);
+        }
         writerThread.start();
 
     }
@@ -1318,10 +1518,13 @@ public final class PEAccessLogValve
      */
     private void threadStop() {
 
-        if (writerThread == null || writeInterval == 0)
+        if (writerThread == null || (writeInterval == 0 && ringBuffer == null))
             return;
 
         threadDone = true;
+        if (ringBuffer != null) {
+            ringBuffer.setWriter(null);
+        }
         writerThread.interrupt();
         try {
             writerThread.join();
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  *
- * Portions Copyright [2017] [Payara Foundation and/or its affiliates]
+ * Portions Copyright [2017-2024] [Payara Foundation and/or its affiliates]
  */
 
 package com.sun.enterprise.web.accesslog;
@@ -45,9 +45,10 @@ package com.sun.enterprise.web.accesslog;
 import org.apache.catalina.Request;
 import org.apache.catalina.Response;
 
+import java.nio.BufferOverflowException;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.TimeZone;
 
 /**
@@ -68,30 +69,6 @@ public abstract class AccessLogFormatter {
      */
     protected static final String SPACE = " ";
 
-    /**
-     * ThreadLocal for a date formatter to format Dates into a day string in the format
-     * "dd".
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> dayFormatter = null;
-
-    /**
-     * ThreadLocal for a date formatter to format a Date into a month string in the format
-     * "MM".
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> monthFormatter = null;
-
-    /**
-     * ThreadLocal for a date formatter to format a Date into a year string in the format
-     * "yyyy".
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> yearFormatter = null;
-
-    /**
-     * ThreadLocal for a date formatter to format a Date into a time in the format
-     * "kk:mm:ss" (kk is a 24-hour representation of the hour).
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> timeFormatter = null;
-
     /**
      * The time zone relative to GMT.
      */
@@ -106,21 +83,20 @@ public abstract class AccessLogFormatter {
     protected boolean needTimeTaken;
 
     /**
-     * The system time when we last updated the Date that this valve
-     * uses for log lines.
+     * The timestamp of the current second, formatted for log lines. Replaced
+     * as a whole once the second has passed, so it is read without locking.
      */
-    private Date currentDate = null;
+    private volatile FormattedDate formattedDate = null;
 
 
     /**
      * Constructor.
      *
-     * Initialize the timeZone and currentDate.
+     * Initialize the timeZone.
      */
     public AccessLogFormatter() {
         tz = TimeZone.getDefault();
-        timeZone = calculateTimeZoneOffset(tz.getOffset(new Date().getTime()));
-        currentDate = new Date(System.currentTimeMillis());
+        timeZone = calculateTimeZoneOffset(tz.getOffset(System.currentTimeMillis()));
     }
 
 
@@ -138,22 +114,74 @@ public abstract class AccessLogFormatter {
 
 
     /**
-     * This method returns a Date object that is accurate to within one
-     * second.  If a writerThread calls this method to get a Date and it's been
-     * less than 1 second since a new Date was created, this method
-     * simply gives out the same Date again so that the system doesn't
-     * spend time creating Date objects unnecessarily.
+     * Returns the current time formatted as <code>dd/MMM/yyyy:HH:mm:ss zone</code>.
+     * The formatted value is computed at most once per second and shared by
+     * all threads without locking.
      */
-    protected synchronized Date getDate() {
+    protected String getFormattedDate() {
+        long second = System.currentTimeMillis() / 1000;
+        FormattedDate current = formattedDate;
+        if (current == null || current.second != second) {
+            // racing threads may both format the same second, which is harmless
+            current = new FormattedDate(second, formatDate(second));
+            formattedDate = current;
+        }
+        return current.text;
+    }
+
+    private String formatDate(long second) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), tz.toZoneId());
+        StringBuilder sb = new StringBuilder(26);
+        appendTwoDigits(sb, time.getDayOfMonth());
+        sb.append('/').append(months[time.getMonthValue() - 1]).append('/');
+        sb.append(time.getYear()).append(':');
+        appendTwoDigits(sb, time.getHour());
+        sb.append(':');
+        appendTwoDigits(sb, time.getMinute());
+        sb.append(':');
+        appendTwoDigits(sb, time.getSecond());
+        sb.append(SPACE).append(timeZone);
+        return sb.toString();
+    }
 
-        // Only create a new Date once per second, max.
-        long systime = System.currentTimeMillis();
-        if ((systime - currentDate.getTime()) > 1000) {
-            currentDate = new Date(systime);
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        if (value < 10) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
+    /**
+     * Appends the decimal representation of the given number to the given
+     * CharBuffer without creating an intermediate String.
+     *
+     * @param cb The CharBuffer to append to
+     * @param value The number to append
+     */
+    protected static void appendNumber(CharBuffer cb, long value) {
+        if (value == Long.MIN_VALUE) {
+            cb.put(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            cb.put('-');
+            value = -value;
         }
 
-        return currentDate;
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        if (cb.remaining() < digits) {
+            throw new BufferOverflowException();
+        }
 
+        int start = cb.position();
+        for (int i = digits - 1; i >= 0; i--) {
+            cb.put(start + i, (char) ('0' + (value % 10)));
+            value /= 10;
+        }
+        cb.position(start + digits);
     }
 
     protected String calculateTimeZoneOffset(long offset) {
@@ -180,25 +208,6 @@ public abstract class AccessLogFormatter {
     }
 
 
-    /**
-     * Return the month abbreviation for the specified month, which must
-     * be a two-digit String.
-     *
-     * @param month Month number ("01" .. "12").
-     */
-    protected String lookup(String month) {
-
-        int index;
-        try {
-            index = Integer.parseInt(month) - 1;
-        } catch (Throwable t) {
-            index = 0;  // Can not happen, in theory
-        }
-        return (months[index]);
-
-    }
-
-
     /**
      * Has the time-taken token been specified in the access log pattern?
      *
@@ -207,5 +216,16 @@ public abstract class AccessLogFormatter {
      */
     public boolean needTimeTaken() {
         return needTimeTaken;
-    }    
+    }
+
+    private static final class FormattedDate {
+
+        private final long second;
+        private final String text;
+
+        FormattedDate(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
 }
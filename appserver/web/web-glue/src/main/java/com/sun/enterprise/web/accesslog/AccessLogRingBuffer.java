@@ -0,0 +1,200 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.web.accesslog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring of formatted access log entries, published by any number of
+ * request processing threads and drained by a single writer thread.
+ * <p>
+ * Producers claim a slot by advancing the tail with a CAS and then store
+ * their entry in it, so publishing never takes a lock. The writer consumes
+ * slots in order from the head and frees each one before moving past it.
+ * What happens when the ring is full is decided by the
+ * {@link OverflowPolicy}.
+ */
+public class AccessLogRingBuffer {
+
+    /**
+     * Behaviour of {@link #publish(String)} when the ring is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for the writer to free a slot.
+         */
+        BLOCK,
+        /**
+         * Discard the entry.
+         */
+        DROP,
+        /**
+         * Discard the entry and count it, see {@link #drainDropped()}.
+         */
+        COUNT
+    }
+
+    /**
+     * Time a blocked producer parks before checking the ring again.
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile Thread writer;
+
+    /**
+     * Creates a ring holding at least the given number of entries.
+     *
+     * @param capacity minimum number of entries, rounded up to a power of two
+     * @param overflowPolicy what to do with entries published while full
+     */
+    public AccessLogRingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Registers the thread draining this ring, so that producers can wake it
+     * up once the ring starts filling. Blocking producers give up waiting
+     * while no writer is registered.
+     *
+     * @param writer the writer thread, or null
+     */
+    public void setWriter(Thread writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Publishes an entry.
+     *
+     * @param entry the formatted access log entry
+     * @return true if the entry was queued, false if it was discarded
+     */
+    public boolean publish(String entry) {
+        long claimed;
+        while (true) {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                // nobody is draining any more once the writer has been unregistered
+                if (overflowPolicy != OverflowPolicy.BLOCK || writer == null) {
+                    if (overflowPolicy == OverflowPolicy.COUNT) {
+                        dropped.increment();
+                    }
+                    return false;
+                }
+                wakeWriter();
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+            } else if (tail.compareAndSet(claimed, claimed + 1)) {
+                break;
+            }
+        }
+        slots.set((int) claimed & mask, entry);
+
+        if (claimed - head >= slots.length() >> 1) {
+            wakeWriter();
+        }
+        return true;
+    }
+
+    /**
+     * Hands all published entries to the given consumer, in publication
+     * order. Must only be called from the writer thread.
+     *
+     * @param consumer receives each entry
+     * @return the number of entries drained
+     */
+    public int drain(Consumer<String> consumer) {
+        long current = head;
+        int count = 0;
+        String entry;
+        // stops at a claimed slot whose entry is not stored yet, it is picked up by the next drain
+        while ((entry = slots.get((int) current & mask)) != null) {
+            slots.set((int) current & mask, null);
+            current++;
+            head = current;
+            consumer.accept(entry);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return true if no entries are waiting to be drained
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * Returns the number of entries discarded under
+     * {@link OverflowPolicy#COUNT} since the previous call, and resets it.
+     *
+     * @return number of dropped entries
+     */
+    public long drainDropped() {
+        return dropped.sumThenReset();
+    }
+
+    private void wakeWriter() {
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2018-2021] [Payara Foundation]
+// Portions Copyright [2018-2024] [Payara Foundation]
 package com.sun.enterprise.web.accesslog;
 
 import com.sun.enterprise.config.serverbeans.ConfigBeansUtilities;
@@ -48,13 +48,11 @@ import org.apache.catalina.Request;
 import org.apache.catalina.Response;
 import org.glassfish.web.LogFacade;
 
-import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -134,9 +132,18 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
     private Container container;
 
     /**
-     * List of access log pattern components
+     * The access log pattern, compiled into one appender per component
      */
-    private LinkedList<String> patternComponents;
+    private Appender[] appenders;
+
+    /**
+     * Appends the value of a single access log pattern component.
+     */
+    @FunctionalInterface
+    private interface Appender {
+        void append(CharBuffer cb, Request request, Response response,
+                    HttpServletRequest hreq, HttpServletResponse hres);
+    }
 
     /**
      * Constructor.
@@ -148,34 +155,18 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
 
         super();
 
-        this.patternComponents = parsePattern(pattern);
+        List<String> patternComponents = parsePattern(pattern);
         if (patternComponents == null) {
             // Use default format if error in pattern
             patternComponents = parsePattern(ConfigBeansUtilities.getDefaultFormat());
         }
         this.container = container;
 
-        final TimeZone timeZone = tz;
-        dayFormatter = ThreadLocal.withInitial(() -> {
-            SimpleDateFormat f = new SimpleDateFormat("dd");
-            f.setTimeZone(timeZone);
-            return f;
-        });
-        monthFormatter = ThreadLocal.withInitial(() -> {
-            SimpleDateFormat f = new SimpleDateFormat("MM");
-            f.setTimeZone(timeZone);
-            return f;
-        });
-        yearFormatter = ThreadLocal.withInitial(() -> {
-            SimpleDateFormat f = new SimpleDateFormat("yyyy");
-            f.setTimeZone(timeZone);
-            return f;
-        });
-        timeFormatter = ThreadLocal.withInitial(() -> {
-            SimpleDateFormat f = new SimpleDateFormat("HH:mm:ss");
-            f.setTimeZone(timeZone);
-            return f;
-        });
+        appenders = new Appender[patternComponents.size()];
+        int i = 0;
+        for (String pc : patternComponents) {
+            appenders[i++] = compile(pc);
+        }
     }
 
     /**
@@ -193,95 +184,112 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         HttpServletRequest httpServletRequest = (HttpServletRequest) request.getRequest();
         HttpServletResponse httpServletResponse = (HttpServletResponse) response.getResponse();
 
-        for (String pc : patternComponents) {
-            if (pc.startsWith(ATTRIBUTE_BY_NAME_PREFIX)) {
-                appendAttributeByName(
-                        charBuffer,
-                        pc.substring(ATTRIBUTE_BY_NAME_PREFIX_LEN),
-                        httpServletRequest);
-            } else if (pc.startsWith(SESSION_ATTRIBUTE_BY_NAME_PREFIX)) {
-                appendSessionAttributeByName(
-                        charBuffer,
-                        pc.substring(SESSION_ATTRIBUTE_BY_NAME_PREFIX_LEN),
-                        httpServletRequest);
-            } else if (AUTH_USER_NAME.equals(pc)) {
-                appendAuthUserName(charBuffer, httpServletRequest);
-            } else if (CLIENT_DNS.equals(pc)) {
-                appendClientDNS(charBuffer, httpServletRequest);
-            } else if (CLIENT_NAME.equals(pc)) {
-                appendClientName(charBuffer, httpServletRequest);
-            } else if (COOKIE.equals(pc)) {
-                appendCookie(charBuffer, httpServletRequest);
-            } else if (COOKIES.equals(pc)) {
-                appendCookies(charBuffer, httpServletRequest);
-            } else if (COOKIE_VALUE.equals(pc)) {
-                appendCookieValue(charBuffer, httpServletRequest);
-            } else if (pc.startsWith(COOKIE_BY_NAME_PREFIX)) {
-                appendCookieByName(charBuffer,
-                        pc.substring(COOKIE_BY_NAME_PREFIX_LEN),
-                        httpServletRequest);
-            } else if (pc.startsWith(COOKIES_BY_NAME_PREFIX)) {
-                appendCookiesByName(charBuffer,
-                        pc.substring(COOKIES_BY_NAME_PREFIX_LEN),
-                        httpServletRequest);
-            } else if (DATE_TIME.equals(pc)) {
-                appendCurrentDate(charBuffer);
-            } else if (HEADER_ACCEPT.equals(pc)) {
-                appendHeaderAccept(charBuffer, httpServletRequest);
-            } else if (HEADER_AUTH.equals(pc)) {
-                appendHeaderAuth(charBuffer, httpServletRequest);
-            } else if (HEADER_DATE.equals(pc)) {
-                appendHeaderDate(charBuffer, httpServletRequest);
-            } else if (HEADER_IF_MOD_SINCE.equals(pc)) {
-                appendHeaderIfModSince(charBuffer, httpServletRequest);
-            } else if (HEADER_USER_AGENT.equals(pc)) {
-                appendUserAgent(charBuffer, httpServletRequest);
-            } else if (HEADER_REFERER.equals(pc)) {
-                appendReferer(charBuffer, httpServletRequest);
-            } else if (HTTP_METHOD.equals(pc)) {
-                appendHTTPMethod(charBuffer, httpServletRequest);
-            } else if (HTTP_URI.equals(pc)) {
-                appendHTTPUri(charBuffer, httpServletRequest);
-            } else if (HTTP_VERSION.equals(pc)) {
-                appendHTTPVersion(charBuffer, httpServletRequest);
-            } else if (QUERY_STR.equals(pc)) {
-                appendQueryString(charBuffer, httpServletRequest);
-            } else if (REFERER.equals(pc)) {
-                appendReferer(charBuffer, httpServletRequest);
-            } else if (REQUEST.equals(pc)) {
-                appendRequestInfo(charBuffer, httpServletRequest);
-            } else if (RESPONSE_LENGTH.equals(pc)) {
-                appendResponseLength(charBuffer, response);
-            } else if (RESPONSE_CONTENT_TYPE.equals(pc)) {
-                appendResponseContentType(charBuffer, response);
-            } else if (STATUS.equals(pc)) {
-                appendResponseStatus(charBuffer, response);
-            } else if (TIME_TAKEN.equals(pc)) {
-                appendTimeTaken(charBuffer, request);
-            } else if (USER_AGENT.equals(pc)) {
-                appendUserAgent(charBuffer, httpServletRequest);
-            } else if (VS_ID.equals(pc)) {
-                appendVirtualServerId(charBuffer);
-            } else if (pc.startsWith(HEADER_BY_NAME_PREFIX)) {
-                appendHeaderByName(charBuffer,
-                        pc.substring(HEADER_BY_NAME_PREFIX_LEN),
-                        httpServletRequest);
-            } else if (pc.startsWith(HEADERS_BY_NAME_PREFIX)) {
-                appendHeadersByName(charBuffer,
-                        pc.substring(HEADERS_BY_NAME_PREFIX_LEN),
-                        httpServletRequest);
-            } else if (pc.startsWith(RESPONSE_HEADER_BY_NAME_PREFIX)) {
-                appendResponseHeaderByName(charBuffer,
-                        pc.substring(RESPONSE_HEADER_BY_NAME_PREFIX_LEN), httpServletResponse, response);
-            } else if (pc.startsWith(RESPONSE_HEADERS_BY_NAME_PREFIX)) {
-                appendResponseHeadersByName(charBuffer,
-                        pc.substring(RESPONSE_HEADERS_BY_NAME_PREFIX_LEN), httpServletResponse, response);
-            }
-
+        for (Appender appender : appenders) {
+            appender.append(charBuffer, request, response, httpServletRequest, httpServletResponse);
             charBuffer.put(SPACE);
         }
     }
 
+    /*
+     * Compiles a single access log pattern component into the appender for
+     * it, so that the component name is only looked at once rather than for
+     * every request.
+     *
+     * @param pc The pattern component, as returned by parsePattern
+     *
+     * @return Appender for the pattern component
+     */
+    private Appender compile(String pc) {
+        if (pc.startsWith(ATTRIBUTE_BY_NAME_PREFIX)) {
+            String name = pc.substring(ATTRIBUTE_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-ATTRIBUTE-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendAttributeByName(cb, name, nullValue, hreq);
+        } else if (pc.startsWith(SESSION_ATTRIBUTE_BY_NAME_PREFIX)) {
+            String name = pc.substring(SESSION_ATTRIBUTE_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-SESSION-ATTRIBUTE-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendSessionAttributeByName(cb, name, nullValue, hreq);
+        } else if (AUTH_USER_NAME.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getRemoteUser(), "NULL-AUTH-USER");
+        } else if (CLIENT_DNS.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getRemoteAddr(), "NULL-CLIENT-DNS");
+        } else if (CLIENT_NAME.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getRemoteHost(), "NULL-CLIENT-NAME");
+        } else if (COOKIE.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendCookie(cb, hreq);
+        } else if (COOKIES.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendCookies(cb, hreq);
+        } else if (COOKIE_VALUE.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendCookieValue(cb, hreq);
+        } else if (pc.startsWith(COOKIE_BY_NAME_PREFIX)) {
+            String name = pc.substring(COOKIE_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-COOKIE-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendCookieByName(cb, name, nullValue, hreq);
+        } else if (pc.startsWith(COOKIES_BY_NAME_PREFIX)) {
+            String name = pc.substring(COOKIES_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-COOKIES-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendCookiesByName(cb, name, nullValue, hreq);
+        } else if (DATE_TIME.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendCurrentDate(cb);
+        } else if (HEADER_ACCEPT.equals(pc)) {
+            return header(HTTP_HEADER_ACCEPT, "NULL-HEADER-ACCEPT");
+        } else if (HEADER_AUTH.equals(pc)) {
+            return header(HTTP_HEADER_AUTHORIZATION, "NULL-HEADER-AUTHORIZATION");
+        } else if (HEADER_DATE.equals(pc)) {
+            return header(HTTP_HEADER_DATE, "NULL-HEADER-DATE");
+        } else if (HEADER_IF_MOD_SINCE.equals(pc)) {
+            return header(HTTP_HEADER_IF_MODIFIED_SINCE, "NULL-HEADER-IF-MODIFIED-SINCE");
+        } else if (HEADER_USER_AGENT.equals(pc) || USER_AGENT.equals(pc)) {
+            return header("user-agent", "NULL-USER-AGENT");
+        } else if (HEADER_REFERER.equals(pc) || REFERER.equals(pc)) {
+            return header("referer", "NULL-REFERER");
+        } else if (HTTP_METHOD.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getMethod(), "NULL-HTTP-METHOD");
+        } else if (HTTP_URI.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getRequestURI(), "NULL-HTTP-URI");
+        } else if (HTTP_VERSION.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getProtocol(), "NULL-HTTP-PROTOCOL");
+        } else if (QUERY_STR.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getQueryString(), "NULL-QUERY");
+        } else if (REQUEST.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendRequestInfo(cb, hreq);
+        } else if (RESPONSE_LENGTH.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendNumber(cb, response.getContentCount());
+        } else if (RESPONSE_CONTENT_TYPE.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> cb.put(response.getContentType());
+        } else if (STATUS.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendNumber(cb, ((HttpResponse) response).getStatus());
+        } else if (TIME_TAKEN.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendTimeTaken(cb, request);
+        } else if (VS_ID.equals(pc)) {
+            return (cb, request, response, hreq, hres) -> appendVirtualServerId(cb);
+        } else if (pc.startsWith(HEADER_BY_NAME_PREFIX)) {
+            String name = pc.substring(HEADER_BY_NAME_PREFIX_LEN);
+            return header(name, "NULL-HEADER-" + name.toUpperCase(Locale.ENGLISH));
+        } else if (pc.startsWith(HEADERS_BY_NAME_PREFIX)) {
+            String name = pc.substring(HEADERS_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-HEADERS-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendHeadersByName(cb, name, nullValue, hreq);
+        } else if (pc.startsWith(RESPONSE_HEADER_BY_NAME_PREFIX)) {
+            String name = pc.substring(RESPONSE_HEADER_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-RESPONSE-HEADER-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendResponseHeaderByName(cb, name, nullValue, hres, response);
+        } else if (pc.startsWith(RESPONSE_HEADERS_BY_NAME_PREFIX)) {
+            String name = pc.substring(RESPONSE_HEADERS_BY_NAME_PREFIX_LEN);
+            String nullValue = "NULL-RESPONSE-HEADERS-" + name.toUpperCase(Locale.ENGLISH);
+            return (cb, request, response, hreq, hres) -> appendResponseHeadersByName(cb, name, nullValue, hres, response);
+        }
+        // parsePattern has rejected anything else
+        return (cb, request, response, hreq, hres) -> { };
+    }
+
+    /*
+     * Returns an appender for the value of the request header with the
+     * given name.
+     */
+    private static Appender header(String headerName, String nullValue) {
+        return (cb, request, response, hreq, hres) -> appendQuoted(cb, hreq.getHeader(headerName), nullValue);
+    }
+
     /*
      * Parses the access log pattern (that was specified via setPattern) into
      * its individual components, and returns them as a list.
@@ -290,9 +298,9 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      *
      * @return List containing the access log pattern components
      */
-    private LinkedList<String> parsePattern(String pattern) {
+    private List<String> parsePattern(String pattern) {
 
-        LinkedList<String> list = new LinkedList<>();
+        List<String> list = new ArrayList<>();
 
         int from = 0;
         int end = -1;
@@ -374,25 +382,32 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         }
     }
 
+    /*
+     * Appends the given value in quotes to the given char buffer, or the
+     * given null value if there is none.
+     */
+    private static void appendQuoted(CharBuffer cb, String value, String nullValue) {
+        cb.put(QUOTE);
+        cb.put(value != null ? value : nullValue);
+        cb.put(QUOTE);
+    }
+
     /*
      * Appends the string representation of the value of the request
      * attribute with the given name to the given char buffer, or
      * NULL-ATTRIBUTE-<attributeName> if no attribute with the given name
      * is present in the request.
      */
-    private void appendAttributeByName(CharBuffer cb,
-                                       String attributeName,
-                                       HttpServletRequest hreq) {
-        if (attributeName == null) {
-            throw new IllegalArgumentException("Null request attribute name");
-        }
-
+    private static void appendAttributeByName(CharBuffer cb,
+                                              String attributeName,
+                                              String nullValue,
+                                              HttpServletRequest hreq) {
         cb.put(QUOTE);
         Object attrValue = hreq.getAttribute(attributeName);
         if (attrValue != null) {
             cb.put(attrValue.toString());
         } else {
-            cb.put("NULL-ATTRIBUTE-" + attributeName.toUpperCase(Locale.ENGLISH));
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
@@ -404,13 +419,10 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * given name is present in the session, or NULL-SESSION if
      * no session exists.
      */
-    private void appendSessionAttributeByName(CharBuffer cb,
-                                              String attributeName,
-                                              HttpServletRequest hreq) {
-        if (attributeName == null) {
-            throw new IllegalArgumentException("Null session attribute name");
-        }
-
+    private static void appendSessionAttributeByName(CharBuffer cb,
+                                                     String attributeName,
+                                                     String nullValue,
+                                                     HttpServletRequest hreq) {
         cb.put(QUOTE);
         HttpSession session = hreq.getSession(false);
         if (session != null) {
@@ -418,8 +430,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
             if (attrValue != null) {
                 cb.put(attrValue.toString());
             } else {
-                cb.put("NULL-SESSION-ATTRIBUTE-" +
-                       attributeName.toUpperCase(Locale.ENGLISH));
+                cb.put(nullValue);
             }
         } else {
             cb.put("NULL-SESSION");
@@ -427,69 +438,19 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         cb.put(QUOTE);
     }
 
-    /*
-     * Appends the client host name of the given request to the given char
-     * buffer.
-     */
-    private void appendClientName(CharBuffer cb, ServletRequest req) {
-        cb.put(QUOTE);
-        String value = req.getRemoteHost();
-        if (value == null) {
-            value = "NULL-CLIENT-NAME";
-        }
-        cb.put(value);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the client DNS of the given request to the given char
-     * buffer.
-     */
-    private void appendClientDNS(CharBuffer cb, ServletRequest req) {
-        cb.put(QUOTE);
-        String value = req.getRemoteAddr();
-        if (value == null) {
-            value = "NULL-CLIENT-DNS";
-        }
-        cb.put(value);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the authenticated user (if any) to the given char buffer.
-     */
-    private void appendAuthUserName(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String user = hreq.getRemoteUser();
-        if (user == null) {
-            user = "NULL-AUTH-USER";
-        }
-        cb.put(user);
-        cb.put(QUOTE);
-    }
-
     /*
      * Appends the current date to the given char buffer.
      */
     private void appendCurrentDate(CharBuffer cb) {
         cb.put(QUOTE);
-        Date date = getDate();
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
+        cb.put(getFormattedDate());
         cb.put(QUOTE);
     }
 
     /*
      * Appends info about the given request to the given char buffer.
      */
-    private void appendRequestInfo(CharBuffer cb, HttpServletRequest hreq) {
+    private static void appendRequestInfo(CharBuffer cb, HttpServletRequest hreq) {
         cb.put(QUOTE);
         cb.put(hreq.getMethod());
         cb.put(SPACE);
@@ -498,160 +459,29 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
             uri = "NULL-HTTP-URI";
         }
         cb.put(uri);
-        if (hreq.getQueryString() != null) {
+        String query = hreq.getQueryString();
+        if (query != null) {
             cb.put('?');
-            cb.put(hreq.getQueryString());
+            cb.put(query);
         }
         cb.put(SPACE);
         cb.put(hreq.getProtocol());
         cb.put(QUOTE);
     }
 
-    /*
-     * Appends the response status to the given char buffer.
-     */
-    private void appendResponseStatus(CharBuffer cb, Response response) {
-        cb.put(String.valueOf(((HttpResponse) response).getStatus()));
-    }
-
-    /*
-     * Appends the content length of the given response to the given char
-     * buffer.
-     */
-    private void appendResponseLength(CharBuffer cb, Response response) {
-        cb.put("" + response.getContentCount());
-    }
-
-    /*
-     * Appends the content type of the given response to the given char
-     * buffer.
-     */
-    private void appendResponseContentType(CharBuffer cb, Response response) {
-        cb.put(response.getContentType());
-    }
-
-    /*
-     * Appends the value of the 'user-agent' header of the given request to
-     * the given char buffer.
-     */
-    private void appendUserAgent(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String ua = hreq.getHeader("user-agent");
-        if (ua == null) {
-            ua = "NULL-USER-AGENT";
-        }
-        cb.put(ua);
-        cb.put(QUOTE);
-    }
-
     /*
      * Appends the time (in milliseconds) it has taken to service the given
      * request to the given char buffer.
      */
-    private void appendTimeTaken(CharBuffer cb, Request req) {
-
-        String timeTaken = "NULL-TIME-TAKEN";
-
+    private static void appendTimeTaken(CharBuffer cb, Request req) {
         cb.put(QUOTE);
         Long startTimeObj = (Long) req.getNote(
             Constants.REQUEST_START_TIME_NOTE);
         if (startTimeObj != null) {
-            long startTime = startTimeObj.longValue();
-            long endTime = System.currentTimeMillis();
-            timeTaken = String.valueOf(endTime - startTime);
-        }
-        cb.put(timeTaken);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the value of the 'referer' header of the given request to
-     * the given char buffer.
-     */
-    private void appendReferer(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String referer = hreq.getHeader("referer");
-        if (referer == null) {
-            referer = "NULL-REFERER";
-        }
-        cb.put(referer);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the Accept header of the given request to the given char
-     * buffer.
-     */
-    private void appendHeaderAccept(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String accept = hreq.getHeader(HTTP_HEADER_ACCEPT);
-        if (accept == null) {
-            accept = "NULL-HEADER-ACCEPT";
-        }
-        cb.put(accept);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the Authorization header of the given request to the given char
-     * buffer.
-     */
-    private void appendHeaderAuth(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String auth = hreq.getHeader(HTTP_HEADER_AUTHORIZATION);
-        if (auth == null) {
-            auth = "NULL-HEADER-AUTHORIZATION";
-        }
-        cb.put(auth);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the Date header of the given request to the given char buffer.
-     */
-    private void appendHeaderDate(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String date = hreq.getHeader(HTTP_HEADER_DATE);
-        if (date == null) {
-            date = "NULL-HEADER-DATE";
-        }
-        cb.put(date);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the If-Modified-Since header of the given request to the
-     * given char buffer.
-     */
-    private void appendHeaderIfModSince(CharBuffer cb,
-                                        HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String ifModSince = hreq.getHeader(HTTP_HEADER_IF_MODIFIED_SINCE);
-        if (ifModSince == null) {
-            ifModSince = "NULL-HEADER-IF-MODIFIED-SINCE";
-        }
-        cb.put(ifModSince);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the value of the header with the specified name in the given
-     * request to the given char buffer, or NULL-HEADER-<headerName> if no
-     * header with the given name is present in the request..
-     */
-    private void appendHeaderByName(CharBuffer cb,
-                                    String headerName,
-                                    HttpServletRequest hreq) {
-        if (headerName == null) {
-            throw new IllegalArgumentException("Null request header name");
-        }
-
-        cb.put(QUOTE);
-        String value = hreq.getHeader(headerName);
-        if (value == null) {
-            value = "NULL-HEADER-" + headerName.toUpperCase(Locale.ENGLISH);
+            appendNumber(cb, System.currentTimeMillis() - startTimeObj);
+        } else {
+            cb.put("NULL-TIME-TAKEN");
         }
-        cb.put(value);
         cb.put(QUOTE);
     }
 
@@ -661,25 +491,22 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * NULL-RESPONSE-HEADER-<headerName> if no header with the given name
      * is present in the response.
      */
-    private void appendResponseHeaderByName(CharBuffer cb,
-                                            String headerName,
-                                            HttpServletResponse hres, Response response) {
-        if (headerName == null) {
-            throw new IllegalArgumentException("Null response header name");
-        }
-
+    private static void appendResponseHeaderByName(CharBuffer cb,
+                                                   String headerName,
+                                                   String nullValue,
+                                                   HttpServletResponse hres,
+                                                   Response response) {
         cb.put(QUOTE);
         String value = hres.getHeader(headerName);
-        if (value == null) {
-            if (headerName.equalsIgnoreCase("Content-Type")) {
-                value = hres.getContentType();
-            } else if (headerName.equalsIgnoreCase("Content-Length")) {
-                value = ""+response.getContentLength();
-            } else {
-                value = "NULL-RESPONSE-HEADER-" + headerName.toUpperCase(Locale.ENGLISH);
-            }
+        if (value != null) {
+            cb.put(value);
+        } else if (headerName.equalsIgnoreCase("Content-Type")) {
+            cb.put(hres.getContentType());
+        } else if (headerName.equalsIgnoreCase("Content-Length")) {
+            appendNumber(cb, response.getContentLength());
+        } else {
+            cb.put(nullValue);
         }
-        cb.put(value);
         cb.put(QUOTE);
     }
 
@@ -689,30 +516,25 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * NULL-HEADERS-<headerName> if no headers with the given name are
      * present in the request..
      */
-    private void appendHeadersByName(CharBuffer cb,
-                                     String headerName,
-                                     HttpServletRequest hreq) {
-        if (headerName == null) {
-            throw new IllegalArgumentException("Null request header name");
-        }
-
+    private static void appendHeadersByName(CharBuffer cb,
+                                            String headerName,
+                                            String nullValue,
+                                            HttpServletRequest hreq) {
         cb.put(QUOTE);
-        Enumeration e = hreq.getHeaders(headerName);
+        Enumeration<String> e = hreq.getHeaders(headerName);
+        boolean first = true;
         if (e != null) {
-            boolean first = true;
             while (e.hasMoreElements()) {
                 if (first) {
                     first = false;
                 } else {
-                    cb.put(";");
+                    cb.put(';');
                 }
-                cb.put(e.nextElement().toString());
+                cb.put(e.nextElement());
             }
-            if (first) {
-                cb.put("NULL-HEADERS-" + headerName.toUpperCase(Locale.ENGLISH));
-            }
-        } else {
-            cb.put("NULL-HEADERS-" + headerName.toUpperCase(Locale.ENGLISH));
+        }
+        if (first) {
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
@@ -723,12 +545,11 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * NULL-RESPONSE-HEADERS-<headerName> if no headers with the given name
      * are present in the response.
      */
-    private void appendResponseHeadersByName(CharBuffer cb,
-            String headerName, HttpServletResponse hres, Response response) {
-        if (headerName == null) {
-            throw new IllegalArgumentException("Null response header name");
-        }
-
+    private static void appendResponseHeadersByName(CharBuffer cb,
+                                                    String headerName,
+                                                    String nullValue,
+                                                    HttpServletResponse hres,
+                                                    Response response) {
         cb.put(QUOTE);
         boolean first = true;
         Collection<String> values = hres.getHeaders(headerName);
@@ -737,41 +558,49 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
                 if (first) {
                     first = false;
                 } else {
-                    cb.put(";");
+                    cb.put(';');
                 }
                 cb.put(value);
             }
-        } else {
-            String value = null;
-            if (headerName.equalsIgnoreCase("Content-Type")) {
-                value = hres.getContentType();
-            } else if (headerName.equalsIgnoreCase("Content-Length")) {
-                value = ""+response.getContentLength();
-            }
+        } else if (headerName.equalsIgnoreCase("Content-Type")) {
+            String value = hres.getContentType();
             if (value != null) {
                 first = false;
                 cb.put(value);
             }
+        } else if (headerName.equalsIgnoreCase("Content-Length")) {
+            first = false;
+            appendNumber(cb, response.getContentLength());
         }
         if (first) {
-            cb.put("NULL-RESPONSE-HEADERS-" + headerName.toUpperCase(Locale.ENGLISH));
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
 
+    /*
+     * Appends the name and value (separated by '=') of the given cookie to
+     * the given char buffer.
+     */
+    private static void appendCookieNameValue(CharBuffer cb, Cookie cookie) {
+        cb.put(cookie.getName());
+        cb.put('=');
+        cb.put(String.valueOf(cookie.getValue()));
+    }
+
     /*
      * Appends the name and value (separated by '=') of the first cookie
      * in the given request to the given char buffer, or NULL-COOKIE if no
      * cookies are present in the request.
      */
-    private void appendCookie(CharBuffer cb, HttpServletRequest hreq) {
+    private static void appendCookie(CharBuffer cb, HttpServletRequest hreq) {
         cb.put(QUOTE);
-        String cookie = "NULL-COOKIE";
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
-            cookie = cookies[0].getName() + "=" + cookies[0].getValue();
+            appendCookieNameValue(cb, cookies[0]);
+        } else {
+            cb.put("NULL-COOKIE");
         }
-        cb.put(cookie);
         cb.put(QUOTE);
     }
 
@@ -780,14 +609,14 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * (separated by ';') in the given request to the given char buffer,
      * or NULL-COOKIES if no cookies are present in the request.
      */
-    private void appendCookies(CharBuffer cb, HttpServletRequest hreq) {
+    private static void appendCookies(CharBuffer cb, HttpServletRequest hreq) {
         cb.put(QUOTE);
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
             for (int i=0; i<cookies.length; i++) {
-                cb.put(cookies[i].getName() + "=" + cookies[i].getValue());
+                appendCookieNameValue(cb, cookies[i]);
                 if (i<cookies.length-1) {
-                    cb.put(";");
+                    cb.put(';');
                 }
             }
         } else {
@@ -801,14 +630,14 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * given char buffer, or NULL-COOKIE-VALUE if no cookies are present
      * in the request.
      */
-    private void appendCookieValue(CharBuffer cb, HttpServletRequest hreq) {
+    private static void appendCookieValue(CharBuffer cb, HttpServletRequest hreq) {
         cb.put(QUOTE);
-        String cookieValue = "NULL-COOKIE-VALUE";
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
-            cookieValue = cookies[0].getValue();
+            cb.put(cookies[0].getValue());
+        } else {
+            cb.put("NULL-COOKIE-VALUE");
         }
-        cb.put(cookieValue);
         cb.put(QUOTE);
     }
 
@@ -817,17 +646,14 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * given char buffer, or NULL-COOKIE-<cookieName> if no cookies with the
      * given cookie name are present in the request.
      */
-    private void appendCookieByName(CharBuffer cb,
-                                    String cookieName,
-                                    HttpServletRequest hreq) {
-        if (cookieName == null) {
-            throw new IllegalArgumentException("Null request cookie name");
-        }
-
+    private static void appendCookieByName(CharBuffer cb,
+                                           String cookieName,
+                                           String nullValue,
+                                           HttpServletRequest hreq) {
         cb.put(QUOTE);
         String cookieValue = null;
         Cookie[] cookies = hreq.getCookies();
-        if (cookies != null && cookies.length > 0) {
+        if (cookies != null) {
             for (Cookie cookie : cookies) {
                 if (cookieName.equals(cookie.getName())) {
                     cookieValue = cookie.getValue();
@@ -835,11 +661,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
                 }
             }
         }
-        if (cookieValue == null) {
-            cookieValue = "NULL-COOKIE-" + cookieName.toUpperCase(Locale.ENGLISH);
-        }
-
-        cb.put(cookieValue);
+        cb.put(cookieValue != null ? cookieValue : nullValue);
         cb.put(QUOTE);
     }
 
@@ -848,83 +670,27 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * given char buffer, or NULL-COOKIES-<cookieName> if no cookies with the
      * given cookie name are present in the request.
      */
-    private void appendCookiesByName(CharBuffer cb,
-                                     String cookieName,
-                                     HttpServletRequest hreq) {
-        if (cookieName == null) {
-            throw new IllegalArgumentException("Null request cookie name");
-        }
-
+    private static void appendCookiesByName(CharBuffer cb,
+                                            String cookieName,
+                                            String nullValue,
+                                            HttpServletRequest hreq) {
         cb.put(QUOTE);
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
             boolean first = true;
-            for (int i=0; i<cookies.length; i++) {
-                if (cookieName.equals(cookies[i].getName())) {
+            for (Cookie cookie : cookies) {
+                if (cookieName.equals(cookie.getName())) {
                     if (first) {
                         first = false;
                     } else {
-                        cb.put(";");
-		    }
-                    cb.put(cookies[i].getValue());
+                        cb.put(';');
+                    }
+                    cb.put(cookie.getValue());
                 }
             }
         } else {
-            cb.put("NULL-COOKIES-" + cookieName.toUpperCase(Locale.ENGLISH));
-        }
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the HTTP method of the given request to the given char buffer.
-     */
-    private void appendHTTPMethod(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String method = hreq.getMethod();
-        if (method == null) {
-            method = "NULL-HTTP-METHOD";
-        }
-        cb.put(method);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the URI of the given request to the given char buffer.
-     */
-    private void appendHTTPUri(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String uri = hreq.getRequestURI();
-        if (uri == null) {
-            uri = "NULL-HTTP-URI";
-        }
-        cb.put(uri);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the HTTP protocol version of the given request to the given
-     * char buffer.
-     */
-    private void appendHTTPVersion(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String protocol = hreq.getProtocol();
-        if (protocol == null) {
-            protocol = "NULL-HTTP-PROTOCOL";
-        }
-        cb.put(protocol);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the query string of the given request to the given char buffer.
-     */
-    private void appendQueryString(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String query = hreq.getQueryString();
-        if (query == null) {
-            query = "NULL-QUERY";
+            cb.put(nullValue);
         }
-        cb.put(query);
         cb.put(QUOTE);
     }
 
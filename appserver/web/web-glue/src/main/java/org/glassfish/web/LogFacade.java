@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2017] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2017-2024] [Payara Foundation and/or its affiliates]
 
 package org.glassfish.web;
 
@@ -601,6 +601,16 @@ public class LogFacade {
             level = "WARNING")
     public static final String INVALID_ACCESS_LOG_BUFFER_SIZE = PREFIX + "00101";
 
+    @LogMessageInfo(
+            message = "Invalid accessLogOverflowPolicy value [{0}], expected one of BLOCK, DROP or COUNT",
+            level = "WARNING")
+    public static final String INVALID_ACCESS_LOG_OVERFLOW_POLICY = PREFIX + "00286";
+
+    @LogMessageInfo(
+            message = "{0} access log entries were dropped because the access log queue was full",
+            level = "WARNING")
+    public static final String ACCESS_LOG_ENTRIES_DROPPED = PREFIX + "00287";
+
     @LogMessageInfo(
             message = "Unable to parse max-history-files access log configuration [{0}]",
             level = "WARNING")
@@ -0,0 +1,223 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.web.accesslog;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.CharBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.LongFunction;
+import org.apache.catalina.HttpResponse;
+import org.apache.catalina.Request;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the lines written by the access log formatters with the lines written for the same request before the
+ * access log patterns were compiled and the timestamp was shared between threads.
+ */
+public class AccessLogFormatterTest {
+
+    private static final String COMMON_PATTERN =
+            "%client.name% %auth-user-name% %datetime% %request% %status% %response.length%";
+    private static final String COMBINED_PATTERN = COMMON_PATTERN + " %header.referer% %header.user-agent%";
+
+    private final Request request = mock(Request.class);
+    private final HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+    private final HttpResponse response = mock(HttpResponse.class);
+    private final HttpServletResponse httpResponse = mock(HttpServletResponse.class);
+
+    @Before
+    public void mockExchange() {
+        when(request.getRequest()).thenReturn(httpRequest);
+        when(response.getResponse()).thenReturn(httpResponse);
+        when(httpRequest.getMethod()).thenReturn("GET");
+        when(httpRequest.getProtocol()).thenReturn("HTTP/1.1");
+        when(response.getStatus()).thenReturn(200);
+        when(response.getContentCount()).thenReturn(5120);
+    }
+
+    private void mockRequestValues() {
+        when(httpRequest.getRemoteHost()).thenReturn("client.example.com");
+        when(httpRequest.getRemoteUser()).thenReturn("admin");
+        when(httpRequest.getRequestURI()).thenReturn("/shop/cart");
+        when(httpRequest.getQueryString()).thenReturn("item=42&count=1");
+        when(httpRequest.getHeader("referer")).thenReturn("http://example.com/shop");
+        when(httpRequest.getHeader("user-agent")).thenReturn("Mozilla/5.0 (X11; Linux x86_64)");
+    }
+
+    @Test
+    public void compiledCommonPatternWritesTheSameLine() {
+        mockRequestValues();
+        assertSameLine(new DefaultAccessLogFormatterImpl(COMMON_PATTERN, null), this::legacyCommonPattern);
+    }
+
+    @Test
+    public void compiledCommonPatternWritesTheSamePlaceholders() {
+        assertSameLine(new DefaultAccessLogFormatterImpl(COMMON_PATTERN, null), this::legacyCommonPattern);
+    }
+
+    @Test
+    public void compiledCombinedPatternWritesTheSameLine() {
+        mockRequestValues();
+        assertSameLine(new DefaultAccessLogFormatterImpl(COMBINED_PATTERN, null), this::legacyCombinedPattern);
+    }
+
+    @Test
+    public void compiledCombinedPatternWritesTheSamePlaceholders() {
+        assertSameLine(new DefaultAccessLogFormatterImpl(COMBINED_PATTERN, null), this::legacyCombinedPattern);
+    }
+
+    @Test
+    public void commonFormatWritesTheSameLine() {
+        mockRequestValues();
+        assertSameLine(new CommonAccessLogFormatterImpl(), this::legacyCommonFormat);
+    }
+
+    @Test
+    public void commonFormatWritesTheSamePlaceholders() {
+        assertSameLine(new CommonAccessLogFormatterImpl(), this::legacyCommonFormat);
+    }
+
+    @Test
+    public void combinedFormatWritesTheSameLine() {
+        mockRequestValues();
+        assertSameLine(new CombinedAccessLogFormatterImpl(), this::legacyCombinedFormat);
+    }
+
+    @Test
+    public void combinedFormatWritesTheSamePlaceholders() {
+        assertSameLine(new CombinedAccessLogFormatterImpl(), this::legacyCombinedFormat);
+    }
+
+    @Test
+    public void numbersAreWrittenLikeStrings() {
+        for (long value : new long[] {0, 7, 10, 99, 100, 123456789, -1, -45, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            CharBuffer cb = CharBuffer.allocate(32);
+            AccessLogFormatter.appendNumber(cb, value);
+            cb.flip();
+            assertEquals(String.valueOf(value), cb.toString());
+        }
+    }
+
+    /**
+     * Writes a line with the formatter and compares it with the legacy line for the same second.
+     */
+    private void assertSameLine(AccessLogFormatter formatter, LongFunction<String> legacy) {
+        String expected;
+        String actual;
+        long second;
+        do {
+            second = System.currentTimeMillis() / 1000;
+            CharBuffer cb = CharBuffer.allocate(1024);
+            formatter.appendLogEntry(request, response, cb);
+            cb.flip();
+            actual = cb.toString();
+            expected = legacy.apply(second * 1000);
+        } while (second != System.currentTimeMillis() / 1000);
+        assertEquals(expected, actual);
+    }
+
+    private String legacyCommonPattern(long time) {
+        return quoted(orElse(httpRequest.getRemoteHost(), "NULL-CLIENT-NAME")) + " "
+                + quoted(orElse(httpRequest.getRemoteUser(), "NULL-AUTH-USER")) + " "
+                + quoted(legacyDate(time)) + " "
+                + legacyRequest() + " "
+                + response.getStatus() + " "
+                + response.getContentCount() + " ";
+    }
+
+    private String legacyCombinedPattern(long time) {
+        return legacyCommonPattern(time)
+                + quoted(orElse(httpRequest.getHeader("referer"), "NULL-REFERER")) + " "
+                + quoted(orElse(httpRequest.getHeader("user-agent"), "NULL-USER-AGENT")) + " ";
+    }
+
+    private String legacyCommonFormat(long time) {
+        return orElse(httpRequest.getRemoteHost(), "-") + " "
+                + "- "
+                + orElse(httpRequest.getRemoteUser(), "-") + " "
+                + "[" + legacyDate(time) + "] "
+                + legacyRequest() + " "
+                + response.getStatus() + " "
+                + response.getContentCount() + " ";
+    }
+
+    private String legacyCombinedFormat(long time) {
+        return legacyCommonFormat(time)
+                + quoted(orElse(httpRequest.getHeader("referer"), "-")) + " "
+                + quoted(orElse(httpRequest.getHeader("user-agent"), "-"));
+    }
+
+    private String legacyRequest() {
+        String query = httpRequest.getQueryString();
+        return quoted(httpRequest.getMethod() + " "
+                + orElse(httpRequest.getRequestURI(), "NULL-HTTP-URI") + (query == null ? "" : "?" + query) + " "
+                + httpRequest.getProtocol());
+    }
+
+    /**
+     * Formats the time like the thread local date formatters of the formatters did.
+     */
+    private static String legacyDate(long time) {
+        Date date = new Date(time);
+        int month = Integer.parseInt(new SimpleDateFormat("MM").format(date));
+        return new SimpleDateFormat("dd").format(date)
+                + "/" + AccessLogFormatter.months[month - 1]
+                + "/" + new SimpleDateFormat("yyyy").format(date)
+                + ":" + new SimpleDateFormat("HH:mm:ss").format(date)
+                + " " + new SimpleDateFormat("Z", Locale.ROOT).format(date);
+    }
+
+    private static String quoted(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static String orElse(String value, String otherwise) {
+        return value == null ? otherwise : value;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.web.accesslog;
+
+import com.sun.enterprise.web.accesslog.AccessLogRingBuffer.OverflowPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AccessLogRingBufferTest {
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    @After
+    public void stopThreads() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(5_000);
+        }
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        AccessLogRingBuffer ring = new AccessLogRingBuffer(5, OverflowPolicy.DROP);
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.publish("entry-" + i));
+        }
+        assertFalse(ring.publish("entry-8"));
+    }
+
+    @Test
+    public void entriesAreDrainedInPublicationOrder() {
+        AccessLogRingBuffer ring = new AccessLogRingBuffer(8, OverflowPolicy.DROP);
+        ring.publish("a");
+        ring.publish("b");
+        ring.publish("c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), drain(ring));
+        assertTrue(ring.isEmpty());
+        assertEquals(0, drain(ring).size());
+    }
+
+    @Test
+    public void slotsAreReusedAfterWrappingAround() {
+        AccessLogRingBuffer ring = new AccessLogRingBuffer(4, OverflowPolicy.DROP);
+        List<String> drained = new ArrayList<>();
+        List<String> published = new ArrayList<>();
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                String entry = round + "-" + i;
+                assertTrue(ring.publish(entry));
+                published.add(entry);
+            }
+            drained.addAll(drain(ring));
+        }
+
+        assertEquals(published, drained);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void dropPolicyDiscardsEntriesWithoutCounting() {
+        AccessLogRingBuffer ring = full(OverflowPolicy.DROP);
+
+        assertFalse(ring.publish("overflow"));
+        assertEquals(0, ring.drainDropped());
+
+        assertEquals(Arrays.asList("0", "1", "2", "3"), drain(ring));
+        assertTrue(ring.publish("after-drain"));
+    }
+
+    @Test
+    public void countPolicyCountsDiscardedEntries() {
+        AccessLogRingBuffer ring = full(OverflowPolicy.COUNT);
+
+        assertFalse(ring.publish("overflow-1"));
+        assertFalse(ring.publish("overflow-2"));
+        assertFalse(ring.publish("overflow-3"));
+
+        assertEquals(3, ring.drainDropped());
+        assertEquals(0, ring.drainDropped());
+        assertEquals(Arrays.asList("0", "1", "2", "3"), drain(ring));
+    }
+
+    @Test
+    public void blockPolicyWaitsForTheWriter() throws Exception {
+        AccessLogRingBuffer ring = full(OverflowPolicy.BLOCK);
+        ring.setWriter(Thread.currentThread());
+        AtomicBoolean published = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        start(() -> {
+            published.set(ring.publish("blocked"));
+            done.countDown();
+        });
+
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        // the producer may already publish into the slots freed while draining
+        List<String> drained = drain(ring);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(published.get());
+        drained.addAll(drain(ring));
+        assertEquals(Arrays.asList("0", "1", "2", "3", "blocked"), drained);
+        assertEquals(0, ring.drainDropped());
+    }
+
+    @Test
+    public void blockPolicyGivesUpWithoutWriter() {
+        AccessLogRingBuffer ring = full(OverflowPolicy.BLOCK);
+
+        assertFalse(ring.publish("overflow"));
+        assertEquals(0, ring.drainDropped());
+    }
+
+    @Test
+    public void blockPolicyGivesUpWhenInterrupted() throws Exception {
+        AccessLogRingBuffer ring = full(OverflowPolicy.BLOCK);
+        ring.setWriter(Thread.currentThread());
+        AtomicBoolean published = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread producer = start(() -> {
+            published.set(ring.publish("interrupted"));
+            done.countDown();
+        });
+
+        producer.interrupt();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(published.get());
+        assertEquals(Arrays.asList("0", "1", "2", "3"), drain(ring));
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingUnderBlockPolicy() throws Exception {
+        assertConcurrentPublishing(OverflowPolicy.BLOCK, 16);
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingWhileThereIsRoom() throws Exception {
+        assertConcurrentPublishing(OverflowPolicy.COUNT, 8 * 2_000);
+    }
+
+    /**
+     * Publishes from several threads while a writer drains, then checks every entry arrived once and in the order
+     * of its producer.
+     */
+    private void assertConcurrentPublishing(OverflowPolicy policy, int capacity) throws Exception {
+        final int producers = 8;
+        final int entries = 2_000;
+        AccessLogRingBuffer ring = new AccessLogRingBuffer(capacity, policy);
+        List<String> drained = new ArrayList<>();
+        AtomicBoolean producing = new AtomicBoolean(true);
+        AtomicInteger rejected = new AtomicInteger();
+
+        Thread writer = start(() -> {
+            while (producing.get() || !ring.isEmpty()) {
+                if (ring.drain(drained::add) == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+        });
+        ring.setWriter(writer);
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> producerThreads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            producerThreads.add(start(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < entries; i++) {
+                    if (!ring.publish(producer + ":" + i)) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        go.countDown();
+        for (Thread producer : producerThreads) {
+            producer.join(30_000);
+        }
+        producing.set(false);
+        writer.join(30_000);
+
+        assertEquals(0, rejected.get());
+        assertEquals(0, ring.drainDropped());
+        assertEquals(producers * entries, drained.size());
+        Map<Integer, Integer> next = new HashMap<>();
+        for (String entry : drained) {
+            int separator = entry.indexOf(':');
+            int producer = Integer.parseInt(entry.substring(0, separator));
+            int sequence = Integer.parseInt(entry.substring(separator + 1));
+            assertEquals("entry of producer " + producer, next.getOrDefault(producer, 0).intValue(), sequence);
+            next.put(producer, sequence + 1);
+        }
+    }
+
+    private static AccessLogRingBuffer full(OverflowPolicy policy) {
+        AccessLogRingBuffer ring = new AccessLogRingBuffer(4, policy);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.publish(String.valueOf(i)));
+        }
+        return ring;
+    }
+
+    private static List<String> drain(AccessLogRingBuffer ring) {
+        List<String> drained = new ArrayList<>();
+        ring.drain(drained::add);
+        return drained;
+    }
+
+    private Thread start(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+        return thread;
+    }
+}
@@ -37,6 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package org.glassfish.web.ha.session.management;
 
@@ -71,6 +72,8 @@ public final class CompositeMetadata implements Storeable {
 
     private Map<String, SessionAttributeMetadata> attributesMap = new HashMap<String, SessionAttributeMetadata>();
 
+    private Set<String> attributeNames;
+
     private transient Collection<SessionAttributeMetadata> entries;
 
     private transient Set<String> _dirtyAttributeNames = new HashSet<String>();
@@ -155,6 +158,40 @@ public final class CompositeMetadata implements Storeable {
         return attributesMap.values();
     }
 
+    /**
+     * Adds a stored attribute to the entries returned by getEntries(),
+     * used by stores which keep the attributes apart from this metadata.
+     *
+     * @param entry the stored SessionAttributeMetadata
+     */
+    public void addEntry(SessionAttributeMetadata entry) {
+        attributesMap.put(entry.getAttributeName(), entry);
+    }
+
+    /**
+     * Returns the SessionAttributeMetadata of the attributes added, modified
+     * or deleted since the session was last saved.
+     *
+     * @return the attribute changes to save
+     */
+    public Collection<SessionAttributeMetadata> getModifiedEntries() {
+        return entries == null ? Collections.<SessionAttributeMetadata>emptyList() : entries;
+    }
+
+    /**
+     * Returns the names of all attributes of the session, or null if the
+     * attributes are part of the state.
+     *
+     * @return the attribute names or null
+     */
+    public Set<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    public void setAttributeNames(Set<String> attributeNames) {
+        this.attributeNames = attributeNames;
+    }
+
     public long getVersion() {
         return version;
     }
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2017] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 /*
  * ModifiedAttributeHASession.java
@@ -67,6 +67,7 @@ public class ModifiedAttributeHASession extends BaseHASession {
 
     private transient Map<String, SessionAttributeState> _attributeStates = new ConcurrentHashMap<>();
     private transient boolean _dirtyFlag = false;
+    private transient volatile Thread _trunkWriter = null;
     
     
     /** Creates a new instance of ModifiedAttributeHASession */
@@ -126,6 +127,14 @@ public class ModifiedAttributeHASession extends BaseHASession {
         return resultList;
     }  
     
+    /**
+     * return a Set of the names of all attributes, without checking whether
+     * the session is still valid
+     */
+    public Set<String> getAttributeNameSet() {
+        return new HashSet<String>(Collections.list(getAttributeNamesInternal()));
+    }
+
     /**
      * return an ArrayList of Strings
      * whose elements are the names of the added attributes
@@ -142,6 +151,23 @@ public class ModifiedAttributeHASession extends BaseHASession {
         return resultList;
     }      
 
+    /**
+     * while set, serializing this session on the current thread leaves
+     * out the attributes, which are then saved as separate entries
+     * @param trunkOnly
+     */
+    void setSerializeTrunkOnly(boolean trunkOnly) {
+        _trunkWriter = trunkOnly ? Thread.currentThread() : null;
+    }
+
+    @Override
+    protected String[] keys() {
+        if (_trunkWriter == Thread.currentThread()) {
+            return new String[0];
+        }
+        return super.keys();
+    }
+
     /**
      * clear (empty) the attributeStates
      */     
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2016-2017] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates]
 
 package org.glassfish.web.ha.session.management;
 
@@ -157,7 +157,8 @@ public class ReplicationAttributeStore extends ReplicationStore {
             _logger.fine("ReplicationAttributeStore>>save: replicator: " + replicator);                    
         }         
         CompositeMetadata compositeMetadata
-            = createCompositeMetadata(modAttrSession);
+            = createCompositeMetadata(modAttrSession,
+                replicator instanceof AttributeDeltaReplication);
                 
         try {
             if (_logger.isLoggable(Level.FINE)) {
@@ -201,7 +202,8 @@ public class ReplicationAttributeStore extends ReplicationStore {
             _logger.fine("ReplicationAttributeStore>>doSave: replicator: " + replicator);                    
         }         
         CompositeMetadata compositeMetadata 
-            = createCompositeMetadata(modAttrSession);
+            = createCompositeMetadata(modAttrSession,
+                replicator instanceof AttributeDeltaReplication);
                 
         try {
             if (_logger.isLoggable(Level.FINE)) {
@@ -405,16 +407,21 @@ public class ReplicationAttributeStore extends ReplicationStore {
         }
     }
     
-    private CompositeMetadata createCompositeMetadata(ModifiedAttributeHASession modAttrSession) throws IOException {
+    private CompositeMetadata createCompositeMetadata(ModifiedAttributeHASession modAttrSession,
+            boolean attributeDelta) throws IOException {
         
         byte[] trunkState = null;
         if (!modAttrSession.isNew()) {
+            //the store keeps the attributes apart, leave them out of the trunk
+            modAttrSession.setSerializeTrunkOnly(attributeDelta);
             try {
                 trunkState = this.getByteArray(modAttrSession);
             } catch(IOException ex) {
                 if(ex instanceof NotSerializableException) {
                     throw ex;
                 }
+            } finally {
+                modAttrSession.setSerializeTrunkOnly(false);
             }
         }
         if(_logger.isLoggable(Level.FINE)) {
@@ -441,6 +448,9 @@ public class ReplicationAttributeStore extends ReplicationStore {
                 modAttrSession.getLastAccessedTimeInternal(),
                 modAttrSession.getMaxInactiveInterval()*1000L,
                 entries, trunkState, null);
+        if (attributeDelta) {
+            result.setAttributeNames(modAttrSession.getAttributeNameSet());
+        }
         return result;
     }
     
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2017-2021] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2017-2024] [Payara Foundation and/or its affiliates]
 
 
 /*
@@ -50,7 +50,9 @@
 package org.glassfish.web.ha.session.management;
 
 import fish.payara.nucleus.hazelcast.HazelcastCore;
+import org.apache.catalina.LifecycleException;
 import org.apache.catalina.Session;
+import org.apache.catalina.session.StandardSession;
 import org.glassfish.ha.common.GlassFishHAReplicaPredictor;
 import org.glassfish.ha.common.HACookieInfo;
 import org.glassfish.ha.common.HACookieManager;
@@ -69,6 +71,10 @@ import org.glassfish.hk2.api.PerLookup;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -89,6 +95,32 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
 
     private String instanceName = "";
 
+    /**
+     * Interval in milliseconds at which sessions saved by the valve are
+     * written to the backing store, or not positive to write them at the end
+     * of each request.
+     */
+    private int asyncPersistenceInterval = -1;
+
+    /**
+     * Sessions waiting for the next flush, by id, so several requests to
+     * the same session in one interval result in a single write.
+     */
+    private final Map<String, Session> pendingSaves = new ConcurrentHashMap<>();
+
+    /**
+     * Held by a flush while it writes a session and by doRemove, so that a
+     * flush never writes a session back after it was removed from the store.
+     */
+    private final Object[] saveLocks = new Object[32];
+
+    /**
+     * Held for the whole of a flush, so stop can wait for the one in flight.
+     */
+    private final Object flushLock = new Object();
+
+    private volatile ScheduledExecutorService flushExecutor;
+
 
     /**
      * The descriptive information about this implementation.
@@ -119,6 +151,9 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
     /** Creates a new instance of ReplicationWebEventPersistentManager */
     public ReplicationWebEventPersistentManager() {
         super();
+        for (int i = 0; i < saveLocks.length; i++) {
+            saveLocks[i] = new Object();
+        }
         if (_logger.isLoggable(Level.FINE)) {
             _logger.fine("ReplicationWebEventPersistentManager created");
         }
@@ -131,6 +166,112 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
         }
     }
     
+    public int getAsyncPersistenceInterval() {
+        return asyncPersistenceInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds at which sessions saved by the valve
+     * are written to the backing store. A session is then written at most
+     * once per interval, with its latest state. Not positive values write
+     * sessions at the end of each request.
+     *
+     * @param asyncPersistenceInterval the flush interval in milliseconds
+     */
+    public void setAsyncPersistenceInterval(int asyncPersistenceInterval) {
+        this.asyncPersistenceInterval = asyncPersistenceInterval;
+    }
+
+    @Override
+    public void start() throws LifecycleException {
+        super.start();
+        if (asyncPersistenceInterval > 0) {
+            startFlusher("session-flush-" + getContainer().getName());
+        }
+    }
+
+    @Override
+    public void stop() throws LifecycleException {
+        stopFlusher();
+        super.stop();
+    }
+
+    void startFlusher(final String threadName) {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(() -> flushPendingSaves(false),
+                asyncPersistenceInterval, asyncPersistenceInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the flusher and writes what the last interval left behind,
+     * after the flush in progress if any, before the sessions go.
+     */
+    void stopFlusher() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor = null;
+        }
+        flushPendingSaves(true);
+    }
+
+    @Override
+    public void doRemove(String id) {
+        synchronized (getSaveLock(id)) {
+            pendingSaves.remove(id);
+            super.doRemove(id);
+        }
+    }
+
+    private Object getSaveLock(String id) {
+        return saveLocks[(id.hashCode() & 0x7fffffff) % saveLocks.length];
+    }
+
+    /**
+     * Writes all sessions queued since the last flush to the backing store.
+     */
+    public void flushPendingSaves() {
+        flushPendingSaves(false);
+    }
+
+    /**
+     * Writes the queued sessions which are not in use by a request. Those
+     * are left for the next flush, unless the manager is stopping.
+     *
+     * @param stopping whether to also write the sessions in use
+     */
+    private void flushPendingSaves(boolean stopping) {
+        synchronized (flushLock) {
+            for (String id : pendingSaves.keySet()) {
+                synchronized (getSaveLock(id)) {
+                    Session session = pendingSaves.get(id);
+                    if (session == null) {
+                        // removed since
+                        continue;
+                    }
+                    StandardSession standardSession = (session instanceof StandardSession)
+                            ? (StandardSession) session : null;
+                    boolean locked = standardSession == null || standardSession.lockBackground();
+                    if (!locked && !stopping) {
+                        continue;
+                    }
+                    try {
+                        // requeued if a request saves the session again while it is written
+                        pendingSaves.remove(id, session);
+                        valveSave(session);
+                    } finally {
+                        if (locked && standardSession != null) {
+                            standardSession.unlockBackground();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
     * called from valve; does the save of session
     *
@@ -141,6 +282,14 @@ public class ReplicationWebEventPersistentManager<T extends Storeable> extends R
         if(session instanceof HANonStorableSession) {
             return;
         }
+        if (flushExecutor != null) {
+            pendingSaves.put(session.getIdInternal(), session);
+            return;
+        }
+        valveSave(session);
+    }
+
+    private void valveSave(Session session) {
         if (_logger.isLoggable(Level.FINE)) {
             _logger.fine("in doValveSave");
         }
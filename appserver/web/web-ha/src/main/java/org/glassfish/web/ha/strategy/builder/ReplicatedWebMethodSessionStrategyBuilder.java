@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2018-2021] Payara Foundation and/or affiliates
+// Portions Copyright [2018-2024] Payara Foundation and/or affiliates
 
 package org.glassfish.web.ha.strategy.builder;
 
@@ -129,6 +129,7 @@ public class ReplicatedWebMethodSessionStrategyBuilder extends BasePersistenceSt
         rwepMgr.setMinIdleSwap(minIdleSwap);
         rwepMgr.setMaxIdleSwap(maxIdleSwap);
         rwepMgr.setRelaxCacheVersionSemantics(relaxCacheVersionSemantics);
+        rwepMgr.setAsyncPersistenceInterval(asyncPersistenceInterval);
         rwepMgr.setStore(store);
         rwepMgr.setDisableJreplica(disableJreplica);
 
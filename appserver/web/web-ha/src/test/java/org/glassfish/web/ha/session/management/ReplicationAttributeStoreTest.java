@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.ha.session.management;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.catalina.Manager;
+import org.glassfish.ha.store.api.BackingStore;
+import org.glassfish.ha.store.api.BackingStoreFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicationAttributeStoreTest {
+
+    private final DeltaBackingStore backingStore = new DeltaBackingStore();
+    private final ReplicationAttributeStore store = new ReplicationAttributeStore(null);
+    private ReplicationWebEventPersistentManager<CompositeMetadata> manager;
+
+    @Before
+    public void createManager() {
+        manager = new ReplicationWebEventPersistentManager<>();
+        manager.setBackingStore(backingStore);
+        store.setManager(manager);
+    }
+
+    @Test
+    public void sessionIsSavedWithItsAttributeNames() throws Exception {
+        TestSession session = new TestSession(manager, "a");
+        session.putAttribute("cart", "1");
+        session.putAttribute("user", "2");
+
+        store.doValveSave(session);
+
+        assertEquals(new HashSet<>(Arrays.asList("cart", "user")),
+                backingStore.saved.get("a").getAttributeNames());
+    }
+
+    @Test
+    public void invalidatedSessionIsNotSaved() throws Exception {
+        TestSession session = new TestSession(manager, "a");
+        session.putAttribute("cart", "1");
+        session.setValid(false);
+
+        store.doValveSave(session);
+
+        assertNull(backingStore.saved.get("a"));
+    }
+
+    @Test
+    public void attributeNamesOfTimedOutSessionDoNotExpireIt() {
+        TestSession session = new TestSession(manager, "a");
+        session.putAttribute("cart", "1");
+        session.idleFor(60_000, 1);
+
+        assertEquals(new HashSet<>(Arrays.asList("cart")), session.getAttributeNameSet());
+        assertTrue(session.getIsValid());
+    }
+
+    @Test
+    public void attributeNamesOfInvalidatedSessionAreAvailable() {
+        TestSession session = new TestSession(manager, "a");
+        session.putAttribute("cart", "1");
+        session.setValid(false);
+
+        assertEquals(new HashSet<>(Arrays.asList("cart")), session.getAttributeNameSet());
+    }
+
+    private static class TestSession extends ModifiedAttributeHASession {
+
+        TestSession(Manager manager, String id) {
+            super(manager);
+            this.id = id;
+            this.isValid = true;
+            this.isNew = true;
+        }
+
+        /**
+         * Makes the session idle for longer than its timeout.
+         */
+        void idleFor(long idleMillis, int maxInactiveInterval) {
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.thisAccessedTime = System.currentTimeMillis() - idleMillis;
+        }
+
+        /**
+         * Adds an attribute which has already been replicated.
+         */
+        void putAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+    }
+
+    private static class DeltaBackingStore extends BackingStore<String, CompositeMetadata>
+            implements AttributeDeltaReplication {
+
+        final Map<String, CompositeMetadata> saved = new ConcurrentHashMap<>();
+
+        @Override
+        public BackingStoreFactory getBackingStoreFactory() {
+            return null;
+        }
+
+        @Override
+        public CompositeMetadata load(String key, String version) {
+            return saved.get(key);
+        }
+
+        @Override
+        public String save(String key, CompositeMetadata value, boolean isNew) {
+            saved.put(key, value);
+            return key;
+        }
+
+        @Override
+        public void remove(String key) {
+            saved.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return saved.size();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.web.ha.session.management;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.catalina.Manager;
+import org.apache.catalina.Session;
+import org.apache.catalina.session.StandardSession;
+import org.glassfish.ha.store.api.BackingStore;
+import org.glassfish.ha.store.api.BackingStoreFactory;
+import org.glassfish.ha.store.util.SimpleMetadata;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicationWebEventPersistentManagerTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final RecordingStore store = new RecordingStore();
+    private ReplicationWebEventPersistentManager<SimpleMetadata> manager;
+
+    @Before
+    public void createManager() {
+        manager = new ReplicationWebEventPersistentManager<>();
+        // only flushed explicitly by the tests
+        manager.setAsyncPersistenceInterval((int) TimeUnit.HOURS.toMillis(1));
+        manager.setStore(store);
+        manager.setBackingStore(new RemovingBackingStore());
+        manager.startFlusher("test-session-flush");
+    }
+
+    @After
+    public void stopFlusher() {
+        store.release();
+        manager.stopFlusher();
+    }
+
+    @Test
+    public void savesOfOneSessionAreCoalesced() {
+        Session session = new TestSession(manager, "a");
+        manager.doValveSave(session);
+        manager.doValveSave(session);
+        manager.doValveSave(new TestSession(manager, "b"));
+        manager.doValveSave(session);
+
+        assertTrue(events.isEmpty());
+
+        manager.flushPendingSaves();
+
+        assertEquals(2, events.size());
+        assertTrue(events.containsAll(asList("save a", "save b")));
+    }
+
+    @Test
+    public void removedSessionIsNotFlushed() {
+        manager.doValveSave(new TestSession(manager, "a"));
+        manager.doRemove("a");
+        manager.flushPendingSaves();
+
+        assertEquals(asList("remove a"), events);
+    }
+
+    @Test
+    public void sessionInUseIsLeftForTheNextFlush() {
+        StandardSession session = new TestSession(manager, "a");
+        session.lockForeground();
+        manager.doValveSave(session);
+        manager.flushPendingSaves();
+
+        assertTrue(events.isEmpty());
+
+        session.unlockForeground();
+        manager.flushPendingSaves();
+
+        assertEquals(asList("save a"), events);
+    }
+
+    @Test
+    public void removeWaitsForTheWriteInProgress() throws Exception {
+        manager.doValveSave(new TestSession(manager, "a"));
+        store.block();
+        Thread flusher = start(manager::flushPendingSaves);
+        assertTrue(store.writing.await(5, TimeUnit.SECONDS));
+
+        Thread remover = start(() -> manager.doRemove("a"));
+        remover.join(200);
+        assertTrue(remover.isAlive());
+
+        store.release();
+        flusher.join(5000);
+        remover.join(5000);
+
+        // the session is not written back after it was removed
+        assertEquals(asList("save a", "remove a"), events);
+    }
+
+    @Test
+    public void stopWaitsForTheFlushInProgressAndWritesTheRest() throws Exception {
+        manager.doValveSave(new TestSession(manager, "a"));
+        store.block();
+        Thread flusher = start(manager::flushPendingSaves);
+        assertTrue(store.writing.await(5, TimeUnit.SECONDS));
+        manager.doValveSave(new TestSession(manager, "b"));
+
+        Thread stopper = start(manager::stopFlusher);
+        stopper.join(200);
+        assertTrue(stopper.isAlive());
+
+        store.release();
+        flusher.join(5000);
+        stopper.join(5000);
+
+        assertEquals(asList("save a", "save b"), events);
+
+        // written on the request thread once stopped
+        manager.doValveSave(new TestSession(manager, "c"));
+        assertEquals(asList("save a", "save b", "save c"), events);
+    }
+
+    private static Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private static class TestSession extends StandardSession {
+
+        TestSession(Manager manager, String id) {
+            super(manager);
+            this.id = id;
+            this.isValid = true;
+        }
+    }
+
+    private class RecordingStore extends ReplicationStore {
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+        RecordingStore() {
+            super(null);
+        }
+
+        void block() {
+            blocked = new CountDownLatch(1);
+        }
+
+        void release() {
+            blocked.countDown();
+        }
+
+        @Override
+        public void doValveSave(Session session) {
+            writing.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add("save " + session.getIdInternal());
+        }
+    }
+
+    private class RemovingBackingStore extends BackingStore<String, SimpleMetadata> {
+
+        @Override
+        public BackingStoreFactory getBackingStoreFactory() {
+            return null;
+        }
+
+        @Override
+        public SimpleMetadata load(String key, String version) {
+            return null;
+        }
+
+        @Override
+        public String save(String key, SimpleMetadata value, boolean isNew) {
+            return null;
+        }
+
+        @Override
+        public void remove(String key) {
+            events.add("remove " + key);
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+}
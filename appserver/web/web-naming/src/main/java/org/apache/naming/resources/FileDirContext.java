@@ -55,7 +55,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// Portions Copyright [2017-2023] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2017-2024] [Payara Foundation and/or its affiliates]
 
 package org.apache.naming.resources;
 
@@ -1122,7 +1122,7 @@ public class FileDirContext extends BaseDirContext {
          */
         public InputStream streamContent()
                 throws IOException {
-            if (binaryContent == null) {
+            if (binaryContent == null && bufferedContent == null) {
                 FileInputStream fin = new FileInputStream(file);
                 inputStream = fin;
                 return fin;
@@ -55,13 +55,18 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package org.apache.naming.resources;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Hashtable;
 
 import javax.naming.Binding;
@@ -168,6 +173,14 @@ public class ProxyDirContext implements DirContext {
     protected int cacheObjectMaxSize = 512; // 512 KB
 
 
+    /**
+     * Min size of resources which will have their content cached outside of
+     * the heap, in a direct buffer which can be written to the network
+     * without being copied.
+     */
+    protected int cacheObjectOffHeapMinSize = 32; // 32 KB
+
+
     /**
      * Immutable name not found exception.
      */
@@ -1477,7 +1490,8 @@ public class ProxyDirContext implements DirContext {
         if (((!entry.exists)
              || (entry.context != null)
              || ((entry.resource != null) 
-                 && (entry.resource.getContent() != null)))
+                 && ((entry.resource.getContent() != null)
+                     || (entry.resource.getBufferedContent() != null))))
             && (System.currentTimeMillis() < entry.timestamp)) {
             return true;
         }
@@ -1564,6 +1578,7 @@ public class ProxyDirContext implements DirContext {
         // Load object content
         if ((exists) && (entry.resource != null) 
             && (entry.resource.getContent() == null) 
+            && (entry.resource.getBufferedContent() == null)
             && (entry.attributes.getContentLength() >= 0)
             && (entry.attributes.getContentLength() < 
                 (cacheObjectMaxSize * 1024L))) {
@@ -1573,16 +1588,20 @@ public class ProxyDirContext implements DirContext {
             entry.size += (entry.attributes.getContentLength() / 1024);
             InputStream is = null;
             try {
-                is = entry.resource.streamContent();
-                int pos = 0;
-                byte[] b = new byte[length];
-                while (pos < length) {
-                    int n = is.read(b, pos, length - pos);
-                    if (n < 0)
-                        break;
-                    pos = pos + n;
+                if (length >= cacheObjectOffHeapMinSize * 1024L) {
+                    entry.resource.setContent(loadOffHeap(entry, length));
+                } else {
+                    is = entry.resource.streamContent();
+                    int pos = 0;
+                    byte[] b = new byte[length];
+                    while (pos < length) {
+                        int n = is.read(b, pos, length - pos);
+                        if (n < 0)
+                            break;
+                        pos = pos + n;
+                    }
+                    entry.resource.setContent(b);
                 }
-                entry.resource.setContent(b);
             } catch (IOException e) {
                 // Ignore
             } finally {
@@ -1595,6 +1614,13 @@ public class ProxyDirContext implements DirContext {
             }
         }
 
+        // Compute the validators up front, rather than on the first request
+        // which uses them
+        if ((exists) && (entry.resource != null)) {
+            entry.attributes.getETag();
+            entry.attributes.getLastModifiedHttp();
+        }
+
         // Set existence flag
         entry.exists = exists;
 
@@ -1612,6 +1638,39 @@ public class ProxyDirContext implements DirContext {
     }
 
 
+    /**
+     * Reads the content of the given entry into a direct buffer. The file
+     * backing the resource is read directly when it is known, and its
+     * stream otherwise.
+     */
+    protected ByteBuffer loadOffHeap(CacheEntry entry, int length)
+        throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        String path = entry.attributes.getCanonicalPath();
+        if (path != null) {
+            try (FileChannel channel = FileChannel.open(Paths.get(path),
+                    StandardOpenOption.READ)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0)
+                        break;
+                }
+            }
+        } else {
+            try (InputStream is = entry.resource.streamContent()) {
+                byte[] b = new byte[Math.min(length, 8192)];
+                while (buffer.hasRemaining()) {
+                    int n = is.read(b, 0, Math.min(b.length, buffer.remaining()));
+                    if (n < 0)
+                        break;
+                    buffer.put(b, 0, n);
+                }
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+
     /**
      * Remove entry from cache.
      */
@@ -55,12 +55,14 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+// Portions Copyright [2024] [Payara Foundation and/or its affiliates]
 
 package org.apache.naming.resources;
 
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Encapsultes the contents of a resource.
@@ -95,6 +97,12 @@ public class Resource {
      * Binary content.
      */
     protected byte[] binaryContent = null;
+
+
+    /**
+     * Binary content held outside of the heap.
+     */
+    protected ByteBuffer bufferedContent = null;
     
     
     /**
@@ -116,6 +124,9 @@ public class Resource {
         if (binaryContent != null) {
             return new ByteArrayInputStream(binaryContent);
         }
+        if (bufferedContent != null) {
+            return new ByteBufferInputStream(bufferedContent.duplicate());
+        }
         return inputStream;
     }
     
@@ -128,6 +139,18 @@ public class Resource {
     public byte[] getContent() {
         return binaryContent;
     }
+
+
+    /**
+     * Content accessor for content held outside of the heap.
+     * 
+     * @return a read-only view of the buffered content, positioned at its
+     * start, or <code>null</code> if the content is not buffered
+     */
+    public ByteBuffer getBufferedContent() {
+        ByteBuffer content = bufferedContent;
+        return (content == null) ? null : content.asReadOnlyBuffer();
+    }
     
     
     /**
@@ -148,6 +171,62 @@ public class Resource {
     public void setContent(byte[] binaryContent) {
         this.binaryContent = binaryContent;
     }
+
+
+    /**
+     * Content mutator. The buffer must not be modified afterwards.
+     * 
+     * @param bufferedContent New content, from its position to its limit
+     */
+    public void setContent(ByteBuffer bufferedContent) {
+        this.bufferedContent = bufferedContent;
+    }
     
     
+    // -------------------------------------------------------- Private Classes
+
+
+    /**
+     * Input stream over the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+
 }
@@ -55,14 +55,21 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// Portions Copyright [2017] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2017-2024] [Payara Foundation and/or its affiliates]
 package org.apache.naming.resources;
 
-import java.util.HashMap;
-import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implements a special purpose cache.
+ * <p>
+ * Lookups are lock free and may run concurrently with each other and with
+ * updates. Updates, i.e. {@link #allocate(int)}, {@link #load(CacheEntry)}
+ * and {@link #unload(String)}, are expected to be serialized by the caller.
  * 
  * @author <a href="mailto:remm@apache.org">Remy Maucherat</a>
  * @version $Revision: 1.3 $
@@ -78,26 +85,21 @@ public class ResourceCache {
     
     
     // ----------------------------------------------------- Instance Variables
-      
-    
-    /**
-     * Random generator used to determine elements to free.
-     */
-    protected SecureRandom random = new SecureRandom();
     
     
     /**
      * Cache.
      * Path -> Cache entry.
      */
-    protected CacheEntry[] cache = new CacheEntry[0];
+    protected final Map<String, CacheEntry> cache =
+        new ConcurrentHashMap<String, CacheEntry>();
 
 
     /**
      * Not found cache.
      */
-    protected HashMap<String, CacheEntry> notFoundCache =
-        new HashMap<String, CacheEntry>();
+    protected final Map<String, CacheEntry> notFoundCache =
+        new ConcurrentHashMap<String, CacheEntry>();
 
 
     /**
@@ -128,19 +130,26 @@ public class ResourceCache {
     /**
      * Current cache size in KB.
      */
-    protected int cacheSize = 0;
+    protected final AtomicInteger cacheSize = new AtomicInteger();
 
 
     /**
      * Number of accesses to the cache.
      */
-    protected long accessCount = 0;
+    protected final LongAdder accessCount = new LongAdder();
 
 
     /**
      * Number of cache hits.
      */
-    protected long hitsCount = 0;
+    protected final LongAdder hitsCount = new LongAdder();
+
+
+    /**
+     * Position of the eviction sampling in the cache, carried over between
+     * space allocations so that each one looks at different entries.
+     */
+    private Iterator<CacheEntry> evictionCursor = null;
 
 
     // ------------------------------------------------------------- Properties
@@ -148,11 +157,9 @@ public class ResourceCache {
 
     /**
      * Return the access count.
-     * Note: Update is not synced, so the number may not be completely 
-     * accurate.
      */
     public long getAccessCount() {
-        return accessCount;
+        return accessCount.sum();
     }
 
 
@@ -176,7 +183,7 @@ public class ResourceCache {
      * Return the current cache size in KB.
      */
     public int getCacheSize() {
-        return cacheSize;
+        return cacheSize.get();
     }
 
 
@@ -198,11 +205,9 @@ public class ResourceCache {
 
     /**
      * Return the number of cache hits.
-     * Note: Update is not synced, so the number may not be completely 
-     * accurate.
      */
     public long getHitsCount() {
-        return hitsCount;
+        return hitsCount.sum();
     }
 
 
@@ -243,7 +248,7 @@ public class ResourceCache {
 
     public boolean allocate(int space) {
 
-        int toFree = space - (cacheMaxSize - cacheSize);
+        int toFree = space - (cacheMaxSize - cacheSize.get());
 
         if (toFree <= 0) {
             return true;
@@ -256,7 +261,7 @@ public class ResourceCache {
         int size = notFoundCache.size();
         if (size > spareNotFoundEntries) {
             notFoundCache.clear();
-            cacheSize -= size;
+            cacheSize.addAndGet(-size);
             toFree -= size;
         }
 
@@ -264,65 +269,40 @@ public class ResourceCache {
             return true;
         }
 
-        int attempts = 0;
+        // Sample up to maxAllocateIterations entries, continuing where the
+        // previous allocation stopped, and pick the ones which are rarely used
+        long totalAccessCount = Math.max(1, accessCount.sum());
+        CacheEntry[] toRemove = new CacheEntry[maxAllocateIterations];
         int entriesFound = 0;
-        long totalSpace = 0;
-        int[] toRemove = new int[maxAllocateIterations];
+        int attempts = 0;
         while (toFree > 0) {
-            if (attempts == maxAllocateIterations) {
+            if (attempts == maxAllocateIterations || cache.isEmpty()) {
                 // Give up, no changes are made to the current cache
                 return false;
             }
-            if (toFree > 0) {
-                // Randomly select an entry in the array
-                int entryPos = -1;
-                boolean unique = false;
-                int count = 0;
-                while (!unique) {
-                    unique = true;
-                    entryPos = random.nextInt(cache.length) ;
-                    // Guarantee uniqueness
-                    for (int i = 0; i < entriesFound; i++) {
-                        if (toRemove[i] == entryPos) {
-                            unique = false;
-                        }
-                    }
-                }
-                long entryAccessRatio = 
-                    ((cache[entryPos].accessCount * 100) / accessCount);
-                if (entryAccessRatio < desiredEntryAccessRatio) {
-                    toRemove[entriesFound] = entryPos;
-                    totalSpace += cache[entryPos].size;
-                    toFree -= cache[entryPos].size;
-                    entriesFound++;
+            if (evictionCursor == null || !evictionCursor.hasNext()) {
+                evictionCursor = cache.values().iterator();
+                if (!evictionCursor.hasNext()) {
+                    return false;
                 }
             }
+            CacheEntry entry = evictionCursor.next();
+            long entryAccessRatio =
+                ((entry.accessCount * 100) / totalAccessCount);
+            if (entryAccessRatio < desiredEntryAccessRatio
+                    && !contains(toRemove, entriesFound, entry)) {
+                toRemove[entriesFound++] = entry;
+                toFree -= entry.size;
+            }
             attempts++;
         }
 
         // Now remove the selected entries
-        java.util.Arrays.sort(toRemove, 0, entriesFound);
-        CacheEntry[] newCache = new CacheEntry[cache.length - entriesFound];
-        int pos = 0;
-        int n = -1;
-        if (entriesFound > 0) {
-            n = toRemove[0];
-            for (int i = 0; i < cache.length; i++) {
-                if (i == n) {
-                    if ((pos + 1) < entriesFound) {
-                        n = toRemove[pos + 1];
-                        pos++;
-                    } else {
-                        pos++;
-                        n = -1;
-                    }
-                } else {
-                    newCache[i - pos] = cache[i];
-                }
+        for (int i = 0; i < entriesFound; i++) {
+            if (cache.remove(toRemove[i].name, toRemove[i])) {
+                cacheSize.addAndGet(-toRemove[i].size);
             }
         }
-        cache = newCache;
-        cacheSize -= totalSpace;
 
         return true;
 
@@ -331,21 +311,13 @@ public class ResourceCache {
 
     public CacheEntry lookup(String name) {
 
-        CacheEntry cacheEntry = null;
-        accessCount++;
-        int pos = find(cache, name);
-        if ((pos != -1) && (name.equals(cache[pos].name))) {
-            cacheEntry = cache[pos];
-        }
+        accessCount.increment();
+        CacheEntry cacheEntry = cache.get(name);
         if (cacheEntry == null) {
-            try {
-                cacheEntry = notFoundCache.get(name);
-            } catch (Exception e) {
-                // Ignore: the reliability of this lookup is not critical
-            }
+            cacheEntry = notFoundCache.get(name);
         }
         if (cacheEntry != null) {
-            hitsCount++;
+            hitsCount.increment();
         }
         return cacheEntry;
 
@@ -354,111 +326,41 @@ public class ResourceCache {
 
     public void load(CacheEntry entry) {
         if (entry.exists) {
-            if (insertCache(entry)) {
-                cacheSize += entry.size;
+            if (cache.putIfAbsent(entry.name, entry) == null) {
+                cacheSize.addAndGet(entry.size);
             }
         } else {
-            int sizeIncrement = (notFoundCache.get(entry.name) == null) ? 1 : 0;
-            notFoundCache.put(entry.name, entry);
-            cacheSize += sizeIncrement;
+            if (notFoundCache.put(entry.name, entry) == null) {
+                cacheSize.incrementAndGet();
+            }
         }
     }
 
 
     public boolean unload(String name) {
-        CacheEntry removedEntry = removeCache(name);
+        CacheEntry removedEntry = cache.remove(name);
         if (removedEntry != null) {
-            cacheSize -= removedEntry.size;
+            cacheSize.addAndGet(-removedEntry.size);
             return true;
         } else if (notFoundCache.remove(name) != null) {
-            
-            cacheSize--;
+            cacheSize.decrementAndGet();
             return true;
         }
         return false;
     }
 
 
-    /**
-     * Find a map elemnt given its name in a sorted array of map elements.
-     * This will return the index for the closest inferior or equal item in the
-     * given array.
-     */
-    private static final int find(CacheEntry[] map, String name) {
+    // -------------------------------------------------------- Private Methods
 
-        int a = 0;
-        int b = map.length - 1;
-
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
-        }
-        if (name.compareTo(map[0].name) < 0) {
-            return -1;
-        }
-        if (b == 0) {
-            return 0;
-        }
 
-        int i = 0;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = name.compareTo(map[i].name);
-            if (result > 0) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
-            }
-            if ((b - a) == 1) {
-                int result2 = name.compareTo(map[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
+    private static boolean contains(CacheEntry[] entries, int count,
+                                    CacheEntry entry) {
+        for (int i = 0; i < count; i++) {
+            if (entries[i] == entry) {
+                return true;
             }
         }
-
-    }
-
-
-    /**
-     * Insert into the right place in a sorted MapElement array, and prevent
-     * duplicates.
-     */
-    private final boolean insertCache(CacheEntry newElement) {
-        CacheEntry[] oldCache = cache;
-        int pos = find(oldCache, newElement.name);
-        if ((pos != -1) && (newElement.name.equals(oldCache[pos].name))) {
-            return false;
-        }
-        CacheEntry[] newCache = new CacheEntry[cache.length + 1];
-        System.arraycopy(oldCache, 0, newCache, 0, pos + 1);
-        newCache[pos + 1] = newElement;
-        System.arraycopy
-            (oldCache, pos + 1, newCache, pos + 2, oldCache.length - pos - 1);
-        cache = newCache;
-        return true;
-    }
-
-
-    /**
-     * Insert into the right place in a sorted MapElement array.
-     */
-    private final CacheEntry removeCache(String name) {
-        CacheEntry[] oldCache = cache;
-        int pos = find(oldCache, name);
-        if ((pos != -1) && (name.equals(oldCache[pos].name))) {
-            CacheEntry[] newCache = new CacheEntry[cache.length - 1];
-            System.arraycopy(oldCache, 0, newCache, 0, pos);
-            System.arraycopy(oldCache, pos + 1, newCache, pos, 
-                             oldCache.length - pos - 1);
-            cache = newCache;
-            return oldCache[pos];
-        }
-        return null;
+        return false;
     }
 
 
@@ -0,0 +1,177 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.naming.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Hashtable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProxyDirContextTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ProxyDirContext context;
+
+    @Before
+    public void createContext() throws Exception {
+        FileDirContext fileContext = new FileDirContext();
+        fileContext.setDocBase(folder.getRoot().getAbsolutePath());
+        fileContext.setCached(true);
+        fileContext.setCacheMaxSize(10240);
+        context = new ProxyDirContext(new Hashtable<String, String>(), fileContext);
+    }
+
+    @Test
+    public void smallResourceIsCachedOnTheHeap() throws Exception {
+        byte[] content = write("small.txt", 1024);
+
+        Resource resource = (Resource) context.lookup("/small.txt");
+
+        assertArrayEquals(content, resource.getContent());
+        assertNull(resource.getBufferedContent());
+    }
+
+    @Test
+    public void largeResourceIsCachedOffHeap() throws Exception {
+        byte[] content = write("large.bin", 64 * 1024);
+
+        Resource resource = (Resource) context.lookup("/large.bin");
+
+        assertNull(resource.getContent());
+        ByteBuffer buffered = resource.getBufferedContent();
+        assertNotNull(buffered);
+        assertTrue(buffered.isDirect());
+        assertTrue(buffered.isReadOnly());
+        assertEquals(content.length, buffered.remaining());
+        byte[] read = new byte[buffered.remaining()];
+        buffered.get(read);
+        assertArrayEquals(content, read);
+
+        // Every stream and view starts over at the beginning of the content
+        assertArrayEquals(content, readFully(resource.streamContent()));
+        assertArrayEquals(content, readFully(resource.streamContent()));
+        assertEquals(content.length, resource.getBufferedContent().remaining());
+
+        // The entry is served from the cache afterwards
+        assertSame(resource, context.lookup("/large.bin"));
+    }
+
+    @Test
+    public void resourceAboveObjectMaxSizeIsNotCached() throws Exception {
+        byte[] content = write("huge.bin", 600 * 1024);
+
+        Resource resource = (Resource) context.lookup("/huge.bin");
+
+        assertNull(resource.getContent());
+        assertNull(resource.getBufferedContent());
+        assertArrayEquals(content, readFully(resource.streamContent()));
+    }
+
+    @Test
+    public void loadOffHeapReadsStreamWithoutBackingFile() throws Exception {
+        byte[] content = new byte[40 * 1024];
+        fill(content);
+        CacheEntry entry = new CacheEntry();
+        entry.attributes = new ResourceAttributes();
+        entry.resource = new Resource(content);
+
+        ByteBuffer buffer = context.loadOffHeap(entry, content.length);
+
+        assertTrue(buffer.isDirect());
+        byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        assertArrayEquals(content, read);
+    }
+
+    @Test
+    public void loadOffHeapStopsAtEndOfShorterContent() throws Exception {
+        CacheEntry entry = new CacheEntry();
+        entry.attributes = new ResourceAttributes();
+        entry.resource = new Resource(new byte[100]);
+
+        ByteBuffer buffer = context.loadOffHeap(entry, 200);
+
+        assertEquals(100, buffer.remaining());
+        assertFalse(buffer.hasArray());
+    }
+
+    private byte[] write(String name, int length) throws IOException {
+        byte[] content = new byte[length];
+        fill(content);
+        Files.write(new File(folder.getRoot(), name).toPath(), content);
+        return content;
+    }
+
+    private static void fill(byte[] content) {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
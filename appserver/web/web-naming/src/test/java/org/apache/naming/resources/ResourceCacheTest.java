@@ -0,0 +1,197 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.apache.naming.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceCacheTest {
+
+    private ResourceCache cache;
+
+    @Before
+    public void createCache() {
+        cache = new ResourceCache();
+        cache.setCacheMaxSize(100);
+    }
+
+    @Test
+    public void loadAndUnloadTrackCacheSize() {
+        cache.load(entry("/a", 10));
+        cache.load(missingEntry("/missing"));
+        assertEquals(11, cache.getCacheSize());
+
+        // A second entry for a name which is already cached is not counted
+        cache.load(entry("/a", 10));
+        assertEquals(11, cache.getCacheSize());
+
+        assertTrue(cache.unload("/a"));
+        assertTrue(cache.unload("/missing"));
+        assertFalse(cache.unload("/a"));
+        assertEquals(0, cache.getCacheSize());
+    }
+
+    @Test
+    public void lookupFindsMissingEntriesAndCountsHits() {
+        CacheEntry missing = missingEntry("/missing");
+        cache.load(missing);
+
+        assertSame(missing, cache.lookup("/missing"));
+        assertNull(cache.lookup("/other"));
+        assertEquals(2, cache.getAccessCount());
+        assertEquals(1, cache.getHitsCount());
+    }
+
+    @Test
+    public void allocateWithinLimitKeepsAllEntries() {
+        fill(9, 10);
+
+        assertTrue(cache.allocate(10));
+        assertEquals(90, cache.getCacheSize());
+    }
+
+    @Test
+    public void allocateEvictsRarelyUsedEntriesToStayUnderLimit() {
+        List<CacheEntry> entries = fill(10, 10);
+        makeHot(entries.subList(0, 5));
+
+        assertTrue(cache.allocate(10));
+
+        assertTrue(cache.getCacheSize() + 10 <= cache.getCacheMaxSize());
+        for (CacheEntry entry : entries.subList(0, 5)) {
+            assertNotNull(entry.name, cache.cache.get(entry.name));
+        }
+    }
+
+    @Test
+    public void allocateGivesUpWhenEveryEntryIsUsedOften() {
+        List<CacheEntry> entries = fill(10, 10);
+        makeHot(entries);
+
+        assertFalse(cache.allocate(10));
+        assertEquals(100, cache.getCacheSize());
+        assertEquals(10, cache.cache.size());
+    }
+
+    @Test
+    public void allocateGivesUpAfterMaxIterations() {
+        cache.setMaxAllocateIterations(2);
+        fill(20, 5);
+
+        // Two sampled entries can not free the 15 KB needed
+        assertFalse(cache.allocate(10));
+        assertEquals(100, cache.getCacheSize());
+    }
+
+    @Test
+    public void allocateDropsMissingEntriesFirst() {
+        cache.setCacheMaxSize(20);
+        cache.setSpareNotFoundEntries(2);
+        fill(3, 5);
+        for (int i = 0; i < 5; i++) {
+            cache.load(missingEntry("/missing" + i));
+        }
+        assertEquals(20, cache.getCacheSize());
+
+        assertTrue(cache.allocate(2));
+
+        assertTrue(cache.notFoundCache.isEmpty());
+        assertEquals(3, cache.cache.size());
+        assertEquals(15, cache.getCacheSize());
+    }
+
+    @Test
+    public void repeatedAllocationsKeepCacheUnderLimit() {
+        for (int i = 0; i < 1000; i++) {
+            CacheEntry entry = entry("/resource" + i, 1 + (i % 7));
+            if (cache.allocate(entry.size)) {
+                cache.load(entry);
+            }
+            assertTrue(cache.getCacheSize() <= cache.getCacheMaxSize());
+        }
+        assertNotNull(cache.cache.get("/resource999"));
+    }
+
+    private List<CacheEntry> fill(int count, int size) {
+        List<CacheEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CacheEntry entry = entry("/resource" + i, size);
+            cache.load(entry);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Gives each entry a fifth of all the accesses made so far, well above
+     * the desired access ratio.
+     */
+    private void makeHot(List<CacheEntry> entries) {
+        for (int i = 0; i < 100; i++) {
+            cache.lookup("/resource0");
+        }
+        for (CacheEntry entry : entries) {
+            entry.accessCount = 20;
+        }
+    }
+
+    private static CacheEntry entry(String name, int size) {
+        CacheEntry entry = new CacheEntry();
+        entry.name = name;
+        entry.size = size;
+        return entry;
+    }
+
+    private static CacheEntry missingEntry(String name) {
+        CacheEntry entry = entry(name, 1);
+        entry.exists = false;
+        return entry;
+    }
+}
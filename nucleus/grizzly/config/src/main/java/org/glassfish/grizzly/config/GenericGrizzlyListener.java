@@ -38,7 +38,7 @@
  * holder.
  * 
  * 
- * Portions Copyright [2016-2021] [Payara Foundation and/or its affiliates] 
+ * Portions Copyright [2016-2024] [Payara Foundation and/or its affiliates] 
  */
 package org.glassfish.grizzly.config;
 
@@ -660,6 +660,19 @@ public class GenericGrizzlyListener implements GrizzlyListener {
         }
             
         try {
+            if (isVirtualThreadPool(threadPool)) {
+                // Run every task on its own virtual thread
+                workerExecutorService = new VirtualThreadExecutorService(
+                        configureThreadPoolConfig(networkListener, threadPool));
+                transport.setWorkerThreadPool(workerExecutorService);
+                return;
+            }
+            if (Boolean.parseBoolean(threadPool.getVirtualThreads())) {
+                LOGGER.log(Level.WARNING,
+                        "Virtual threads are not supported by this JVM, thread-pool {0}"
+                        + " will use platform threads", threadPool.getName());
+            }
+
             // Use standard Grizzly thread pool
             workerExecutorService = GrizzlyExecutorService.createInstance(
                     configureThreadPoolConfig(networkListener, threadPool));
@@ -674,8 +687,10 @@ public class GenericGrizzlyListener implements GrizzlyListener {
 
         final int maxQueueSize = threadPool.getMaxQueueSize() == null ? Integer.MAX_VALUE
             : Integer.parseInt(threadPool.getMaxQueueSize());
-        final int minThreads = Integer.parseInt(threadPool.getMinThreadPoolSize());
-        final int maxThreads = Integer.parseInt(threadPool.getMaxThreadPoolSize());
+        final boolean virtualThreads = isVirtualThreadPool(threadPool);
+        final int minThreads = virtualThreads ? 0 : Integer.parseInt(threadPool.getMinThreadPoolSize());
+        final int maxThreads = virtualThreads ? maxVirtualThreads(threadPool)
+            : Integer.parseInt(threadPool.getMaxThreadPoolSize());
         final int timeout = Integer.parseInt(threadPool.getIdleThreadTimeoutSeconds());
         final ThreadPoolConfig poolConfig = ThreadPoolConfig.defaultConfig();
         poolConfig.setPoolName(networkListener.getThreadPool() + "::" + networkListener.getName());
@@ -690,7 +705,7 @@ public class GenericGrizzlyListener implements GrizzlyListener {
         poolConfig.setInitialClassLoader(this.getClass().getClassLoader());
 
         poolConfig.setKeepAliveTime(timeout < 0 ? Long.MAX_VALUE : timeout, TimeUnit.SECONDS);
-        if (transactionTimeoutMillis > 0 && !Utils.isDebugVM()) {
+        if (transactionTimeoutMillis > 0 && !Utils.isDebugVM() && !virtualThreads) {
             poolConfig.setTransactionTimeout(obtainDelayedExecutor(),
                     transactionTimeoutMillis, TimeUnit.MILLISECONDS);
         }
@@ -698,6 +713,21 @@ public class GenericGrizzlyListener implements GrizzlyListener {
         return poolConfig;
     }
 
+    /**
+     * @return whether the thread pool is configured to use virtual threads
+     * and the running JDK supports them
+     */
+    protected boolean isVirtualThreadPool(final ThreadPool threadPool) {
+        return Boolean.parseBoolean(threadPool.getVirtualThreads())
+                && VirtualThreadExecutorService.isSupported();
+    }
+
+    private static int maxVirtualThreads(final ThreadPool threadPool) {
+        final int maxVirtualThreads = threadPool.getMaxVirtualThreads() == null ? 0
+            : Integer.parseInt(threadPool.getMaxVirtualThreads());
+        return maxVirtualThreads > 0 ? maxVirtualThreads : Integer.MAX_VALUE;
+    }
+
     private DelayedExecutor obtainDelayedExecutor() {
         if (delayedExecutor != null) {
             return delayedExecutor;
@@ -0,0 +1,334 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
+
+/**
+ * Worker {@link java.util.concurrent.ExecutorService} which runs every task
+ * on a new virtual thread.
+ * <p>
+ * Virtual threads are only available from JDK 21 on, so they are looked up
+ * reflectively; use {@link #isSupported()} before creating an instance. The
+ * number of tasks running at the same time can be capped by the max pool
+ * size of the {@link ThreadPoolConfig}, in which case further tasks wait in
+ * a queue bounded by its queue limit. The probes of the configuration are
+ * notified like those of the Grizzly thread pools, so the usual thread pool
+ * monitoring applies.
+ */
+public class VirtualThreadExecutorService extends AbstractExecutorService {
+
+    private static final Logger LOGGER = Grizzly.logger(VirtualThreadExecutorService.class);
+
+    private static final MethodHandle VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+
+    private final ThreadFactory threadFactory;
+    private final ThreadPoolProbe[] probes;
+    private final ClassLoader initialClassLoader;
+    private final int maxConcurrency;
+    private final int queueLimit;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean shutdown;
+
+    /**
+     * @param config the pool name, max pool size (as the concurrency cap,
+     * unbounded if not positive or {@link Integer#MAX_VALUE}), queue limit
+     * (unbounded if negative), initial class loader and probes to use
+     * @throws IllegalStateException if the running JDK has no virtual threads
+     */
+    public VirtualThreadExecutorService(ThreadPoolConfig config) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or later");
+        }
+        try {
+            threadFactory = (ThreadFactory) VIRTUAL_THREAD_FACTORY.invokeExact(config.getPoolName() + "-virtual-");
+        } catch (Throwable t) {
+            throw new IllegalStateException("Can not create virtual thread factory", t);
+        }
+        probes = config.getInitialMonitoringConfig().getProbes();
+        initialClassLoader = config.getInitialClassLoader();
+        maxConcurrency = config.getMaxPoolSize() > 0 ? config.getMaxPoolSize() : Integer.MAX_VALUE;
+        queueLimit = config.getQueueLimit() < 0 ? Integer.MAX_VALUE : config.getQueueLimit();
+    }
+
+    /**
+     * @return whether the running JDK supports virtual threads
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+
+        if (tryAcquire()) {
+            start(task);
+            return;
+        }
+
+        if (queued.incrementAndGet() > queueLimit) {
+            queued.decrementAndGet();
+            for (ThreadPoolProbe probe : probes) {
+                probe.onTaskQueueOverflowEvent(null);
+            }
+            throw new RejectedExecutionException("The queue of the virtual thread executor is full");
+        }
+        queue.offer(task);
+        for (ThreadPoolProbe probe : probes) {
+            probe.onTaskQueueEvent(null, task);
+        }
+        for (ThreadPoolProbe probe : probes) {
+            probe.onMaxNumberOfThreadsEvent(null, maxConcurrency);
+        }
+
+        // a running task may have finished between the failed acquire and
+        // the offer, without seeing the queued task
+        if (tryAcquire()) {
+            Runnable next = poll();
+            if (next != null) {
+                start(next);
+            } else {
+                release();
+            }
+        }
+    }
+
+    private void start(Runnable task) {
+        try {
+            threadFactory.newThread(() -> run(task)).start();
+        } catch (Throwable t) {
+            release();
+            throw new RejectedExecutionException("Can not start virtual thread", t);
+        }
+    }
+
+    private void run(Runnable firstTask) {
+        Thread thread = Thread.currentThread();
+        if (initialClassLoader != null) {
+            thread.setContextClassLoader(initialClassLoader);
+        }
+        for (ThreadPoolProbe probe : probes) {
+            probe.onThreadAllocateEvent(null, thread);
+        }
+        try {
+            // keep the permit while there is queued work
+            Runnable task = firstTask;
+            while (task != null) {
+                runTask(task);
+                task = poll();
+            }
+        } finally {
+            release();
+            for (ThreadPoolProbe probe : probes) {
+                probe.onThreadReleaseEvent(null, thread);
+            }
+        }
+
+        // queued work may have arrived after the last poll
+        if (!queue.isEmpty() && tryAcquire()) {
+            Runnable next = poll();
+            if (next != null) {
+                start(next);
+            } else {
+                release();
+            }
+        }
+    }
+
+    private void runTask(Runnable task) {
+        for (ThreadPoolProbe probe : probes) {
+            probe.onTaskDequeueEvent(null, task);
+        }
+        try {
+            task.run();
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Uncaught exception in virtual thread task", t);
+        } finally {
+            for (ThreadPoolProbe probe : probes) {
+                probe.onTaskCompleteEvent(null, task);
+            }
+        }
+    }
+
+    private Runnable poll() {
+        Runnable task = queue.poll();
+        if (task != null) {
+            queued.decrementAndGet();
+        }
+        return task;
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = running.get();
+            if (current >= maxConcurrency) {
+                return false;
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void release() {
+        if (running.decrementAndGet() == 0 && shutdown && queue.isEmpty()) {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * @return the number of tasks currently running
+     */
+    public int getActiveCount() {
+        return running.get();
+    }
+
+    /**
+     * @return the number of tasks waiting for the concurrency cap
+     */
+    public int getQueueSize() {
+        return queued.get();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (running.get() == 0 && queue.isEmpty()) {
+            terminated.countDown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        Runnable task;
+        while ((task = poll()) != null) {
+            pending.add(task);
+        }
+        if (running.get() == 0) {
+            terminated.countDown();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Looks up <code>Thread.ofVirtual().name(prefix, 0)
+     * .inheritInheritableThreadLocals(false).factory()</code> as a handle
+     * taking the name prefix. Inheritable thread locals, such as the frames
+     * of the invocation manager, are not passed on from the dispatching
+     * thread, so each request starts from a clean state as it does on a
+     * pooled thread.
+     */
+    private static MethodHandle lookupVirtualThreadFactory() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                    MethodType.methodType(virtualBuilderClass));
+            MethodHandle name = lookup.findVirtual(virtualBuilderClass, "name",
+                    MethodType.methodType(virtualBuilderClass, String.class, long.class));
+            MethodHandle noInheritance = lookup.findVirtual(virtualBuilderClass, "inheritInheritableThreadLocals",
+                    MethodType.methodType(virtualBuilderClass, boolean.class));
+            MethodHandle factory = lookup.findVirtual(builderClass, "factory",
+                    MethodType.methodType(ThreadFactory.class));
+
+            // (String) -> ThreadFactory
+            MethodHandle named = MethodHandles.collectArguments(
+                    MethodHandles.insertArguments(name, 2, 0L), 0, ofVirtual);
+            MethodHandle builder = MethodHandles.filterReturnValue(named,
+                    MethodHandles.insertArguments(noInheritance, 1, false));
+            MethodHandle handle = MethodHandles.filterReturnValue(builder,
+                    factory.asType(MethodType.methodType(ThreadFactory.class, virtualBuilderClass)));
+
+            // fails when virtual threads are a disabled preview feature
+            ThreadFactory probe = (ThreadFactory) handle.invokeExact("probe-");
+            probe.newThread(() -> { });
+            return handle;
+        } catch (Throwable t) {
+            LOGGER.log(Level.FINE, "Virtual threads are not supported by this JDK", t);
+            return null;
+        }
+    }
+}
@@ -37,7 +37,7 @@
  * only if the new code is made subject to such option by the copyright
  * holder.
  */
-// Portions Copyright [2018] [Payara Foundation and/or its affiliates]
+// Portions Copyright [2018-2024] [Payara Foundation and/or its affiliates]
 
 package org.glassfish.grizzly.config.dom;
 
@@ -111,6 +111,25 @@ public interface ThreadPool extends ConfigBeanProxy, PropertyBag {
 
     void setMinThreadPoolSize(String value);
 
+    /**
+     * Run the requests of the network listeners using this pool on virtual
+     * threads instead of pooled platform threads. Only effective on JDK 21
+     * or later; the platform thread pool is used otherwise.
+     */
+    @Attribute(defaultValue = "false", dataType = Boolean.class)
+    String getVirtualThreads();
+
+    void setVirtualThreads(String value);
+
+    /**
+     * Maximum number of virtual threads running requests at the same time,
+     * further requests are queued up to the max queue size. 0 means no limit.
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    String getMaxVirtualThreads();
+
+    void setMaxVirtualThreads(String value);
+
     /**
      * This is an id for the work-queue e.g. "thread-pool-1", "thread-pool-2" etc
      */
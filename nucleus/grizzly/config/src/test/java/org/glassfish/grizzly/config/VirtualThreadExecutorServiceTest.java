@@ -0,0 +1,178 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.glassfish.grizzly.config.dom.NetworkListener;
+import org.glassfish.grizzly.config.dom.ThreadPool;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VirtualThreadExecutorServiceTest {
+
+    @Test
+    public void isNotSupportedBeforeVirtualThreadsWereIntroduced() {
+        assumeTrue(Runtime.version().feature() < 19);
+
+        assertFalse(VirtualThreadExecutorService.isSupported());
+    }
+
+    @Test
+    public void isSupportedOnceVirtualThreadsAreFinal() {
+        assumeTrue(Runtime.version().feature() >= 21);
+
+        assertTrue(VirtualThreadExecutorService.isSupported());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotBeCreatedWithoutVirtualThreads() {
+        assumeFalse(VirtualThreadExecutorService.isSupported());
+
+        new VirtualThreadExecutorService(ThreadPoolConfig.defaultConfig());
+    }
+
+    @Test
+    public void listenerFallsBackToPlatformThreads() {
+        assumeFalse(VirtualThreadExecutorService.isSupported());
+        ThreadPool threadPool = threadPool();
+        NetworkListener networkListener = mock(NetworkListener.class);
+        when(networkListener.getThreadPool()).thenReturn("http-thread-pool");
+        when(networkListener.getName()).thenReturn("http-listener-1");
+
+        GenericGrizzlyListener listener = new GenericGrizzlyListener();
+        assertFalse(listener.isVirtualThreadPool(threadPool));
+
+        ThreadPoolConfig config = listener.configureThreadPoolConfig(networkListener, threadPool);
+        assertEquals(2, config.getCorePoolSize());
+        assertEquals(8, config.getMaxPoolSize());
+    }
+
+    @Test
+    public void runsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreadExecutorService.isSupported());
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService(config(-1, -1));
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            thread.set(Thread.currentThread());
+            ran.countDown();
+        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        assertTrue((Boolean) isVirtual.invoke(thread.get()));
+        assertTrue(thread.get().getName().startsWith("test-pool-virtual-"));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void capsTheTasksRunningAtTheSameTime() throws Exception {
+        assumeTrue(VirtualThreadExecutorService.isSupported());
+        VirtualThreadExecutorService executor = new VirtualThreadExecutorService(config(2, 1));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        Runnable task = () -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrent.decrementAndGet();
+            done.countDown();
+        };
+
+        executor.execute(task);
+        executor.execute(task);
+        executor.execute(task);
+        assertEquals(1, executor.getQueueSize());
+        try {
+            executor.execute(task);
+            fail("the queue limit was exceeded");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, maxConcurrent.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    private static ThreadPool threadPool() {
+        ThreadPool threadPool = mock(ThreadPool.class);
+        when(threadPool.getName()).thenReturn("http-thread-pool");
+        when(threadPool.getVirtualThreads()).thenReturn("true");
+        when(threadPool.getMinThreadPoolSize()).thenReturn("2");
+        when(threadPool.getMaxThreadPoolSize()).thenReturn("8");
+        when(threadPool.getMaxQueueSize()).thenReturn("-1");
+        when(threadPool.getIdleThreadTimeoutSeconds()).thenReturn("900");
+        return threadPool;
+    }
+
+    private static ThreadPoolConfig config(int maxPoolSize, int queueLimit) {
+        ThreadPoolConfig config = ThreadPoolConfig.defaultConfig();
+        config.setPoolName("test-pool");
+        config.setMaxPoolSize(maxPoolSize);
+        config.setQueueLimit(queueLimit);
+        return config;
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) [2016-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) [2016-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -82,6 +82,7 @@ import org.glassfish.api.admin.ServerEnvironment.Status;
 import org.glassfish.api.event.EventListener;
 import org.glassfish.api.event.EventTypes;
 import org.glassfish.api.event.Events;
+import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.hk2.runlevel.RunLevel;
 import org.glassfish.internal.api.ClassLoaderHierarchy;
 import org.glassfish.internal.api.JavaEEContextUtil;
@@ -177,6 +178,9 @@ public class HazelcastCore implements EventListener, ConfigListener {
     @Inject @Optional
     private JavaEEContextUtil ctxUtil;
 
+    @Inject
+    private ServiceLocator habitat;
+
     // Provides ability to register a configuration listener
     @Inject
     Transactions transactions;
@@ -446,6 +450,12 @@ public class HazelcastCore implements EventListener, ConfigListener {
 
                 config.setProperty("hazelcast.jmx", "true");
             }
+            // The global serializer would take precedence over the zero
+            // configuration Compact format, so register the serializers
+            // explicitly
+            for (HazelcastCompactSerializer<?> serializer : habitat.getAllServices(HazelcastCompactSerializer.class)) {
+                config.getSerializationConfig().getCompactSerializationConfig().addSerializer(serializer);
+            }
             if (config.getCPSubsystemConfig().getCPMemberCount() == 0) {
                 config.getCPSubsystemConfig().setCPMemberCount(Integer.getInteger("hazelcast.cp-subsystem.cp-member-count", 0));
             }
@@ -1,6 +1,6 @@
 /*
  *
- * Copyright (c) 2016-2023 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -216,6 +216,37 @@ public class ClusteredStore implements EventListener, MonitoringDataSource {
         return result;
     }
 
+    /**
+     * Gets the values from Hazelcast for the given keys in the given store,
+     * fetching all of them in one operation.
+     * The store will be created if it does not already exist.
+     * @param storeName The store name to lookup
+     * @param keys The keys to get the values of
+     * @return the key/value pairs found, keys without a value are left out
+     */
+    public Map<Serializable, Serializable> getAll(String storeName, Set<Serializable> keys) {
+        HashMap<Serializable, Serializable> result = new HashMap<>();
+        if (isEnabled() && !keys.isEmpty()) {
+            try (Context ctx = ctxUtil.empty().pushContext()) {
+                IMap<Serializable, ?> map = hzCore.getInstance().getMap(storeName);
+                if (map != null) {
+                    for (Map.Entry<Serializable, ?> entry : map.getAll(keys).entrySet()) {
+                        Serializable value = (Serializable) entry.getValue();
+
+                        if (value instanceof PayaraHazelcastEncryptedValueHolder && hzCore.isDatagridEncryptionEnabled()) {
+                            value = (Serializable) HazelcastSymmetricEncryptor.byteArrayToObject(
+                                    HazelcastSymmetricEncryptor.decode(
+                                            ((PayaraHazelcastEncryptedValueHolder) value).getEncryptedObjectBytes()));
+                        }
+
+                        result.put(entry.getKey(), value);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void event(Event event) {
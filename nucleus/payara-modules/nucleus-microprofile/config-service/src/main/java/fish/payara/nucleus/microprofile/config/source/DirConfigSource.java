@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) [2017-2020] Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) [2017-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -324,6 +324,7 @@ public class DirConfigSource extends PayaraConfigSource implements ConfigSource
             // This property file will be skipped if the file we already have is deeper in the file tree...
             if (isLongestMatchForPath(property, path)) {
                 properties.put(property, readPropertyFromPath(path, mainAtts, this.directory));
+                configService.configChanged();
                 return true;
             }
         }
@@ -340,6 +341,7 @@ public class DirConfigSource extends PayaraConfigSource implements ConfigSource
         // -> deleting a file more specific than in map shouldn't occur (it had to slip through longest match check then).
         if (path.equals(properties.get(property).path)) {
             properties.remove(property);
+            configService.configChanged();
         }
     }
     
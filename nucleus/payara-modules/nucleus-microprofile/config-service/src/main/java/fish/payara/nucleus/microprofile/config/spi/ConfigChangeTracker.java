@@ -0,0 +1,90 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.nucleus.microprofile.config.spi;
+
+/**
+ * Keeps track of changes to the values provided by the server's {@link org.eclipse.microprofile.config.spi.ConfigSource}s
+ * so that a {@link PayaraConfig} can cache values until they change instead of for a fixed duration.
+ *
+ * Changes are reported by {@link ConfigProviderResolverImpl#configChanged()}. Each change results in a new
+ * {@link #getVersion()}. Cache entries remember the version they were resolved for and are valid as long as the
+ * version has not changed since.
+ */
+final class ConfigChangeTracker {
+
+    static final long DISABLED = -1L;
+
+    /**
+     * The current version or {@link #DISABLED}. Whether tracking is enabled and the current version are combined in
+     * a single field so that a cache hit only needs a single volatile read.
+     */
+    private volatile long version = DISABLED;
+
+    /**
+     * Total number of changes, also counted while tracking is disabled so a version is never reused.
+     */
+    private long changes;
+
+    /**
+     * @return the current version or {@link #DISABLED} if changes are not tracked
+     */
+    long getVersion() {
+        return version;
+    }
+
+    boolean isEnabled() {
+        return version != DISABLED;
+    }
+
+    synchronized void setEnabled(boolean enabled) {
+        if (!enabled) {
+            version = DISABLED;
+        } else if (version == DISABLED) {
+            version = ++changes;
+        }
+    }
+
+    synchronized void changed() {
+        changes++;
+        if (version != DISABLED) {
+            version = changes;
+        }
+    }
+}
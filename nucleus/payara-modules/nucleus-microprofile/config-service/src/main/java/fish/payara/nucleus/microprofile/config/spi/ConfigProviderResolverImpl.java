@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) [2017-2023] Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) [2017-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -41,6 +41,7 @@ package fish.payara.nucleus.microprofile.config.spi;
 
 import static fish.payara.nucleus.microprofile.config.spi.PayaraConfigBuilder.getTypeForConverter;
 
+import java.beans.PropertyChangeEvent;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
@@ -52,12 +53,14 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -85,6 +88,9 @@ import org.glassfish.internal.data.ModuleInfo;
 import org.jvnet.hk2.annotations.ContractsProvided;
 import org.jvnet.hk2.annotations.Optional;
 import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.TransactionListener;
+import org.jvnet.hk2.config.Transactions;
+import org.jvnet.hk2.config.UnprocessedChangeEvents;
 
 import fish.payara.nucleus.microprofile.config.converters.BooleanConverter;
 import fish.payara.nucleus.microprofile.config.converters.ByteConverter;
@@ -129,7 +135,7 @@ import org.glassfish.api.event.Events;
 @Service(name = "microprofile-config-provider")
 @ContractsProvided({ConfigProviderResolver.class, ConfigProviderResolverImpl.class})
 @RunLevel(StartupRunLevel.IMPLICITLY_RELIED_ON)
-public class ConfigProviderResolverImpl extends ConfigProviderResolver implements EventListener {
+public class ConfigProviderResolverImpl extends ConfigProviderResolver implements EventListener, TransactionListener {
 
     private static final Logger LOG = Logger.getLogger(ConfigProviderResolverImpl.class.getName());
     private static final String METADATA_KEY = "MICROPROFILE_APP_CONFIG";
@@ -168,6 +174,16 @@ public class ConfigProviderResolverImpl extends ConfigProviderResolver implement
     @Inject
     private Events events;
 
+    @Inject
+    private Transactions transactions;
+
+    // tracks changes of the server's config sources when values are cached until changed
+    private final ConfigChangeTracker changeTracker = new ConfigChangeTracker();
+
+    private ScheduledFuture<?> jdbcConfigSourcePoll;
+    private long jdbcConfigSourcePollInterval;
+    private volatile Map<String, String> polledJdbcConfigValues;
+
     /**
      * Logs constructor as finest - may be useful to watch sequence of operations.
      */
@@ -191,6 +207,9 @@ public class ConfigProviderResolverImpl extends ConfigProviderResolver implement
         if (events != null) {
             events.register(this);
         }
+        if (transactions != null) {
+            transactions.addTransactionsListener(this);
+        }
     }
 
     public MicroprofileConfigConfiguration getMPConfig() {
@@ -208,6 +227,69 @@ public class ConfigProviderResolverImpl extends ConfigProviderResolver implement
         return Integer.parseInt(getMPConfig().getCacheDurationSeconds());
     }
 
+    /**
+     * Notifies the resolver that a value provided by one of the server's {@link ConfigSource}s might have changed. When
+     * values are cached until changed this invalidates all cached values.
+     */
+    public void configChanged() {
+        changeTracker.changed();
+    }
+
+    /**
+     * Called for each committed domain configuration transaction. Values of most server config sources are stored in
+     * the domain configuration so any transaction is considered a change.
+     */
+    @Override
+    public void transactionCommited(List<PropertyChangeEvent> changes) {
+        updateChangeTracking();
+        configChanged();
+    }
+
+    @Override
+    public void unprocessedTransactedEvents(List<UnprocessedChangeEvents> changes) {
+        // transactionCommited already covers these
+    }
+
+    private synchronized void updateChangeTracking() {
+        MicroprofileConfigConfiguration config = getMPConfig();
+        boolean enabled = config != null && Boolean.parseBoolean(config.getCacheUntilChanged());
+        changeTracker.setEnabled(enabled);
+        long interval = enabled ? Math.max(1, Integer.parseInt(config.getCacheDurationSeconds())) : 0;
+        if (interval == jdbcConfigSourcePollInterval || executorService == null) {
+            return;
+        }
+        if (jdbcConfigSourcePoll != null) {
+            jdbcConfigSourcePoll.cancel(false);
+            jdbcConfigSourcePoll = null;
+            polledJdbcConfigValues = null;
+        }
+        jdbcConfigSourcePollInterval = interval;
+        if (interval > 0) {
+            // the first poll compares with the values as of now, not with those it finds itself
+            polledJdbcConfigValues = readJdbcConfigSource();
+            jdbcConfigSourcePoll = executorService.scheduleWithFixedDelay(this::pollJdbcConfigSource,
+                    interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * The JDBC config source cannot notify about changes so its values are polled and compared with the previous poll.
+     */
+    private void pollJdbcConfigSource() {
+        Map<String, String> values = readJdbcConfigSource();
+        if (polledJdbcConfigValues != null && !Objects.equals(polledJdbcConfigValues, values)) {
+            configChanged();
+        }
+        polledJdbcConfigValues = values;
+    }
+
+    /**
+     * @return the current values of the JDBC config source
+     */
+    Map<String, String> readJdbcConfigSource() {
+        return new JDBCConfigSource().getProperties();
+    }
+
     @Override
     public Config getConfig() {
         return getConfig(Thread.currentThread().getContextClassLoader());
@@ -277,7 +359,7 @@ public class ConfigProviderResolverImpl extends ConfigProviderResolver implement
                 sources.addAll(getDefaultSources());
                 sources.addAll(extensionService.getExtensionSources());
                 converters.putAll(getDefaultConverters());
-                serverLevelConfig = new PayaraConfig(sources, converters, TimeUnit.SECONDS.toMillis(getCacheDurationSeconds()));
+                serverLevelConfig = new PayaraConfig(sources, converters, TimeUnit.SECONDS.toMillis(getCacheDurationSeconds()), changeTracker);
                 result = serverLevelConfig;
             }
         } else { // look for an application specific one
@@ -292,7 +374,7 @@ public class ConfigProviderResolverImpl extends ConfigProviderResolver implement
                 sources.addAll(getDiscoveredSources(appInfo));
                 converters.putAll(getDefaultConverters());
                 converters.putAll(getDiscoveredConverters(appInfo));
-                PayaraConfig appresult = new PayaraConfig(sources, converters, TimeUnit.SECONDS.toMillis(getCacheDurationSeconds()));
+                PayaraConfig appresult = new PayaraConfig(sources, converters, TimeUnit.SECONDS.toMillis(getCacheDurationSeconds()), changeTracker);
                 addProfileSource(appresult, appInfo.getAppClassLoader());
                 result = appresult;
                 appInfo.addTransientAppMetaData(METADATA_KEY, result);
@@ -551,6 +633,7 @@ public class ConfigProviderResolverImpl extends ConfigProviderResolver implement
     @Override
     public void event(Event<?> event) {
         if (event.is(EventTypes.SERVER_STARTUP)) {
+            updateChangeTracking();
             if (serverLevelConfig != null) {
                 serverLevelConfig.clearCache();
             }
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) [2017-2021] Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) [2017-2024] Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -130,6 +130,15 @@ public interface MicroprofileConfigConfiguration extends ConfigExtension {
     String getCacheDurationSeconds();
     void setCacheDurationSeconds(String cacheDurationSeconds);
 
+    /**
+     * @return true, when MP {@link Config} values should be cached until a change to the server's {@link ConfigSource}s
+     *         is detected instead of expiring them after {@link #getCacheDurationSeconds()}. In this mode the cache
+     *         duration is used as interval to poll the JDBC config source for changes.
+     */
+    @Attribute(defaultValue = "false", dataType = Boolean.class)
+    String getCacheUntilChanged();
+    void setCacheUntilChanged(String cacheUntilChanged);
+
     @Element("*")
     List<ConfigSourceConfiguration> getConfigSourceConfigurationList();
 
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2017-2023 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2017-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -71,6 +71,9 @@ import java.util.logging.Logger;
  * {@link #getValue(String, Class)} is called. This cache can be bypassed by constructing the {@link PayaraConfig} with
  * a TTL of zero (or negative).
  *
+ * When constructed with a {@link ConfigChangeTracker} that is enabled values are instead cached until the tracker
+ * reports a change of any of the server's config sources. Such values do not expire by time.
+ *
  * @author Steve Millidge (Payara Foundation)
  * @author Jan Bernitt (caching part, ConfigValueResolver)
  */
@@ -92,11 +95,23 @@ public class PayaraConfig implements Config {
         }
     }
 
+    private static final class VersionedCacheEntry {
+        final ConfigValueImpl value;
+        final long version;
+
+        VersionedCacheEntry(ConfigValueImpl value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
     private final List<ConfigSource> sources;
     private final Map<Class<?>, Converter<?>> converters;
     private final long defaultCacheDurationMilliSeconds;
 
     private final Map<String, CacheEntry> cachedValuesByProperty = new ConcurrentHashMap<>();
+    private final Map<String, VersionedCacheEntry> versionedValuesByProperty = new ConcurrentHashMap<>();
+    private final ConfigChangeTracker changeTracker;
 
     private volatile long configuredCacheDurationMilliSeconds;
     private volatile long configuredCacheDurationMilliSecondsExpires = 0; // force value reload at start
@@ -105,9 +120,15 @@ public class PayaraConfig implements Config {
     private final String profile;
 
     public PayaraConfig(List<ConfigSource> sources, Map<Class<?>, Converter<?>> converters, long defaultCacheDurationMilliSeconds) {
+        this(sources, converters, defaultCacheDurationMilliSeconds, null);
+    }
+
+    PayaraConfig(List<ConfigSource> sources, Map<Class<?>, Converter<?>> converters, long defaultCacheDurationMilliSeconds,
+            ConfigChangeTracker changeTracker) {
         this.sources = sources;
         this.converters = new ConcurrentHashMap<>(converters);
         this.defaultCacheDurationMilliSeconds = defaultCacheDurationMilliSeconds;
+        this.changeTracker = changeTracker;
         Collections.sort(sources, new ConfigSourceComparator());
 
         profile = getConfigValue(MP_CONFIG_PROFILE_NAME_STRING).getValue();
@@ -230,6 +251,12 @@ public class PayaraConfig implements Config {
     }
 
     protected ConfigValueImpl getConfigValue(String propertyName, String cacheKey, Long ttl, String defaultValue, ConfigValueType type) {
+        if (ttl == null && changeTracker != null) {
+            long version = changeTracker.getVersion();
+            if (version != ConfigChangeTracker.DISABLED) {
+                return getVersionedConfigValue(propertyName, cacheKey, defaultValue, type, version);
+            }
+        }
         long entryTTL = ttl != null ? ttl : getCacheDurationMilliSeconds();
         
         if (entryTTL <= 0) {
@@ -260,6 +287,25 @@ public class PayaraConfig implements Config {
         return cacheEntry.value;
     }
 
+    /**
+     * Returns the cached value as long as no change was tracked since it was resolved. Values resolved while a change
+     * occurs are cached with the version before the change and therefore are resolved again on next access.
+     */
+    private ConfigValueImpl getVersionedConfigValue(String propertyName, String cacheKey, String defaultValue,
+            ConfigValueType type, long version) {
+        final String entryKey = defaultValue == null ? cacheKey : cacheKey + ":" + defaultValue;
+        VersionedCacheEntry cacheEntry = versionedValuesByProperty.get(entryKey);
+        if (cacheEntry != null && cacheEntry.version == version) {
+            return cacheEntry.value;
+        }
+        boolean isExpansionEnabled = isExpansionEnabled(propertyName);
+        // searchConfigSources can cause recursive call to getConfigValue when expansion is enabled
+        ConfigValueImpl newValue = searchConfigSources(propertyName, defaultValue, isExpansionEnabled, type);
+        // keep the entry of the newer version in case another thread was faster
+        return versionedValuesByProperty.merge(entryKey, new VersionedCacheEntry(newValue, version),
+                (existing, created) -> existing.version > created.version ? existing : created).value;
+    }
+
     private <T> T convertValue(ConfigValue configValue, String defaultValue,
             Optional<Converter<T>> optionalConverter) {
         final String sourceValue = configValue.getValue();
@@ -313,6 +359,7 @@ public class PayaraConfig implements Config {
     
     public void clearCache() {
         cachedValuesByProperty.clear();
+        versionedValuesByProperty.clear();
     }
 
     private <E> Optional<Converter<Object>> createArrayConverter(Class<E> elementType) {
@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2024 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.nucleus.microprofile.config.spi;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import fish.payara.nucleus.executorservice.PayaraExecutorService;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Tests the polling of the JDBC config source while values are cached until changed.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class JdbcConfigSourcePollTest {
+
+    @Mock
+    private PayaraExecutorService executorService;
+
+    @Mock
+    private MicroprofileConfigConfiguration configuration;
+
+    private ScheduledFuture<?> scheduledPoll;
+
+    @InjectMocks
+    private PollingResolver resolver = new PollingResolver();
+
+    private Runnable poll;
+
+    @Before
+    public void enableChangeTracking() {
+        when(configuration.getCacheUntilChanged()).thenReturn("true");
+        when(configuration.getCacheDurationSeconds()).thenReturn("60");
+        // created after the injection, so it is not taken as the poll already scheduled
+        scheduledPoll = mock(ScheduledFuture.class);
+        doReturn(scheduledPoll).when(executorService).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+        resolver.jdbcValues = singletonMap("key", "initial");
+
+        resolver.transactionCommited(emptyList());
+
+        ArgumentCaptor<Runnable> command = ArgumentCaptor.forClass(Runnable.class);
+        verify(executorService).scheduleWithFixedDelay(command.capture(), eq(60L), eq(60L), eq(TimeUnit.SECONDS));
+        poll = command.getValue();
+        resolver.changes = 0;
+    }
+
+    @Test
+    public void changeWithinTheFirstIntervalIsDetected() {
+        resolver.jdbcValues = singletonMap("key", "changed");
+
+        poll.run();
+
+        assertEquals(1, resolver.changes);
+    }
+
+    @Test
+    public void unchangedValuesAreNoChange() {
+        poll.run();
+        poll.run();
+
+        assertEquals(0, resolver.changes);
+    }
+
+    @Test
+    public void eachChangeIsDetectedOnce() {
+        resolver.jdbcValues = singletonMap("key", "changed");
+        poll.run();
+        poll.run();
+        resolver.jdbcValues = singletonMap("key", "changed again");
+        poll.run();
+
+        assertEquals(2, resolver.changes);
+    }
+
+    @Test
+    public void disablingTrackingCancelsThePoll() {
+        when(configuration.getCacheUntilChanged()).thenReturn("false");
+
+        resolver.transactionCommited(emptyList());
+
+        verify(scheduledPoll).cancel(false);
+    }
+
+    static class PollingResolver extends ConfigProviderResolverImpl {
+
+        volatile Map<String, String> jdbcValues;
+        int changes;
+
+        @Override
+        Map<String, String> readJdbcConfigSource() {
+            return jdbcValues;
+        }
+
+        @Override
+        public void configChanged() {
+            changes++;
+            super.configChanged();
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
  *
- * Copyright (c) 2020-2023 Payara Foundation and/or its affiliates. All rights reserved.
+ * Copyright (c) 2020-2024 Payara Foundation and/or its affiliates. All rights reserved.
  *
  * The contents of this file are subject to the terms of either the GNU
  * General Public License Version 2 only ("GPL") or the Common Development
@@ -275,6 +275,36 @@ public class PayaraConfigTest {
         assertEquals(ttl, new PayaraConfig(emptyList(), emptyMap(), ttl).getCacheDurationMilliSeconds());
     }
 
+    @Test
+    public void valuesAreCachedUntilChanged() throws InterruptedException {
+        ConfigChangeTracker changeTracker = new ConfigChangeTracker();
+        changeTracker.setEnabled(true);
+        Config trackedConfig = new PayaraConfig(asList(source1, source2), emptyMap(), CACHE_TTL, changeTracker);
+        assertEquals("value1", trackedConfig.getValue("key1", String.class));
+        source1.getProperties().put("key1", "changed1");
+        Thread.sleep(CACHE_TTL * 2);
+        assertEquals("Value should not expire by time", "value1", trackedConfig.getValue("key1", String.class));
+        changeTracker.changed();
+        assertEquals("Change not visible", "changed1", trackedConfig.getValue("key1", String.class));
+        assertEquals("Change not visible", "changed1", trackedConfig.getOptionalValue("key1", String.class).get());
+    }
+
+    @Test
+    public void valuesExpireByTimeWhenChangesAreNotTracked() throws InterruptedException {
+        ConfigChangeTracker changeTracker = new ConfigChangeTracker();
+        changeTracker.setEnabled(true);
+        Config trackedConfig = new PayaraConfig(asList(source1, source2), emptyMap(), CACHE_TTL, changeTracker);
+        assertEquals("value2", trackedConfig.getValue("key2", String.class));
+        changeTracker.setEnabled(false);
+        source2.getProperties().put("key2", "changed2");
+        Thread.sleep(CACHE_TTL);
+        assertEquals("changed2", trackedConfig.getValue("key2", String.class));
+        // re-enabling must not revive entries cached before tracking was disabled
+        source2.getProperties().put("key2", "changed2again");
+        changeTracker.setEnabled(true);
+        assertEquals("changed2again", trackedConfig.getValue("key2", String.class));
+    }
+
     private <T> void assertCachedValue(ConfigSource source, String key, Class<T> propertyType, T expectedValue1,
             T expectedValue2) throws InterruptedException {
         long cacheExpiresAt = System.currentTimeMillis() + CACHE_TTL;